@@ -0,0 +1,128 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The neighbour lookups of the current week with ten archived years, two events per day. The archives are sorted
+ * arrays here, so the benchmark shows how many of them are read, not the cost of SQLite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ArchivedEventsBenchmark {
+
+	private static final int FIRST_YEAR = 2010;
+	private static final int CURRENT_YEAR = 2020;
+
+	private final List<Integer> years = new ArrayList<>();
+	private final Map<Integer, Event[]> archives = new HashMap<>();
+	private Event[] main;
+	private int currentWeek;
+	private int startOfCurrentYear;
+	private int archiveReads;
+
+	@Setup
+	public void fillArchives() {
+		for (int year = FIRST_YEAR; year < CURRENT_YEAR; year++) {
+			years.add(year);
+			archives.put(year, eventsBetween(ArchivedEvents.startOfYear(year), ArchivedEvents.startOfYear(year + 1)));
+		}
+		startOfCurrentYear = ArchivedEvents.startOfYear(CURRENT_YEAR);
+		currentWeek = DateTimeUtil.stringToEpochMinutes("2020-06-01 00:00:00.0000");
+		main = eventsBetween(startOfCurrentYear, currentWeek + 7 * DateTimeUtil.MINUTES_PER_DAY);
+
+		archiveReads = 0;
+		if (lastBeforeCurrentWeek() == null || firstAfterCurrentWeek() == null || archiveReads != 0) {
+			throw new IllegalStateException("the archives were read for the current week");
+		}
+		if (lastBeforeCurrentYear().getTimeMinutes() >= startOfCurrentYear || archiveReads != 1) {
+			throw new IllegalStateException("not only the archive of the last year was read");
+		}
+	}
+
+	/** the hot path: the main database has the neighbour, so no archive is read */
+	@Benchmark
+	public Event lastBeforeCurrentWeek() {
+		return ArchivedEvents.getLastBefore(years, currentWeek, lastBefore(main, currentWeek),
+			year -> lastBefore(archive(year), currentWeek));
+	}
+
+	@Benchmark
+	public Event firstAfterCurrentWeek() {
+		return ArchivedEvents.getFirstAfter(years, currentWeek, firstAfter(main, currentWeek),
+			year -> firstAfter(archive(year), currentWeek));
+	}
+
+	/** the neighbour is in the archive of the last year */
+	@Benchmark
+	public Event lastBeforeCurrentYear() {
+		return ArchivedEvents.getLastBefore(years, startOfCurrentYear, lastBefore(main, startOfCurrentYear),
+			year -> lastBefore(archive(year), startOfCurrentYear));
+	}
+
+	private Event[] archive(int year) {
+		archiveReads++;
+		return archives.get(year);
+	}
+
+	private static Event lastBefore(Event[] events, int minute) {
+		int index = firstIndexAfter(events, minute - 1) - 1;
+		return index >= 0 ? events[index] : null;
+	}
+
+	private static Event firstAfter(Event[] events, int minute) {
+		int index = firstIndexAfter(events, minute);
+		return index < events.length ? events[index] : null;
+	}
+
+	private static int firstIndexAfter(Event[] events, int minute) {
+		int low = 0;
+		int high = events.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (events[middle].getTimeMinutes() <= minute) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/** 08:00 and 16:00 of each day */
+	private static Event[] eventsBetween(int from, int to) {
+		List<Event> ret = new ArrayList<>();
+		for (int day = from; day < to; day += DateTimeUtil.MINUTES_PER_DAY) {
+			for (int hour = 8; hour <= 16; hour += 8) {
+				TypeEnum type = hour == 8 ? TypeEnum.CLOCK_IN : TypeEnum.CLOCK_OUT;
+				Event event = new Event(day + hour, 0, null, type.getValue(), null, null);
+				// the lookups only use the minutes and IDs
+				event.setTime(null, day + hour * 60);
+				ret.add(event);
+			}
+		}
+		return ret.toArray(new Event[0]);
+	}
+
+}
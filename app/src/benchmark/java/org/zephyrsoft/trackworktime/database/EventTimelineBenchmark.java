@@ -0,0 +1,193 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The neighbour lookups of the {@link DAO} (last event before / first event after a minute): the {@link EventTimeline}
+ * compared with the indexed {@code order by time_min limit 1} queries, which the DAO still runs in write transactions
+ * and snapshots. The events (four per day) are in a plain JDBC SQLite database, the timeline is loaded from it like
+ * in the DAO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EventTimelineBenchmark {
+
+	private static final String FIELDS = "_id, week, time, type, task, customtext, time_min";
+	/** the lookups cycle through this many random minutes */
+	private static final int LOOKUPS = 1024;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int events;
+
+	private Connection connection;
+	private PreparedStatement lastBeforeQuery;
+	private PreparedStatement firstAfterQuery;
+	private EventTimeline timeline;
+	private int[] lookupMinutes;
+	private int next = 0;
+
+	@Setup
+	public void fillDatabase() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT);
+			statement.execute(MySQLiteHelper.DATABASE_ALTER_EVENT_5_TO_6);
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT_TIME_MINUTES_INDEX_5_TO_6);
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT_WEEK_TIME_MINUTES_INDEX_5_TO_6);
+		}
+		int start = DateTimeUtil.stringToEpochMinutes("2015-01-05 00:00:00.0000");
+		int[] minutesOfDay = { 8 * 60, 12 * 60, 12 * 60 + 30, 17 * 60 };
+		connection.setAutoCommit(false);
+		try (PreparedStatement statement = connection
+			.prepareStatement("insert into event (week, type, task, time, time_min) values (1, ?, ?, ?, ?)")) {
+			for (int i = 0; i < events; i++) {
+				int minute = start + (i / 4) * DateTimeUtil.MINUTES_PER_DAY + minutesOfDay[i % 4];
+				boolean clockIn = i % 2 == 0;
+				statement.setInt(1, (clockIn ? TypeEnum.CLOCK_IN : TypeEnum.CLOCK_OUT).getValue());
+				statement.setInt(2, clockIn ? 1 + i % 3 : 0);
+				statement.setString(3, DateTimeUtil.dateTimeToString(DateTimeUtil.epochMinutesToDateTime(minute)));
+				statement.setInt(4, minute);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+		connection.commit();
+		connection.setAutoCommit(true);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("ANALYZE");
+		}
+		// the constraints and orders of DAO.getLastBefore and DAO.getFirstAfter
+		lastBeforeQuery = connection.prepareStatement("select " + FIELDS + " from event where time_min<?"
+			+ " order by time_min desc,_id desc limit 1");
+		firstAfterQuery = connection.prepareStatement("select " + FIELDS + " from event where time_min>?"
+			+ " order by time_min,_id limit 1");
+		timeline = loadTimeline();
+
+		Random random = new Random(42);
+		int end = start + (events / 4) * DateTimeUtil.MINUTES_PER_DAY;
+		lookupMinutes = new int[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			lookupMinutes[i] = start + random.nextInt(end - start);
+		}
+
+		if (timeline.size() != events) {
+			throw new IllegalStateException("the timeline doesn't contain all events");
+		}
+		for (int minute : lookupMinutes) {
+			if (idOf(timeline.getEvent(timeline.getLastBefore(minute))) != idOf(query(lastBeforeQuery, minute))
+				|| idOf(timeline.getEvent(timeline.getFirstAfter(minute))) != idOf(query(firstAfterQuery, minute))) {
+				throw new IllegalStateException("the timeline and the queries found different events");
+			}
+		}
+	}
+
+	private static int idOf(Event event) {
+		return event == null ? EventTimeline.NONE : event.getId();
+	}
+
+	/** like DAO.loadEventTimelineOnce() */
+	private EventTimeline loadTimeline() throws SQLException {
+		int[] minutes = new int[1024];
+		int[] ids = new int[1024];
+		int[] types = new int[1024];
+		int[] tasks = new int[1024];
+		int count = 0;
+		try (Statement statement = connection.createStatement();
+			ResultSet resultSet = statement.executeQuery("select time_min, _id, type, task from event"
+				+ " order by time_min,_id")) {
+			while (resultSet.next()) {
+				if (count == ids.length) {
+					minutes = Arrays.copyOf(minutes, count * 2);
+					ids = Arrays.copyOf(ids, count * 2);
+					types = Arrays.copyOf(types, count * 2);
+					tasks = Arrays.copyOf(tasks, count * 2);
+				}
+				minutes[count] = resultSet.getInt(1);
+				ids[count] = resultSet.getInt(2);
+				types[count] = resultSet.getInt(3);
+				tasks[count] = resultSet.getInt(4);
+				count++;
+			}
+		}
+		EventTimeline ret = new EventTimeline();
+		ret.load(minutes, ids, types, tasks, count, ret.getVersion());
+		return ret;
+	}
+
+	@TearDown
+	public void close() throws SQLException {
+		connection.close();
+	}
+
+	@Benchmark
+	public Event timelineLastBefore() {
+		return timeline.getEvent(timeline.getLastBefore(nextMinute()));
+	}
+
+	@Benchmark
+	public Event queryLastBefore() throws SQLException {
+		return query(lastBeforeQuery, nextMinute());
+	}
+
+	@Benchmark
+	public Event timelineFirstAfter() {
+		return timeline.getEvent(timeline.getFirstAfter(nextMinute()));
+	}
+
+	@Benchmark
+	public Event queryFirstAfter() throws SQLException {
+		return query(firstAfterQuery, nextMinute());
+	}
+
+	private int nextMinute() {
+		next = (next + 1) % LOOKUPS;
+		return lookupMinutes[next];
+	}
+
+	/** reads the event like DAO.cursorToEvent */
+	private static Event query(PreparedStatement query, int minute) throws SQLException {
+		query.setInt(1, minute);
+		try (ResultSet resultSet = query.executeQuery()) {
+			if (!resultSet.next()) {
+				return null;
+			}
+			Event ret = new Event();
+			ret.setId(resultSet.getInt(1));
+			ret.setWeek(resultSet.getInt(2));
+			ret.setTime(resultSet.getString(3), resultSet.getInt(7));
+			ret.setType(resultSet.getInt(4));
+			ret.setTask(resultSet.getInt(5));
+			ret.setText(resultSet.getString(6));
+			return ret;
+		}
+	}
+
+}
@@ -0,0 +1,161 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import hirondelle.date4j.DateTime;
+
+/**
+ * Reading the events of one week for the week view, in a plain JDBC SQLite database with five years of events (four
+ * per day): seven prefix matches on the time text, like {@link DAO#getEventsOnDay} did before, compared with the one
+ * range query on the indexed minutes of {@link DAO#getEventsPerDay}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EventsPerDayBenchmark {
+
+	private static final int DAYS = 5 * 365;
+	private static final String FIELDS = "_id, week, time, type, task, customtext, time_min";
+
+	private Connection connection;
+	private PreparedStatement dayQuery;
+	private PreparedStatement weekQuery;
+	private DateTime weekStart;
+
+	@Setup
+	public void fillDatabase() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT);
+			statement.execute(MySQLiteHelper.DATABASE_ALTER_EVENT_5_TO_6);
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT_TIME_MINUTES_INDEX_5_TO_6);
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT_WEEK_TIME_MINUTES_INDEX_5_TO_6);
+		}
+		int start = DateTimeUtil.stringToEpochMinutes("2015-01-05 00:00:00.0000");
+		connection.setAutoCommit(false);
+		try (PreparedStatement statement = connection
+			.prepareStatement("insert into event (week, type, time, time_min) values (1, ?, ?, ?)")) {
+			for (int day = 0; day < DAYS; day++) {
+				// 08:00, 12:00, 12:30 and 17:00
+				for (int minuteOfDay : new int[] { 8 * 60, 12 * 60, 12 * 60 + 30, 17 * 60 }) {
+					int minute = start + day * DateTimeUtil.MINUTES_PER_DAY + minuteOfDay;
+					TypeEnum type = minuteOfDay == 8 * 60 || minuteOfDay == 12 * 60 + 30
+						? TypeEnum.CLOCK_IN
+						: TypeEnum.CLOCK_OUT;
+					statement.setInt(1, type.getValue());
+					statement.setString(2, DateTimeUtil.dateTimeToString(DateTimeUtil.epochMinutesToDateTime(minute)));
+					statement.setInt(3, minute);
+					statement.addBatch();
+				}
+			}
+			statement.executeBatch();
+		}
+		connection.commit();
+		connection.setAutoCommit(true);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("ANALYZE");
+		}
+		// the former constraint of DAO.getEventsOnDay, and the one of DAO.getEventsPerDay
+		dayQuery = connection.prepareStatement("select " + FIELDS + " from event where time like ?"
+			+ " order by time_min,_id");
+		weekQuery = connection.prepareStatement("select " + FIELDS + " from event where time_min>=? AND time_min<?"
+			+ " order by time_min,_id");
+		weekStart = DateTimeUtil.epochMinutesToDateTime(start + (DAYS / 2 / 7) * DateTimeUtil.MINUTES_PER_WEEK);
+
+		if (!sevenDayQueries().equals(oneRangeQuery())) {
+			throw new IllegalStateException("the queries read different events");
+		}
+		if (count(oneRangeQuery()) != 7 * 4) {
+			throw new IllegalStateException("the week doesn't contain the expected events");
+		}
+	}
+
+	@TearDown
+	public void close() throws SQLException {
+		connection.close();
+	}
+
+	@Benchmark
+	public List<List<Integer>> sevenDayQueries() throws SQLException {
+		List<List<Integer>> ret = new ArrayList<>(7);
+		for (int i = 0; i < 7; i++) {
+			DateTime day = weekStart.plusDays(i);
+			dayQuery.setString(1, DateTimeUtil.dateTimeToDateString(day) + "%");
+			List<Integer> events = new ArrayList<>();
+			read(dayQuery, events);
+			ret.add(events);
+		}
+		return ret;
+	}
+
+	@Benchmark
+	public List<List<Integer>> oneRangeQuery() throws SQLException {
+		int startOfWeek = DateTimeUtil.dateTimeToEpochMinutes(weekStart);
+		weekQuery.setInt(1, startOfWeek);
+		weekQuery.setInt(2, startOfWeek + DateTimeUtil.MINUTES_PER_WEEK);
+		List<List<Integer>> ret = new ArrayList<>(7);
+		for (int i = 0; i < 7; i++) {
+			ret.add(new ArrayList<>());
+		}
+		try (ResultSet resultSet = weekQuery.executeQuery()) {
+			while (resultSet.next()) {
+				int day = (resultSet.getInt(7) - startOfWeek) / DateTimeUtil.MINUTES_PER_DAY;
+				ret.get(day).add(resultSet.getInt(1));
+				readOtherColumns(resultSet);
+			}
+		}
+		return ret;
+	}
+
+	/** reads the IDs and all other columns like DAO.cursorToEvent */
+	private static void read(PreparedStatement query, List<Integer> ids) throws SQLException {
+		try (ResultSet resultSet = query.executeQuery()) {
+			while (resultSet.next()) {
+				ids.add(resultSet.getInt(1));
+				readOtherColumns(resultSet);
+			}
+		}
+	}
+
+	private static void readOtherColumns(ResultSet resultSet) throws SQLException {
+		resultSet.getInt(2);
+		resultSet.getString(3);
+		resultSet.getInt(4);
+		resultSet.getInt(5);
+		resultSet.getString(6);
+	}
+
+	private static int count(List<List<Integer>> days) {
+		int ret = 0;
+		for (List<Integer> day : days) {
+			ret += day.size();
+		}
+		return ret;
+	}
+
+}
@@ -0,0 +1,123 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The full-text search of {@link DAO#searchEvents} compared to a LIKE scan, with 100000 indexed event texts in a
+ * plain JDBC SQLite database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FullTextSearchBenchmark {
+
+	private static final int COUNT = 100_000;
+
+	private Connection connection;
+	private PreparedStatement search;
+	private PreparedStatement scan;
+
+	@Setup
+	public void fillIndex() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_TASK);
+			statement.execute(MySQLiteHelper.DATABASE_INSERT_TASK);
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT_SEARCH_12_TO_13);
+		}
+		String[] words = { "meeting", "planning", "review", "customer", "support", "travel", "training", "release",
+			"documentation", "interview" };
+		connection.setAutoCommit(false);
+		try (PreparedStatement statement = connection.prepareStatement(MySQLiteHelper.DATABASE_INDEX_EVENT)) {
+			for (int i = 1; i <= COUNT; i++) {
+				statement.setInt(1, i);
+				// "unique4711" occurs in exactly one row, "rare" in every thousandth
+				statement.setString(2, words[i % words.length] + " " + words[(i / 7) % words.length] + " note" + i
+					+ (i == 4711 ? " unique4711" : "") + (i % 1000 == 0 ? " rare rare" : ""));
+				statement.setInt(3, 1);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+		connection.commit();
+		connection.setAutoCommit(true);
+		// same as in DAO.searchEvents
+		search = connection.prepareStatement("select docid, matchinfo(event_search, '"
+			+ FullTextSearch.MATCHINFO_FORMAT + "') from event_search where event_search match ?");
+		scan = connection.prepareStatement("select docid from event_search where customtext like ?");
+
+		if (rankedSearch("rare").size() != COUNT / 1000) {
+			throw new IllegalStateException("the texts were not indexed as expected");
+		}
+	}
+
+	@TearDown
+	public void close() throws SQLException {
+		connection.close();
+	}
+
+	@Benchmark
+	public List<Integer> uniqueTerm() throws SQLException {
+		return rankedSearch("unique4711");
+	}
+
+	@Benchmark
+	public List<Integer> rareTerm() throws SQLException {
+		return rankedSearch("rare");
+	}
+
+	@Benchmark
+	public List<Integer> uniqueTermByScan() throws SQLException {
+		scan.setString(1, "%unique4711%");
+		List<Integer> result = new ArrayList<>();
+		try (ResultSet resultSet = scan.executeQuery()) {
+			while (resultSet.next()) {
+				result.add(resultSet.getInt(1));
+			}
+		}
+		return result;
+	}
+
+	/** ranks the matches like DAO.searchEvents, best first */
+	private List<Integer> rankedSearch(String term) throws SQLException {
+		List<Long> ranking = new ArrayList<>();
+		search.setString(1, FullTextSearch.toMatchExpression(term));
+		try (ResultSet resultSet = search.executeQuery()) {
+			while (resultSet.next()) {
+				float score = FullTextSearch.score(resultSet.getBytes(2));
+				ranking.add(FullTextSearch.rankKey(score, resultSet.getInt(1)));
+			}
+		}
+		Collections.sort(ranking, Collections.reverseOrder());
+		List<Integer> result = new ArrayList<>();
+		for (Long rankKey : ranking) {
+			result.add(FullTextSearch.eventIdOf(rankKey));
+		}
+		return result;
+	}
+
+}
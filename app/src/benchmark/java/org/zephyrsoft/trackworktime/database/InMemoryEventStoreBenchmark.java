@@ -0,0 +1,82 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zephyrsoft.trackworktime.model.DaySummary;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import hirondelle.date4j.DateTime;
+
+/**
+ * The lookups of the {@link InMemoryEventStore} with one million events, two per day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class InMemoryEventStoreBenchmark {
+
+	private static final int COUNT = 1_000_000;
+
+	private InMemoryEventStore store;
+	private DateTime someMonday;
+
+	@Setup
+	public void fillStore() {
+		int start = DateTimeUtil.stringToEpochMinutes("2000-01-03 00:00:00.0000");
+		List<Event> events = new ArrayList<>(COUNT);
+		for (int i = 0; i < COUNT; i++) {
+			TypeEnum type = i % 2 == 0 ? TypeEnum.CLOCK_IN : TypeEnum.CLOCK_OUT;
+			// 08:00 and 16:00
+			int minute = start + (i / 2) * DateTimeUtil.MINUTES_PER_DAY + (8 + (i % 2) * 8) * 60;
+			Event event = new Event(null, 0, null, type.getValue(), null, null);
+			// the calculations only use the minutes
+			event.setTime(null, minute);
+			events.add(event);
+		}
+		store = new InMemoryEventStore();
+		store.insertEvents(events);
+		someMonday = DateTimeUtil.epochMinutesToDateTime(start + 700 * 7 * DateTimeUtil.MINUTES_PER_DAY);
+
+		if (store.getEventCount() != COUNT) {
+			throw new IllegalStateException("not all events were inserted");
+		}
+		for (DaySummary summary : store.getDaySummariesPerDay(someMonday)) {
+			if (summary.getWorked() != 8 * 60) {
+				throw new IllegalStateException("wrong summary for " + summary.getDay());
+			}
+		}
+	}
+
+	@Benchmark
+	public List<DaySummary> daySummariesOfWeek() {
+		return store.getDaySummariesPerDay(someMonday);
+	}
+
+	@Benchmark
+	public List<List<Event>> eventsPerDayOfWeek() {
+		return store.getEventsPerDay(someMonday);
+	}
+
+	@Benchmark
+	public Event lastEventBefore() {
+		return store.getLastEventBefore(someMonday);
+	}
+
+}
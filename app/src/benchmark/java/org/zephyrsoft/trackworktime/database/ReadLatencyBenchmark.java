@@ -0,0 +1,149 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency of reading the events of one week (like the week loaders do) while another connection writes events in
+ * large transactions (like a restore), with the write-ahead log which {@link MySQLiteHelper} enables and with the
+ * rollback journal for comparison. Runs against a plain JDBC SQLite database file, the sample mode reports the
+ * percentiles of the read latency (p0.99 is the one to look at).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReadLatencyBenchmark {
+
+	/** two events per day, about 137 years */
+	private static final int COUNT = 100_000;
+	private static final int RESTORE_BATCH = 5_000;
+	private static final int START = DateTimeUtil.stringToEpochMinutes("2000-01-03 00:00:00.0000");
+
+	@Param({ "WAL", "DELETE" })
+	public String journalMode;
+
+	private File file;
+	private Connection reader;
+	private PreparedStatement weekQuery;
+	private int weekStart;
+	private Thread restore;
+	private volatile boolean restoring;
+	private volatile SQLException restoreFailure;
+
+	@Setup
+	public void startRestore() throws IOException, SQLException {
+		file = File.createTempFile("read-latency", ".db");
+		try (Connection connection = open(); Statement statement = connection.createStatement()) {
+			statement.execute("PRAGMA journal_mode = " + journalMode);
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT);
+			statement.execute(MySQLiteHelper.DATABASE_ALTER_EVENT_5_TO_6);
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT_TIME_MINUTES_INDEX_5_TO_6);
+			connection.setAutoCommit(false);
+			insertEvents(connection, 0, COUNT);
+			connection.commit();
+		}
+		reader = open();
+		// same constraint and order as DAO.getEventsWithConstraint for a week
+		weekQuery = reader.prepareStatement("select _id, week, time, type, task, customtext, time_min from event"
+			+ " where time_min>=? AND time_min<? order by time_min,_id");
+		weekStart = START + 700 * DateTimeUtil.MINUTES_PER_WEEK;
+
+		if (readWeek() != 14) {
+			throw new IllegalStateException("the week doesn't contain the expected events");
+		}
+		restoring = true;
+		restore = new Thread(this::restore, "restore");
+		restore.start();
+	}
+
+	@TearDown
+	public void stopRestore() throws InterruptedException, SQLException {
+		restoring = false;
+		restore.join();
+		reader.close();
+		if (!file.delete()) {
+			file.deleteOnExit();
+		}
+		if (restoreFailure != null) {
+			throw new IllegalStateException("the restore failed", restoreFailure);
+		}
+	}
+
+	@Benchmark
+	public int readWeek() throws SQLException {
+		weekQuery.setInt(1, weekStart);
+		weekQuery.setInt(2, weekStart + DateTimeUtil.MINUTES_PER_WEEK);
+		int count = 0;
+		try (ResultSet resultSet = weekQuery.executeQuery()) {
+			while (resultSet.next()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/** replaces the events after the existing ones again and again, each time in one transaction */
+	private void restore() {
+		try (Connection connection = open(); Statement statement = connection.createStatement()) {
+			connection.setAutoCommit(false);
+			while (restoring) {
+				statement.execute("delete from event where _id>" + COUNT);
+				insertEvents(connection, COUNT, RESTORE_BATCH);
+				connection.commit();
+			}
+		} catch (SQLException e) {
+			restoreFailure = e;
+		}
+	}
+
+	private Connection open() throws SQLException {
+		Connection ret = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+		try (Statement statement = ret.createStatement()) {
+			// like SQLiteDatabase, wait for the lock instead of failing
+			statement.execute("PRAGMA busy_timeout = 10000");
+		}
+		return ret;
+	}
+
+	/** 08:00 and 16:00 of each day since {@link #START}, beginning with the event with the given index */
+	private static void insertEvents(Connection connection, int first, int count) throws SQLException {
+		try (PreparedStatement statement = connection
+			.prepareStatement("insert into event (week, type, time, time_min) values (1, ?, ?, ?)")) {
+			for (int i = first; i < first + count; i++) {
+				TypeEnum type = i % 2 == 0 ? TypeEnum.CLOCK_IN : TypeEnum.CLOCK_OUT;
+				int minute = START + (i / 2) * DateTimeUtil.MINUTES_PER_DAY + (8 + (i % 2) * 8) * 60;
+				statement.setInt(1, type.getValue());
+				statement.setString(2, DateTimeUtil.dateTimeToString(DateTimeUtil.epochMinutesToDateTime(minute)));
+				statement.setInt(3, minute);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+package org.zephyrsoft.trackworktime.timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@link TimeAccounting} pass over one million events, two per day, with an auto-pause.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TimeAccountingBenchmark {
+
+	private static final int COUNT = 1_000_000;
+	private static final int DAY = DateTimeUtil.MINUTES_PER_DAY;
+
+	private EventSequence events;
+	private int start;
+
+	@Setup
+	public void fillSequence() {
+		start = DateTimeUtil.stringToEpochMinutes("2000-01-03 00:00:00.0000");
+		events = new EventSequence(16);
+		for (int i = 0; i < COUNT; i++) {
+			// 08:00 and 16:00
+			int minute = start + (i / 2) * DAY + (8 + (i % 2) * 8) * 60;
+			events.add(minute, (i % 2 == 0 ? TypeEnum.CLOCK_IN : TypeEnum.CLOCK_OUT).getValue(), 1);
+		}
+
+		if (calculate() != COUNT / 2 * 8 * 60) {
+			throw new IllegalStateException("wrong sum");
+		}
+	}
+
+	@Benchmark
+	public int calculate() {
+		TimeAccounting accounting = new TimeAccounting(start + COUNT * DAY, 12 * 60, 12 * 60 + 30);
+		accounting.calculate(events, start, start + COUNT / 2 * DAY);
+		return accounting.getWorked();
+	}
+
+}
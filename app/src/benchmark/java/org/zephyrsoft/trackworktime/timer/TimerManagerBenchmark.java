@@ -0,0 +1,119 @@
+package org.zephyrsoft.trackworktime.timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zephyrsoft.trackworktime.database.InMemoryEventStore;
+import org.zephyrsoft.trackworktime.model.DayLine;
+import org.zephyrsoft.trackworktime.model.DaySummary;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.PeriodEnum;
+import org.zephyrsoft.trackworktime.model.Task;
+import org.zephyrsoft.trackworktime.model.TimeSum;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.model.Week;
+import org.zephyrsoft.trackworktime.options.Key;
+import org.zephyrsoft.trackworktime.options.MapPreferences;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import hirondelle.date4j.DateTime;
+
+/**
+ * The calculations of the {@link TimerManager} and the {@link TimeCalculator} on an {@link InMemoryEventStore} with
+ * ten years of work days, four events per day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TimerManagerBenchmark {
+
+	private static final int YEARS = 10;
+
+	private final MapPreferences preferences = new MapPreferences();
+	private InMemoryEventStore store;
+	private TimerManager timerManager;
+	private TimeCalculator timeCalculator;
+	private DateTime someMonday;
+
+	@Setup
+	public void fillStore() {
+		preferences.put(Key.ENABLE_FLEXI_TIME.getName(), true);
+		preferences.put(Key.FLEXI_TIME_TARGET.getName(), "40:00");
+		for (Key day : new Key[] { Key.FLEXI_TIME_DAY_MONDAY, Key.FLEXI_TIME_DAY_TUESDAY,
+			Key.FLEXI_TIME_DAY_WEDNESDAY, Key.FLEXI_TIME_DAY_THURSDAY, Key.FLEXI_TIME_DAY_FRIDAY }) {
+			preferences.put(day.getName(), true);
+		}
+		store = new InMemoryEventStore();
+		timerManager = new TimerManager(store, preferences, null, Runnable::run);
+		timeCalculator = new TimeCalculator(store, timerManager);
+		Task task = store.insertTask(new Task(null, "Work", 1, 0, 1));
+
+		DateTime firstMonday = DateTimeUtil.stringToDateTime("2010-01-04 00:00:00.0000");
+		int weeks = YEARS * 52;
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < weeks; i++) {
+			DateTime monday = firstMonday.plusDays(7 * i);
+			Week week = store.insertWeek(new Week(null, DateTimeUtil.dateTimeToString(monday), 0, 0));
+			for (int day = 0; day < 5; day++) {
+				int startOfDay = DateTimeUtil.dateTimeToEpochMinutes(monday.plusDays(day));
+				events.add(event(week, task, TypeEnum.CLOCK_IN, startOfDay + 8 * 60));
+				events.add(event(week, null, TypeEnum.CLOCK_OUT, startOfDay + 12 * 60));
+				events.add(event(week, task, TypeEnum.CLOCK_IN, startOfDay + 12 * 60 + 30));
+				events.add(event(week, null, TypeEnum.CLOCK_OUT, startOfDay + 17 * 60));
+			}
+		}
+		store.insertEvents(events);
+		someMonday = firstMonday.plusDays(7 * weeks / 2);
+
+		if (store.getEventCount() != weeks * 5 * 4 || calculateWeekSum().getAsMinutes() != 5 * (8 * 60 + 30)) {
+			throw new IllegalStateException("the events were not inserted as expected");
+		}
+	}
+
+	@Benchmark
+	public TimeSum calculateWeekSum() {
+		return timerManager.calculateTimeSum(someMonday, PeriodEnum.WEEK);
+	}
+
+	@Benchmark
+	public TimeSum calculateFlexTimeSum() {
+		return timerManager.calculateFlexTimeSum(someMonday);
+	}
+
+	@Benchmark
+	public Map<Task, TimeSum> calculateSumsOfMonth() {
+		return timeCalculator.calculateSums(someMonday, someMonday.plusDays(28));
+	}
+
+	@Benchmark
+	public DayLine calculateDayFromEvents() {
+		return timeCalculator.calulateOneDay(someMonday.plusDays(2));
+	}
+
+	@Benchmark
+	public DayLine calculateDayFromSummary() {
+		DaySummary summary = store.getDaySummariesPerDay(someMonday).get(2);
+		return timeCalculator.calulateOneDay(someMonday.plusDays(2), summary);
+	}
+
+	private static Event event(Week week, Task task, TypeEnum type, int minute) {
+		return new Event(null, week.getId(), task == null ? null : task.getId(), type.getValue(),
+			DateTimeUtil.dateTimeToString(DateTimeUtil.epochMinutesToDateTime(minute)), null);
+	}
+
+}
@@ -8,6 +8,7 @@ import android.os.Environment;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import org.pmw.tinylog.Logger;
+import org.zephyrsoft.trackworktime.database.DAO;
 import org.zephyrsoft.trackworktime.util.BackupUtil;
 import org.zephyrsoft.trackworktime.util.DateTimeUtil;
 
@@ -25,6 +26,8 @@ import androidx.work.impl.utils.futures.SettableFuture;
 public class AutomaticBackup extends Worker {
 
     private static final String AUTOMATIC_BACKUP_FILE = "automatic-backup.csv";
+    /** name under which this worker acknowledges the changes it has backed up */
+    private static final String CHANGE_CONSUMER = "automatic-backup";
 
     private Context context;
 
@@ -47,8 +50,18 @@ public class AutomaticBackup extends Worker {
         final File backupDir = new File(externalStorageDirectory, Constants.DATA_DIR);
         final File backupFile = new File(backupDir, AUTOMATIC_BACKUP_FILE);
 
+        final DAO dao = Basics.getOrCreateInstance(context).getDao();
+        final long lastChange = dao.getLastChangeSequence();
+        if (backupFile.exists() && lastChange == dao.getAcknowledgedSequence(CHANGE_CONSUMER)) {
+            Logger.info("skipping automatic backup, nothing changed since the last one");
+            return Result.success();
+        }
+
         Logger.info("starting automatic backup");
-        BackupUtil.doBackup(context, backupFile);
+        if (BackupUtil.doBackup(context, backupFile)) {
+            // changes made during the backup are acknowledged with the next one
+            dao.acknowledgeChanges(CHANGE_CONSUMER, lastChange);
+        }
         return Result.success();
     }
 }
@@ -47,6 +47,7 @@ import org.pmw.tinylog.policies.DailyPolicy;
 import org.pmw.tinylog.writers.LogcatWriter;
 import org.pmw.tinylog.writers.RollingFileWriter;
 import org.zephyrsoft.trackworktime.database.DAO;
+import org.zephyrsoft.trackworktime.database.DaoMetrics;
 import org.zephyrsoft.trackworktime.location.CoordinateUtil;
 import org.zephyrsoft.trackworktime.location.LocationCallback;
 import org.zephyrsoft.trackworktime.location.LocationTrackerService;
@@ -60,7 +61,12 @@ import org.zephyrsoft.trackworktime.util.DateTimeUtil;
 import org.zephyrsoft.trackworktime.util.ExternalNotificationManager;
 import org.zephyrsoft.trackworktime.util.PreferencesUtil;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Calendar;
 
 import hirondelle.date4j.DateTime;
@@ -133,6 +139,12 @@ public class Basics extends BroadcastReceiver {
 	private void init() {
 		preferences = PreferenceManager.getDefaultSharedPreferences(context);
 		dao = new DAO(context);
+		// the notification only shows the current day
+		dao.addDataChangeListener(change -> {
+			if (change.affectsDay(DateTimeUtil.getCurrentDateTime())) {
+				safeCheckPersistentNotification();
+			}
+		});
 		timerManager = new TimerManager(dao, preferences, context);
 		timeCalculator = new TimeCalculator(dao, timerManager);
 		externalNotificationManager = new ExternalNotificationManager(context);
@@ -180,6 +192,53 @@ public class Basics extends BroadcastReceiver {
 		return new File(getDataDirectory(), Constants.CURRENT_LOG_FILE_NAME);
 	}
 
+	/**
+	 * Write the current database metrics to a file in the data directory, so it can be attached to bug reports.
+	 *
+	 * @return the written file, or {@code null} if the file could not be written
+	 */
+	public File writeMetrics() {
+		File file = new File(getDataDirectory(), Constants.METRICS_FILE_NAME);
+		try {
+			file.getParentFile().mkdirs();
+			Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
+			try {
+				dao.getMetrics().writeSnapshot(writer);
+			} finally {
+				writer.close();
+			}
+			return file;
+		} catch (IOException e) {
+			Logger.warn(e, "could not write the database metrics");
+			return null;
+		}
+	}
+
+	/**
+	 * Write the slowest database calls to a file in the data directory, so it can be attached to bug reports.
+	 *
+	 * @return the written file, or {@code null} if the slow query log is disabled or the file could not be written
+	 */
+	public File writeSlowQuerySummary() {
+		if (!dao.getSlowQueryLog().isEnabled()) {
+			return null;
+		}
+		File file = new File(getDataDirectory(), Constants.SLOW_QUERY_FILE_NAME);
+		try {
+			file.getParentFile().mkdirs();
+			Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
+			try {
+				dao.getSlowQueryLog().writeSummary(writer);
+			} finally {
+				writer.close();
+			}
+			return file;
+		} catch (IOException e) {
+			Logger.warn(e, "could not write the slow query summary");
+			return null;
+		}
+	}
+
 	public File getDataDirectory() {
 		File backupDir = new File(".");
 		final File externalStorageDirectory = Environment.getExternalStorageDirectory();
@@ -227,12 +286,17 @@ public class Basics extends BroadcastReceiver {
 	 */
 	public void periodicHook() {
 		Logger.debug("executing periodic hook");
-		// first make sure that the options are consistent
-		safeCheckPreferences();
-		// then start the action
-		safeCheckLocationBasedTracking();
-		safeCheckWifiBasedTracking();
-		safeCheckPersistentNotification();
+		DaoMetrics.Call call = dao.getMetrics().begin("Basics.periodicHook");
+		try {
+			// first make sure that the options are consistent
+			safeCheckPreferences();
+			// then start the action
+			safeCheckLocationBasedTracking();
+			safeCheckWifiBasedTracking();
+			safeCheckPersistentNotification();
+		} finally {
+			call.end();
+		}
 		WorkTimeTrackerActivity.refreshViewIfShown();
 	}
 
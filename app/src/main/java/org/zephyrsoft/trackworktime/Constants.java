@@ -42,6 +42,10 @@ public class Constants {
 	public static final String CURRENT_LOG_FILE_NAME = "log.txt";
 	/** the path of the currently active log file */
 	public static final String CURRENT_LOG_FILE_PATH = DATA_DIR + "/" + CURRENT_LOG_FILE_NAME;
+	/** the name of the file with the slowest database calls (only written in debug builds) */
+	public static final String SLOW_QUERY_FILE_NAME = "slow-queries.txt";
+	/** the name of the file with the database metrics */
+	public static final String METRICS_FILE_NAME = "metrics.txt";
 
 	// notification IDs
 	/** used for the persistent notification when tracking via location and/or WiFi */
@@ -56,6 +60,8 @@ public class Constants {
 	// intent extra keys
 	/** key for the intent extra "week start" */
 	public static final String WEEK_START_EXTRA_KEY = "WEEK_START_EXTRA_KEY";
+	/** key for the intent extra "week ordinal", see {@link org.zephyrsoft.trackworktime.model.Week#getOrdinal()} */
+	public static final String WEEK_ORDINAL_EXTRA_KEY = "WEEK_ORDINAL_EXTRA_KEY";
 	/** key for the intent extra "event id" */
 	public static final String EVENT_ID_EXTRA_KEY = "EVENT_ID_EXTRA_KEY";
 	/** used to transport the message via an intent's extended data */
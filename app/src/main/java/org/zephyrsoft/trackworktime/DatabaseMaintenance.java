@@ -0,0 +1,71 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime;
+
+import android.content.Context;
+import android.database.SQLException;
+
+import org.pmw.tinylog.Logger;
+import org.zephyrsoft.trackworktime.database.DAO;
+import org.zephyrsoft.trackworktime.model.MaintenanceRun;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import hirondelle.date4j.DateTime;
+
+/**
+ * Keeps the database small and fast: moves the events of old years to archive files (see
+ * {@link DAO#archiveClosedYears()}) and runs {@link DAO#runMaintenance()}. Afterwards it checks the stored day
+ * summaries and task sums with {@link DAO#verifyDaySummaries()}, which reads all events. Scheduled to run only while
+ * the device is charging (and idle, where Android supports it).
+ */
+public class DatabaseMaintenance extends Worker {
+
+	private final Context context;
+
+	public DatabaseMaintenance(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+		super(context, workerParams);
+		this.context = context;
+	}
+
+	@NonNull
+	@Override
+	public Result doWork() {
+		Logger.info("starting database maintenance");
+		try {
+			DAO dao = Basics.getOrCreateInstance(context).getDao();
+			// before the maintenance, which gives the pages of the moved events back to the file system
+			dao.archiveClosedYears();
+			MaintenanceRun run = dao.runMaintenance();
+			Logger.info("database maintenance finished: {}", run);
+			if (!"ok".equals(run.getIntegrity())) {
+				Logger.warn("database integrity check found problems: {}", run.getIntegrity());
+			}
+			List<DateTime> differingDays = dao.verifyDaySummaries();
+			if (!differingDays.isEmpty()) {
+				Logger.warn("stored day summaries or task sums differ from the events on {}", differingDays);
+			}
+			return Result.success();
+		} catch (SQLException e) {
+			Logger.warn(e, "database maintenance failed");
+			return Result.failure();
+		}
+	}
+}
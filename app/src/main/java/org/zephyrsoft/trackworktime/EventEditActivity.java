@@ -162,18 +162,18 @@ public class EventEditActivity extends AppCompatActivity implements OnDateChange
             } else {
                 Logger.debug("saving changed event with ID {}: {} @ {}", editedEvent.getId(), typeEnum.name(),
                     timeString);
+                int oldMinutes = editedEvent.getTimeMinutes();
                 editedEvent.setType(typeEnum.getValue());
                 editedEvent.setTime(timeString);
                 editedEvent.setTask(taskId);
                 editedEvent.setText(textString);
                 dao.updateEvent(editedEvent);
                 // we have to call this manually when using the DAO directly:
-                timerManager.updateWeekSum(week);
-                Basics.getInstance().safeCheckPersistentNotification();
+                int newMinutes = editedEvent.getTimeMinutes();
+                timerManager.eventsChanged(Math.min(oldMinutes, newMinutes), Math.max(oldMinutes, newMinutes));
             }
 
-            // refresh parents and close the event editor
-            EventListActivity.getInstance().refreshView();
+            // close the event editor, the parents get refreshed via their data change listeners
             finish();
         });
 		cancel.setOnClickListener(v -> {
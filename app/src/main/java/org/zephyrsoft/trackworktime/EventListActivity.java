@@ -21,18 +21,22 @@ import android.content.Intent;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.StateListDrawable;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import androidx.core.content.ContextCompat;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.view.ActionMode;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import android.text.InputType;
 import android.util.StateSet;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
 import android.widget.TextView;
 
 import com.bignerdranch.android.multiselector.ModalMultiSelectorCallback;
@@ -41,13 +45,16 @@ import com.bignerdranch.android.multiselector.SwappingHolder;
 
 import org.pmw.tinylog.Logger;
 import org.zephyrsoft.trackworktime.database.DAO;
+import org.zephyrsoft.trackworktime.database.DataChange;
 import org.zephyrsoft.trackworktime.model.Event;
 import org.zephyrsoft.trackworktime.model.EventSeparator;
+import org.zephyrsoft.trackworktime.model.Task;
 import org.zephyrsoft.trackworktime.model.TypeEnum;
 import org.zephyrsoft.trackworktime.model.Week;
 import org.zephyrsoft.trackworktime.model.WeekPlaceholder;
 import org.zephyrsoft.trackworktime.timer.TimerManager;
 import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+import org.zephyrsoft.trackworktime.util.MainThreadDataChangeListener;
 import org.zephyrsoft.trackworktime.util.WeekDayHelper;
 
 import java.util.ArrayList;
@@ -78,6 +85,14 @@ public class EventListActivity extends AppCompatActivity {
 
 	private RecyclerView myRecyclerView;
 	private EventAdapter myEventAdapter;
+	private final MainThreadDataChangeListener dataChangeListener = new MainThreadDataChangeListener() {
+		@Override
+		protected void onDataChangedOnMainThread(DataChange change) {
+			if (affectsShownWeek(change)) {
+				refreshView();
+			}
+		}
+	};
 
 	@Override
 	protected void onPause() {
@@ -85,6 +100,12 @@ public class EventListActivity extends AppCompatActivity {
 		super.onPause();
 	}
 
+	@Override
+	protected void onDestroy() {
+		dao.removeDataChangeListener(dataChangeListener);
+		super.onDestroy();
+	}
+
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
@@ -96,6 +117,7 @@ public class EventListActivity extends AppCompatActivity {
 		dao = Basics.getInstance().getDao();
 		timerManager = Basics.getInstance().getTimerManager();
 		weekStart = getIntent().getStringExtra(Constants.WEEK_START_EXTRA_KEY);
+		dao.addDataChangeListener(dataChangeListener);
 		events = new ArrayList<>();
 		myEventAdapter = new EventAdapter();
 		myRecyclerView.setLayoutManager(new LinearLayoutManager(this));
@@ -139,21 +161,77 @@ public class EventListActivity extends AppCompatActivity {
 	}
 
 	/**
-	 * Refresh the event list and the main activity.
+	 * Refresh the event list. Only the rows which actually changed are bound again.
 	 */
 	public void refreshView() {
-		events.clear();
 		// re-read the week in case the first event for a week was just created
 		// (then the week would have been created just now)
 		week = dao.getWeek(weekStart);
 		if (weekStart != null && week == null) {
 			week = new WeekPlaceholder(weekStart);
 		}
-		events.addAll(dao.getEventsInWeek(week));
+		List<Event> newEvents = new ArrayList<>(dao.getEventsInWeek(week));
+		insertSeparators(newEvents);
 
-		insertSeparators(events);
+		DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new EventDiff(events, newEvents));
+		events.clear();
+		events.addAll(newEvents);
 		if (myEventAdapter != null) {
-			myEventAdapter.notifyDataSetChanged();
+			diff.dispatchUpdatesTo(myEventAdapter);
+		}
+	}
+
+	private boolean affectsShownWeek(DataChange change) {
+		if (weekStart == null || change.isEverything()) {
+			return true;
+		}
+		int start = DateTimeUtil.dateTimeToEpochMinutes(DateTimeUtil.stringToDateTime(weekStart));
+		return change.affects(start, start + 7 * DateTimeUtil.MINUTES_PER_DAY - 1);
+	}
+
+	/**
+	 * Compares the rows of the event list: events by ID, separators by their caption.
+	 */
+	private static class EventDiff extends DiffUtil.Callback {
+		private final List<Event> oldEvents;
+		private final List<Event> newEvents;
+
+		EventDiff(List<Event> oldEvents, List<Event> newEvents) {
+			this.oldEvents = oldEvents;
+			this.newEvents = newEvents;
+		}
+
+		@Override
+		public int getOldListSize() {
+			return oldEvents.size();
+		}
+
+		@Override
+		public int getNewListSize() {
+			return newEvents.size();
+		}
+
+		@Override
+		public boolean areItemsTheSame(int oldPosition, int newPosition) {
+			Event oldEvent = oldEvents.get(oldPosition);
+			Event newEvent = newEvents.get(newPosition);
+			if (oldEvent instanceof EventSeparator || newEvent instanceof EventSeparator) {
+				return oldEvent instanceof EventSeparator && newEvent instanceof EventSeparator
+					&& oldEvent.toString().equals(newEvent.toString());
+			}
+			return oldEvent.getId().equals(newEvent.getId());
+		}
+
+		@Override
+		public boolean areContentsTheSame(int oldPosition, int newPosition) {
+			Event oldEvent = oldEvents.get(oldPosition);
+			Event newEvent = newEvents.get(newPosition);
+			if (oldEvent instanceof EventSeparator) {
+				// same caption
+				return true;
+			}
+			// only time and type are shown
+			return oldEvent.getTime().equals(newEvent.getTime()) && oldEvent.getType().equals(newEvent.getType());
 		}
 	}
 
@@ -204,41 +282,16 @@ public class EventListActivity extends AppCompatActivity {
 		public boolean onActionItemClicked(ActionMode actionMode, MenuItem menuItem) {
 			switch (menuItem.getItemId()) {
 				case R.id.menu_item_delete:
-					AlertDialog.Builder alert = new AlertDialog.Builder(EventListActivity.this);
-					alert.setTitle(getString(R.string.delete_event));
-					alert.setMessage(getString(R.string.really_delete_event));
-
-					alert.setPositiveButton(getString(R.string.ok),
-                        (dialog, whichButton) -> {
-                            for (int i = events.size(); i >= 0; i--) {
-                                if (myMultiSelector.isSelected(i, 0)) {
-                                    Event event = events.remove(i);
-                                    // delete event in DB
-                                    boolean success = dao.deleteEvent(event);
-                                    // we have to call this manually when using the DAO directly:
-                                    timerManager.updateWeekSum(week);
-                                    Basics.getInstance().safeCheckPersistentNotification();
-                                    if (success) {
-                                        Logger.debug("deleted event with ID {}",
-                                                event.getId());
-                                    } else {
-                                        Logger.warn("could not delete event with ID {}",
-                                                event.getId());
-                                    }
-                                    myRecyclerView.getAdapter().notifyItemRemoved(i);
-                                }
-                            }
-
-                            myMultiSelector.clearSelections();
-                        });
-					alert.setNegativeButton(getString(R.string.cancel),
-                        (dialog, which) -> {
-                            // do nothing
-                        });
-					alert.show();
-
+					confirmDelete(getSelectedEvents());
+					actionMode.finish();
+					return true;
+				case R.id.menu_item_shift:
+					askForShift(getSelectedEvents());
+					actionMode.finish();
+					return true;
+				case R.id.menu_item_change_task:
+					askForTask(getSelectedEvents());
 					actionMode.finish();
-
 					return true;
 				default:
 					return false;
@@ -252,6 +305,81 @@ public class EventListActivity extends AppCompatActivity {
 		}
 	};
 
+	private List<Event> getSelectedEvents() {
+		List<Event> ret = new ArrayList<>();
+		for (Integer position : myMultiSelector.getSelectedPositions()) {
+			Event event = events.get(position);
+			if (!(event instanceof EventSeparator)) {
+				ret.add(event);
+			}
+		}
+		myMultiSelector.clearSelections();
+		return ret;
+	}
+
+	private void confirmDelete(final List<Event> selected) {
+		AlertDialog.Builder alert = new AlertDialog.Builder(this);
+		alert.setTitle(getString(R.string.delete_event));
+		alert.setMessage(getString(R.string.really_delete_event));
+		alert.setPositiveButton(getString(R.string.ok),
+			(dialog, whichButton) -> inBackground(() -> timerManager.deleteEvents(selected)));
+		alert.setNegativeButton(getString(R.string.cancel), (dialog, which) -> {
+			// do nothing
+		});
+		alert.show();
+	}
+
+	private void askForShift(final List<Event> selected) {
+		AlertDialog.Builder alert = new AlertDialog.Builder(this);
+		alert.setTitle(getString(R.string.shift_events));
+		alert.setMessage(getString(R.string.shift_events_by_minutes));
+		final EditText input = new EditText(this);
+		input.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_SIGNED);
+		alert.setView(input);
+		alert.setPositiveButton(getString(R.string.ok), (dialog, whichButton) -> {
+			final int minutes;
+			try {
+				minutes = Integer.parseInt(input.getText().toString().trim());
+			} catch (NumberFormatException e) {
+				Logger.warn("illegal value - minutes to shift: {}", input.getText());
+				return;
+			}
+			if (minutes != 0) {
+				inBackground(() -> timerManager.shiftEvents(selected, minutes));
+			}
+		});
+		alert.setNegativeButton(getString(R.string.cancel), (dialog, which) -> {
+			// do nothing
+		});
+		alert.show();
+	}
+
+	private void askForTask(final List<Event> selected) {
+		final List<Task> tasks = dao.getActiveTasks();
+		String[] names = new String[tasks.size()];
+		for (int i = 0; i < tasks.size(); i++) {
+			names[i] = tasks.get(i).getName();
+		}
+		AlertDialog.Builder alert = new AlertDialog.Builder(this);
+		alert.setTitle(getString(R.string.choose_task));
+		alert.setItems(names, (dialog, which) -> {
+			final Integer taskId = tasks.get(which).getId();
+			inBackground(() -> timerManager.reassignTask(selected, taskId));
+		});
+		alert.setNegativeButton(getString(R.string.cancel), (dialog, which) -> {
+			// do nothing
+		});
+		alert.show();
+	}
+
+	/**
+	 * Run a change of the events in the background, one after the other. The list is refreshed by the data change
+	 * listener when the change was committed.
+	 */
+	private static void inBackground(Runnable change) {
+		AsyncTask.SERIAL_EXECUTOR.execute(change);
+	}
+
 	private class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHolder> {
 		private static final int VIEW_TYPE_SEPARATOR = 0;
 		private static final int VIEW_TYPE_EVENT = 1;
@@ -28,7 +28,7 @@ import android.widget.Toast;
 
 import org.pmw.tinylog.Logger;
 import org.zephyrsoft.trackworktime.database.DAO;
-import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.database.DaoMetrics;
 import org.zephyrsoft.trackworktime.model.Range;
 import org.zephyrsoft.trackworktime.model.Task;
 import org.zephyrsoft.trackworktime.model.TimeSum;
@@ -39,8 +39,6 @@ import org.zephyrsoft.trackworktime.timer.TimeCalculator;
 import org.zephyrsoft.trackworktime.util.DateTimeUtil;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import hirondelle.date4j.DateTime;
@@ -97,24 +95,29 @@ public class ReportsActivity extends AppCompatActivity {
 
 	private void export() {
 		int selectedId = groupingRadioGroup.getCheckedRadioButtonId();
-		switch (selectedId) {
-			case R.id.groupingNone:
-				exportAllEvents();
-				break;
-			case R.id.groupingByTask:
-				exportTimesByTask();
-				break;
-			case R.id.groupingByTaskPerDay:
-				exportTimesByTaskPerDay();
-				break;
-			case R.id.groupingByTaskPerWeek:
-				exportTimesByTaskPerWeek();
-				break;
-			case R.id.groupingByTaskPerMonth:
-				exportTimesByTaskPerMonth();
-				break;
-			default:
-				throw new RuntimeException("Grouping not implemented");
+		DaoMetrics.Call call = dao.getMetrics().begin("ReportsActivity.export");
+		try {
+			switch (selectedId) {
+				case R.id.groupingNone:
+					exportAllEvents();
+					break;
+				case R.id.groupingByTask:
+					exportTimesByTask();
+					break;
+				case R.id.groupingByTaskPerDay:
+					exportTimesByTaskPerDay();
+					break;
+				case R.id.groupingByTaskPerWeek:
+					exportTimesByTaskPerWeek();
+					break;
+				case R.id.groupingByTaskPerMonth:
+					exportTimesByTaskPerMonth();
+					break;
+				default:
+					throw new RuntimeException("Grouping not implemented");
+			}
+		} finally {
+			call.end();
 		}
 	}
 
@@ -122,10 +125,10 @@ public class ReportsActivity extends AppCompatActivity {
 		Range selectedRange = getSelectedRange();
 		Unit selectedUnit = getSelectedUnit();
 
-		DateTime[] beginAndEnd = timeCalculator.calculateBeginAndEnd(selectedRange, selectedUnit);
-		List<Event> events = dao.getEvents(beginAndEnd[0], beginAndEnd[1]);
-
-		String report = csvGenerator.createEventCsv(events);
+		String report = dao.readSnapshot(() -> {
+			DateTime[] beginAndEnd = timeCalculator.calculateBeginAndEnd(selectedRange, selectedUnit);
+			return csvGenerator.createEventCsv(beginAndEnd[0], beginAndEnd[1]);
+		});
 		String reportName = getNameForSelection(selectedRange, selectedUnit);
 		if (report == null) {
 			logAndShowError("could not generate report " + reportName);
@@ -146,11 +149,11 @@ public class ReportsActivity extends AppCompatActivity {
 		Range selectedRange = getSelectedRange();
 		Unit selectedUnit = getSelectedUnit();
 
-		DateTime[] beginAndEnd = timeCalculator.calculateBeginAndEnd(selectedRange, selectedUnit);
-		List<Event> events = dao.getEvents(beginAndEnd[0], beginAndEnd[1]);
-		Map<Task, TimeSum> sums = timeCalculator.calculateSums(beginAndEnd[0], beginAndEnd[1], events);
-
-		String report = csvGenerator.createSumsCsv(sums);
+		String report = dao.readSnapshot(() -> {
+			DateTime[] beginAndEnd = timeCalculator.calculateBeginAndEnd(selectedRange, selectedUnit);
+			Map<Task, TimeSum> sums = timeCalculator.calculateSums(beginAndEnd[0], beginAndEnd[1]);
+			return csvGenerator.createSumsCsv(sums);
+		});
 		String reportName = getNameForSelection(selectedRange, selectedUnit);
 		if (report == null) {
 			logAndShowError("could not generate report " + reportName);
@@ -171,12 +174,12 @@ public class ReportsActivity extends AppCompatActivity {
 		Range selectedRange = getSelectedRange();
 		Unit selectedUnit = getSelectedUnit();
 
-		DateTime[] beginAndEnd = timeCalculator.calculateBeginAndEnd(selectedRange, selectedUnit);
-		List<DateTime> rangeBeginnings = timeCalculator.calculateRangeBeginnings(Unit.DAY, beginAndEnd[0],
+		String report = dao.readSnapshot(() -> {
+			DateTime[] beginAndEnd = timeCalculator.calculateBeginAndEnd(selectedRange, selectedUnit);
+			Map<DateTime, Map<Task, TimeSum>> sumsPerRange = dao.getTaskSums(Unit.DAY, beginAndEnd[0],
 				beginAndEnd[1]);
-		Map<DateTime, Map<Task, TimeSum>> sumsPerRange = calculateSumsPerRange(rangeBeginnings, beginAndEnd[1]);
-
-		String report = csvGenerator.createSumsPerDayCsv(sumsPerRange);
+			return csvGenerator.createSumsPerDayCsv(sumsPerRange);
+		});
 		String reportName = getNameForSelection(selectedRange, selectedUnit);
 		if (report == null) {
 			logAndShowError("could not generate report " + reportName);
@@ -197,12 +200,12 @@ public class ReportsActivity extends AppCompatActivity {
 		Range selectedRange = getSelectedRange();
 		Unit selectedUnit = getSelectedUnit();
 
-		DateTime[] beginAndEnd = timeCalculator.calculateBeginAndEnd(selectedRange, selectedUnit);
-		List<DateTime> rangeBeginnings = timeCalculator.calculateRangeBeginnings(Unit.WEEK, beginAndEnd[0],
-			beginAndEnd[1]);
-		Map<DateTime, Map<Task, TimeSum>> sumsPerRange = calculateSumsPerRange(rangeBeginnings, beginAndEnd[1]);
-
-		String report = csvGenerator.createSumsPerWeekCsv(sumsPerRange);
+		String report = dao.readSnapshot(() -> {
+			DateTime[] beginAndEnd = timeCalculator.calculateBeginAndEnd(selectedRange, selectedUnit);
+			Map<DateTime, Map<Task, TimeSum>> sumsPerRange = dao.getTaskSums(Unit.WEEK, beginAndEnd[0],
+				beginAndEnd[1]);
+			return csvGenerator.createSumsPerWeekCsv(sumsPerRange);
+		});
 		String reportName = getNameForSelection(selectedRange, selectedUnit);
 		if (report == null) {
 			logAndShowError("could not generate report " + reportName);
@@ -223,12 +226,12 @@ public class ReportsActivity extends AppCompatActivity {
 		Range selectedRange = getSelectedRange();
 		Unit selectedUnit = getSelectedUnit();
 
-		DateTime[] beginAndEnd = timeCalculator.calculateBeginAndEnd(selectedRange, selectedUnit);
-		List<DateTime> rangeBeginnings = timeCalculator.calculateRangeBeginnings(Unit.MONTH, beginAndEnd[0],
-			beginAndEnd[1]);
-		Map<DateTime, Map<Task, TimeSum>> sumsPerRange = calculateSumsPerRange(rangeBeginnings, beginAndEnd[1]);
-
-		String report = csvGenerator.createSumsPerMonthCsv(sumsPerRange);
+		String report = dao.readSnapshot(() -> {
+			DateTime[] beginAndEnd = timeCalculator.calculateBeginAndEnd(selectedRange, selectedUnit);
+			Map<DateTime, Map<Task, TimeSum>> sumsPerRange = dao.getTaskSums(Unit.MONTH, beginAndEnd[0],
+				beginAndEnd[1]);
+			return csvGenerator.createSumsPerMonthCsv(sumsPerRange);
+		});
 		String reportName = getNameForSelection(selectedRange, selectedUnit);
 		if (report == null) {
 			logAndShowError("could not generate report " + reportName);
@@ -245,19 +248,6 @@ public class ReportsActivity extends AppCompatActivity {
 		}
 	}
 
-	private Map<DateTime, Map<Task, TimeSum>> calculateSumsPerRange(List<DateTime> rangeBeginnings, DateTime end) {
-		Map<DateTime, Map<Task, TimeSum>> sumsPerRange = new HashMap<>();
-
-		for (int i = 0; i < rangeBeginnings.size(); i++) {
-			DateTime rangeStart = rangeBeginnings.get(i);
-			DateTime rangeEnd = (i >= rangeBeginnings.size() - 1 ? end : rangeBeginnings.get(i + 1));
-			List<Event> events = dao.getEvents(rangeStart, rangeEnd);
-			Map<Task, TimeSum> sums = timeCalculator.calculateSums(rangeStart, rangeEnd, events);
-			sumsPerRange.put(rangeStart, sums);
-		}
-		return sumsPerRange;
-	}
-
 	private void logAndShowError(String errorMessage) {
 		Logger.error(errorMessage);
 		Toast.makeText(getApplicationContext(), errorMessage, Toast.LENGTH_LONG).show();
@@ -0,0 +1,246 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime;
+
+import android.content.Intent;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.inputmethod.EditorInfo;
+import android.widget.EditText;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.pmw.tinylog.Logger;
+import org.zephyrsoft.trackworktime.database.DAO;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.Task;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+import org.zephyrsoft.trackworktime.util.WeekDayHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hirondelle.date4j.DateTime;
+
+/**
+ * Activity for searching the event texts and task names. The matches are shown page by page, the best ones first.
+ * Tapping a match returns its week ordinal to the calling activity (see {@link Constants#WEEK_ORDINAL_EXTRA_KEY}).
+ *
+ * @see DAO#searchEvents(String)
+ */
+public class SearchActivity extends AppCompatActivity {
+
+	private static final int PAGE_SIZE = 50;
+
+	private DAO dao = null;
+
+	private EditText searchText;
+	private TextView summary;
+	private final List<SearchResult> results = new ArrayList<>();
+	private final SearchResultAdapter adapter = new SearchResultAdapter();
+
+	/** the IDs of all matching events, in the order of their rank */
+	private int[] matchingIds = new int[0];
+	/** the index in {@link #matchingIds} up to which the events are loaded */
+	private int loadedUpTo = 0;
+	private boolean loading = false;
+	/** increased with every search, so the pages of an outdated search are dropped */
+	private int searchNumber = 0;
+
+	/** one shown match, formatted in the background */
+	private static class SearchResult {
+		final String title;
+		final String text;
+		final int weekOrdinal;
+
+		SearchResult(String title, String text, int weekOrdinal) {
+			this.title = title;
+			this.text = text;
+			this.weekOrdinal = weekOrdinal;
+		}
+	}
+
+	@Override
+	protected void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		setContentView(R.layout.search);
+		dao = Basics.getInstance().getDao();
+
+		searchText = findViewById(R.id.search_text);
+		summary = findViewById(R.id.search_summary);
+		RecyclerView recyclerView = findViewById(R.id.recycler_view);
+		final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+		recyclerView.setLayoutManager(layoutManager);
+		recyclerView.setAdapter(adapter);
+		recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+			@Override
+			public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+				// load the next page before the end of the list is reached
+				if (layoutManager.findLastVisibleItemPosition() >= results.size() - PAGE_SIZE / 2) {
+					loadNextPage();
+				}
+			}
+		});
+		searchText.setOnEditorActionListener((view, actionId, keyEvent) -> {
+			if (actionId == EditorInfo.IME_ACTION_SEARCH) {
+				search(searchText.getText().toString());
+				return true;
+			}
+			return false;
+		});
+	}
+
+	@Override
+	protected void onPause() {
+		dao.close();
+		super.onPause();
+	}
+
+	private void search(final String query) {
+		Logger.debug("searching events");
+		final int number = ++searchNumber;
+		loading = true;
+		inBackground(() -> {
+			final int[] ids = dao.searchEvents(query);
+			final List<SearchResult> firstPage = load(ids, 0, Math.min(PAGE_SIZE, ids.length));
+			runOnUiThread(() -> {
+				if (number != searchNumber) {
+					return;
+				}
+				matchingIds = ids;
+				loadedUpTo = Math.min(PAGE_SIZE, ids.length);
+				results.clear();
+				results.addAll(firstPage);
+				adapter.notifyDataSetChanged();
+				summary.setText(ids.length == 0
+					? getString(R.string.searchNoResults)
+					: getString(R.string.searchResultCount, ids.length));
+				loading = false;
+			});
+		});
+	}
+
+	private void loadNextPage() {
+		if (loading || loadedUpTo >= matchingIds.length) {
+			return;
+		}
+		final int number = searchNumber;
+		final int[] ids = matchingIds;
+		final int from = loadedUpTo;
+		final int to = Math.min(from + PAGE_SIZE, ids.length);
+		loading = true;
+		inBackground(() -> {
+			final List<SearchResult> page = load(ids, from, to);
+			runOnUiThread(() -> {
+				if (number != searchNumber) {
+					return;
+				}
+				loadedUpTo = to;
+				int start = results.size();
+				results.addAll(page);
+				adapter.notifyItemRangeInserted(start, page.size());
+				loading = false;
+			});
+		});
+	}
+
+	/** read and format the events - called in the background */
+	private List<SearchResult> load(int[] ids, int from, int to) {
+		List<SearchResult> ret = new ArrayList<>(to - from);
+		for (Event event : dao.getEvents(ids, from, to)) {
+			DateTime time = DateTimeUtil.stringToDateTime(event.getTime());
+			StringBuilder title = new StringBuilder()
+				.append(WeekDayHelper.getWeekDayLongName(time)).append(", ")
+				.append(DateTimeUtil.dateTimeToDateString(time)).append(' ')
+				.append(DateTimeUtil.dateTimeToHourMinuteString(time));
+			TypeEnum type = TypeEnum.byValue(event.getType());
+			if (type != null) {
+				title.append(" - ").append(type.getReadableName());
+			}
+			Task task = event.getTask() == null ? null : dao.getTask(event.getTask());
+			if (task != null) {
+				title.append(" - ").append(task.getName());
+			}
+			ret.add(new SearchResult(title.toString(), event.getText() == null ? "" : event.getText(),
+				DateTimeUtil.epochMinutesToWeekOrdinal(event.getTimeMinutes())));
+		}
+		return ret;
+	}
+
+	private void showWeek(SearchResult result) {
+		Intent data = new Intent();
+		data.putExtra(Constants.WEEK_ORDINAL_EXTRA_KEY, result.weekOrdinal);
+		setResult(RESULT_OK, data);
+		finish();
+	}
+
+	private static void inBackground(Runnable action) {
+		AsyncTask.THREAD_POOL_EXECUTOR.execute(action);
+	}
+
+	private class SearchResultAdapter extends RecyclerView.Adapter<SearchResultAdapter.SearchResultViewHolder> {
+
+		class SearchResultViewHolder extends RecyclerView.ViewHolder {
+			private final TextView title;
+			private final TextView text;
+
+			SearchResultViewHolder(View itemView) {
+				super(itemView);
+				title = itemView.findViewById(R.id.search_result_title);
+				text = itemView.findViewById(R.id.search_result_text);
+				itemView.setOnClickListener(view -> {
+					int position = getAdapterPosition();
+					if (position != RecyclerView.NO_POSITION) {
+						showWeek(results.get(position));
+					}
+				});
+			}
+
+			void bind(SearchResult result) {
+				title.setText(result.title);
+				text.setText(result.text);
+				text.setVisibility(result.text.isEmpty() ? View.GONE : View.VISIBLE);
+			}
+		}
+
+		@NonNull
+		@Override
+		public SearchResultViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+			View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.search_result, parent, false);
+			return new SearchResultViewHolder(view);
+		}
+
+		@Override
+		public void onBindViewHolder(@NonNull SearchResultViewHolder holder, int position) {
+			holder.bind(results.get(position));
+		}
+
+		@Override
+		public int getItemCount() {
+			return results.size();
+		}
+	}
+
+}
@@ -45,20 +45,12 @@ public class ThirdPartyReceiver extends BroadcastReceiver {
 			Logger.info("TRACKING: clock-in via broadcast / taskId={} / text={}", taskId, text);
 			Basics.getOrCreateInstance(context).getTimerManager().createEvent(DateTimeUtil.getCurrentDateTime(),
 				taskId, TypeEnum.CLOCK_IN, text);
-			WorkTimeTrackerActivity instanceOrNull = WorkTimeTrackerActivity.getInstanceOrNull();
-			if (instanceOrNull != null) {
-				instanceOrNull.refreshView();
-			}
 		} else if (action != null && action.equals("org.zephyrsoft.trackworktime.ClockOut")) {
 			Integer taskId = getTaskId(context, extras);
 			String text = getText(extras);
 			Logger.info("TRACKING: clock-out via broadcast / taskId={} / text={}", taskId, text);
 			Basics.getOrCreateInstance(context).getTimerManager().createEvent(DateTimeUtil.getCurrentDateTime(),
 				taskId, TypeEnum.CLOCK_OUT, text);
-			WorkTimeTrackerActivity instanceOrNull = WorkTimeTrackerActivity.getInstanceOrNull();
-			if (instanceOrNull != null) {
-				instanceOrNull.refreshView();
-			}
 		} else {
 			Logger.warn("TRACKING: unknown intent action");
 		}
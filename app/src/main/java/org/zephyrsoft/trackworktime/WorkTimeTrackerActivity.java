@@ -52,7 +52,10 @@ import androidx.viewpager2.widget.ViewPager2;
 
 import org.pmw.tinylog.Logger;
 import org.zephyrsoft.trackworktime.database.DAO;
+import org.zephyrsoft.trackworktime.database.DaoMetrics;
+import org.zephyrsoft.trackworktime.database.DataChange;
 import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.MaintenanceRun;
 import org.zephyrsoft.trackworktime.model.Task;
 import org.zephyrsoft.trackworktime.model.TypeEnum;
 import org.zephyrsoft.trackworktime.model.Week;
@@ -63,7 +66,9 @@ import org.zephyrsoft.trackworktime.timer.TimerManager;
 import org.zephyrsoft.trackworktime.util.BackupUtil;
 import org.zephyrsoft.trackworktime.util.DateTimeUtil;
 import org.zephyrsoft.trackworktime.util.ExternalNotificationManager;
+import org.zephyrsoft.trackworktime.util.MainThreadDataChangeListener;
 import org.zephyrsoft.trackworktime.util.PreferencesUtil;
+import org.zephyrsoft.trackworktime.weektimes.ChangedWeeks;
 import org.zephyrsoft.trackworktime.weektimes.WeekAdapter;
 import org.zephyrsoft.trackworktime.weektimes.WeekIndexConverter;
 import org.zephyrsoft.trackworktime.weektimes.WeekStateCalculatorFactory;
@@ -79,9 +84,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.TimeZone;
 
+import hirondelle.date4j.DateTime;
+
 import static java.lang.Math.abs;
 
 /**
@@ -92,12 +100,14 @@ import static java.lang.Math.abs;
 public class WorkTimeTrackerActivity extends AppCompatActivity {
 	private static final int PERMISSION_REQUEST_CODE_BACKUP = 1;
 	private static final int PERMISSION_REQUEST_CODE_RESTORE = 2;
+	private static final int REQUEST_CODE_SEARCH = 3;
 
 	private static final String KEY_CURRENT_WEEK = "current_week";
 
 	private enum MenuAction {
-		EDIT_EVENTS, EDIT_TASKS, INSERT_DEFAULT_TIMES, OPTIONS, REQUEST_TO_IGNORE_BATTERY_OPTIMIZATIONS,
-		USE_CURRENT_LOCATION, REPORTS, BACKUP, RESTORE, ABOUT, SEND_LOGS, RAISE_EXCEPTION, RECENTER_WEEK;
+		EDIT_EVENTS, SEARCH_EVENTS, EDIT_TASKS, INSERT_DEFAULT_TIMES, OPTIONS, REQUEST_TO_IGNORE_BATTERY_OPTIMIZATIONS,
+		USE_CURRENT_LOCATION, REPORTS, BACKUP, RESTORE, DATABASE_MAINTENANCE, ABOUT, SEND_LOGS, DUMP_METRICS,
+		RAISE_EXCEPTION, RECENTER_WEEK;
 
 		public static MenuAction byOrdinal(int ordinal) {
 			return values()[ordinal];
@@ -124,6 +134,15 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 	private List<Task> tasks;
 	private WeekIndexConverter weekIndexConverter;
 	private WeekAdapter weekAdapter;
+	private final MainThreadDataChangeListener dataChangeListener = new MainThreadDataChangeListener() {
+		@Override
+		protected void onDataChangedOnMainThread(DataChange change) {
+			// onResume() reloads everything anyway
+			if (visible) {
+				refreshView(change);
+			}
+		}
+	};
 
 	private void checkAllOptions() {
 		int disabledSections = PreferencesUtil.checkAllPreferenceSections();
@@ -151,7 +170,8 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 		// fill basic data from central structures
 		preferences = basics.getPreferences();
 		dao = basics.getDao();
-		weekIndexConverter = new WeekIndexConverter(dao, DateTimeUtil.getCurrentTimeZone());
+		weekIndexConverter = new WeekIndexConverter(dao);
+		dao.addDataChangeListener(dataChangeListener);
 		timerManager = basics.getTimerManager();
 		externalNotificationManager = basics.getExternalNotificationManager();
 
@@ -242,7 +262,7 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 		TimeCalculator timeCalculator = Basics.getInstance().getTimeCalculator();
 		WeekStateCalculatorFactory weekStateCalculatorFactory = new WeekStateCalculatorFactory(
 				this, dao, timerManager, timeCalculator, preferences);
-		return new WeekStateLoaderFactory(weekStateCalculatorFactory);
+		return new WeekStateLoaderFactory(weekStateCalculatorFactory, dao.getMetrics());
 	}
 
 	private void initWeekPagerAnimation() {
@@ -335,9 +355,9 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 
 		Task selectedTask = (Task) task.getSelectedItem();
 		String description = text.getText().toString();
+		// the view is refreshed via the data change listener
 		timerManager.startTracking(minutesToPredate, selectedTask, description);
 		externalNotificationManager.notifyPebble("started tracking");
-		refreshView();
 	}
 
 	/**
@@ -349,23 +369,46 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 			throw new IllegalArgumentException("no negative argument allowed");
 		}
 
+		// the view is refreshed via the data change listener
 		timerManager.stopTracking(minutesToPredate);
 		externalNotificationManager.notifyPebble("stopped tracking");
-		refreshView();
 	}
 
 
 	/**
-	 * Reloads the view's data if the view is currently shown.
+	 * Reloads the view's data which depends on the current time if the view is currently shown. Changes of the data
+	 * itself are reported by the DAO.
 	 */
 	public static void refreshViewIfShown() {
 		if (instance != null && instance.visible) {
 			Logger.debug("refreshing main view (it is visible at the moment)");
-			instance.refreshView();
+			int now = DateTimeUtil.dateTimeToEpochMinutes(DateTimeUtil.getCurrentDateTime());
+			instance.refreshView(DataChange.ofMinutes(now, now));
 		}
 	}
 
+	/**
+	 * Reloads all of the view's data.
+	 */
 	protected void refreshView() {
+		refreshView(DataChange.EVERYTHING);
+	}
+
+	/**
+	 * Reloads the view's data, but only the weeks which are affected by the given change (see {@link ChangedWeeks}).
+	 */
+	private void refreshView(DataChange change) {
+		refreshControls();
+		int firstChangedWeek = ChangedWeeks.getFirstIndex(change);
+		if (change.isEverything()) {
+			weekAdapter.notifyAllWeeksChanged();
+		} else if (firstChangedWeek != ChangedWeeks.NONE) {
+			weekAdapter.notifyWeeksChangedFrom(firstChangedWeek);
+		}
+		refreshRecenterMenuItem();
+	}
+
+	private void refreshControls() {
 		clockOutButton.setEnabled(timerManager.isTracking());
 		Task taskToSelect = null;
 		if (timerManager.isTracking()) {
@@ -385,8 +428,6 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 				i++;
 			}
 		}
-		weekAdapter.notifyDataSetChanged();
-		refreshRecenterMenuItem();
 	}
 
 	private void refreshRecenterMenuItem() {
@@ -445,6 +486,7 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 	public boolean onCreateOptionsMenu(Menu menu) {
 		menu.add(Menu.NONE, MenuAction.EDIT_EVENTS.ordinal(), MenuAction.EDIT_EVENTS.ordinal(), R.string.edit_events)
 			.setIcon(R.drawable.ic_menu_edit);
+		menu.add(Menu.NONE, MenuAction.SEARCH_EVENTS.ordinal(), MenuAction.SEARCH_EVENTS.ordinal(), R.string.search_events);
 		menu.add(Menu.NONE, MenuAction.EDIT_TASKS.ordinal(), MenuAction.EDIT_TASKS.ordinal(), R.string.edit_tasks)
 			.setIcon(R.drawable.ic_menu_sort_by_size);
 		menu.add(Menu.NONE, MenuAction.INSERT_DEFAULT_TIMES.ordinal(), MenuAction.INSERT_DEFAULT_TIMES.ordinal(), R.string.insert_default_times)
@@ -461,9 +503,11 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 			.setIcon(R.drawable.ic_menu_agenda);
 		menu.add(Menu.NONE, MenuAction.BACKUP.ordinal(), MenuAction.BACKUP.ordinal(), R.string.backup);
 		menu.add(Menu.NONE, MenuAction.RESTORE.ordinal(), MenuAction.RESTORE.ordinal(), R.string.restore);
+		menu.add(Menu.NONE, MenuAction.DATABASE_MAINTENANCE.ordinal(), MenuAction.DATABASE_MAINTENANCE.ordinal(), R.string.databaseMaintenance);
 		menu.add(Menu.NONE, MenuAction.ABOUT.ordinal(), MenuAction.ABOUT.ordinal(), R.string.about)
 			.setIcon(R.drawable.ic_menu_star);
 		menu.add(Menu.NONE, MenuAction.SEND_LOGS.ordinal(), MenuAction.SEND_LOGS.ordinal(), R.string.sendLogs);
+		menu.add(Menu.NONE, MenuAction.DUMP_METRICS.ordinal(), MenuAction.DUMP_METRICS.ordinal(), R.string.dumpMetrics);
 		if (Basics.getOrCreateInstance(this).isDevelopmentVersion()) {
 			menu.add(Menu.NONE, MenuAction.RAISE_EXCEPTION.ordinal(), MenuAction.RAISE_EXCEPTION.ordinal(), "[DEV] Raise Exception")
 				.setIcon(R.drawable.ic_menu_star);
@@ -487,6 +531,9 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 			case EDIT_EVENTS:
 				showCurrentEventList();
 				return true;
+			case SEARCH_EVENTS:
+				showSearch();
+				return true;
 			case EDIT_TASKS:
 				showTaskList();
 				return true;
@@ -511,12 +558,18 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 			case RESTORE:
 				restoreFromSd();
 				return true;
+			case DATABASE_MAINTENANCE:
+				showDatabaseMaintenance();
+				return true;
 			case ABOUT:
 				showAbout();
 				return true;
 			case SEND_LOGS:
 				sendLogs();
 				return true;
+			case DUMP_METRICS:
+				dumpMetrics();
+				return true;
 			case RAISE_EXCEPTION:
 				throw new IllegalStateException("this exception is for testing purposes only");
 			default:
@@ -549,6 +602,24 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 		startActivity(i);
 	}
 
+	private void showSearch() {
+		Logger.debug("showing Search");
+		Intent i = new Intent(this, SearchActivity.class);
+		startActivityForResult(i, REQUEST_CODE_SEARCH);
+	}
+
+	@Override
+	protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+		super.onActivityResult(requestCode, resultCode, data);
+		if (requestCode == REQUEST_CODE_SEARCH && resultCode == RESULT_OK && data != null) {
+			int weekOrdinal = data.getIntExtra(Constants.WEEK_ORDINAL_EXTRA_KEY, -1);
+			if (weekOrdinal >= 0) {
+				// the week index is the week ordinal, see WeekIndexConverter
+				weekPager.setCurrentItem(weekOrdinal, false);
+			}
+		}
+	}
+
 	private void showTaskList() {
 		Logger.debug("showing TaskList");
 		Intent i = new Intent(this, TaskListActivity.class);
@@ -598,6 +669,23 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 		startActivity(i);
 	}
 
+	private void showDatabaseMaintenance() {
+		Logger.debug("showing database maintenance statistics");
+		StringBuilder text = new StringBuilder(getString(R.string.databaseMaintenanceDescription));
+		List<MaintenanceRun> runs = dao.getMaintenanceRuns();
+		if (runs.isEmpty()) {
+			text.append("\n\n").append(getString(R.string.databaseMaintenanceNoRuns));
+		}
+		for (MaintenanceRun run : runs) {
+			DateTime start = DateTime.forInstant(run.getStart(), DateTimeUtil.getCurrentTimeZone());
+			text.append("\n\n").append(getString(R.string.databaseMaintenanceRun,
+				DateTimeUtil.dateTimeToDateString(start) + " " + DateTimeUtil.dateTimeToHourMinuteString(start),
+				run.getDuration(), run.getSizeBefore() / 1024, run.getSizeAfter() / 1024, run.getPagesBefore(),
+				run.getPagesAfter(), run.getFreePagesBefore(), run.getFreePagesAfter(), run.getIntegrity()));
+		}
+		startActivity(Basics.getInstance().createMessageIntent(text.toString(), null));
+	}
+
 	private void showAbout() {
 		Logger.debug("showing About");
 		Intent i = new Intent(this, AboutActivity.class);
@@ -619,11 +707,20 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 	}
 
 	private void doSendLogs() {
-		Intent emailIntent = new Intent(Intent.ACTION_SEND);
+		File slowQuerySummary = Basics.getInstance().writeSlowQuerySummary();
+		Intent emailIntent = new Intent(slowQuerySummary == null ? Intent.ACTION_SEND : Intent.ACTION_SEND_MULTIPLE);
 		emailIntent.putExtra(Intent.EXTRA_SUBJECT, getString(R.string.sendLogsSubject));
 		Uri fileUri = FileProvider.getUriForFile(this,
 			BuildConfig.APPLICATION_ID + ".util.GenericFileProvider", Basics.getInstance().getCurrentLogFile());
-		emailIntent.putExtra(Intent.EXTRA_STREAM, fileUri);
+		if (slowQuerySummary == null) {
+			emailIntent.putExtra(Intent.EXTRA_STREAM, fileUri);
+		} else {
+			ArrayList<Uri> fileUris = new ArrayList<>();
+			fileUris.add(fileUri);
+			fileUris.add(FileProvider.getUriForFile(this,
+				BuildConfig.APPLICATION_ID + ".util.GenericFileProvider", slowQuerySummary));
+			emailIntent.putParcelableArrayListExtra(Intent.EXTRA_STREAM, fileUris);
+		}
 		emailIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
 		emailIntent.setType("text/plain");
 		String to[] = {getString(R.string.email)};
@@ -631,6 +728,18 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 		startActivity(Intent.createChooser(emailIntent , getString(R.string.sendLogs)));
 	}
 
+	private void dumpMetrics() {
+		Logger.debug("dumping database metrics");
+		File file = Basics.getInstance().writeMetrics();
+		StringBuilder metrics = new StringBuilder();
+		for (DaoMetrics.Snapshot snapshot : dao.getMetrics().getSnapshot()) {
+			metrics.append("\n\n").append(snapshot);
+		}
+		Logger.info("database metrics:{}", metrics);
+		String description = getString(R.string.dumpMetricsDescription, file == null ? "-" : file.getAbsolutePath());
+		startActivity(Basics.getInstance().createMessageIntent(description + metrics, null));
+	}
+
 	@Override
 	protected void onResume() {
 		Logger.debug("onResume called");
@@ -654,6 +763,12 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 		super.onPause();
 	}
 
+	@Override
+	protected void onDestroy() {
+		dao.removeDataChangeListener(dataChangeListener);
+		super.onDestroy();
+	}
+
 	/**
 	 * Get the instance of this activity. If it was garbage-collected in the meantime, throw an exception.
 	 */
@@ -672,7 +787,7 @@ public class WorkTimeTrackerActivity extends AppCompatActivity {
 	}
 
 	private Event getLastEventIfClockIn() {
-		Event event = dao.getLastEventBefore(DateTimeUtil.getCurrentDateTime());
+		Event event = dao.getLastEventBeforeIncluding(DateTimeUtil.getCurrentDateTime());
 		if (event != null && event.getType() != null && event.getType().equals(TypeEnum.CLOCK_IN.getValue())) {
 			return event;
 		} else {
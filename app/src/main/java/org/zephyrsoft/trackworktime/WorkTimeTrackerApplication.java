@@ -33,6 +33,8 @@ import org.zephyrsoft.trackworktime.util.TinylogAndLogcatLogger;
 
 import java.util.concurrent.TimeUnit;
 
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
 
@@ -72,6 +74,8 @@ import static org.acra.ReportField.USER_CRASH_DATE;
 	resCommentPrompt = R.string.acraCommentPrompt)
 public class WorkTimeTrackerApplication extends Application {
 
+	private static final String DATABASE_MAINTENANCE_WORK = "database-maintenance";
+
 	@Override
 	public void onCreate() {
 		Logger.info("creating application");
@@ -105,6 +109,16 @@ public class WorkTimeTrackerApplication extends Application {
 			.build();
 		WorkManager.getInstance(getApplicationContext()).enqueue(automaticBackup);
 
+		Constraints.Builder maintenanceConstraints = new Constraints.Builder().setRequiresCharging(true);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+			maintenanceConstraints.setRequiresDeviceIdle(true);
+		}
+		PeriodicWorkRequest databaseMaintenance = new PeriodicWorkRequest.Builder(DatabaseMaintenance.class, 7, TimeUnit.DAYS)
+			.setConstraints(maintenanceConstraints.build())
+			.build();
+		WorkManager.getInstance(getApplicationContext())
+			.enqueueUniquePeriodicWork(DATABASE_MAINTENANCE_WORK, ExistingPeriodicWorkPolicy.KEEP, databaseMaintenance);
+
 		Logger.info("handing off to super");
 		super.onCreate();
 	}
@@ -35,6 +35,7 @@ import android.content.Context;
 import android.os.Build;
 import android.os.ParcelFileDescriptor;
 
+import org.zephyrsoft.trackworktime.Basics;
 import org.zephyrsoft.trackworktime.database.DAO;
 
 /**
@@ -43,6 +44,8 @@ import org.zephyrsoft.trackworktime.database.DAO;
 @TargetApi(Build.VERSION_CODES.FROYO)
 public class DbBackupHelper implements BackupHelper {
 	private static final String KEY = "db_key";
+	/** name under which this helper acknowledges the changes it has backed up */
+	private static final String CHANGE_CONSUMER = "android-backup";
 	private final Context context;
 	private final WorkTimeTrackerBackupManager backupManager;
 
@@ -58,10 +61,14 @@ public class DbBackupHelper implements BackupHelper {
 		if (!backupManager.isEnabled()) {
 			try {
 				data.writeEntityHeader(KEY, -1); // delete existing data if any
-				writeNewState(0, newState);
+				writeNewState(0, 0, newState);
 			} catch (IOException e) {
 				// ignored, delete data next time
 			}
+			// the change log doesn't have to keep the changes for this helper any more
+			final DAO dao = new DAO(context);
+			dao.removeChangeConsumer(CHANGE_CONSUMER);
+			dao.close();
 			return;
 		}
 
@@ -69,18 +76,18 @@ public class DbBackupHelper implements BackupHelper {
 		final FileInputStream instream = new FileInputStream(oldState.getFileDescriptor());
 		final DataInputStream in = new DataInputStream(instream);
 
-		// Get the last modified timestamp from the state file and data file
-		long stateModified = -1;
+		// Get the sequence number of the last backed up change from the state file and the database
+		long stateSequence = -1;
 		try {
-			stateModified = in.readLong();
+			stateSequence = in.readLong();
 			in.close();
 		} catch (IOException e1) {
 			// Unable to read state file... be safe and do a backup
 		}
 		final DAO dao = new DAO(context);
-		long fileModified = dao.getLastDbModification();
+		final long lastChange = dao.getLastChangeSequence();
 
-		if (stateModified != fileModified) {
+		if (stateSequence != lastChange) {
 			ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
 			final Writer writer = new OutputStreamWriter(byteArrayOutputStream);
 
@@ -94,29 +101,44 @@ public class DbBackupHelper implements BackupHelper {
 				byteArrayOutputStream.close();
 			} catch (IOException e) {
 				e.printStackTrace();
+				// keep the state of the last successful backup, so the next run tries again
+				writeState(stateSequence, newState);
+				dao.close();
+				return;
 			}
+			// changes made during the backup are backed up next time
+			dao.acknowledgeChanges(CHANGE_CONSUMER, lastChange);
 		}
 
-		writeNewState(dao.getLastDbModification(), newState);
+		writeNewState(lastChange, dao.getLastDbModification(), newState);
 		dao.close();
 	}
 
-	private void writeNewState(final long dbFileModification, final ParcelFileDescriptor newState) {
+	private void writeNewState(final long lastChange, final long dbFileModification,
+		final ParcelFileDescriptor newState) {
+		if (writeState(lastChange, newState)) {
+			new WorkTimeTrackerBackupManager(context).setLastBackupTimestamp(dbFileModification);
+		}
+	}
+
+	private static boolean writeState(final long lastChange, final ParcelFileDescriptor newState) {
 		// write to newState
 		final FileOutputStream newStateOS = new FileOutputStream(newState.getFileDescriptor());
 		final DataOutputStream newStateDataOS = new DataOutputStream(newStateOS);
 		try {
-			newStateDataOS.writeLong(dbFileModification);
-			new WorkTimeTrackerBackupManager(context).setLastBackupTimestamp(dbFileModification);
+			newStateDataOS.writeLong(lastChange);
 			newStateDataOS.close();
+			return true;
 		} catch (IOException e) {
 			// error on writing the newState, ignored
+			return false;
 		}
 	}
 
 	@Override
 	public void restoreEntity(final BackupDataInputStream data) {
-		final DAO dao = new DAO(context);
+		// use the app's DAO, so its in-memory data stays current
+		final DAO dao = Basics.getOrCreateInstance(context).getDao();
 
 		if (KEY.equals(data.getKey())) {
 			final BufferedReader reader = new BufferedReader(new InputStreamReader(data));
@@ -139,7 +161,7 @@ public class DbBackupHelper implements BackupHelper {
 		final FileOutputStream newStateOS = new FileOutputStream(newState.getFileDescriptor());
 		final DataOutputStream newStateDataOS = new DataOutputStream(newStateOS);
 		try {
-			newStateDataOS.writeLong(dao.getLastDbModification());
+			newStateDataOS.writeLong(dao.getLastChangeSequence());
 			newStateDataOS.close();
 		} catch (IOException e) {
 			// error on writing the newState, ignored
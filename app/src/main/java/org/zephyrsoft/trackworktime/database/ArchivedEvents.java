@@ -0,0 +1,162 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import android.database.Cursor;
+
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.List;
+
+import hirondelle.date4j.DateTime;
+
+/**
+ * Combines the events of the main database with the ones in the archives of closed years (see
+ * {@link DAO#archiveYear(int)}). The archives are only read if they can contain a nearer event than the one found in
+ * the main database.
+ */
+class ArchivedEvents {
+
+	/** reads one event from the archive of the given year */
+	interface YearQuery {
+		/**
+		 * @return the found event or {@code null}
+		 */
+		Event query(int year);
+	}
+
+	/** gets the rows of {@link #merge} one by one - the cursor must not be moved */
+	interface RowVisitor {
+		void visit(Cursor cursor);
+	}
+
+	/** the columns of the event rows which are compared by {@link #merge} */
+	static final int ID_COLUMN = 0;
+	static final int TIME_MINUTES_COLUMN = 6;
+
+	private ArchivedEvents() {
+		// only static methods
+	}
+
+	/**
+	 * Search the archives for an event before the given minute (not including it) which is later than the given
+	 * candidate from the main database. Usually the candidate is later than all archived years, then no archive is
+	 * read.
+	 *
+	 * @param years
+	 *            the archived years in ascending order
+	 * @param lastBefore
+	 *            reads the last event before the minute from an archive
+	 * @return the found event or the candidate
+	 */
+	static Event getLastBefore(List<Integer> years, int minute, Event candidate, YearQuery lastBefore) {
+		for (int i = years.size() - 1; i >= 0; i--) {
+			int year = years.get(i);
+			if (candidate != null && candidate.getTimeMinutes() >= startOfYear(year + 1)) {
+				break;
+			}
+			if (startOfYear(year) < minute) {
+				Event archived = lastBefore.query(year);
+				if (archived != null) {
+					return candidate == null || isBefore(candidate, archived) ? archived : candidate;
+				}
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * Search the archives for an event after the given minute (not including it) which is earlier than the given
+	 * candidate from the main database, like {@link #getLastBefore}.
+	 *
+	 * @param firstAfter
+	 *            reads the first event after the minute from an archive
+	 * @return the found event or the candidate
+	 */
+	static Event getFirstAfter(List<Integer> years, int minute, Event candidate, YearQuery firstAfter) {
+		for (Integer year : years) {
+			if (candidate != null && candidate.getTimeMinutes() < startOfYear(year)) {
+				break;
+			}
+			if (startOfYear(year + 1) > minute + 1) {
+				Event archived = firstAfter.query(year);
+				if (archived != null) {
+					return candidate == null || isBefore(archived, candidate) ? archived : candidate;
+				}
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * Find the archived year which contains an event.
+	 *
+	 * @param byId
+	 *            reads the event from an archive
+	 * @return the year or {@code null} if the event is in no archive
+	 */
+	static Integer findYear(List<Integer> years, YearQuery byId) {
+		for (Integer year : years) {
+			if (byId.query(year) != null) {
+				return year;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Visit the rows of the given cursors (each ordered by time in minutes and ID) merged into one sequence in the same
+	 * order. The cursors are not closed.
+	 */
+	static void merge(List<Cursor> cursors, RowVisitor visitor) {
+		for (Cursor cursor : cursors) {
+			cursor.moveToFirst();
+		}
+		Cursor next;
+		while ((next = firstRow(cursors)) != null) {
+			visitor.visit(next);
+			next.moveToNext();
+		}
+	}
+
+	/** the cursor whose current row comes first by time and ID, or {@code null} if all cursors are exhausted */
+	private static Cursor firstRow(List<Cursor> cursors) {
+		Cursor ret = null;
+		for (Cursor cursor : cursors) {
+			if (!cursor.isAfterLast() && (ret == null
+				|| cursor.getInt(TIME_MINUTES_COLUMN) < ret.getInt(TIME_MINUTES_COLUMN)
+				|| (cursor.getInt(TIME_MINUTES_COLUMN) == ret.getInt(TIME_MINUTES_COLUMN)
+					&& cursor.getInt(ID_COLUMN) < ret.getInt(ID_COLUMN)))) {
+				ret = cursor;
+			}
+		}
+		return ret;
+	}
+
+	/** compares like the event queries: by time in minutes, then by ID */
+	static boolean isBefore(Event event, Event other) {
+		int minute = event.getTimeMinutes();
+		int otherMinute = other.getTimeMinutes();
+		return minute < otherMinute || (minute == otherMinute && event.getId() < other.getId());
+	}
+
+	static int startOfYear(int year) {
+		return DateTimeUtil.dateTimeToEpochMinutes(DateTime.forDateOnly(year, 1, 1));
+	}
+
+}
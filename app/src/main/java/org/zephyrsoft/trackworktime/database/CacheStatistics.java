@@ -0,0 +1,59 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+/**
+ * Counts the lookups which could be answered by one of the {@link DAO}'s in-memory caches (hits) and the ones which
+ * had to go to the database (misses).
+ *
+ * This class is thread safe.
+ */
+public class CacheStatistics {
+
+	private long hits = 0;
+	private long misses = 0;
+
+	synchronized void hit() {
+		hits++;
+	}
+
+	synchronized void miss() {
+		misses++;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the share of lookups which were answered from the cache (between 0 and 1).
+	 */
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d hits, %d misses (rate %.3f)", hits, misses, getHitRate());
+	}
+
+}
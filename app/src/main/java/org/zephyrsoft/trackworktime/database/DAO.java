@@ -19,16 +19,29 @@ package org.zephyrsoft.trackworktime.database;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.DatabaseUtils;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 
+import org.pmw.tinylog.Logger;
 import org.zephyrsoft.trackworktime.Basics;
+import org.zephyrsoft.trackworktime.BuildConfig;
 import org.zephyrsoft.trackworktime.backup.WorkTimeTrackerBackupManager;
+import org.zephyrsoft.trackworktime.model.Change;
+import org.zephyrsoft.trackworktime.model.DaySummary;
 import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.MaintenanceRun;
 import org.zephyrsoft.trackworktime.model.Task;
+import org.zephyrsoft.trackworktime.model.TimeSum;
 import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.model.Unit;
 import org.zephyrsoft.trackworktime.model.Week;
 import org.zephyrsoft.trackworktime.model.WeekPlaceholder;
 import org.zephyrsoft.trackworktime.timer.TimerManager;
@@ -39,26 +52,75 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import hirondelle.date4j.DateTime;
 
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.ARCHIVED_YEAR;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.ARCHIVED_YEAR_EVENT_COUNT;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.ARCHIVED_YEAR_TIMESTAMP;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.ARCHIVED_YEAR_YEAR;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.CHANGE_LOG;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.CHANGE_LOG_ACK;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.CHANGE_LOG_ACK_CONSUMER;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.CHANGE_LOG_ACK_SEQUENCE;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.CHANGE_LOG_ENTITY;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.CHANGE_LOG_ENTITY_ID;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.CHANGE_LOG_OPERATION;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.CHANGE_LOG_SEQUENCE;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.CHANGE_LOG_TIMESTAMP;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.DAY_SUMMARY;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.DAY_SUMMARY_DAY;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.DAY_SUMMARY_FIRST_IN;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.DAY_SUMMARY_FLEX_TARGET;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.DAY_SUMMARY_LAST_OUT;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.DAY_SUMMARY_WORKED;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_ID;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_SEARCH;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_SEARCH_ID;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_SEARCH_TASK;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_TASK;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_TEXT;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_TIME;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_TIME_MINUTES;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_TYPE;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_WEEK;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.MAINTENANCE_RUN;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.MAINTENANCE_RUN_DURATION;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.MAINTENANCE_RUN_FREE_PAGES_AFTER;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.MAINTENANCE_RUN_FREE_PAGES_BEFORE;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.MAINTENANCE_RUN_ID;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.MAINTENANCE_RUN_INTEGRITY;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.MAINTENANCE_RUN_PAGES_AFTER;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.MAINTENANCE_RUN_PAGES_BEFORE;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.MAINTENANCE_RUN_SIZE_AFTER;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.MAINTENANCE_RUN_SIZE_BEFORE;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.MAINTENANCE_RUN_START;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.TASK;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.TASK_ACTIVE;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.TASK_DEFAULT;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.TASK_ID;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.TASK_NAME;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.TASK_DAY_SUM;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.TASK_DAY_SUM_DAY;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.TASK_DAY_SUM_MINUTES;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.TASK_DAY_SUM_TASK;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.TASK_ORDERING;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.WEEK;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.WEEK_ID;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.WEEK_ORDINAL;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.WEEK_START;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.WEEK_SUM;
 import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.WEEK_FLEXI;
@@ -67,20 +129,74 @@ import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.WEEK_FLEXI;
  * The data access object for structures from the app's SQLite database. The model consists of three main elements:
  * tasks (which are defined by the user and can be referenced when clocking in), events (which are generated when
  * clocking in or out and when changing task or text) and weeks (which are like a clip around events and also can
- * provide a sum so that not all events have to be read to calculate the flexi time).
+ * provide a sum so that not all events have to be read to calculate the flexi time). Additionally, a summary per day
+ * and the minutes per task and day are derived from the events and updated in the same transaction as the events.
+ * Every change of a task, week or event is recorded in the change log (see {@link #getChangesSince(long)}), and
+ * registered {@link DataChangeListener}s get told which time range and tasks a committed write changed. The events of
+ * closed years can be moved to archive files (see {@link #archiveYear(int)}), the event queries include them. The
+ * time calculations only see the {@link EventStore} part of this class. In debug builds, all calls which take longer
+ * than a threshold are logged together with their query plan (see {@link #getSlowQueryLog()}). The invocations,
+ * durations, statements and rows of all data access methods are counted (see {@link #getMetrics()}).
  *
- * This class is thread safe.
+ * This class is thread safe. Writes are serialized (by synchronizing on the DAO instance), but reads don't wait for
+ * them: the database uses write-ahead logging, so SQLite answers reads from a separate connection which sees the last
+ * committed state. Reads in a thread which is running a transaction see the changes of that transaction. Several
+ * reads which have to see the same state (like the ones of a report) can be combined with
+ * {@link #readSnapshot(SnapshotReader)}.
  *
  * @author Mathis Dirksen-Thedens
  */
-public class DAO {
+public class DAO implements EventStore {
 
-	// TODO use prepared statements as described here: http://stackoverflow.com/questions/7255574
+	// all SQL is built from constant parts and gets its values as bind arguments, so SQLite can re-use the
+	// prepared statements it caches per connection (keyed by the SQL text)
+
+	private static final int WEEK_CACHE_SIZE = 128;
 
 	private volatile SQLiteDatabase db;
 	private final MySQLiteHelper dbHelper;
 	private final Context context;
 	private final WorkTimeTrackerBackupManager backupManager;
+	private final StatementStatistics statementStatistics = new StatementStatistics();
+	/** only enabled in debug builds, see {@link #getSlowQueryLog()} */
+	private final SlowQueryLog slowQueryLog = new SlowQueryLog(
+		BuildConfig.DEBUG ? SlowQueryLog.DEFAULT_THRESHOLD_MILLIS : SlowQueryLog.DISABLED);
+	/** invocations, durations, statements and rows per method, see {@link #getMetrics()} */
+	private final DaoMetrics metrics = new DaoMetrics();
+	/** readers hold the shared lock while they use the database, {@link #close()} takes the exclusive one */
+	private final ReadWriteLock connectionLock = new ReentrantReadWriteLock();
+	/** compiled once per opened database, see {@link #isTaskUsed(Integer)} */
+	private SQLiteStatement countEventsWithTaskStatement;
+	private final Object countEventsWithTaskLock = new Object();
+	/** the order of all events in memory for the neighbour lookups, see {@link #getEventTimeline()} */
+	private final EventTimeline eventTimeline = new EventTimeline();
+	/** collected until the outermost transaction commits, guarded by the DAO instance */
+	private final List<Runnable> pendingTimelineChanges = new ArrayList<>();
+	/** e.g. the commits of the archives, guarded by the DAO instance */
+	private final TransactionActions transactionActions = new TransactionActions();
+	/** all tasks by ID and by name, see {@link #getTaskCache()} */
+	private volatile TaskCache taskCache;
+	private final CacheStatistics taskCacheStatistics = new CacheStatistics();
+	/** the most recently used weeks by ordinal, see {@link #getWeekByOrdinal(int)} */
+	private final WeekCache weekCache = new WeekCache(WEEK_CACHE_SIZE);
+	private final CacheStatistics weekCacheStatistics = new CacheStatistics();
+	/** compiled once per opened database, see {@link #insertEvents(List)} */
+	private SQLiteStatement insertEventStatement;
+	/** compiled once per opened database, see {@link #indexEvent(Event)} */
+	private SQLiteStatement indexEventStatement;
+	private final List<DataChangeListener> dataChangeListeners = new CopyOnWriteArrayList<>();
+	/** collected until the outermost transaction ends, guarded by the DAO instance */
+	private DataChange pendingChange;
+	/** committed, but not published yet, see {@link #publishChanges()} */
+	private final Queue<DataChange> committedChanges = new ConcurrentLinkedQueue<>();
+	/** keeps the order of the published changes, the listeners don't run while holding the DAO's lock */
+	private final Object publishLock = new Object();
+	/** the events of archived years, see {@link #archiveYear(int)} */
+	private final EventArchive eventArchive;
+	/** in ascending order, see {@link #getArchivedYears()} */
+	private volatile List<Integer> archivedYears;
+	/** the running snapshot of the current thread, see {@link #readSnapshot(SnapshotReader)} */
+	private final ThreadLocal<Snapshot> snapshot = new ThreadLocal<>();
 
 	/**
 	 * Constructor
@@ -89,22 +205,394 @@ public class DAO {
 		this.context = context;
 		dbHelper = new MySQLiteHelper(context);
 		backupManager = new WorkTimeTrackerBackupManager(context);
+		eventArchive = new EventArchive(context);
 	}
 
 	/**
 	 * Open the underlying database. Implicitly called before any database operation.
 	 */
-	private synchronized void open() throws SQLException {
-		if(db == null || !db.isOpen()) {
-			db = dbHelper.getWritableDatabase();
+	private void open() throws SQLException {
+		if (db == null || !db.isOpen()) {
+			// not synchronized on the DAO itself, so readers don't have to wait for a running write
+			synchronized (dbHelper) {
+				if (db == null || !db.isOpen()) {
+					db = dbHelper.getWritableDatabase();
+					db.setMaxSqlCacheSize(StatementStatistics.MAX_SQL_CACHE_SIZE);
+				}
+			}
 		}
 	}
 
 	/**
-	 * Close the underlying database.
+	 * Close the underlying database. Waits for running reads to finish.
 	 */
 	public synchronized void close() {
-		dbHelper.close();
+		connectionLock.writeLock().lock();
+		try {
+			releaseStatements();
+			dbHelper.close();
+			eventArchive.close();
+		} finally {
+			connectionLock.writeLock().unlock();
+		}
+		Logger.debug("statement statistics: {}", statementStatistics);
+		Logger.debug("task cache statistics: {}", taskCacheStatistics);
+		Logger.debug("week cache statistics: {}", weekCacheStatistics);
+	}
+
+	private void releaseStatements() {
+		if (countEventsWithTaskStatement != null) {
+			countEventsWithTaskStatement.close();
+			countEventsWithTaskStatement = null;
+		}
+		if (insertEventStatement != null) {
+			insertEventStatement.close();
+			insertEventStatement = null;
+		}
+		if (indexEventStatement != null) {
+			indexEventStatement.close();
+			indexEventStatement = null;
+		}
+		statementStatistics.reset();
+	}
+
+	/**
+	 * Get the counters of executed SQL statements and of the estimated statement cache misses.
+	 */
+	public StatementStatistics getStatementStatistics() {
+		return statementStatistics;
+	}
+
+	/**
+	 * Get the queries and writes which took longer than a threshold. The threshold can be changed there, in release
+	 * builds the log is disabled by default.
+	 */
+	public SlowQueryLog getSlowQueryLog() {
+		return slowQueryLog;
+	}
+
+	/**
+	 * Get the invocations, durations, statements and rows of the data access methods.
+	 */
+	public DaoMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Get the counters of task lookups by ID or name which were answered from memory.
+	 */
+	public CacheStatistics getTaskCacheStatistics() {
+		return taskCacheStatistics;
+	}
+
+	/**
+	 * Get the counters of week lookups by start date which were answered from memory.
+	 */
+	public CacheStatistics getWeekCacheStatistics() {
+		return weekCacheStatistics;
+	}
+
+	/**
+	 * Register a listener which gets notified after each committed write.
+	 */
+	public void addDataChangeListener(DataChangeListener listener) {
+		dataChangeListeners.add(listener);
+	}
+
+	public void removeDataChangeListener(DataChangeListener listener) {
+		dataChangeListeners.remove(listener);
+	}
+
+	/**
+	 * Execute the given action in one database transaction: if it throws an exception, all changes it made are rolled
+	 * back. Transactions may be nested, only the outermost one commits.
+	 */
+	public void executeInTransaction(Runnable action) {
+		try {
+			synchronized (this) {
+				open();
+				db.beginTransaction();
+				boolean successful = false;
+				try {
+					action.run();
+					db.setTransactionSuccessful();
+					successful = true;
+				} finally {
+					endTransaction(successful);
+				}
+			}
+		} finally {
+			publishChanges();
+		}
+	}
+
+	/**
+	 * End the current transaction. If it failed, the in-memory data may contain changes which were rolled back. The
+	 * event timeline is only changed after the outermost transaction committed.
+	 */
+	private void endTransaction(boolean successful) {
+		db.endTransaction();
+		if (!successful) {
+			taskCache = null;
+			weekCache.clear();
+			archivedYears = null;
+		}
+		if (!db.inTransaction()) {
+			if (transactionActions.endOutermost(successful)) {
+				eventTimeline.apply(pendingTimelineChanges);
+				commitPendingChange();
+			} else {
+				pendingChange = null;
+			}
+			pendingTimelineChanges.clear();
+		} else {
+			transactionActions.endNested(successful);
+		}
+	}
+
+	private Cursor query(String table, String[] columns, String selection, String[] selectionArgs, String orderBy,
+		String limit) {
+		String sql = SQLiteQueryBuilder.buildQueryString(false, table, columns, selection, null, null, orderBy, limit);
+		return rawQuery(readDatabase(), sql, selectionArgs);
+	}
+
+	/** the connection for reads: the one of the current thread's snapshot if there is one */
+	private SQLiteDatabase readDatabase() {
+		Snapshot current = snapshot.get();
+		return current != null ? current.main : db;
+	}
+
+	/** called before every write */
+	private void checkNotInSnapshot() {
+		if (snapshot.get() != null) {
+			throw new IllegalStateException("writing is not allowed while reading a snapshot");
+		}
+	}
+
+	/** called for every statement */
+	private void executed(String sql) {
+		statementStatistics.executed(sql);
+		metrics.executed();
+	}
+
+	private Cursor rawQuery(SQLiteDatabase database, String sql, String[] selectionArgs) {
+		executed(sql);
+		if (!slowQueryLog.isEnabled()) {
+			return counting(database.rawQuery(sql, selectionArgs));
+		}
+		long start = System.nanoTime();
+		Cursor cursor = database.rawQuery(sql, selectionArgs);
+		// the query only runs when the cursor is read, so it is counted here to include it in the duration
+		int rows = cursor.getCount();
+		slowQueryLog.record(sql, selectionArgs, rows, System.nanoTime() - start,
+			() -> explain(database, sql, selectionArgs));
+		return counting(cursor);
+	}
+
+	/** the body of a public method which is measured by the {@link DaoMetrics} */
+	private interface Measured<T> {
+		T run();
+	}
+
+	/**
+	 * Run the body as a call with the given name, see {@link DaoMetrics#begin(String)}.
+	 */
+	private <T> T measured(String name, Measured<T> body) {
+		DaoMetrics.Call call = metrics.begin(name);
+		try {
+			return body.run();
+		} finally {
+			call.end();
+		}
+	}
+
+	private void measured(String name, Runnable body) {
+		DaoMetrics.Call call = metrics.begin(name);
+		try {
+			body.run();
+		} finally {
+			call.end();
+		}
+	}
+
+	/**
+	 * Run the body of a write method like {@link #measured(String, Measured)}, while holding the lock of the writers.
+	 * The changes it committed are published after the lock was released, see {@link #publishChanges()}.
+	 */
+	private <T> T writing(String name, Measured<T> body) {
+		try {
+			synchronized (this) {
+				return measured(name, body);
+			}
+		} finally {
+			publishChanges();
+		}
+	}
+
+	private void writing(String name, Runnable body) {
+		try {
+			synchronized (this) {
+				measured(name, body);
+			}
+		} finally {
+			publishChanges();
+		}
+	}
+
+	private Cursor counting(Cursor cursor) {
+		DaoMetrics.Call call = metrics.getCurrentCall();
+		return call == null ? cursor : new CountingCursor(cursor, call);
+	}
+
+	/** counts the rows which are read for the {@link DaoMetrics} */
+	private static class CountingCursor extends CursorWrapper {
+		private final DaoMetrics.Call call;
+
+		CountingCursor(Cursor cursor, DaoMetrics.Call call) {
+			super(cursor);
+			this.call = call;
+		}
+
+		@Override
+		public boolean moveToFirst() {
+			return counted(super.moveToFirst());
+		}
+
+		@Override
+		public boolean moveToNext() {
+			return counted(super.moveToNext());
+		}
+
+		private boolean counted(boolean onRow) {
+			if (onRow) {
+				call.read();
+			}
+			return onRow;
+		}
+	}
+
+	private long insert(String table, ContentValues values) {
+		checkNotInSnapshot();
+		String sql = "insert into " + table + " " + values.keySet();
+		executed(sql);
+		long start = System.nanoTime();
+		long id = db.insert(table, null, values);
+		metrics.wrote(id == -1 ? 0 : 1);
+		// an insert into a table always has the same plan, so it isn't captured
+		if (slowQueryLog.isEnabled()) {
+			slowQueryLog.record(sql, valuesAsArgs(values), id == -1 ? 0 : 1, System.nanoTime() - start, null);
+		}
+		return id;
+	}
+
+	private long replace(String table, ContentValues values) {
+		checkNotInSnapshot();
+		String sql = "replace into " + table + " " + values.keySet();
+		executed(sql);
+		long start = System.nanoTime();
+		long id = db.replace(table, null, values);
+		metrics.wrote(id == -1 ? 0 : 1);
+		if (slowQueryLog.isEnabled()) {
+			slowQueryLog.record(sql, valuesAsArgs(values), id == -1 ? 0 : 1, System.nanoTime() - start, null);
+		}
+		return id;
+	}
+
+	private int update(String table, ContentValues values, String whereClause, String... whereArgs) {
+		checkNotInSnapshot();
+		executed("update " + table + " " + values.keySet() + " where " + whereClause);
+		long start = System.nanoTime();
+		int rows = db.update(table, values, whereClause, whereArgs);
+		metrics.wrote(rows);
+		if (slowQueryLog.isEnabled()) {
+			// the same SQL which SQLiteDatabase.update() builds
+			StringBuilder builder = new StringBuilder("update ").append(table).append(" set ");
+			String separator = "";
+			for (String column : values.keySet()) {
+				builder.append(separator).append(column).append("=?");
+				separator = ", ";
+			}
+			String sql = builder.append(" where ").append(whereClause).toString();
+			String[] args = concat(valuesAsArgs(values), whereArgs);
+			slowQueryLog.record(sql, args, rows, System.nanoTime() - start, () -> explain(db, sql, args));
+		}
+		return rows;
+	}
+
+	private int delete(String table, String whereClause, String... whereArgs) {
+		checkNotInSnapshot();
+		String sql = "delete from " + table + " where " + whereClause;
+		executed(sql);
+		long start = System.nanoTime();
+		int rows = db.delete(table, whereClause, whereArgs);
+		metrics.wrote(rows);
+		if (slowQueryLog.isEnabled()) {
+			slowQueryLog.record(sql, whereArgs, rows, System.nanoTime() - start, () -> explain(db, sql, whereArgs));
+		}
+		return rows;
+	}
+
+	private void execute(String sql) {
+		checkNotInSnapshot();
+		executed(sql);
+		long start = System.nanoTime();
+		db.execSQL(sql);
+		if (slowQueryLog.isEnabled()) {
+			// maintenance statements like VACUUM or PRAGMA don't have a query plan
+			slowQueryLog.record(sql, null, 0, System.nanoTime() - start,
+				isDataManipulation(sql) ? () -> explain(db, sql, null) : null);
+		}
+	}
+
+	/** only these statements can be explained with EXPLAIN QUERY PLAN */
+	private static boolean isDataManipulation(String sql) {
+		int type = DatabaseUtils.getSqlStatementType(sql);
+		return type == DatabaseUtils.STATEMENT_SELECT || type == DatabaseUtils.STATEMENT_UPDATE;
+	}
+
+	/** the lines of the EXPLAIN QUERY PLAN output, only used for the {@link SlowQueryLog} */
+	private static String explain(SQLiteDatabase database, String sql, String[] args) {
+		StringBuilder ret = new StringBuilder();
+		try {
+			Cursor cursor = database.rawQuery("explain query plan " + sql, args);
+			try {
+				int detail = cursor.getColumnIndex("detail");
+				while (cursor.moveToNext()) {
+					ret.append(ret.length() > 0 ? "\n" : "").append(cursor.getString(detail));
+				}
+			} finally {
+				cursor.close();
+			}
+		} catch (SQLException e) {
+			ret.append("query plan not available: ").append(e.getMessage());
+		}
+		return ret.toString();
+	}
+
+	private static String[] valuesAsArgs(ContentValues values) {
+		String[] ret = new String[values.size()];
+		int i = 0;
+		for (String column : values.keySet()) {
+			ret[i++] = values.getAsString(column);
+		}
+		return ret;
+	}
+
+	private static String[] concat(String[] first, String[] second) {
+		String[] ret = new String[first.length + (second == null ? 0 : second.length)];
+		System.arraycopy(first, 0, ret, 0, first.length);
+		if (second != null) {
+			System.arraycopy(second, 0, ret, first.length, second.length);
+		}
+		return ret;
+	}
+
+	private static String[] asArgs(Object... values) {
+		String[] ret = new String[values.length];
+		for (int i = 0; i < values.length; i++) {
+			ret[i] = String.valueOf(values[i]);
+		}
+		return ret;
 	}
 
 	// =======================================================
@@ -137,14 +625,17 @@ public class DAO {
 	 *            the task to add
 	 * @return the newly created task as read from the database (complete with ID)
 	 */
-	public synchronized Task insertTask(Task task) {
-		open();
-		ContentValues args = taskToContentValues(task);
-		long insertId = db.insert(TASK, null, args);
-		// now fetch the newly inserted row and return it as Task object
-		List<Task> created = getTasksWithConstraint(TASK_ID + "=" + insertId);
-		dataChanged();
-		return created.get(0);
+	public Task insertTask(Task task) {
+		return writing("insertTask", () -> {
+			open();
+			ContentValues args = taskToContentValues(task);
+			long insertId = insert(TASK, args);
+			taskCache = null;
+			// now fetch the newly inserted row and return it as Task object
+			List<Task> created = getTasksWithConstraint(TASK_ID + "=?", asArgs(insertId));
+			dataChanged(DataChange.ofTask(created.get(0).getId()));
+			return created.get(0);
+		});
 	}
 
 	/**
@@ -153,7 +644,7 @@ public class DAO {
 	 * @return all existing tasks
 	 */
 	public List<Task> getAllTasks() {
-		return getTasksWithConstraint(null);
+		return measured("getAllTasks", () -> getTasksWithConstraint(null, null));
 	}
 
 	/**
@@ -162,7 +653,7 @@ public class DAO {
 	 * @return all existing tasks that are active at the moment
 	 */
 	public List<Task> getActiveTasks() {
-		return getTasksWithConstraint(TASK_ACTIVE + "!=0");
+		return measured("getActiveTasks", () -> getTasksWithConstraint(TASK_ACTIVE + "!=0", null));
 	}
 
 	/**
@@ -171,8 +662,10 @@ public class DAO {
 	 * @return the default task or {@code null} (if no task was marked as default or if the default task is deactivated)
 	 */
 	public Task getDefaultTask() {
-		List<Task> tasks = getTasksWithConstraint(TASK_ACTIVE + "!=0 AND " + TASK_DEFAULT + "!=0");
-		return tasks.isEmpty() ? null : tasks.get(0);
+		return measured("getDefaultTask", () -> {
+			List<Task> tasks = getTasksWithConstraint(TASK_ACTIVE + "!=0 AND " + TASK_DEFAULT + "!=0", null);
+			return tasks.isEmpty() ? null : tasks.get(0);
+		});
 	}
 
 	/**
@@ -183,8 +676,12 @@ public class DAO {
 	 * @return the task or {@code null} if the specified ID does not exist
 	 */
 	public Task getTask(Integer id) {
-		List<Task> tasks = getTasksWithConstraint(TASK_ID + "=" + id);
-		return tasks.isEmpty() ? null : tasks.get(0);
+		return measured("getTask(Integer)", () -> {
+			if (id == null) {
+				return null;
+			}
+			return copyOf(getTaskCache().byId.get(id));
+		});
 	}
 
 	/**
@@ -195,38 +692,134 @@ public class DAO {
 	 * @return the task (first if more than one exist) or {@code null} if the specified name does not exist at all
 	 */
 	public Task getTask(String name) {
-		List<Task> tasks = getTasksWithConstraint(TASK_NAME + "=\"" + name + "\"");
-		return tasks.isEmpty() ? null : tasks.get(0);
+		return measured("getTask(String)", () -> {
+			if (name == null) {
+				return null;
+			}
+			return copyOf(getTaskCache().byName.get(name));
+		});
+	}
+
+	/** the callers may change the returned tasks, so the cached ones are never handed out */
+	private static Task copyOf(Task task) {
+		return task == null
+			? null
+			: new Task(task.getId(), task.getName(), task.getActive(), task.getOrdering(), task.getIsDefault());
 	}
 
 	/**
-	 * Return if the task with the given ID is used in an event.
+	 * Get the cached tasks, which are loaded on first use and after each change of a task.
 	 */
-	public synchronized boolean isTaskUsed(Integer id) {
-		Cursor cursor = db.query(EVENT, new String[] { "count(*)" }, EVENT_TASK + " = " + String.valueOf(id), null,
-			null, null, null, null);
-		cursor.moveToFirst();
-		int count = 0;
-		if (!cursor.isAfterLast()) {
-			count = cursor.getInt(0);
+	private TaskCache getTaskCache() {
+		Snapshot current = snapshot.get();
+		if (current != null) {
+			// the shared cache may already contain newer changes
+			if (current.taskCache == null) {
+				current.taskCache = new TaskCache(getAllTasks());
+			}
+			return current.taskCache;
+		}
+		TaskCache cache = taskCache;
+		if (cache != null) {
+			taskCacheStatistics.hit();
+			return cache;
 		}
-		cursor.close();
-		return count > 0;
+		taskCacheStatistics.miss();
+		return loadTaskCache();
 	}
 
-	private synchronized List<Task> getTasksWithConstraint(String constraint) {
-		open();
-		List<Task> ret = new ArrayList<>();
-		// TODO sort tasks by TASK_ORDERING when the UI supports manual ordering of tasks
-		Cursor cursor = db.query(TASK, TASK_FIELDS, constraint, null, null, null, TASK_NAME);
-		cursor.moveToFirst();
-		while (!cursor.isAfterLast()) {
-			Task task = cursorToTask(cursor);
-			ret.add(task);
-			cursor.moveToNext();
-		}
-		cursor.close();
-		return ret;
+	/**
+	 * Synchronized like the write methods, so no write transaction of another thread (whose changes the loaded tasks
+	 * wouldn't contain yet) can be running.
+	 */
+	private synchronized TaskCache loadTaskCache() {
+		TaskCache cache = taskCache;
+		if (cache == null) {
+			cache = new TaskCache(getAllTasks());
+			taskCache = cache;
+		}
+		return cache;
+	}
+
+	private static class TaskCache {
+		private final Map<Integer, Task> byId = new HashMap<>();
+		private final Map<String, Task> byName = new HashMap<>();
+
+		TaskCache(List<Task> tasksOrderedByName) {
+			for (Task task : tasksOrderedByName) {
+				byId.put(task.getId(), task);
+				if (!byName.containsKey(task.getName())) {
+					byName.put(task.getName(), task);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return if the task with the given ID is used in an event.
+	 */
+	public boolean isTaskUsed(Integer id) {
+		return measured("isTaskUsed", () -> {
+			// loaded before taking the lock, loading waits for running writes
+			List<Integer> years = getArchivedYears();
+			connectionLock.readLock().lock();
+			try {
+				open();
+				if (snapshot.get() != null) {
+					// the compiled statement belongs to the main connection
+					if (queryLong(SQL_COUNT_EVENTS_WITH_TASK, asArgs(id)) > 0) {
+						return true;
+					}
+				} else {
+					// the compiled statement holds the bindings, so it may only be used by one thread at a time
+					synchronized (countEventsWithTaskLock) {
+						if (countEventsWithTaskStatement == null) {
+							countEventsWithTaskStatement = db.compileStatement(SQL_COUNT_EVENTS_WITH_TASK);
+						}
+						executed(SQL_COUNT_EVENTS_WITH_TASK);
+						bindInteger(countEventsWithTaskStatement, 1, id);
+						long start = System.nanoTime();
+						long count = countEventsWithTaskStatement.simpleQueryForLong();
+						if (slowQueryLog.isEnabled()) {
+							slowQueryLog.record(SQL_COUNT_EVENTS_WITH_TASK, asArgs(id), 1, System.nanoTime() - start,
+								() -> explain(db, SQL_COUNT_EVENTS_WITH_TASK, asArgs(id)));
+						}
+						if (count > 0) {
+							return true;
+						}
+					}
+				}
+				for (Integer year : years) {
+					executed(SQL_COUNT_EVENTS_WITH_TASK);
+					if (DatabaseUtils.longForQuery(getArchive(year), SQL_COUNT_EVENTS_WITH_TASK, asArgs(id)) > 0) {
+						return true;
+					}
+				}
+				return false;
+			} finally {
+				connectionLock.readLock().unlock();
+			}
+		});
+	}
+
+	private List<Task> getTasksWithConstraint(String constraint, String[] constraintArgs) {
+		connectionLock.readLock().lock();
+		try {
+			open();
+			List<Task> ret = new ArrayList<>();
+			// TODO sort tasks by TASK_ORDERING when the UI supports manual ordering of tasks
+			Cursor cursor = query(TASK, TASK_FIELDS, constraint, constraintArgs, TASK_NAME, null);
+			cursor.moveToFirst();
+			while (!cursor.isAfterLast()) {
+				Task task = cursorToTask(cursor);
+				ret.add(task);
+				cursor.moveToNext();
+			}
+			cursor.close();
+			return ret;
+		} finally {
+			connectionLock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -236,14 +829,29 @@ public class DAO {
 	 *            the task to update - the ID has to be set!
 	 * @return the task as newly read from the database
 	 */
-	public synchronized Task updateTask(Task task) {
-		open();
-		ContentValues args = taskToContentValues(task);
-		db.update(TASK, args, TASK_ID + "=" + task.getId(), null);
-		// now fetch the newly updated row and return it as Task object
-		List<Task> updated = getTasksWithConstraint(TASK_ID + "=" + task.getId() + "");
-		dataChanged();
-		return updated.get(0);
+	public Task updateTask(Task task) {
+		return writing("updateTask", () -> {
+			open();
+			Task old = getTask(task.getId());
+			db.beginTransaction();
+			boolean successful = false;
+			try {
+				ContentValues args = taskToContentValues(task);
+				update(TASK, args, TASK_ID + "=?", asArgs(task.getId()));
+				if (old == null || !old.getName().equals(task.getName())) {
+					indexTaskName(task);
+				}
+				db.setTransactionSuccessful();
+				successful = true;
+			} finally {
+				endTransaction(successful);
+			}
+			taskCache = null;
+			// now fetch the newly updated row and return it as Task object
+			List<Task> updated = getTasksWithConstraint(TASK_ID + "=?", asArgs(task.getId()));
+			dataChanged(DataChange.ofTask(task.getId()));
+			return updated.get(0);
+		});
 	}
 
 	/**
@@ -253,11 +861,14 @@ public class DAO {
 	 *            the task to delete - the ID has to be set!
 	 * @return {@code true} if successful, {@code false} if not
 	 */
-	public synchronized boolean deleteTask(Task task) {
-		open();
-		final boolean result = db.delete(TASK, TASK_ID + "=" + task.getId(), null) > 0;
-		dataChanged();
-		return result;
+	public boolean deleteTask(Task task) {
+		return writing("deleteTask", () -> {
+			open();
+			final boolean result = delete(TASK, TASK_ID + "=?", asArgs(task.getId())) > 0;
+			taskCache = null;
+			dataChanged(DataChange.ofTask(task.getId()));
+			return result;
+		});
 	}
 
 	// =======================================================
@@ -278,6 +889,7 @@ public class DAO {
 	private ContentValues weekToContentValues(Week week) {
 		ContentValues ret = new ContentValues();
 		ret.put(WEEK_START, week.getStart());
+		ret.put(WEEK_ORDINAL, week.getOrdinal());
 		ret.put(WEEK_SUM, week.getSum());
 		ret.put(WEEK_FLEXI, week.getFlexi());
 		return ret;
@@ -290,24 +902,27 @@ public class DAO {
 	 *            the week to add
 	 * @return the newly created week as read from the database (complete with ID)
 	 */
-	public synchronized Week insertWeek(Week week) {
-		if (week.getSum()==null || week.getSum()<0) {
-			throw new IllegalArgumentException("sum of a week may not be negative");
-		}
-		open();
-		ContentValues args = weekToContentValues(week);
-		long insertId = db.insert(WEEK, null, args);
-		// now fetch the newly inserted row and return it as Week object
-		List<Week> created = getWeeksWithConstraint(WEEK_ID + "=" + insertId);
-		dataChanged();
-		return created.get(0);
+	public Week insertWeek(Week week) {
+		return writing("insertWeek", () -> {
+			if (week.getSum()==null || week.getSum()<0) {
+				throw new IllegalArgumentException("sum of a week may not be negative");
+			}
+			open();
+			ContentValues args = weekToContentValues(week);
+			long insertId = insert(WEEK, args);
+			// now fetch the newly inserted row and return it as Week object
+			List<Week> created = getWeeksWithConstraint(WEEK_ID + "=?", asArgs(insertId));
+			weekCache.put(created.get(0));
+			dataChanged(changeOfWeek(created.get(0)));
+			return created.get(0);
+		});
 	}
 
 	/**
 	 * Return all weeks.
 	 */
 	public List<Week> getAllWeeks() {
-		return getWeeksWithConstraint(null);
+		return measured("getAllWeeks", () -> getWeeksWithConstraint(null, null));
 	}
 
 	/**
@@ -317,8 +932,32 @@ public class DAO {
 	 *            the start date
 	 */
 	public Week getWeek(String start) {
-		List<Week> weeks = getWeeksWithConstraint(WEEK_START + "=\"" + start + "\"");
-		return weeks.isEmpty() ? null : weeks.get(0);
+		return getWeekByOrdinal(DateTimeUtil.epochMinutesToWeekOrdinal(DateTimeUtil.stringToEpochMinutes(start)));
+	}
+
+	/**
+	 * Returns the week identified by the given ordinal or {@code null} if no week exists for that ordinal.
+	 *
+	 * @param ordinal
+	 *            the number of weeks since the week which contains 1970-01-01, see {@link Week#getOrdinal()}
+	 */
+	public Week getWeekByOrdinal(int ordinal) {
+		return measured("getWeekByOrdinal", () -> {
+			// the cache may already contain newer changes than a snapshot
+			boolean cacheable = snapshot.get() == null;
+			Week cached = cacheable ? weekCache.get(ordinal) : null;
+			if (cached != null) {
+				weekCacheStatistics.hit();
+				return cached == WeekCache.NO_WEEK ? null : cached;
+			}
+			weekCacheStatistics.miss();
+			List<Week> weeks = getWeeksWithConstraint(WEEK_ORDINAL + "=?", asArgs(ordinal));
+			Week week = weeks.isEmpty() ? null : weeks.get(0);
+			if (cacheable) {
+				weekCache.putIfAbsent(ordinal, week);
+			}
+			return week;
+		});
 	}
 
 	/**
@@ -329,10 +968,16 @@ public class DAO {
 	 *            the limiting date
 	 */
 	public List<Week> getWeeksUpTo(String date) {
-		List<Week> weeks = getWeeksWithConstraint(WEEK_START + "<=\"" + date + "\"");
-		return weeks;
+		return measured("getWeeksUpTo", () -> {
+			int lastOrdinal = DateTimeUtil.epochMinutesToWeekOrdinal(DateTimeUtil.stringToEpochMinutes(date));
+			List<Week> weeks = getWeeksWithConstraint(WEEK_ORDINAL + "<=?", asArgs(lastOrdinal));
+			return weeks;
+		});
 	}
 
+	/**
+	 * Returns all weeks which start between the given dates (both inclusive).
+	 */
 	public @NonNull List<Week> getWeeksBetween(@NonNull String fromDate, @NonNull String toDate) {
 		if(fromDate.isEmpty()) {
 			throw new IllegalArgumentException("Invalid from date " + fromDate);
@@ -340,8 +985,17 @@ public class DAO {
 		if(toDate.isEmpty()) {
 			throw new IllegalArgumentException("Invalid to date " + toDate);
 		}
-		String constraint = WEEK_START + " between \"" + fromDate + "\" and \"" + toDate + "\"";
-		return getWeeksWithConstraint(constraint);
+		return getWeeksBetween(DateTimeUtil.epochMinutesToNextWeekOrdinal(DateTimeUtil.stringToEpochMinutes(fromDate)),
+			DateTimeUtil.epochMinutesToWeekOrdinal(DateTimeUtil.stringToEpochMinutes(toDate)));
+	}
+
+	/**
+	 * Returns all weeks with an ordinal between the given ones (both inclusive), see {@link Week#getOrdinal()}.
+	 */
+	public @NonNull List<Week> getWeeksBetween(int fromOrdinal, int toOrdinal) {
+		return measured("getWeeksBetween", () -> {
+			return getWeeksWithConstraint(WEEK_ORDINAL + " between ? and ?", asArgs(fromOrdinal, toOrdinal));
+		});
 	}
 
 	/**
@@ -351,22 +1005,29 @@ public class DAO {
 	 *            the ID
 	 */
 	public Week getWeek(Integer id) {
-		List<Week> weeks = getWeeksWithConstraint(WEEK_ID + "=" + id);
-		return weeks.isEmpty() ? null : weeks.get(0);
+		return measured("getWeek(Integer)", () -> {
+			List<Week> weeks = getWeeksWithConstraint(WEEK_ID + "=?", asArgs(id));
+			return weeks.isEmpty() ? null : weeks.get(0);
+		});
 	}
 
-	private synchronized List<Week> getWeeksWithConstraint(String constraint) {
-		open();
-		List<Week> ret = new ArrayList<>();
-		Cursor cursor = db.query(WEEK, WEEK_FIELDS, constraint, null, null, null, WEEK_START);
-		cursor.moveToFirst();
-		while (!cursor.isAfterLast()) {
-			Week week = cursorToWeek(cursor);
-			ret.add(week);
-			cursor.moveToNext();
-		}
-		cursor.close();
-		return ret;
+	private List<Week> getWeeksWithConstraint(String constraint, String[] constraintArgs) {
+		connectionLock.readLock().lock();
+		try {
+			open();
+			List<Week> ret = new ArrayList<>();
+			Cursor cursor = query(WEEK, WEEK_FIELDS, constraint, constraintArgs, WEEK_ORDINAL, null);
+			cursor.moveToFirst();
+			while (!cursor.isAfterLast()) {
+				Week week = cursorToWeek(cursor);
+				ret.add(week);
+				cursor.moveToNext();
+			}
+			cursor.close();
+			return ret;
+		} finally {
+			connectionLock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -376,14 +1037,17 @@ public class DAO {
 	 *            the week to update - the ID has to be set!
 	 * @return the week as newly read from the database
 	 */
-	public synchronized Week updateWeek(Week week) {
-		open();
-		ContentValues args = weekToContentValues(week);
-		db.update(WEEK, args, WEEK_ID + "=" + week.getId(), null);
-		// now fetch the newly updated row and return it as Week object
-		List<Week> updated = getWeeksWithConstraint(WEEK_ID + "=" + week.getId());
-		dataChanged();
-		return updated.get(0);
+	public Week updateWeek(Week week) {
+		return writing("updateWeek", () -> {
+			open();
+			ContentValues args = weekToContentValues(week);
+			update(WEEK, args, WEEK_ID + "=?", asArgs(week.getId()));
+			// now fetch the newly updated row and return it as Week object
+			List<Week> updated = getWeeksWithConstraint(WEEK_ID + "=?", asArgs(week.getId()));
+			weekCache.put(updated.get(0));
+			dataChanged(changeOfWeek(updated.get(0)));
+			return updated.get(0);
+		});
 	}
 
 	/**
@@ -393,35 +1057,49 @@ public class DAO {
 	 *            the week to delete - the ID has to be set!
 	 * @return {@code true} if successful, {@code false} if not
 	 */
-	public synchronized boolean deleteWeek(Week week) {
-		open();
-		final boolean result = db.delete(WEEK, WEEK_ID + "=" + week.getId(), null) > 0;
-		dataChanged();
-		return result;
+	public boolean deleteWeek(Week week) {
+		return writing("deleteWeek", () -> {
+			open();
+			final boolean result = delete(WEEK, WEEK_ID + "=?", asArgs(week.getId())) > 0;
+			weekCache.remove(week);
+			dataChanged(changeOfWeek(week));
+			return result;
+		});
 	}
 
 	// =======================================================
 
-	private static final String[] EVENT_FIELDS = { EVENT_ID, EVENT_WEEK, EVENT_TIME, EVENT_TYPE, EVENT_TASK, EVENT_TEXT };
-	private static final String[] COUNT_FIELDS = { "count(*)" };
-	private static final String[] MAX_EVENT_FIELDS = { EVENT_ID, EVENT_WEEK, "max(" + EVENT_TIME + ")", EVENT_TYPE,
-		EVENT_TASK, EVENT_TEXT };
+	private static final String[] EVENT_FIELDS = { EVENT_ID, EVENT_WEEK, EVENT_TIME, EVENT_TYPE, EVENT_TASK, EVENT_TEXT,
+		EVENT_TIME_MINUTES };
+	private static final String SQL_COUNT_EVENTS_WITH_TASK = "select count(*) from " + EVENT + " where " + EVENT_TASK
+		+ "=?";
+	private static final String SQL_INSERT_EVENT = "insert into " + EVENT + " (" + EVENT_WEEK + "," + EVENT_TIME
+		+ "," + EVENT_TIME_MINUTES + "," + EVENT_TYPE + "," + EVENT_TASK + "," + EVENT_TEXT + ") values (?,?,?,?,?,?)";
+	private static final String TIME_FRAME_CONSTRAINT = EVENT_TIME_MINUTES + ">=? AND " + EVENT_TIME_MINUTES + "<?";
+	private static final String EVENT_ORDER = EVENT_TIME_MINUTES + "," + EVENT_ID;
+	private static final int TIMELINE_LOAD_ATTEMPTS = 3;
+	private static final int INITIAL_TIMELINE_CAPACITY = 1024;
 
 	private Event cursorToEvent(Cursor cursor) {
 		Event event = new Event();
+		fillEvent(cursor, event);
+		return event;
+	}
+
+	private static void fillEvent(Cursor cursor, Event event) {
 		event.setId(cursor.getInt(0));
 		event.setWeek(cursor.getInt(1));
-		event.setTime(cursor.getString(2));
+		event.setTime(cursor.getString(2), cursor.getInt(6));
 		event.setType(cursor.getInt(3));
 		event.setTask(cursor.getInt(4));
 		event.setText(cursor.getString(5));
-		return event;
 	}
 
 	private ContentValues eventToContentValues(Event event) {
 		ContentValues ret = new ContentValues();
 		ret.put(EVENT_WEEK, event.getWeek());
 		ret.put(EVENT_TIME, event.getTime());
+		ret.put(EVENT_TIME_MINUTES, event.getTimeMinutes());
 		ret.put(EVENT_TYPE, event.getType());
 		ret.put(EVENT_TASK, event.getTask());
 		ret.put(EVENT_TEXT, event.getText());
@@ -435,83 +1113,328 @@ public class DAO {
 	 *            the event to add
 	 * @return the newly created event as read from the database (complete with ID)
 	 */
-	public synchronized Event insertEvent(Event event) {
-		open();
-		ContentValues args = eventToContentValues(event);
-		long insertId = db.insert(EVENT, null, args);
-		// now fetch the newly created row and return it as Event object
-		List<Event> created = getEventsWithConstraint(EVENT_ID + "=" + insertId);
-		if (created.size() > 0) {
-			dataChanged();
-			return created.get(0);
+	public Event insertEvent(Event event) {
+		return writing("insertEvent", () -> {
+			open();
+			Event inserted = null;
+			DataChange change = null;
+			db.beginTransaction();
+			boolean successful = false;
+			try {
+				ContentValues args = eventToContentValues(event);
+				long insertId = insert(EVENT, args);
+				// now fetch the newly created row and return it as Event object
+				List<Event> created = getEventsWithConstraint(EVENT_ID + "=?", asArgs(insertId),
+					Collections.emptyList());
+				if (created.size() > 0) {
+					inserted = created.get(0);
+					indexEvent(inserted);
+					addToTimeline(inserted);
+					change = refreshSummaries(inserted.getTimeMinutes(), inserted.getTimeMinutes());
+				}
+				db.setTransactionSuccessful();
+				successful = true;
+			} finally {
+				endTransaction(successful);
+			}
+			if (change != null) {
+				dataChanged(change);
+			}
+			return inserted;
+		});
+	}
+
+	/**
+	 * Insert multiple new events in one transaction. In contrast to {@link #insertEvent(Event)}, the events are not
+	 * read back from the database, only their IDs are set.
+	 *
+	 * @param events
+	 *            the events to add
+	 */
+	public void insertEvents(List<Event> events) {
+		writing("insertEvents", () -> {
+			open();
+			if (insertEventStatement == null) {
+				insertEventStatement = db.compileStatement(SQL_INSERT_EVENT);
+			}
+			DataChange change = null;
+			db.beginTransaction();
+			boolean successful = false;
+			try {
+				int firstMinute = Integer.MAX_VALUE;
+				int lastMinute = Integer.MIN_VALUE;
+				for (Event event : events) {
+					insertEventStatement.clearBindings();
+					bindInteger(insertEventStatement, 1, event.getWeek());
+					bindText(insertEventStatement, 2, event.getTime());
+					bindInteger(insertEventStatement, 3, event.getTimeMinutes());
+					bindInteger(insertEventStatement, 4, event.getType());
+					bindInteger(insertEventStatement, 5, event.getTask());
+					bindText(insertEventStatement, 6, event.getText());
+					executed(SQL_INSERT_EVENT);
+					long start = System.nanoTime();
+					event.setId((int) insertEventStatement.executeInsert());
+					metrics.wrote(1);
+					if (slowQueryLog.isEnabled()) {
+						slowQueryLog.record(SQL_INSERT_EVENT, null, 1, System.nanoTime() - start, null);
+					}
+					indexEvent(event);
+					addToTimeline(event);
+					firstMinute = Math.min(firstMinute, event.getTimeMinutes());
+					lastMinute = Math.max(lastMinute, event.getTimeMinutes());
+				}
+				if (!events.isEmpty()) {
+					// one calculation for all affected days
+					change = refreshSummaries(firstMinute, lastMinute);
+				}
+				db.setTransactionSuccessful();
+				successful = true;
+			} finally {
+				endTransaction(successful);
+			}
+			if (change != null) {
+				dataChanged(change);
+			}
+		});
+	}
+
+	private static void bindInteger(SQLiteStatement statement, int index, Integer value) {
+		if (value == null) {
+			statement.bindNull(index);
+		} else {
+			statement.bindLong(index, value);
+		}
+	}
+
+	private static void bindText(SQLiteStatement statement, int index, String value) {
+		if (value == null) {
+			statement.bindNull(index);
 		} else {
-			return null;
+			statement.bindString(index, value);
 		}
 	}
 
 	/**
-	 * Return all events - attention: this may be slow if many events exist!
+	 * Return all events (including the archived ones) - attention: this may be slow if many events exist!
 	 */
 	public List<Event> getAllEvents() {
-		return getEventsWithConstraint(null);
+		return measured("getAllEvents", () -> getEventsWithConstraint(null, null, getArchivedYears()));
 	}
 
 	/**
 	 * Return the events that are in the specified time frame.
 	 */
 	public List<Event> getEvents(DateTime beginOfTimeFrame, DateTime endOfTimeFrame) {
-		return getEventsWithConstraint(EVENT_TIME + " >= \"" + DateTimeUtil.dateTimeToString(beginOfTimeFrame)
-			+ "\" AND " + EVENT_TIME + " < \"" + DateTimeUtil.dateTimeToString(endOfTimeFrame) + "\"");
+		return measured("getEvents", () -> {
+			int from = DateTimeUtil.dateTimeToEpochMinutes(beginOfTimeFrame);
+			int to = DateTimeUtil.dateTimeToEpochMinutesRoundingUp(endOfTimeFrame);
+			return getEventsWithConstraint(TIME_FRAME_CONSTRAINT, asArgs(from, to), getArchivedYearsBetween(from, to));
+		});
 	}
 
 	/**
-	 * Return all events in a certain week.
+	 * Walk through the events in the specified time frame without loading them all into memory at once.
 	 *
-	 * @param week
-	 *            the week in which the events are searched - the ID has to be set!
+	 * @param visitor
+	 *            gets the events one by one (as the same, re-used object)
 	 */
-	public List<Event> getEventsInWeek(Week week) {
-		if (week == null || week instanceof WeekPlaceholder) {
-			return Collections.emptyList();
-		} else {
-			return getEventsWithConstraint(EVENT_WEEK + "=" + week.getId());
+	public void forEachEvent(DateTime beginOfTimeFrame, DateTime endOfTimeFrame, EventVisitor visitor) {
+		measured("forEachEvent", () -> {
+			int from = DateTimeUtil.dateTimeToEpochMinutes(beginOfTimeFrame);
+			int to = DateTimeUtil.dateTimeToEpochMinutesRoundingUp(endOfTimeFrame);
+			forEachEventWithConstraint(TIME_FRAME_CONSTRAINT, asArgs(from, to), getArchivedYearsBetween(from, to),
+				visitor);
+		});
+	}
+
+	private void forEachEventWithConstraint(String constraint, String[] constraintArgs, List<Integer> years,
+		EventVisitor visitor) {
+		Event event = new Event();
+		forEachEventRow(constraint, constraintArgs, years, cursor -> {
+			fillEvent(cursor, event);
+			visitor.visit(event);
+		});
+	}
+
+	private List<Event> getEventsWithConstraint(String constraint, String[] constraintArgs, List<Integer> years) {
+		List<Event> ret = new ArrayList<>();
+		forEachEventRow(constraint, constraintArgs, years, cursor -> ret.add(cursorToEvent(cursor)));
+		return ret;
+	}
+
+	/**
+	 * Read the events which match the constraint from the main database and from the archives of the given years,
+	 * merged into one sequence which is ordered by time (in minutes) and ID. The events of an archived year are in the
+	 * main database if they were inserted after the year was archived.
+	 */
+	private void forEachEventRow(String constraint, String[] constraintArgs, List<Integer> years,
+		ArchivedEvents.RowVisitor visitor) {
+		connectionLock.readLock().lock();
+		List<Cursor> cursors = new ArrayList<>(1 + years.size());
+		try {
+			open();
+			cursors.add(query(EVENT, EVENT_FIELDS, constraint, constraintArgs, EVENT_ORDER, null));
+			for (Integer year : years) {
+				cursors.add(queryArchive(year, EVENT_FIELDS, constraint, constraintArgs, EVENT_ORDER, null));
+			}
+			ArchivedEvents.merge(cursors, visitor);
+		} finally {
+			for (Cursor cursor : cursors) {
+				cursor.close();
+			}
+			connectionLock.readLock().unlock();
 		}
 	}
 
 	/**
-	 * Return all events on a certain day.
-	 *
-	 * @param day
-	 *            the day on which the events are searched
+	 * Return the time of the first event or {@code null} if no event exists.
 	 */
-	public List<Event> getEventsOnDay(DateTime day) {
-		return getEventsWithConstraint(EVENT_TIME + " like \"" + DateTimeUtil.dateTimeToDateString(day) + "%\"");
+	public DateTime getFirstEventTime() {
+		return measured("getFirstEventTime", () -> getAggregatedEventTime("min(" + EVENT_TIME_MINUTES + ")", true));
 	}
 
 	/**
-	 * Fetch a specific event.
-	 *
-	 * @param id
-	 *            the ID of the event
-	 * @return the event, or {@code null} if the id does not exist
+	 * Return the time of the last event or {@code null} if no event exists.
 	 */
-	public Event getEvent(Integer id) {
-		List<Event> event = getEventsWithParameters(EVENT_FIELDS, EVENT_ID + " = " + id, false, true);
-		// if event is empty, then there is no such event in the database
-		return event.isEmpty() ? null : event.get(0);
+	public DateTime getLastEventTime() {
+		return measured("getLastEventTime", () -> getAggregatedEventTime("max(" + EVENT_TIME_MINUTES + ")", false));
 	}
 
 	/**
-	 * Return the last event before a certain date and time or {@code null} if there is no such event.
+	 * @param first
+	 *            {@code true} if the aggregate is the earliest event time, {@code false} if it is the latest one
+	 */
+	private DateTime getAggregatedEventTime(String aggregate, boolean first) {
+		// only the archive nearest to the searched end which contains events can change the result
+		List<Integer> years = new ArrayList<>(getArchivedYears());
+		if (!first) {
+			Collections.reverse(years);
+		}
+		connectionLock.readLock().lock();
+		try {
+			open();
+			String[] columns = { aggregate };
+			// min() and max() are answered from the index on the time column
+			Integer minute = readMinute(query(EVENT, columns, null, null, null, null));
+			for (Integer year : years) {
+				if (minute != null && (first ? minute < startOfYear(year) : minute >= startOfYear(year + 1))) {
+					break;
+				}
+				Integer archived = readMinute(queryArchive(year, columns, null, null, null, null));
+				if (archived != null) {
+					minute = minute == null
+						? archived
+						: (first ? Math.min(minute, archived) : Math.max(minute, archived));
+					break;
+				}
+			}
+			return minute == null ? null : DateTimeUtil.epochMinutesToDateTime(minute);
+		} finally {
+			connectionLock.readLock().unlock();
+		}
+	}
+
+	/** read the single value of the cursor as minutes and close the cursor */
+	private static Integer readMinute(Cursor cursor) {
+		try {
+			return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getInt(0) : null;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private static String[] timeFrameArgs(DateTime beginOfTimeFrame, DateTime endOfTimeFrame) {
+		return asArgs(DateTimeUtil.dateTimeToEpochMinutes(beginOfTimeFrame),
+			DateTimeUtil.dateTimeToEpochMinutesRoundingUp(endOfTimeFrame));
+	}
+
+	/**
+	 * Return all events in a certain week.
+	 *
+	 * @param week
+	 *            the week in which the events are searched - the ID has to be set!
+	 */
+	public List<Event> getEventsInWeek(Week week) {
+		return measured("getEventsInWeek", () -> {
+			if (week == null || week instanceof WeekPlaceholder) {
+				return Collections.emptyList();
+			} else {
+				int start = DateTimeUtil.dateTimeToEpochMinutes(DateTimeUtil.stringToDateTime(week.getStart()));
+				return getEventsWithConstraint(EVENT_WEEK + "=?", asArgs(week.getId()),
+					getArchivedYearsBetween(start, start + 7 * DateTimeUtil.MINUTES_PER_DAY));
+			}
+		});
+	}
+
+	/**
+	 * Return all events on a certain day.
+	 *
+	 * @param day
+	 *            the day on which the events are searched
+	 */
+	public List<Event> getEventsOnDay(DateTime day) {
+		return measured("getEventsOnDay", () -> {
+			int startOfDay = DateTimeUtil.dateTimeToEpochMinutes(day.getStartOfDay());
+			int endOfDay = startOfDay + DateTimeUtil.MINUTES_PER_DAY;
+			return getEventsWithConstraint(TIME_FRAME_CONSTRAINT, asArgs(startOfDay, endOfDay),
+				getArchivedYearsBetween(startOfDay, endOfDay));
+		});
+	}
+
+	/**
+	 * Return all events of seven consecutive days, read with one query.
+	 *
+	 * @param weekStart
+	 *            the first of the seven days
+	 * @return seven lists (one per day, beginning with the given day) of the events on that day
+	 */
+	public List<List<Event>> getEventsPerDay(DateTime weekStart) {
+		return measured("getEventsPerDay", () -> {
+			int startOfWeek = DateTimeUtil.dateTimeToEpochMinutes(weekStart.getStartOfDay());
+			int endOfWeek = startOfWeek + 7 * DateTimeUtil.MINUTES_PER_DAY;
+			List<Event> events = getEventsWithConstraint(TIME_FRAME_CONSTRAINT, asArgs(startOfWeek, endOfWeek),
+				getArchivedYearsBetween(startOfWeek, endOfWeek));
+			List<List<Event>> ret = new ArrayList<>(7);
+			for (int i = 0; i < 7; i++) {
+				ret.add(new ArrayList<>());
+			}
+			for (Event event : events) {
+				ret.get((event.getTimeMinutes() - startOfWeek) / DateTimeUtil.MINUTES_PER_DAY).add(event);
+			}
+			return ret;
+		});
+	}
+
+	/**
+	 * Fetch a specific event.
+	 *
+	 * @param id
+	 *            the ID of the event
+	 * @return the event, or {@code null} if the id does not exist
+	 */
+	public Event getEvent(Integer id) {
+		return measured("getEvent", () -> {
+			// the archives only have to be read if the event isn't in the main database
+			boolean inMainDatabase = id != null && isTimelineUsable() && eventTimeline.isLoaded()
+				&& eventTimeline.contains(id);
+			List<Event> event = getEventsWithConstraint(EVENT_ID + "=?", asArgs(id),
+				inMainDatabase ? Collections.emptyList() : getArchivedYears());
+			// if event is empty, then there is no such event in the database
+			return event.isEmpty() ? null : event.get(0);
+		});
+	}
+
+	/**
+	 * Return the last event before a certain date and time or {@code null} if there is no such event. Events are
+	 * compared by minute, so an event in the same minute as the given time is NOT returned. Like the other neighbour
+	 * lookups, the event is usually taken from the in-memory timeline: it has no week and text and its time is cut to
+	 * the minute, see {@link #getEvent(Integer)}.
 	 *
 	 * @param dateTime
 	 *            the date and time before which the event is searched
 	 */
 	public Event getLastEventBefore(DateTime dateTime) {
-		List<Event> lastEvent = getEventsWithParameters(EVENT_FIELDS, EVENT_TIME + " < \""
-			+ DateTimeUtil.dateTimeToString(dateTime) + "\"", true, true);
-		// if lastEvent is empty, then there is no such event in the database
-		return lastEvent.isEmpty() ? null : lastEvent.get(0);
+		return measured("getLastEventBefore", () -> getLastBefore(DateTimeUtil.dateTimeToEpochMinutes(dateTime)));
 	}
 
 	/**
@@ -522,54 +1445,214 @@ public class DAO {
 	 *            the date and time before which the event is searched
 	 */
 	public Event getLastEventBeforeIncluding(DateTime dateTime) {
-		List<Event> lastEvent = getEventsWithParameters(EVENT_FIELDS, EVENT_TIME + " < \""
-			+ DateTimeUtil.dateTimeToString(dateTime) + "\"", true, true);
-		// if lastEvent is empty, then there is no such event in the database
-		return lastEvent.isEmpty() ? null : lastEvent.get(0);
+		return measured("getLastEventBeforeIncluding", () -> {
+			return getLastBefore(DateTimeUtil.dateTimeToEpochMinutes(dateTime) + 1);
+		});
 	}
 
 	/**
-	 * Return the first event after a certain date and time or {@code null} if there is no such event.
+	 * Return the first event after a certain date and time or {@code null} if there is no such event. Events are
+	 * compared by minute, so an event in the same minute as the given time is NOT returned.
 	 *
 	 * @param dateTime
 	 *            the date and time after which the event is searched
 	 */
 	public Event getFirstEventAfter(DateTime dateTime) {
-		List<Event> firstEvent = getEventsWithParameters(EVENT_FIELDS, EVENT_TIME + " > \""
-			+ DateTimeUtil.dateTimeToString(dateTime) + "\"", false, true);
-		// if firstEvent is empty, then there is no such event in the database
-		return firstEvent.isEmpty() ? null : firstEvent.get(0);
+		return measured("getFirstEventAfter", () -> getFirstAfter(DateTimeUtil.dateTimeToEpochMinutes(dateTime)));
 	}
 
 	/**
 	 * Return the last recorded event or {@code null} if no event exists.
 	 */
 	public Event getLatestEvent() {
-		List<Event> latestEvent = getEventsWithParameters(MAX_EVENT_FIELDS, null, false, true);
-		// if latestEvent is empty, then there is no event in the database
-		Event event = latestEvent.isEmpty() ? null : latestEvent.get(0);
-		return event;
+		return measured("getLatestEvent", () -> {
+			Event latest = findMainEvent(EventTimeline::getLatest, null, null,
+				EVENT_TIME_MINUTES + " desc," + EVENT_ID + " desc");
+			return getLastArchivedBefore(Integer.MAX_VALUE, latest);
+		});
 	}
 
-	private synchronized List<Event> getEventsWithParameters(String[] fields, String constraint,
-			boolean descending,
-		boolean limitedToOne) {
-		open();
-		List<Event> ret = new ArrayList<>();
-		Cursor cursor = db.query(EVENT, fields, constraint, null, null, null, EVENT_TIME + (descending ? " desc" : "")
-			+ "," + EVENT_ID + (descending ? " desc" : ""), (limitedToOne ? "1" : null));
-		cursor.moveToFirst();
-		while (!cursor.isAfterLast()) {
-			Event event = cursorToEvent(cursor);
-			ret.add(event);
-			cursor.moveToNext();
-		}
-		cursor.close();
-		return ret;
+	/**
+	 * Return the last event before the given minute (not including it) or {@code null}.
+	 */
+	private Event getLastBefore(int minute) {
+		Event candidate = findMainEvent(timeline -> timeline.getLastBefore(minute), EVENT_TIME_MINUTES + "<?",
+			asArgs(minute), EVENT_TIME_MINUTES + " desc," + EVENT_ID + " desc");
+		return getLastArchivedBefore(minute, candidate);
+	}
+
+	/**
+	 * Search the archives for an event before the given minute (not including it) which is later than the given
+	 * candidate from the timeline, see {@link ArchivedEvents#getLastBefore}.
+	 *
+	 * @return the found event or the candidate
+	 */
+	private Event getLastArchivedBefore(int minute, Event candidate) {
+		return ArchivedEvents.getLastBefore(getArchivedYears(), minute, candidate,
+			year -> queryArchivedEvent(year, EVENT_TIME_MINUTES + "<?", minute,
+				EVENT_TIME_MINUTES + " desc," + EVENT_ID + " desc"));
+	}
+
+	/**
+	 * Return the first event after the given minute (not including it) or {@code null}. Like
+	 * {@link #getLastArchivedBefore(int, Event)}, the archives are only read if they can contain a nearer event.
+	 */
+	private Event getFirstAfter(int minute) {
+		Event candidate = findMainEvent(timeline -> timeline.getFirstAfter(minute), EVENT_TIME_MINUTES + ">?",
+			asArgs(minute), EVENT_ORDER);
+		return ArchivedEvents.getFirstAfter(getArchivedYears(), minute, candidate,
+			year -> queryArchivedEvent(year, EVENT_TIME_MINUTES + ">?", minute, EVENT_ORDER));
+	}
+
+	/** finds the ID of an event in the timeline, see {@link #findMainEvent} */
+	private interface TimelineLookup {
+		int find(EventTimeline timeline);
+	}
+
+	/**
+	 * Find the first event of the main database in the given order. If possible, the event is taken from the timeline
+	 * (see {@link EventTimeline#getEvent(int)}) without reading the database. In a snapshot and in a write transaction
+	 * of the current thread, the timeline can't be used because it already contains newer changes or doesn't contain
+	 * the uncommitted ones yet: then the event is queried, measured as a call of its own so the {@link DaoMetrics} show
+	 * how often that happens.
+	 */
+	private Event findMainEvent(TimelineLookup lookup, String constraint, String[] constraintArgs, String orderBy) {
+		if (isTimelineUsable()) {
+			EventTimeline timeline = getEventTimeline();
+			int id = lookup.find(timeline);
+			if (id == EventTimeline.NONE) {
+				return null;
+			}
+			Event event = timeline.getEvent(id);
+			if (event != null) {
+				return event;
+			}
+			// removed by another commit after the lookup
+		}
+		return measured("findMainEvent(query)", () -> queryFirstEvent(constraint, constraintArgs, orderBy));
+	}
+
+	private boolean isTimelineUsable() {
+		return snapshot.get() == null && !(db != null && db.inTransaction());
 	}
 
-	private List<Event> getEventsWithConstraint(String constraint) {
-		return getEventsWithParameters(EVENT_FIELDS, constraint, false, false);
+	/**
+	 * Read the first event of the main database in the given order (from the current thread's snapshot if there is
+	 * one).
+	 */
+	private Event queryFirstEvent(String constraint, String[] constraintArgs, String orderBy) {
+		connectionLock.readLock().lock();
+		try {
+			open();
+			Cursor cursor = query(EVENT, EVENT_FIELDS, constraint, constraintArgs, orderBy, "1");
+			try {
+				return cursor.moveToFirst() ? cursorToEvent(cursor) : null;
+			} finally {
+				cursor.close();
+			}
+		} finally {
+			connectionLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the in-memory timeline of all events in the main database, which is loaded on first use.
+	 */
+	private EventTimeline getEventTimeline() {
+		if (!eventTimeline.isLoaded()) {
+			loadEventTimeline();
+		}
+		return eventTimeline;
+	}
+
+	/**
+	 * Read the minutes, IDs, types and tasks of all events in the main database, without blocking the writers. If a
+	 * transaction committed in the meantime, its changes might be missing, so the events are read again. After a few
+	 * tries, the writers are blocked.
+	 */
+	private void loadEventTimeline() {
+		for (int attempt = 1; attempt <= TIMELINE_LOAD_ATTEMPTS; attempt++) {
+			if (loadEventTimelineOnce()) {
+				return;
+			}
+		}
+		synchronized (this) {
+			// no transaction can commit now
+			if (!loadEventTimelineOnce()) {
+				throw new IllegalStateException("event timeline changed while the writers were blocked");
+			}
+		}
+	}
+
+	private boolean loadEventTimelineOnce() {
+		long version = eventTimeline.getVersion();
+		if (eventTimeline.isLoaded()) {
+			return true;
+		}
+		int[] minutes = new int[INITIAL_TIMELINE_CAPACITY];
+		int[] ids = new int[INITIAL_TIMELINE_CAPACITY];
+		int[] types = new int[INITIAL_TIMELINE_CAPACITY];
+		int[] tasks = new int[INITIAL_TIMELINE_CAPACITY];
+		int count = 0;
+		connectionLock.readLock().lock();
+		try {
+			open();
+			Cursor cursor = query(EVENT, new String[] { EVENT_TIME_MINUTES, EVENT_ID, EVENT_TYPE, EVENT_TASK }, null,
+				null, EVENT_ORDER, null);
+			try {
+				while (cursor.moveToNext()) {
+					if (count == ids.length) {
+						minutes = Arrays.copyOf(minutes, count * 2);
+						ids = Arrays.copyOf(ids, count * 2);
+						types = Arrays.copyOf(types, count * 2);
+						tasks = Arrays.copyOf(tasks, count * 2);
+					}
+					minutes[count] = cursor.getInt(0);
+					ids[count] = cursor.getInt(1);
+					types[count] = cursor.getInt(2);
+					// like in cursorToEvent(), a missing task is read as 0
+					tasks[count] = cursor.getInt(3);
+					count++;
+				}
+			} finally {
+				cursor.close();
+			}
+		} finally {
+			connectionLock.readLock().unlock();
+		}
+		boolean loaded = eventTimeline.load(minutes, ids, types, tasks, count, version);
+		if (loaded) {
+			Logger.debug("loaded {} events into the timeline", count);
+		}
+		return loaded;
+	}
+
+	/** the timeline is changed after the commit, see {@link #endTransaction(boolean)} */
+	private void addToTimeline(Event event) {
+		int id = event.getId();
+		int minute = event.getTimeMinutes();
+		int type = event.getType();
+		int task = event.getTask() == null ? 0 : event.getTask();
+		pendingTimelineChanges.add(() -> eventTimeline.add(id, minute, type, task));
+	}
+
+	private void putToTimeline(Event event) {
+		int id = event.getId();
+		int minute = event.getTimeMinutes();
+		int type = event.getType();
+		int task = event.getTask() == null ? 0 : event.getTask();
+		pendingTimelineChanges.add(() -> eventTimeline.put(id, minute, type, task));
+	}
+
+	private void removeFromTimeline(int id) {
+		pendingTimelineChanges.add(() -> eventTimeline.remove(id));
+	}
+
+	/**
+	 * Read an event of the main database by its ID, also in a write transaction (in contrast to the timeline).
+	 */
+	private Event getMainEvent(Integer id) {
+		return queryFirstEvent(EVENT_ID + "=?", asArgs(id), null);
 	}
 
 	/**
@@ -579,14 +1662,43 @@ public class DAO {
 	 *            the event to update - the ID has to be set!
 	 * @return the event as newly read from the database
 	 */
-	public synchronized Event updateEvent(Event event) {
-		open();
-		ContentValues args = eventToContentValues(event);
-		db.update(EVENT, args, EVENT_ID + "=" + event.getId(), null);
-		// now fetch the newly updated row and return it as Event object
-		List<Event> updated = getEventsWithConstraint(EVENT_ID + "=" + event.getId());
-		dataChanged();
-		return updated.get(0);
+	public Event updateEvent(Event event) {
+		return writing("updateEvent", () -> {
+			open();
+			Event updated;
+			DataChange change;
+			db.beginTransaction();
+			boolean successful = false;
+			try {
+				Event old = getMainEvent(event.getId());
+				Integer archivedYear = old == null ? findArchivedYear(event.getId()) : null;
+				ContentValues args = eventToContentValues(event);
+				if (archivedYear == null) {
+					update(EVENT, args, EVENT_ID + "=?", asArgs(event.getId()));
+				} else {
+					// the event is moved back to the main database
+					old = queryArchivedEvent(archivedYear, EVENT_ID + "=?", event.getId(), null);
+					beginArchiveTransaction(archivedYear).delete(EVENT, EVENT_ID + "=?", asArgs(event.getId()));
+					args.put(EVENT_ID, event.getId());
+					insert(EVENT, args);
+				}
+				// now fetch the newly updated row and return it as Event object
+				updated = getEventsWithConstraint(EVENT_ID + "=?", asArgs(event.getId()), Collections.emptyList())
+					.get(0);
+				indexEvent(updated);
+				putToTimeline(updated);
+				// the event may have been moved to another day
+				int oldMinute = old == null ? updated.getTimeMinutes() : old.getTimeMinutes();
+				change = refreshSummaries(Math.min(oldMinute, updated.getTimeMinutes()),
+					Math.max(oldMinute, updated.getTimeMinutes()));
+				db.setTransactionSuccessful();
+				successful = true;
+			} finally {
+				endTransaction(successful);
+			}
+			dataChanged(change);
+			return updated;
+		});
 	}
 
 	/**
@@ -596,137 +1708,1349 @@ public class DAO {
 	 *            the event to delete - the ID has to be set!
 	 * @return {@code true} if successful, {@code false} if not
 	 */
-	public synchronized boolean deleteEvent(Event event) {
-		open();
-		final boolean result = db.delete(EVENT, EVENT_ID + "=" + event.getId(), null) > 0;
-		dataChanged();
-		return result;
+	public boolean deleteEvent(Event event) {
+		return writing("deleteEvent", () -> {
+			open();
+			final boolean result;
+			DataChange change = DataChange.EVERYTHING;
+			db.beginTransaction();
+			boolean successful = false;
+			try {
+				Event old = getMainEvent(event.getId());
+				Integer archivedYear = old == null ? findArchivedYear(event.getId()) : null;
+				if (archivedYear == null) {
+					result = delete(EVENT, EVENT_ID + "=?", asArgs(event.getId())) > 0;
+				} else {
+					old = queryArchivedEvent(archivedYear, EVENT_ID + "=?", event.getId(), null);
+					result = beginArchiveTransaction(archivedYear).delete(EVENT, EVENT_ID + "=?",
+						asArgs(event.getId())) > 0;
+					// the archive has no triggers
+					logChange(EVENT, event.getId(), Change.DELETE);
+				}
+				unindexEvent(event.getId());
+				removeFromTimeline(event.getId());
+				if (old != null) {
+					change = refreshSummaries(old.getTimeMinutes(), old.getTimeMinutes());
+				}
+				db.setTransactionSuccessful();
+				successful = true;
+			} finally {
+				endTransaction(successful);
+			}
+			dataChanged(change);
+			return result;
+		});
+	}
+
+	/**
+	 * Update multiple events in one transaction. In contrast to {@link #updateEvent(Event)}, the events are not read
+	 * back from the database, and the day summaries are calculated only once for all old and new event times. Archived
+	 * events are moved back to the main database one by one, in the same transaction.
+	 *
+	 * @param events
+	 *            the events to update - the IDs have to be set!
+	 */
+	public void updateEvents(List<Event> events) {
+		writing("updateEvents", () -> {
+			open();
+			List<Event> archived = new ArrayList<>();
+			DataChange change = null;
+			db.beginTransaction();
+			boolean successful = false;
+			try {
+				int firstMinute = Integer.MAX_VALUE;
+				int lastMinute = Integer.MIN_VALUE;
+				for (Event event : events) {
+					Event old = getMainEvent(event.getId());
+					if (old == null) {
+						archived.add(event);
+						continue;
+					}
+					update(EVENT, eventToContentValues(event), EVENT_ID + "=?", asArgs(event.getId()));
+					indexEvent(event);
+					putToTimeline(event);
+					firstMinute = Math.min(firstMinute, Math.min(old.getTimeMinutes(), event.getTimeMinutes()));
+					lastMinute = Math.max(lastMinute, Math.max(old.getTimeMinutes(), event.getTimeMinutes()));
+				}
+				if (firstMinute <= lastMinute) {
+					// one calculation for all affected days
+					change = refreshSummaries(firstMinute, lastMinute);
+				}
+				for (Event event : archived) {
+					updateEvent(event);
+				}
+				db.setTransactionSuccessful();
+				successful = true;
+			} finally {
+				endTransaction(successful);
+			}
+			if (change != null) {
+				dataChanged(change);
+			}
+		});
+	}
+
+	/**
+	 * Remove multiple events in one transaction. The day summaries are calculated only once for the time range of all
+	 * removed events. Archived events are removed one by one, in the same transaction.
+	 *
+	 * @param events
+	 *            the events to delete - the IDs have to be set!
+	 * @return the number of deleted events
+	 */
+	public int deleteEvents(List<Event> events) {
+		return writing("deleteEvents", () -> {
+			open();
+			List<Event> archived = new ArrayList<>();
+			int result = 0;
+			DataChange change = null;
+			db.beginTransaction();
+			boolean successful = false;
+			try {
+				int firstMinute = Integer.MAX_VALUE;
+				int lastMinute = Integer.MIN_VALUE;
+				for (Event event : events) {
+					Event old = getMainEvent(event.getId());
+					if (old == null) {
+						archived.add(event);
+						continue;
+					}
+					result += delete(EVENT, EVENT_ID + "=?", asArgs(event.getId()));
+					unindexEvent(event.getId());
+					removeFromTimeline(event.getId());
+					firstMinute = Math.min(firstMinute, old.getTimeMinutes());
+					lastMinute = Math.max(lastMinute, old.getTimeMinutes());
+				}
+				if (firstMinute <= lastMinute) {
+					// one calculation for all affected days
+					change = refreshSummaries(firstMinute, lastMinute);
+				}
+				for (Event event : archived) {
+					if (deleteEvent(event)) {
+						result++;
+					}
+				}
+				db.setTransactionSuccessful();
+				successful = true;
+			} finally {
+				endTransaction(successful);
+			}
+			if (change != null) {
+				dataChanged(change);
+			}
+			return result;
+		});
 	}
 
 	private synchronized boolean deleteAll() {
 		open();
-		boolean result = db.delete(TASK, null, null) > 0;
-		result |= db.delete(WEEK, null, null) > 0;
-		result |= db.delete(EVENT, null, null) > 0;
-		dataChanged();
+		boolean result = delete(TASK, null) > 0;
+		result |= delete(WEEK, null) > 0;
+		result |= delete(EVENT, null) > 0;
+		delete(EVENT_SEARCH, null);
+		delete(DAY_SUMMARY, null);
+		delete(TASK_DAY_SUM, null);
+		// the archive files are deleted by the caller after the commit
+		delete(ARCHIVED_YEAR, null);
+		archivedYears = Collections.emptyList();
+		pendingTimelineChanges.add(eventTimeline::clear);
+		taskCache = null;
+		weekCache.clear();
+		dataChanged(DataChange.EVERYTHING);
 		return result;
 	}
 
+	// =======================================================
+
+	private static final String[] DAY_SUMMARY_FIELDS = { DAY_SUMMARY_DAY, DAY_SUMMARY_FIRST_IN, DAY_SUMMARY_LAST_OUT,
+		DAY_SUMMARY_WORKED, DAY_SUMMARY_FLEX_TARGET };
+	private static final String[] TASK_DAY_SUM_FIELDS = { TASK_DAY_SUM_DAY, TASK_DAY_SUM_TASK, TASK_DAY_SUM_MINUTES };
+	/** same for the day summary and the task day sum table, both name their day column the same */
+	private static final String DAY_RANGE_CONSTRAINT = DAY_SUMMARY_DAY + ">=? AND " + DAY_SUMMARY_DAY + "<?";
+	/**
+	 * the start of the week (monday) containing the day - 1970-01-01 was a thursday, and % keeps the sign of days
+	 * before it
+	 */
+	private static final String WEEK_START_OF_DAY = TASK_DAY_SUM_DAY + " - (((" + TASK_DAY_SUM_DAY + " / "
+		+ DateTimeUtil.MINUTES_PER_DAY + " + 3) % 7 + 7) % 7) * " + DateTimeUtil.MINUTES_PER_DAY;
+	/** the start of the month containing the day */
+	private static final String MONTH_START_OF_DAY = "cast(strftime('%s', " + TASK_DAY_SUM_DAY
+		+ " * 60, 'unixepoch', 'start of month') as integer) / 60";
+
+	private static DaySummary cursorToDaySummary(Cursor cursor) {
+		return new DaySummary(cursor.getInt(0), cursor.isNull(1) ? null : cursor.getInt(1),
+			cursor.isNull(2) ? null : cursor.getInt(2), cursor.getInt(3), cursor.isNull(4) ? null : cursor.getInt(4));
+	}
+
+	/**
+	 * Return the summaries of seven consecutive days, read with one query.
+	 *
+	 * @param weekStart
+	 *            the first of the seven days
+	 * @return seven summaries (one per day, beginning with the given day) - {@code null} for days without events
+	 */
+	public List<DaySummary> getDaySummariesPerDay(DateTime weekStart) {
+		return measured("getDaySummariesPerDay", () -> {
+			int startOfWeek = DateTimeUtil.dateTimeToEpochMinutes(weekStart.getStartOfDay());
+			List<DaySummary> ret = new ArrayList<>(Collections.nCopies(7, (DaySummary) null));
+			for (DaySummary summary : getDaySummaries(startOfWeek, startOfWeek + 7 * DateTimeUtil.MINUTES_PER_DAY)) {
+				ret.set((summary.getDay() - startOfWeek) / DateTimeUtil.MINUTES_PER_DAY, summary);
+			}
+			return ret;
+		});
+	}
+
+	private List<DaySummary> getDaySummaries(int fromMinute, int toMinute) {
+		connectionLock.readLock().lock();
+		try {
+			open();
+			List<DaySummary> ret = new ArrayList<>();
+			Cursor cursor = query(DAY_SUMMARY, DAY_SUMMARY_FIELDS, DAY_RANGE_CONSTRAINT, asArgs(fromMinute, toMinute),
+				DAY_SUMMARY_DAY, null);
+			try {
+				while (cursor.moveToNext()) {
+					ret.add(cursorToDaySummary(cursor));
+				}
+			} finally {
+				cursor.close();
+			}
+			return ret;
+		} finally {
+			connectionLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Calculate the day summaries and task sums again after events between the given minutes (both including) were
+	 * inserted, updated or deleted. The time from the event before until the event after the changed ones is
+	 * affected, and the summary of the next day with events depends on the last event before it. Has to be called in
+	 * the transaction of the change, after the events were written.
+	 *
+	 * @return the time range which was calculated again, see {@link DaySummaryCalculator#affectedDays}
+	 */
+	private DataChange refreshSummaries(int fromMinute, int toMinute) {
+		Event previous = getLastBefore(fromMinute);
+		Event next = getFirstAfter(
+			DateTimeUtil.epochMinutesToStartOfDay(toMinute) + DateTimeUtil.MINUTES_PER_DAY - 1);
+		DataChange affected = DaySummaryCalculator.affectedDays(previous, fromMinute, toMinute, next);
+		int from = affected.getFromMinute();
+		int to = affected.getToMinute() + 1;
+		DaySummaryCalculator calculator = new DaySummaryCalculator(getLastBefore(from));
+		for (Event event : getEventsWithConstraint(TIME_FRAME_CONSTRAINT, asArgs(from, to),
+			getArchivedYearsBetween(from, to))) {
+			calculator.add(event);
+		}
+		List<DaySummary> summaries = calculator.finish();
+		List<DaySummaryCalculator.TaskSum> taskSums = calculator.getTaskSums();
+		delete(DAY_SUMMARY, DAY_RANGE_CONSTRAINT, asArgs(from, to));
+		delete(TASK_DAY_SUM, DAY_RANGE_CONSTRAINT, asArgs(from, to));
+		for (int i = 0; i < summaries.size(); i++) {
+			executed(MySQLiteHelper.DATABASE_INSERT_DAY_SUMMARY);
+		}
+		MySQLiteHelper.insertDaySummaries(db, summaries);
+		metrics.wrote(summaries.size());
+		for (int i = 0; i < taskSums.size(); i++) {
+			executed(MySQLiteHelper.DATABASE_INSERT_TASK_DAY_SUM);
+		}
+		MySQLiteHelper.insertTaskSums(db, taskSums);
+		metrics.wrote(taskSums.size());
+		return affected;
+	}
+
+	/**
+	 * Return the time worked per task, grouped by day, week or month - read with one query. If the user is clocked in,
+	 * the time since the last clock-in is counted up to now (or the end of the time frame).
+	 *
+	 * @param unit
+	 *            the unit by which the sums are grouped ({@link Unit#DAY}, {@link Unit#WEEK} or {@link Unit#MONTH})
+	 * @return the sums per task, by begin of the group - the first group begins at the begin of the time frame
+	 */
+	public Map<DateTime, Map<Task, TimeSum>> getTaskSums(Unit unit, DateTime beginOfTimeFrame,
+		DateTime endOfTimeFrame) {
+		return measured("getTaskSums", () -> {
+			final String group;
+			switch (unit) {
+				case DAY:
+					group = TASK_DAY_SUM_DAY;
+					break;
+				case WEEK:
+					group = WEEK_START_OF_DAY;
+					break;
+				case MONTH:
+					group = MONTH_START_OF_DAY;
+					break;
+				default:
+					throw new IllegalArgumentException("unknown unit");
+			}
+			int begin = DateTimeUtil.dateTimeToEpochMinutes(beginOfTimeFrame);
+			int end = DateTimeUtil.dateTimeToEpochMinutesRoundingUp(endOfTimeFrame);
+			Map<DateTime, Map<Task, TimeSum>> ret = new HashMap<>();
+			connectionLock.readLock().lock();
+			try {
+				open();
+				String sql = "select " + group + ", " + TASK_DAY_SUM_TASK + ", sum(" + TASK_DAY_SUM_MINUTES + ") from "
+					+ TASK_DAY_SUM + " where " + DAY_RANGE_CONSTRAINT + " group by 1, 2";
+				Cursor cursor = rawQuery(readDatabase(), sql, timeFrameArgs(beginOfTimeFrame, endOfTimeFrame));
+				try {
+					while (cursor.moveToNext()) {
+						addTaskMinutes(ret, Math.max(begin, cursor.getInt(0)), cursor.getInt(1), cursor.getInt(2));
+					}
+				} finally {
+					cursor.close();
+				}
+			} finally {
+				connectionLock.readLock().unlock();
+			}
+			// the stored sums count the time since the last clock-in only up to the end of its day
+			int now = DateTimeUtil.dateTimeToEpochMinutes(DateTimeUtil.getCurrentDateTime());
+			for (DaySummaryCalculator.TaskSum correction : DaySummaryCalculator.correctOpenInterval(getLatestEvent(),
+				Math.min(end, now))) {
+				if (correction.day >= begin && correction.day < end) {
+					addTaskMinutes(ret, Math.max(begin, startOfGroup(unit, correction.day)), correction.task,
+						correction.minutes);
+				}
+			}
+			return ret;
+		});
+	}
+
+	private void addTaskMinutes(Map<DateTime, Map<Task, TimeSum>> sumsPerGroup, int groupBegin, int taskId,
+		int minutes) {
+		DateTime key = DateTimeUtil.epochMinutesToDateTime(groupBegin);
+		Map<Task, TimeSum> sums = sumsPerGroup.get(key);
+		if (sums == null) {
+			sums = new HashMap<>();
+			sumsPerGroup.put(key, sums);
+		}
+		// deleted tasks are counted as "no task", like in TimeCalculator.calculateSums()
+		Task task = getTask(taskId);
+		TimeSum sum = sums.get(task);
+		if (sum == null) {
+			sum = new TimeSum();
+			sums.put(task, sum);
+		}
+		if (minutes >= 0) {
+			sum.add(0, minutes);
+		} else {
+			sum.substract(0, -minutes);
+		}
+	}
+
+	/** the same as the group expressions in {@link #getTaskSums} */
+	private static int startOfGroup(Unit unit, int day) {
+		switch (unit) {
+			case DAY:
+				return day;
+			case WEEK:
+				return DateTimeUtil.weekOrdinalToEpochMinutes(DateTimeUtil.epochMinutesToWeekOrdinal(day));
+			case MONTH:
+				return DateTimeUtil.dateTimeToEpochMinutes(DateTimeUtil.epochMinutesToDateTime(day).getStartOfMonth());
+			default:
+				throw new IllegalArgumentException("unknown unit");
+		}
+	}
+
+	/**
+	 * Check the stored day summaries and task sums against a full calculation from the events. Synchronized like the
+	 * write methods, so the events and the derived data are read in the same state.
+	 *
+	 * @return the start of each day whose stored data differs from the calculated one (empty if all are correct)
+	 */
+	public synchronized List<DateTime> verifyDaySummaries() {
+		return measured("verifyDaySummaries", () -> {
+			DaySummaryCalculator calculator = new DaySummaryCalculator(null);
+			forEachEventWithConstraint(null, null, getArchivedYears(), event -> calculator.add(event));
+			calculator.finish();
+			Set<Integer> differingDays = calculator.getDifferingDays(
+				getDaySummaries(Integer.MIN_VALUE, Integer.MAX_VALUE), getAllTaskSums());
+			List<DateTime> ret = new ArrayList<>();
+			for (Integer day : differingDays) {
+				ret.add(DateTimeUtil.epochMinutesToDateTime(day));
+			}
+			return ret;
+		});
+	}
+
+	private List<DaySummaryCalculator.TaskSum> getAllTaskSums() {
+		connectionLock.readLock().lock();
+		try {
+			open();
+			List<DaySummaryCalculator.TaskSum> ret = new ArrayList<>();
+			Cursor cursor = query(TASK_DAY_SUM, TASK_DAY_SUM_FIELDS, null, null, null, null);
+			try {
+				while (cursor.moveToNext()) {
+					ret.add(new DaySummaryCalculator.TaskSum(cursor.getInt(0), cursor.getInt(1), cursor.getInt(2)));
+				}
+			} finally {
+				cursor.close();
+			}
+			return ret;
+		} finally {
+			connectionLock.readLock().unlock();
+		}
+	}
+
 	public synchronized Cursor getAllEventsAndTasks() {
+		return measured("getAllEventsAndTasks", () -> {
+			open();
+			final String querySelectPart = "SELECT"
+				+ " " + MySQLiteHelper.EVENT + "." + MySQLiteHelper.EVENT_ID + " AS eventId"
+				+ ", " + MySQLiteHelper.EVENT_TYPE
+				+ ", " + MySQLiteHelper.EVENT_TIME
+				+ ", " + MySQLiteHelper.EVENT_TASK
+				+ ", " + MySQLiteHelper.EVENT_TEXT
+				+ ", " + MySQLiteHelper.TASK + "." + MySQLiteHelper.TASK_ID + " AS taskId"
+				+ ", " + MySQLiteHelper.TASK_NAME
+				+ ", " + MySQLiteHelper.TASK_ACTIVE
+				+ ", " + MySQLiteHelper.TASK_ORDERING
+				+ ", " + MySQLiteHelper.TASK_DEFAULT;
+
+			// this is a FULL OUTER JOIN.
+			// see http://stackoverflow.com/questions/1923259/full-outer-join-with-sqlite
+			final String query = ""
+				+ querySelectPart
+				+ " FROM"
+				+ " " + MySQLiteHelper.EVENT
+				+ " LEFT JOIN"
+				+ " " + MySQLiteHelper.TASK
+				+ " ON "
+				+ " taskId = " + MySQLiteHelper.EVENT_TASK
+
+				+ " UNION ALL "
+
+				+ querySelectPart
+				+ " FROM"
+				+ " " + MySQLiteHelper.TASK
+				+ " LEFT JOIN"
+				+ " " + MySQLiteHelper.EVENT
+				+ " ON "
+				+ " taskId = " + MySQLiteHelper.EVENT_TASK
+
+				+ " WHERE"
+				+ " eventId IS NULL"
+
+				+ " ORDER BY"
+				+ " eventId";
+
+			return rawQuery(readDatabase(), query, new String[] {});
+		});
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// change log
+	// ---------------------------------------------------------------------------------------------
+	private static final String[] CHANGE_LOG_FIELDS = { CHANGE_LOG_SEQUENCE, CHANGE_LOG_ENTITY, CHANGE_LOG_ENTITY_ID,
+		CHANGE_LOG_OPERATION, CHANGE_LOG_TIMESTAMP };
+	private static final String SQL_COMPACT_CHANGE_LOG = "delete from " + CHANGE_LOG + " where " + CHANGE_LOG_SEQUENCE
+		+ "<=(select min(" + CHANGE_LOG_ACK_SEQUENCE + ") from " + CHANGE_LOG_ACK + ")";
+	private static final String CHANGE_LOG_LIMIT_CONSTRAINT = CHANGE_LOG_SEQUENCE + "<=(select max("
+		+ CHANGE_LOG_SEQUENCE + ") from " + CHANGE_LOG + ")-? OR " + CHANGE_LOG_TIMESTAMP + "<?";
+	/** the change log never grows beyond this, even if a consumer doesn't acknowledge its changes */
+	private static final int MAX_CHANGE_LOG_ENTRIES = 10000;
+	private static final long MAX_CHANGE_LOG_AGE_MILLIS = 90L * 24 * 60 * 60 * 1000;
+
+	/**
+	 * Return the changes (of tasks, weeks and events) after the given sequence number, ordered by sequence number.
+	 * The database writes them with triggers, so they are part of the same transaction as the changes themselves.
+	 *
+	 * The change log keeps at most {@value #MAX_CHANGE_LOG_ENTRIES} changes of the last 90 days, even if they were not
+	 * acknowledged by all consumers (see {@link #acknowledgeChanges(String, long)}). A consumer whose last known change
+	 * is before the first returned one has to read all data again.
+	 *
+	 * @param sequence
+	 *            the last change which is already known (0 to get all changes which were not compacted yet)
+	 */
+	public List<Change> getChangesSince(long sequence) {
+		return measured("getChangesSince", () -> {
+			connectionLock.readLock().lock();
+			try {
+				open();
+				List<Change> ret = new ArrayList<>();
+				Cursor cursor = query(CHANGE_LOG, CHANGE_LOG_FIELDS, CHANGE_LOG_SEQUENCE + ">?", asArgs(sequence),
+					CHANGE_LOG_SEQUENCE, null);
+				try {
+					while (cursor.moveToNext()) {
+						ret.add(new Change(cursor.getLong(0), cursor.getString(1),
+							cursor.isNull(2) ? null : cursor.getInt(2), cursor.getString(3), cursor.getLong(4)));
+					}
+				} finally {
+					cursor.close();
+				}
+				return ret;
+			} finally {
+				connectionLock.readLock().unlock();
+			}
+		});
+	}
+
+	/**
+	 * Return the sequence number of the last change, or 0 if nothing was changed yet.
+	 */
+	public long getLastChangeSequence() {
+		return measured("getLastChangeSequence", () -> {
+			// SQLite remembers the last sequence number even if the change log was compacted
+			return queryLong("select seq from sqlite_sequence where name=?", new String[] { CHANGE_LOG });
+		});
+	}
+
+	/**
+	 * Return the sequence number of the last change which the given consumer has processed, or 0 if it never
+	 * acknowledged a change.
+	 */
+	public long getAcknowledgedSequence(String consumer) {
+		return measured("getAcknowledgedSequence", () -> {
+			return queryLong("select " + CHANGE_LOG_ACK_SEQUENCE + " from " + CHANGE_LOG_ACK + " where "
+				+ CHANGE_LOG_ACK_CONSUMER + "=?", new String[] { consumer });
+		});
+	}
+
+	private long queryLong(String sql, String[] selectionArgs) {
+		connectionLock.readLock().lock();
+		try {
+			open();
+			Cursor cursor = rawQuery(readDatabase(), sql, selectionArgs);
+			try {
+				return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : 0;
+			} finally {
+				cursor.close();
+			}
+		} finally {
+			connectionLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Record that the given consumer has processed all changes up to the given sequence number. Changes which all
+	 * consumers have processed are removed from the change log.
+	 */
+	public synchronized void acknowledgeChanges(String consumer, long sequence) {
+		measured("acknowledgeChanges", () -> {
+			open();
+			db.beginTransaction();
+			boolean successful = false;
+			try {
+				ContentValues args = new ContentValues();
+				args.put(CHANGE_LOG_ACK_CONSUMER, consumer);
+				args.put(CHANGE_LOG_ACK_SEQUENCE, sequence);
+				replace(CHANGE_LOG_ACK, args);
+				compactChangeLog();
+				db.setTransactionSuccessful();
+				successful = true;
+			} finally {
+				endTransaction(successful);
+			}
+		});
+	}
+
+	/**
+	 * Forget the given consumer, e.g. because it was disabled. The changes which only it had not processed yet are
+	 * removed from the change log.
+	 */
+	public synchronized void removeChangeConsumer(String consumer) {
+		measured("removeChangeConsumer", () -> {
+			open();
+			db.beginTransaction();
+			boolean successful = false;
+			try {
+				delete(CHANGE_LOG_ACK, CHANGE_LOG_ACK_CONSUMER + "=?", consumer);
+				compactChangeLog();
+				db.setTransactionSuccessful();
+				successful = true;
+			} finally {
+				endTransaction(successful);
+			}
+		});
+	}
+
+	/**
+	 * Remove the changes which all consumers have processed, and the ones beyond the limits of the change log.
+	 */
+	private void compactChangeLog() {
+		execute(SQL_COMPACT_CHANGE_LOG);
+		delete(CHANGE_LOG, CHANGE_LOG_LIMIT_CONSTRAINT, String.valueOf(MAX_CHANGE_LOG_ENTRIES),
+			String.valueOf(System.currentTimeMillis() - MAX_CHANGE_LOG_AGE_MILLIS));
+	}
+
+	/**
+	 * Record a change which is not written by a trigger.
+	 */
+	private void logChange(String entity, Integer entityId, String operation) {
+		ContentValues args = new ContentValues();
+		args.put(CHANGE_LOG_ENTITY, entity);
+		args.put(CHANGE_LOG_ENTITY_ID, entityId);
+		args.put(CHANGE_LOG_OPERATION, operation);
+		args.put(CHANGE_LOG_TIMESTAMP, System.currentTimeMillis());
+		insert(CHANGE_LOG, args);
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// snapshots
+	// ---------------------------------------------------------------------------------------------
+	/** a read-only connection to the main database and to each archive, which all see the same state */
+	private static class Snapshot {
+		private SQLiteDatabase main;
+		private final Map<Integer, SQLiteDatabase> archives = new HashMap<>();
+		private final List<Integer> archivedYears = new ArrayList<>();
+		/** loaded from the snapshot on first use */
+		private TaskCache taskCache;
+
+		private void close() {
+			for (SQLiteDatabase database : archives.values()) {
+				closeSnapshotConnection(database);
+			}
+			if (main != null) {
+				closeSnapshotConnection(main);
+			}
+		}
+
+		private static void closeSnapshotConnection(SQLiteDatabase database) {
+			try {
+				// only a read transaction, there is nothing to commit
+				database.execSQL(SQL_END_SNAPSHOT);
+			} finally {
+				database.close();
+			}
+		}
+	}
+
+	/**
+	 * Run the reader on one consistent state of the data: all reads of the DAO in the current thread see the data as
+	 * it was when the snapshot began, even if other threads write in the meantime. A long-running reader like a report
+	 * export doesn't block the writes (e.g. a clock-in by location), because the snapshot is read with separate
+	 * read-only connections which each hold a read transaction - with write-ahead logging, SQLite keeps the state of
+	 * the transaction's beginning for them.
+	 *
+	 * If the snapshot connections can't be opened, the reader runs while holding the lock of the write methods, which
+	 * also makes it see one consistent state, but writes have to wait.
+	 *
+	 * @param reader
+	 *            reads the data - the DAO must not be written to while it runs
+	 * @return the result of the reader
+	 */
+	public <T> T readSnapshot(SnapshotReader<T> reader) {
+		return measured("readSnapshot", () -> {
+			if (snapshot.get() != null) {
+				// nested, the outer snapshot is used
+				return reader.read();
+			}
+			Snapshot current;
+			try {
+				current = openSnapshot();
+			} catch (SQLiteException e) {
+				Logger.info("could not open a snapshot, reading while holding the write lock: {}", e.getMessage());
+				synchronized (this) {
+					return reader.read();
+				}
+			}
+			snapshot.set(current);
+			try {
+				return reader.read();
+			} finally {
+				snapshot.remove();
+				current.close();
+			}
+		});
+	}
+
+	/**
+	 * Synchronized like the write methods, so no write transaction of another thread can be running while the
+	 * connections take their snapshots - the main database and the archives are read in the same state.
+	 */
+	private synchronized Snapshot openSnapshot() {
 		open();
-		final String querySelectPart = "SELECT"
-			+ " " + MySQLiteHelper.EVENT + "." + MySQLiteHelper.EVENT_ID + " AS eventId"
-			+ ", " + MySQLiteHelper.EVENT_TYPE
-			+ ", " + MySQLiteHelper.EVENT_TIME
-			+ ", " + MySQLiteHelper.EVENT_TASK
-			+ ", " + MySQLiteHelper.EVENT_TEXT
-			+ ", " + MySQLiteHelper.TASK + "." + MySQLiteHelper.TASK_ID + " AS taskId"
-			+ ", " + MySQLiteHelper.TASK_NAME
-			+ ", " + MySQLiteHelper.TASK_ACTIVE
-			+ ", " + MySQLiteHelper.TASK_ORDERING
-			+ ", " + MySQLiteHelper.TASK_DEFAULT;
-
-		// this is a FULL OUTER JOIN.
-		// see http://stackoverflow.com/questions/1923259/full-outer-join-with-sqlite
-		final String query = ""
-			+ querySelectPart
-			+ " FROM"
-			+ " " + MySQLiteHelper.EVENT
-			+ " LEFT JOIN"
-			+ " " + MySQLiteHelper.TASK
-			+ " ON "
-			+ " taskId = " + MySQLiteHelper.EVENT_TASK
-
-			+ " UNION ALL "
-
-			+ querySelectPart
-			+ " FROM"
-			+ " " + MySQLiteHelper.TASK
-			+ " LEFT JOIN"
-			+ " " + MySQLiteHelper.EVENT
-			+ " ON "
-			+ " taskId = " + MySQLiteHelper.EVENT_TASK
-
-			+ " WHERE"
-			+ " eventId IS NULL"
-
-			+ " ORDER BY"
-			+ " eventId";
-
-		return db.rawQuery(query, new String[] {});
+		Snapshot ret = new Snapshot();
+		try {
+			ret.main = openSnapshotConnection(MySQLiteHelper.DATABASE_NAME);
+			Cursor cursor = ret.main.query(ARCHIVED_YEAR, new String[] { ARCHIVED_YEAR_YEAR }, null, null, null, null,
+				ARCHIVED_YEAR_YEAR);
+			try {
+				while (cursor.moveToNext()) {
+					ret.archivedYears.add(cursor.getInt(0));
+				}
+			} finally {
+				cursor.close();
+			}
+			for (Integer year : ret.archivedYears) {
+				ret.archives.put(year, openSnapshotConnection(EventArchive.getFileName(year)));
+			}
+		} catch (RuntimeException e) {
+			ret.close();
+			throw e;
+		}
+		return ret;
+	}
+
+	/**
+	 * Begins a deferred transaction, which only reads as long as nothing is written. {@link SQLiteDatabase#beginTransaction()}
+	 * would begin an exclusive transaction, which fails on a read-only connection (and would block the writers on any
+	 * other connection). Android handles statements beginning with "BEGIN" itself, the comment makes it pass them to
+	 * SQLite unchanged.
+	 */
+	private static final String SQL_BEGIN_SNAPSHOT = "/* snapshot */ begin deferred";
+	private static final String SQL_END_SNAPSHOT = "/* snapshot */ rollback";
+
+	/**
+	 * Open a read-only connection to the given database file and begin a read transaction, which doesn't block writers.
+	 */
+	private SQLiteDatabase openSnapshotConnection(String fileName) {
+		SQLiteDatabase database = SQLiteDatabase.openDatabase(context.getDatabasePath(fileName).getPath(), null,
+			SQLiteDatabase.OPEN_READONLY);
+		try {
+			database.execSQL(SQL_BEGIN_SNAPSHOT);
+			try {
+				// the transaction only takes its snapshot with the first read
+				DatabaseUtils.longForQuery(database, "select count(*) from sqlite_master", null);
+			} catch (RuntimeException e) {
+				database.execSQL(SQL_END_SNAPSHOT);
+				throw e;
+			}
+		} catch (RuntimeException e) {
+			database.close();
+			throw e;
+		}
+		return database;
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// full-text search
+	// ---------------------------------------------------------------------------------------------
+	private static final String SQL_SEARCH_EVENTS = "select " + EVENT_SEARCH_ID + ", matchinfo(" + EVENT_SEARCH
+		+ ", '" + FullTextSearch.MATCHINFO_FORMAT + "') from " + EVENT_SEARCH + " where " + EVENT_SEARCH + " match ?";
+	/** SQLite doesn't allow more parameters in one statement */
+	private static final int MAX_EVENTS_BY_ID = 999;
+
+	/**
+	 * Write the text and the task name of the event to the full-text search table, replacing an existing row. Has to be
+	 * called in the transaction which writes the event.
+	 */
+	private void indexEvent(Event event) {
+		if (indexEventStatement == null) {
+			indexEventStatement = db.compileStatement(MySQLiteHelper.DATABASE_INDEX_EVENT);
+		}
+		indexEventStatement.clearBindings();
+		indexEventStatement.bindLong(1, event.getId());
+		bindText(indexEventStatement, 2, event.getText());
+		bindInteger(indexEventStatement, 3, event.getTask());
+		executed(MySQLiteHelper.DATABASE_INDEX_EVENT);
+		long start = System.nanoTime();
+		indexEventStatement.executeInsert();
+		metrics.wrote(1);
+		if (slowQueryLog.isEnabled()) {
+			slowQueryLog.record(MySQLiteHelper.DATABASE_INDEX_EVENT, null, 1, System.nanoTime() - start, null);
+		}
+	}
+
+	private void unindexEvent(Integer eventId) {
+		delete(EVENT_SEARCH, EVENT_SEARCH_ID + "=?", asArgs(eventId));
+	}
+
+	/**
+	 * Write the new name of the task to the full-text search rows of its events, including the archived ones.
+	 */
+	private void indexTaskName(Task task) {
+		ContentValues args = new ContentValues();
+		args.put(EVENT_SEARCH_TASK, task.getName());
+		update(EVENT_SEARCH, args, EVENT_SEARCH_ID + " in (select " + EVENT_ID + " from " + EVENT + " where "
+			+ EVENT_TASK + "=?)", asArgs(task.getId()));
+		for (Integer year : getArchivedYears()) {
+			Cursor cursor = queryArchive(year, new String[] { EVENT_ID }, EVENT_TASK + "=?", asArgs(task.getId()),
+				null, null);
+			try {
+				while (cursor.moveToNext()) {
+					update(EVENT_SEARCH, args, EVENT_SEARCH_ID + "=?", asArgs(cursor.getInt(0)));
+				}
+			} finally {
+				cursor.close();
+			}
+		}
+	}
+
+	/**
+	 * Search the texts and the task names of all events, including the archived ones. Each word of the query has to
+	 * occur in the text or in the task name, as a word or as the beginning of a word (case-insensitive for ASCII
+	 * letters).
+	 *
+	 * Only the IDs and the scores are read for all matches, so the result can be shown page by page with
+	 * {@link #getEvents(int[], int, int)}.
+	 *
+	 * @param query
+	 *            the words to search for, as entered by the user
+	 * @return the IDs of the matching events, the best matches first (and the most recently created ones first if they
+	 *         match equally well)
+	 */
+	public int[] searchEvents(String query) {
+		return measured("searchEvents", () -> {
+			String match = FullTextSearch.toMatchExpression(query);
+			if (match == null) {
+				return new int[0];
+			}
+			long[] ranking;
+			connectionLock.readLock().lock();
+			try {
+				open();
+				Cursor cursor = rawQuery(readDatabase(), SQL_SEARCH_EVENTS, asArgs(match));
+				try {
+					ranking = new long[cursor.getCount()];
+					int i = 0;
+					while (cursor.moveToNext()) {
+						float score = FullTextSearch.score(cursor.getBlob(1));
+						ranking[i++] = FullTextSearch.rankKey(score, cursor.getInt(0));
+					}
+				} finally {
+					cursor.close();
+				}
+			} finally {
+				connectionLock.readLock().unlock();
+			}
+			Arrays.sort(ranking);
+			int[] ret = new int[ranking.length];
+			for (int i = 0; i < ranking.length; i++) {
+				ret[i] = FullTextSearch.eventIdOf(ranking[ranking.length - 1 - i]);
+			}
+			return ret;
+		});
+	}
+
+	/**
+	 * Read some of the events with the given IDs, e.g. one page of the result of {@link #searchEvents(String)}.
+	 *
+	 * @param ids
+	 *            the IDs of the events
+	 * @param from
+	 *            the index of the first ID to read (inclusive)
+	 * @param to
+	 *            the index of the last ID to read (exclusive), at most 999 more than from
+	 * @return the events in the order of their IDs in the array, without the ones which don't exist (any more)
+	 */
+	public List<Event> getEvents(int[] ids, int from, int to) {
+		return measured("getEvents(int[])", () -> {
+			if (to - from > MAX_EVENTS_BY_ID) {
+				throw new IllegalArgumentException("at most " + MAX_EVENTS_BY_ID + " events can be read at once");
+			}
+			if (from >= to) {
+				return new ArrayList<>();
+			}
+			StringBuilder constraint = new StringBuilder(EVENT_ID).append(" in (");
+			String[] args = new String[to - from];
+			for (int i = from; i < to; i++) {
+				constraint.append(i > from ? ",?" : "?");
+				args[i - from] = String.valueOf(ids[i]);
+			}
+			constraint.append(")");
+			Map<Integer, Event> byId = new HashMap<>();
+			for (Event event : getEventsWithConstraint(constraint.toString(), args, getArchivedYears())) {
+				byId.put(event.getId(), event);
+			}
+			List<Event> ret = new ArrayList<>(to - from);
+			for (int i = from; i < to; i++) {
+				Event event = byId.get(ids[i]);
+				if (event != null) {
+					ret.add(event);
+				}
+			}
+			return ret;
+		});
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// archive
+	// ---------------------------------------------------------------------------------------------
+	/** the current and the previous year are not archived by {@link #archiveClosedYears()} */
+	private static final int YEARS_NOT_ARCHIVED = 2;
+
+	/**
+	 * Move the events of a closed year from the main database to the archive file of that year. They are still
+	 * returned by all event queries, but the queries which don't touch that year (like the ones for the current week)
+	 * and the in-memory timeline don't have to deal with them any more. The weeks (with their sums), the day summaries
+	 * and the task sums stay in the main database.
+	 *
+	 * The events are copied to the archive first and only read from there after they were deleted from the main
+	 * database, so a failure in between leaves everything intact. In the change log, the move is recorded with the
+	 * operation {@link Change#ARCHIVE}, not as deletion. Events which are inserted into an archived year later stay in
+	 * the main database until the year is archived again, archived events which are updated are moved back to the main
+	 * database. The full-text search table keeps the archived events, see {@link #searchEvents(String)}.
+	 *
+	 * @param year
+	 *            the year to archive, has to be before the current year
+	 * @return the number of moved events
+	 */
+	public int archiveYear(int year) {
+		return writing("archiveYear", () -> {
+			if (year >= DateTimeUtil.getCurrentDateTime().getYear()) {
+				throw new IllegalArgumentException("only closed years can be archived");
+			}
+			open();
+			if (db.inTransaction()) {
+				// the archive is committed first, a rollback of the main database would leave the events in both
+				throw new IllegalStateException("years can't be archived in a transaction");
+			}
+			int from = startOfYear(year);
+			int to = startOfYear(year + 1);
+			List<Event> events = getEventsWithConstraint(TIME_FRAME_CONSTRAINT, asArgs(from, to),
+				Collections.emptyList());
+			SQLiteDatabase archive = eventArchive.get(year);
+			archive.beginTransaction();
+			try {
+				for (Event event : events) {
+					ContentValues args = eventToContentValues(event);
+					args.put(EVENT_ID, event.getId());
+					archive.insertWithOnConflict(EVENT, null, args, SQLiteDatabase.CONFLICT_REPLACE);
+				}
+				archive.setTransactionSuccessful();
+			} finally {
+				archive.endTransaction();
+			}
+
+			db.beginTransaction();
+			boolean successful = false;
+			try {
+				long lastChange = getLastChangeSequence();
+				delete(EVENT, TIME_FRAME_CONSTRAINT, asArgs(from, to));
+				// the trigger logged the moved events as deleted
+				ContentValues operation = new ContentValues();
+				operation.put(CHANGE_LOG_OPERATION, Change.ARCHIVE);
+				update(CHANGE_LOG, operation, CHANGE_LOG_SEQUENCE + ">? AND " + CHANGE_LOG_ENTITY + "=?",
+					String.valueOf(lastChange), EVENT);
+				ContentValues args = new ContentValues();
+				args.put(ARCHIVED_YEAR_YEAR, year);
+				args.put(ARCHIVED_YEAR_EVENT_COUNT, DatabaseUtils.queryNumEntries(archive, EVENT));
+				args.put(ARCHIVED_YEAR_TIMESTAMP, System.currentTimeMillis());
+				replace(ARCHIVED_YEAR, args);
+				pendingTimelineChanges.add(() -> eventTimeline.removeBetween(from, to));
+				archivedYears = null;
+				db.setTransactionSuccessful();
+				successful = true;
+			} finally {
+				endTransaction(successful);
+			}
+			Logger.info("archived {} events of {}", events.size(), year);
+			dataChanged(DataChange.ofMinutes(from, to - 1));
+			return events.size();
+		});
+	}
+
+	/**
+	 * Archive all years with events in the main database, except the current and the previous one.
+	 */
+	public void archiveClosedYears() {
+		writing("archiveClosedYears", () -> {
+			int lastYear = DateTimeUtil.getCurrentDateTime().getYear() - YEARS_NOT_ARCHIVED;
+			Event first;
+			while ((first = findMainEvent(timeline -> timeline.getFirstAfter(Integer.MIN_VALUE), null, null,
+				EVENT_ORDER)) != null && yearOf(first.getTimeMinutes()) <= lastYear) {
+				archiveYear(yearOf(first.getTimeMinutes()));
+			}
+		});
+	}
+
+	/**
+	 * Return the years whose events were moved to an archive file, in ascending order.
+	 */
+	public List<Integer> getArchivedYears() {
+		return measured("getArchivedYears", () -> {
+			Snapshot current = snapshot.get();
+			if (current != null) {
+				return current.archivedYears;
+			}
+			List<Integer> years = archivedYears;
+			return years != null ? years : loadArchivedYears();
+		});
+	}
+
+	/**
+	 * Synchronized like the write methods, so no write transaction of another thread (which might archive a year) can
+	 * be running.
+	 */
+	private synchronized List<Integer> loadArchivedYears() {
+		List<Integer> years = archivedYears;
+		if (years == null) {
+			connectionLock.readLock().lock();
+			try {
+				open();
+				years = new ArrayList<>();
+				Cursor cursor = query(ARCHIVED_YEAR, new String[] { ARCHIVED_YEAR_YEAR }, null, null,
+					ARCHIVED_YEAR_YEAR, null);
+				try {
+					while (cursor.moveToNext()) {
+						years.add(cursor.getInt(0));
+					}
+				} finally {
+					cursor.close();
+				}
+			} finally {
+				connectionLock.readLock().unlock();
+			}
+			years = Collections.unmodifiableList(years);
+			archivedYears = years;
+		}
+		return years;
+	}
+
+	/**
+	 * Return the archived years which overlap the given time frame (including the first, not including the second
+	 * minute).
+	 */
+	private List<Integer> getArchivedYearsBetween(int fromMinute, int toMinute) {
+		List<Integer> years = getArchivedYears();
+		if (years.isEmpty()) {
+			return years;
+		}
+		List<Integer> ret = new ArrayList<>();
+		for (Integer year : years) {
+			if (startOfYear(year) < toMinute && startOfYear(year + 1) > fromMinute) {
+				ret.add(year);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Return the archived year which contains the event with the given ID, or {@code null} if it is not archived.
+	 */
+	private Integer findArchivedYear(Integer id) {
+		return ArchivedEvents.findYear(getArchivedYears(), year -> queryArchivedEvent(year, EVENT_ID + "=?", id, null));
+	}
+
+	/**
+	 * Begin a transaction on the archive of the given year. It is committed after the outermost transaction on the main
+	 * database, so an event which is moved back to the main database can't get lost, and it is rolled back together
+	 * with the main database. The reads of this thread already see its changes. Has to be called in a transaction on
+	 * the main database.
+	 */
+	private SQLiteDatabase beginArchiveTransaction(int year) {
+		SQLiteDatabase archive = eventArchive.get(year);
+		archive.beginTransaction();
+		transactionActions.register(() -> {
+			archive.setTransactionSuccessful();
+			archive.endTransaction();
+		}, archive::endTransaction);
+		return archive;
+	}
+
+	private Event queryArchivedEvent(int year, String constraint, Object constraintArg, String orderBy) {
+		connectionLock.readLock().lock();
+		try {
+			Cursor cursor = queryArchive(year, EVENT_FIELDS, constraint, asArgs(constraintArg), orderBy, "1");
+			try {
+				return cursor.moveToFirst() ? cursorToEvent(cursor) : null;
+			} finally {
+				cursor.close();
+			}
+		} finally {
+			connectionLock.readLock().unlock();
+		}
+	}
+
+	/** like {@link #query}, but on the event table of an archive */
+	private Cursor queryArchive(int year, String[] columns, String selection, String[] selectionArgs, String orderBy,
+		String limit) {
+		String sql = SQLiteQueryBuilder.buildQueryString(false, EVENT, columns, selection, null, null, orderBy, limit);
+		return rawQuery(getArchive(year), sql, selectionArgs);
+	}
+
+	/** the archive of the given year for reads: the one of the current thread's snapshot if there is one */
+	private SQLiteDatabase getArchive(int year) {
+		Snapshot current = snapshot.get();
+		return current != null ? current.archives.get(year) : eventArchive.get(year);
+	}
+
+	private static int startOfYear(int year) {
+		return ArchivedEvents.startOfYear(year);
+	}
+
+	private static int yearOf(int minute) {
+		return DateTimeUtil.epochMinutesToDateTime(minute).getYear();
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// maintenance
+	// ---------------------------------------------------------------------------------------------
+	private static final String[] MAINTENANCE_RUN_FIELDS = { MAINTENANCE_RUN_START, MAINTENANCE_RUN_DURATION,
+		MAINTENANCE_RUN_SIZE_BEFORE, MAINTENANCE_RUN_SIZE_AFTER, MAINTENANCE_RUN_PAGES_BEFORE,
+		MAINTENANCE_RUN_PAGES_AFTER, MAINTENANCE_RUN_FREE_PAGES_BEFORE, MAINTENANCE_RUN_FREE_PAGES_AFTER,
+		MAINTENANCE_RUN_INTEGRITY };
+	/** the value of "PRAGMA auto_vacuum" which allows to free pages with "PRAGMA incremental_vacuum" */
+	private static final long AUTO_VACUUM_INCREMENTAL = 2;
+	/** the integrity check stops after this many problems */
+	private static final int MAX_INTEGRITY_PROBLEMS = 10;
+	/** older runs are deleted */
+	private static final int MAINTENANCE_RUNS_TO_KEEP = 20;
+	private static final String SQL_DELETE_OLD_MAINTENANCE_RUNS = "delete from " + MAINTENANCE_RUN + " where "
+		+ MAINTENANCE_RUN_ID + " not in (select " + MAINTENANCE_RUN_ID + " from " + MAINTENANCE_RUN + " order by "
+		+ MAINTENANCE_RUN_ID + " desc limit " + MAINTENANCE_RUNS_TO_KEEP + ")";
+
+	/**
+	 * Update the statistics of the query planner ("ANALYZE"), give free pages back to the file system and check the
+	 * integrity of the database. Databases which were created without incremental auto-vacuum are converted once with
+	 * a complete "VACUUM". Reads and writes wait until the maintenance is finished, so it should only run while the
+	 * device is idle.
+	 *
+	 * @return the statistics of this run, which are also stored (see {@link #getMaintenanceRuns()})
+	 */
+	public synchronized MaintenanceRun runMaintenance() {
+		return measured("runMaintenance", () -> {
+			connectionLock.writeLock().lock();
+			try {
+				open();
+				MaintenanceRun run = new MaintenanceRun();
+				long start = System.currentTimeMillis();
+				run.setStart(start);
+				File dbFile = context.getDatabasePath(MySQLiteHelper.DATABASE_NAME);
+				run.setSizeBefore(dbFile.length());
+				run.setPagesBefore(queryLong("PRAGMA page_count", null));
+				run.setFreePagesBefore(queryLong("PRAGMA freelist_count", null));
+
+				// also limits the change log if no consumer acknowledged changes for a long time
+				compactChangeLog();
+				execute("ANALYZE");
+				if (queryLong("PRAGMA auto_vacuum", null) != AUTO_VACUUM_INCREMENTAL) {
+					execute("PRAGMA auto_vacuum = INCREMENTAL");
+					// the new mode only takes effect with a complete rebuild
+					execute("VACUUM");
+				} else {
+					queryAll("PRAGMA incremental_vacuum");
+				}
+				List<String> problems = queryAll("PRAGMA quick_check(" + MAX_INTEGRITY_PROBLEMS + ")");
+				run.setIntegrity(TextUtils.join("\n", problems));
+				// with write-ahead logging, the database file only shrinks when the log is written back
+				queryAll("PRAGMA wal_checkpoint(TRUNCATE)");
+
+				run.setSizeAfter(dbFile.length());
+				run.setPagesAfter(queryLong("PRAGMA page_count", null));
+				run.setFreePagesAfter(queryLong("PRAGMA freelist_count", null));
+				run.setDuration(System.currentTimeMillis() - start);
+
+				ContentValues args = new ContentValues();
+				args.put(MAINTENANCE_RUN_START, run.getStart());
+				args.put(MAINTENANCE_RUN_DURATION, run.getDuration());
+				args.put(MAINTENANCE_RUN_SIZE_BEFORE, run.getSizeBefore());
+				args.put(MAINTENANCE_RUN_SIZE_AFTER, run.getSizeAfter());
+				args.put(MAINTENANCE_RUN_PAGES_BEFORE, run.getPagesBefore());
+				args.put(MAINTENANCE_RUN_PAGES_AFTER, run.getPagesAfter());
+				args.put(MAINTENANCE_RUN_FREE_PAGES_BEFORE, run.getFreePagesBefore());
+				args.put(MAINTENANCE_RUN_FREE_PAGES_AFTER, run.getFreePagesAfter());
+				args.put(MAINTENANCE_RUN_INTEGRITY, run.getIntegrity());
+				insert(MAINTENANCE_RUN, args);
+				execute(SQL_DELETE_OLD_MAINTENANCE_RUNS);
+				return run;
+			} finally {
+				connectionLock.writeLock().unlock();
+			}
+		});
+	}
+
+	/**
+	 * Return the stored statistics of the last maintenance runs, the newest first.
+	 */
+	public List<MaintenanceRun> getMaintenanceRuns() {
+		return measured("getMaintenanceRuns", () -> {
+			connectionLock.readLock().lock();
+			try {
+				open();
+				List<MaintenanceRun> ret = new ArrayList<>();
+				Cursor cursor = query(MAINTENANCE_RUN, MAINTENANCE_RUN_FIELDS, null, null, MAINTENANCE_RUN_ID + " desc",
+					null);
+				try {
+					while (cursor.moveToNext()) {
+						MaintenanceRun run = new MaintenanceRun();
+						run.setStart(cursor.getLong(0));
+						run.setDuration(cursor.getLong(1));
+						run.setSizeBefore(cursor.getLong(2));
+						run.setSizeAfter(cursor.getLong(3));
+						run.setPagesBefore(cursor.getLong(4));
+						run.setPagesAfter(cursor.getLong(5));
+						run.setFreePagesBefore(cursor.getLong(6));
+						run.setFreePagesAfter(cursor.getLong(7));
+						run.setIntegrity(cursor.getString(8));
+						ret.add(run);
+					}
+				} finally {
+					cursor.close();
+				}
+				return ret;
+			} finally {
+				connectionLock.readLock().unlock();
+			}
+		});
+	}
+
+	/** some pragmas only do their work while their result rows are read, even if they don't have a column */
+	private List<String> queryAll(String sql) {
+		List<String> ret = new ArrayList<>();
+		Cursor cursor = rawQuery(db, sql, null);
+		try {
+			while (cursor.moveToNext()) {
+				if (cursor.getColumnCount() > 0) {
+					ret.add(cursor.getString(0));
+				}
+			}
+		} finally {
+			cursor.close();
+		}
+		return ret;
 	}
 
 	// ---------------------------------------------------------------------------------------------
 	// backup/restore methods for Google servers
 	// ---------------------------------------------------------------------------------------------
 	public long getLastDbModification() {
-		final File dbFile = context.getDatabasePath(MySQLiteHelper.DATABASE_NAME);
-		return dbFile.lastModified();
+		return measured("getLastDbModification", () -> {
+			final File dbFile = context.getDatabasePath(MySQLiteHelper.DATABASE_NAME);
+			// with write-ahead logging, changes are written to the database file only at the next checkpoint
+			final File walFile = new File(dbFile.getPath() + "-wal");
+			return Math.max(dbFile.lastModified(), walFile.lastModified());
+		});
 	}
 
 	/**
-	 * Called internally by the data base methods where data is changed.
+	 * Called by all write methods. The change is committed as soon as no transaction is running any more, so the
+	 * listeners of an outer transaction get only one (merged) change.
 	 */
-	private void dataChanged() {
+	private void dataChanged(DataChange change) {
 		backupManager.dataChanged();
+		pendingChange = change.merge(pendingChange);
+		if (!db.inTransaction()) {
+			commitPendingChange();
+		}
+	}
+
+	private void commitPendingChange() {
+		if (pendingChange != null) {
+			committedChanges.add(pendingChange);
+			pendingChange = null;
+		}
+	}
+
+	/**
+	 * Publish the committed changes to the listeners, in the order of their commits. Does nothing while the current
+	 * thread holds the lock of the writers (the outermost write method publishes them after releasing it), so other
+	 * writers don't wait for the listeners. The changes of another thread may be published, too.
+	 */
+	private void publishChanges() {
+		if (Thread.holdsLock(this)) {
+			return;
+		}
+		synchronized (publishLock) {
+			DataChange change;
+			while ((change = committedChanges.poll()) != null) {
+				for (DataChangeListener listener : dataChangeListeners) {
+					try {
+						listener.onDataChanged(change);
+					} catch (RuntimeException e) {
+						// the write is committed already, so don't let a listener fail it
+						Logger.warn(e, "data change listener failed");
+					}
+				}
+			}
+		}
+	}
+
+	private static DataChange changeOfWeek(Week week) {
+		if (week.getStart() == null) {
+			return DataChange.EVERYTHING;
+		}
+		int start = DateTimeUtil.dateTimeToEpochMinutes(DateTimeUtil.stringToDateTime(week.getStart()));
+		return DataChange.ofMinutes(start, start + 7 * DateTimeUtil.MINUTES_PER_DAY - 1);
 	}
 
 	// ---------------------------------------------------------------------------------------------
 	// backup/restore methods
 	// ---------------------------------------------------------------------------------------------
 	public void backupToWriter(final Writer writer) throws IOException {
-		final String eol = System.getProperty("line.separator");
-		final Cursor cur = getAllEventsAndTasks();
-		cur.moveToFirst();
-		writer.write(
-			MySQLiteHelper.EVENT_TYPE
-				+ ";" + MySQLiteHelper.EVENT_TIME
-				+ ";" + MySQLiteHelper.EVENT_TASK
-				+ ";" + MySQLiteHelper.EVENT_TEXT
-				+ ";taskId"
-				+ ";" + MySQLiteHelper.TASK_NAME
-				+ ";" + MySQLiteHelper.TASK_ACTIVE
-				+ ";" + MySQLiteHelper.TASK_ORDERING
-				+ ";" + MySQLiteHelper.TASK_DEFAULT
-				+ eol);
-		final StringBuilder buf = new StringBuilder();
-		while (!cur.isAfterLast()) {
-			if (!cur.isNull(cur.getColumnIndex("eventId"))) {
-				buf.append(TypeEnum.byValue(cur.getInt(cur.getColumnIndex(MySQLiteHelper.EVENT_TYPE)))
-					.getReadableName());
-				buf.append(";");
-				buf.append(cur.getString(cur.getColumnIndex(MySQLiteHelper.EVENT_TIME)));
-				buf.append(";");
-				buf.append(cur.getInt(cur.getColumnIndex(MySQLiteHelper.EVENT_TASK)));
-				buf.append(";");
-				buf.append((cur.getString(cur.getColumnIndex(MySQLiteHelper.EVENT_TEXT)) == null
-					? "" : cur.getString(cur.getColumnIndex(MySQLiteHelper.EVENT_TEXT))));
-				buf.append(";");
-			} else {
-				// this is a task that has no events
-				buf.append(";;;;");
-			}
-			if (!cur.isNull(cur.getColumnIndex("taskId"))) {
-				buf.append(cur.getInt(cur.getColumnIndex("taskId")));
-				buf.append(";");
-				buf.append(cur.getString(cur.getColumnIndex(MySQLiteHelper.TASK_NAME)));
-				buf.append(";");
-				buf.append(cur.getInt(cur.getColumnIndex(MySQLiteHelper.TASK_ACTIVE)));
-				buf.append(";");
-				buf.append(cur.getInt(cur.getColumnIndex(MySQLiteHelper.TASK_ORDERING)));
-				buf.append(";");
-				buf.append(cur.getInt(cur.getColumnIndex(MySQLiteHelper.TASK_DEFAULT)));
-				buf.append(";");
-			} else {
-				// this is an event that has no task (TypeEnum.CLOCK_OUT)
-				buf.append(";;;;;");
+		DaoMetrics.Call call = metrics.begin("backupToWriter");
+		try {
+			final String eol = System.getProperty("line.separator");
+			final Cursor cur = getAllEventsAndTasks();
+			cur.moveToFirst();
+			writer.write(
+				MySQLiteHelper.EVENT_TYPE
+					+ ";" + MySQLiteHelper.EVENT_TIME
+					+ ";" + MySQLiteHelper.EVENT_TASK
+					+ ";" + MySQLiteHelper.EVENT_TEXT
+					+ ";taskId"
+					+ ";" + MySQLiteHelper.TASK_NAME
+					+ ";" + MySQLiteHelper.TASK_ACTIVE
+					+ ";" + MySQLiteHelper.TASK_ORDERING
+					+ ";" + MySQLiteHelper.TASK_DEFAULT
+					+ eol);
+			final StringBuilder buf = new StringBuilder();
+			// the archived events first, the cursor only contains the main database
+			for (Integer year : getArchivedYears()) {
+				final List<Event> events = getEventsWithConstraint(null, null, Collections.singletonList(year));
+				for (Event event : events) {
+					appendArchivedEvent(buf, event);
+					buf.append(eol);
+					writer.write(buf.toString());
+					buf.setLength(0);
+				}
 			}
-			buf.append(eol);
-			writer.write(buf.toString());
-			buf.setLength(0);
-			cur.moveToNext();
+			while (!cur.isAfterLast()) {
+				if (!cur.isNull(cur.getColumnIndex("eventId"))) {
+					buf.append(TypeEnum.byValue(cur.getInt(cur.getColumnIndex(MySQLiteHelper.EVENT_TYPE)))
+						.getReadableName());
+					buf.append(";");
+					buf.append(cur.getString(cur.getColumnIndex(MySQLiteHelper.EVENT_TIME)));
+					buf.append(";");
+					buf.append(cur.getInt(cur.getColumnIndex(MySQLiteHelper.EVENT_TASK)));
+					buf.append(";");
+					buf.append((cur.getString(cur.getColumnIndex(MySQLiteHelper.EVENT_TEXT)) == null
+						? "" : cur.getString(cur.getColumnIndex(MySQLiteHelper.EVENT_TEXT))));
+					buf.append(";");
+				} else {
+					// this is a task that has no events
+					buf.append(";;;;");
+				}
+				if (!cur.isNull(cur.getColumnIndex("taskId"))) {
+					buf.append(cur.getInt(cur.getColumnIndex("taskId")));
+					buf.append(";");
+					buf.append(cur.getString(cur.getColumnIndex(MySQLiteHelper.TASK_NAME)));
+					buf.append(";");
+					buf.append(cur.getInt(cur.getColumnIndex(MySQLiteHelper.TASK_ACTIVE)));
+					buf.append(";");
+					buf.append(cur.getInt(cur.getColumnIndex(MySQLiteHelper.TASK_ORDERING)));
+					buf.append(";");
+					buf.append(cur.getInt(cur.getColumnIndex(MySQLiteHelper.TASK_DEFAULT)));
+					buf.append(";");
+				} else {
+					// this is an event that has no task (TypeEnum.CLOCK_OUT)
+					buf.append(";;;;;");
+				}
+				buf.append(eol);
+				writer.write(buf.toString());
+				buf.setLength(0);
+				cur.moveToNext();
+			}
+			cur.close();
+		} finally {
+			call.end();
+		}
+	}
+
+	private void appendArchivedEvent(final StringBuilder buf, final Event event) {
+		buf.append(TypeEnum.byValue(event.getType()).getReadableName());
+		buf.append(";");
+		buf.append(event.getTime());
+		buf.append(";");
+		buf.append(event.getTask());
+		buf.append(";");
+		buf.append(event.getText() == null ? "" : event.getText());
+		buf.append(";");
+		final Task task = getTask(event.getTask());
+		if (task != null) {
+			buf.append(task.getId());
+			buf.append(";");
+			buf.append(task.getName());
+			buf.append(";");
+			buf.append(task.getActive());
+			buf.append(";");
+			buf.append(task.getOrdering());
+			buf.append(";");
+			buf.append(task.getIsDefault());
+			buf.append(";");
+		} else {
+			// this is an event that has no task (TypeEnum.CLOCK_OUT)
+			buf.append(";;;;;");
 		}
-		cur.close();
 	}
 
 	private static int INDEX_EVENT_TYPE = 0;
@@ -739,26 +3063,72 @@ public class DAO {
 	private static int INDEX_TASK_ORDERING = 7;
 	private static int INDEX_TASK_DEFAULT = 8;
 
+	/**
+	 * Replace all data by the data in the backup. The backup is read before the lock of the write methods is taken, so
+	 * only the write transaction blocks other writers.
+	 */
 	public void restoreFromReader(final BufferedReader reader) throws IOException {
-		final String eol = System.getProperty("line.separator");
-		final TimerManager timerManager = Basics.getInstance().getTimerManager();
-
-		deleteAll();
+		DaoMetrics.Call call = metrics.begin("restoreFromReader");
+		try {
+			final TimerManager timerManager = Basics.getInstance().getTimerManager();
+			final Map<Integer, Task> tasks = new LinkedHashMap<>();
+			final List<Event> events = new ArrayList<>();
+			readRows(reader, tasks, events);
+
+			synchronized (this) {
+				// everything is restored in one transaction, so a failed restore leaves the old data in place
+				open();
+				final List<Integer> oldArchivedYears = getArchivedYears();
+				db.beginTransaction();
+				boolean successful = false;
+				try {
+					deleteAll();
+					for (Task task : tasks.values()) {
+						final ContentValues args = taskToContentValues(task);
+						args.put(MySQLiteHelper.TASK_ID, task.getId());
+						insert(TASK, args);
+					}
+					taskCache = null;
+					// the week sums are only calculated once per week
+					timerManager.createEvents(events, true);
+					db.setTransactionSuccessful();
+					successful = true;
+				} finally {
+					endTransaction(successful);
+				}
+				// the restored events are all in the main database
+				for (Integer year : oldArchivedYears) {
+					eventArchive.delete(year);
+				}
+			}
+		} finally {
+			call.end();
+			publishChanges();
+		}
+	}
 
+	/**
+	 * Parse the rows of a backup.
+	 *
+	 * @param tasks
+	 *            gets the tasks by ID, only the first row of each ID counts
+	 * @param events
+	 *            gets the events in the order of the backup
+	 */
+	private static void readRows(final BufferedReader reader, final Map<Integer, Task> tasks, final List<Event> events)
+		throws IOException {
 		String line;
-		final StringBuilder buffer = new StringBuilder();
 		// cache values
 		final String clockInReadableName = TypeEnum.CLOCK_IN.getReadableName();
 		final String clockOutNowReadableName = TypeEnum.CLOCK_OUT_NOW.getReadableName();
 		final String clockOutReadableName = TypeEnum.CLOCK_OUT.getReadableName();
 		final String flexTimeReadableName = TypeEnum.FLEX.getReadableName();
 		while ((line = reader.readLine()) != null) {
-			buffer.append(line).append(eol);
 			final String[] columns = line.split("[;\t]");
 			try {
 				if (columns.length > 8 && columns[INDEX_TASK_ID].length() > 0) {
 					final int taskId = Integer.parseInt(columns[INDEX_TASK_ID]);
-					if (getTask(taskId) == null) {
+					if (!tasks.containsKey(taskId)) {
 						final Task task = new Task(
 							taskId,
 							columns[INDEX_TASK_NAME],
@@ -766,9 +3136,7 @@ public class DAO {
 							Integer.parseInt(columns[INDEX_TASK_ORDERING]),
 							Integer.parseInt(columns[INDEX_TASK_DEFAULT])
 							);
-						final ContentValues args = taskToContentValues(task);
-						args.put(MySQLiteHelper.TASK_ID, taskId);
-						db.insert(TASK, null, args);
+						tasks.put(taskId, task);
 					}
 				}
 
@@ -787,11 +3155,12 @@ public class DAO {
                         // this type is not known, so we skip this entry
                         continue;
                     }
-					timerManager.createEvent(dateTime,
+					events.add(new Event(null, null,
 						Integer.parseInt(columns[INDEX_EVENT_TASK]),
-						typeEnum,
+						typeEnum.getValue(),
+						DateTimeUtil.dateTimeToString(dateTime),
 						columns.length > INDEX_EVENT_TEXT ?
-							columns[INDEX_EVENT_TEXT] : "", true);
+							columns[INDEX_EVENT_TEXT] : ""));
 				}
 			} catch (NumberFormatException e) {
 				// ignore rest of current row
@@ -0,0 +1,324 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the invocations of the {@link DAO}'s methods together with their durations (in a histogram with fixed
+ * buckets), the SQL statements they executed and the rows they read and wrote.
+ *
+ * Callers can measure what a larger operation costs by wrapping it in a call of their own (see
+ * {@link #begin(String)}): a call also contains the statements and rows of the calls which were made inside it on the
+ * same thread.
+ *
+ * The counters are plain atomic longs (LongAdder is not available on all supported Android versions), the work which
+ * is done while a call is running stays in the calling thread.
+ *
+ * This class is thread safe.
+ */
+public class DaoMetrics {
+
+	/** the upper bounds of the histogram buckets (in microseconds), the last bucket has no upper bound */
+	static final long[] BUCKET_BOUNDS_MICROS = { 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+		100_000, 250_000, 1_000_000 };
+
+	private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+	private final ThreadLocal<Call> currentCall = new ThreadLocal<>();
+
+	/**
+	 * Start a call with the given name, which has to be ended with {@link Call#end()} (in a {@code finally} block).
+	 */
+	public Call begin(String name) {
+		Call call = new Call(name, currentCall.get(), System.nanoTime());
+		currentCall.set(call);
+		return call;
+	}
+
+	/**
+	 * Get the innermost running call of the current thread, or {@code null} if there is none.
+	 */
+	Call getCurrentCall() {
+		return currentCall.get();
+	}
+
+	/**
+	 * Register the execution of a statement in the innermost running call of the current thread.
+	 */
+	void executed() {
+		Call call = currentCall.get();
+		if (call != null) {
+			call.statements++;
+		}
+	}
+
+	/**
+	 * Register written rows in the innermost running call of the current thread.
+	 */
+	void wrote(long rows) {
+		Call call = currentCall.get();
+		if (call != null) {
+			call.rowsWritten += rows;
+		}
+	}
+
+	private void end(Call call) {
+		long durationNanos = System.nanoTime() - call.startNanos;
+		currentCall.set(call.parent);
+		if (call.parent != null) {
+			call.parent.statements += call.statements;
+			call.parent.rowsRead += call.rowsRead;
+			call.parent.rowsWritten += call.rowsWritten;
+		}
+		MethodMetrics metrics = methods.get(call.name);
+		if (metrics == null) {
+			MethodMetrics created = new MethodMetrics();
+			metrics = methods.putIfAbsent(call.name, created);
+			if (metrics == null) {
+				metrics = created;
+			}
+		}
+		metrics.add(durationNanos, call.statements, call.rowsRead, call.rowsWritten);
+	}
+
+	/**
+	 * Get the current values of all calls, ordered by name.
+	 */
+	public List<Snapshot> getSnapshot() {
+		List<Snapshot> ret = new ArrayList<>();
+		for (Map.Entry<String, MethodMetrics> entry : methods.entrySet()) {
+			ret.add(entry.getValue().snapshot(entry.getKey()));
+		}
+		Collections.sort(ret, (one, other) -> one.getName().compareTo(other.getName()));
+		return ret;
+	}
+
+	/**
+	 * Write the current values of all calls in a human-readable form.
+	 */
+	public void writeSnapshot(Writer writer) throws IOException {
+		for (Snapshot snapshot : getSnapshot()) {
+			writer.write(snapshot + "\n");
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Forget all values.
+	 */
+	public void reset() {
+		methods.clear();
+	}
+
+	/**
+	 * A running call. Only used by the thread which started it.
+	 */
+	public class Call {
+
+		private final String name;
+		private final Call parent;
+		private final long startNanos;
+		private long statements;
+		private long rowsRead;
+		private long rowsWritten;
+
+		private Call(String name, Call parent, long startNanos) {
+			this.name = name;
+			this.parent = parent;
+			this.startNanos = startNanos;
+		}
+
+		/**
+		 * Register a read row.
+		 */
+		void read() {
+			rowsRead++;
+		}
+
+		/**
+		 * End this call and record its values.
+		 */
+		public void end() {
+			DaoMetrics.this.end(this);
+		}
+
+	}
+
+	private static class MethodMetrics {
+
+		private final AtomicLong invocations = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong statements = new AtomicLong();
+		private final AtomicLong rowsRead = new AtomicLong();
+		private final AtomicLong rowsWritten = new AtomicLong();
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+
+		void add(long durationNanos, long statementCount, long readRows, long writtenRows) {
+			invocations.incrementAndGet();
+			totalNanos.addAndGet(durationNanos);
+			statements.addAndGet(statementCount);
+			rowsRead.addAndGet(readRows);
+			rowsWritten.addAndGet(writtenRows);
+			buckets.incrementAndGet(bucketOf(durationNanos / 1_000));
+		}
+
+		Snapshot snapshot(String name) {
+			long[] bucketCounts = new long[buckets.length()];
+			for (int i = 0; i < bucketCounts.length; i++) {
+				bucketCounts[i] = buckets.get(i);
+			}
+			return new Snapshot(name, invocations.get(), totalNanos.get(), statements.get(), rowsRead.get(),
+				rowsWritten.get(), bucketCounts);
+		}
+
+	}
+
+	static int bucketOf(long micros) {
+		for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+			if (micros <= BUCKET_BOUNDS_MICROS[i]) {
+				return i;
+			}
+		}
+		return BUCKET_BOUNDS_MICROS.length;
+	}
+
+	/**
+	 * The values of one call name at a point in time. The single values are read one after the other, so they may be
+	 * off by a few invocations which ran at the same time.
+	 */
+	public static class Snapshot {
+
+		private final String name;
+		private final long invocations;
+		private final long totalNanos;
+		private final long statements;
+		private final long rowsRead;
+		private final long rowsWritten;
+		private final long[] buckets;
+
+		Snapshot(String name, long invocations, long totalNanos, long statements, long rowsRead, long rowsWritten,
+			long[] buckets) {
+			this.name = name;
+			this.invocations = invocations;
+			this.totalNanos = totalNanos;
+			this.statements = statements;
+			this.rowsRead = rowsRead;
+			this.rowsWritten = rowsWritten;
+			this.buckets = buckets;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getInvocations() {
+			return invocations;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public long getStatements() {
+			return statements;
+		}
+
+		public long getRowsRead() {
+			return rowsRead;
+		}
+
+		public long getRowsWritten() {
+			return rowsWritten;
+		}
+
+		/**
+		 * Get the number of invocations per histogram bucket, see {@link #getBucketBoundsMicros()}.
+		 */
+		public long[] getBuckets() {
+			return buckets.clone();
+		}
+
+		/**
+		 * Get the upper bounds of the histogram buckets in microseconds. The last bucket (which is not contained
+		 * here) has no upper bound.
+		 */
+		public static long[] getBucketBoundsMicros() {
+			return BUCKET_BOUNDS_MICROS.clone();
+		}
+
+		public double getStatementsPerInvocation() {
+			return invocations == 0 ? 0 : (double) statements / invocations;
+		}
+
+		public double getMeanMicros() {
+			return invocations == 0 ? 0 : totalNanos / 1_000.0 / invocations;
+		}
+
+		/**
+		 * Get the upper bound of the bucket which contains the given percentile (between 0 and 1), or
+		 * {@link Long#MAX_VALUE} if it is in the last bucket. Returns 0 if there were no invocations.
+		 */
+		public long getPercentileMicros(double percentile) {
+			if (invocations == 0) {
+				return 0;
+			}
+			long threshold = (long) Math.ceil(percentile * invocations);
+			long seen = 0;
+			for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+				seen += buckets[i];
+				if (seen >= threshold) {
+					return BUCKET_BOUNDS_MICROS[i];
+				}
+			}
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder ret = new StringBuilder(String.format(
+				"%s: %d calls, mean %.0f us, p50 %s, p95 %s, p99 %s, %.1f statements per call, %d rows read,"
+					+ " %d rows written, histogram",
+				name, invocations, getMeanMicros(), percentileToString(0.5), percentileToString(0.95),
+				percentileToString(0.99), getStatementsPerInvocation(), rowsRead, rowsWritten));
+			for (int i = 0; i < buckets.length; i++) {
+				if (buckets[i] > 0) {
+					ret.append(i < BUCKET_BOUNDS_MICROS.length ? " <=" + BUCKET_BOUNDS_MICROS[i] : " >"
+						+ BUCKET_BOUNDS_MICROS[i - 1]).append("us:").append(buckets[i]);
+				}
+			}
+			return ret.toString();
+		}
+
+		private String percentileToString(double percentile) {
+			long micros = getPercentileMicros(percentile);
+			return micros == Long.MAX_VALUE
+				? ">" + BUCKET_BOUNDS_MICROS[BUCKET_BOUNDS_MICROS.length - 1] + "us"
+				: "<=" + micros + "us";
+		}
+
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import hirondelle.date4j.DateTime;
+
+/**
+ * Describes which data a committed write of the {@link DAO} changed: a time range (in minutes since 1970-01-01 00:00,
+ * see {@link DateTimeUtil#dateTimeToEpochMinutes(DateTime)}) and the IDs of changed tasks. Changes can be merged, the
+ * result covers both.
+ *
+ * Instances are immutable.
+ */
+public class DataChange {
+
+	/** everything may have changed, e.g. because all data was deleted */
+	public static final DataChange EVERYTHING = new DataChange(Integer.MIN_VALUE, Integer.MAX_VALUE,
+		Collections.emptySet(), true);
+
+	private final int fromMinute;
+	private final int toMinute;
+	private final Set<Integer> taskIds;
+	private final boolean allTasks;
+
+	private DataChange(int fromMinute, int toMinute, Set<Integer> taskIds, boolean allTasks) {
+		this.fromMinute = fromMinute;
+		this.toMinute = toMinute;
+		this.taskIds = taskIds;
+		this.allTasks = allTasks;
+	}
+
+	/**
+	 * Create a change of the time between the given minutes (both including).
+	 */
+	public static DataChange ofMinutes(int fromMinute, int toMinute) {
+		return new DataChange(fromMinute, toMinute, Collections.emptySet(), false);
+	}
+
+	/**
+	 * Create a change of the task with the given ID.
+	 */
+	public static DataChange ofTask(Integer taskId) {
+		return taskId == null
+			? EVERYTHING
+			: new DataChange(Integer.MAX_VALUE, Integer.MIN_VALUE, Collections.singleton(taskId), false);
+	}
+
+	/**
+	 * Get a change which covers this one and the given one.
+	 */
+	public DataChange merge(DataChange other) {
+		if (other == null) {
+			return this;
+		}
+		Set<Integer> mergedTaskIds;
+		if (other.taskIds.isEmpty()) {
+			mergedTaskIds = taskIds;
+		} else if (taskIds.isEmpty()) {
+			mergedTaskIds = other.taskIds;
+		} else {
+			mergedTaskIds = new HashSet<>(taskIds);
+			mergedTaskIds.addAll(other.taskIds);
+			mergedTaskIds = Collections.unmodifiableSet(mergedTaskIds);
+		}
+		return new DataChange(Math.min(fromMinute, other.fromMinute), Math.max(toMinute, other.toMinute),
+			mergedTaskIds, allTasks || other.allTasks);
+	}
+
+	/**
+	 * Did the time between the given minutes (both including) change?
+	 */
+	public boolean affects(int from, int to) {
+		return affectsTime() && fromMinute <= to && toMinute >= from;
+	}
+
+	/**
+	 * Did the given day change?
+	 */
+	public boolean affectsDay(DateTime day) {
+		int start = DateTimeUtil.dateTimeToEpochMinutes(day.getStartOfDay());
+		return affects(start, start + DateTimeUtil.MINUTES_PER_DAY - 1);
+	}
+
+	/**
+	 * Did any point in time change? If not, only tasks changed.
+	 */
+	public boolean affectsTime() {
+		return fromMinute <= toMinute;
+	}
+
+	/**
+	 * Did the task with the given ID change?
+	 */
+	public boolean affectsTask(Integer taskId) {
+		return allTasks || taskIds.contains(taskId);
+	}
+
+	/**
+	 * Get the first changed minute - only valid if {@link #affectsTime()}.
+	 */
+	public int getFromMinute() {
+		return fromMinute;
+	}
+
+	/**
+	 * Get the last changed minute (including) - only valid if {@link #affectsTime()}.
+	 */
+	public int getToMinute() {
+		return toMinute;
+	}
+
+	public boolean isEverything() {
+		return allTasks && fromMinute == Integer.MIN_VALUE && toMinute == Integer.MAX_VALUE;
+	}
+
+	@Override
+	public String toString() {
+		return isEverything()
+			? "DataChange[everything]"
+			: "DataChange[minutes " + fromMinute + "-" + toMinute + ", tasks " + (allTasks ? "all" : taskIds) + "]";
+	}
+
+}
@@ -0,0 +1,34 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+/**
+ * Gets notified by the {@link DAO} after a write was committed.
+ */
+public interface DataChangeListener {
+
+	/**
+	 * Called once per committed write (or outermost transaction, see {@link DAO#executeInTransaction(Runnable)}) after
+	 * the DAO released the lock of the writers, on the thread which did the write or on another writing thread -
+	 * listeners which change the UI have to switch to the main thread themselves.
+	 *
+	 * @param change
+	 *            what was changed
+	 */
+	void onDataChanged(DataChange change);
+
+}
@@ -0,0 +1,340 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import org.pmw.tinylog.Logger;
+import org.zephyrsoft.trackworktime.model.DaySummary;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.timer.TimeCalculator;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Calculates the {@link DaySummary} of each day which has events and the minutes per task and day, in one pass over
+ * the events. The summaries are the same as the results of {@link TimeCalculator#calulateOneDay} for days in the past,
+ * leaving out the parts which depend on the settings (the default target work time). The minutes per task are counted
+ * like {@link TimeCalculator#calculateSums}, up to the end of the day of the last event.
+ *
+ * The events have to be added in the order of the event queries (by time in minutes and then by ID). They are not
+ * kept, so the caller may re-use the same object.
+ */
+public class DaySummaryCalculator {
+
+	private static final int NONE = -1;
+
+	private final List<DaySummary> summaries = new ArrayList<>();
+	private final List<TaskSum> taskSums = new ArrayList<>();
+
+	/** was the last added event a clock-in? */
+	private boolean clockedIn;
+
+	private int day = NONE;
+	private boolean clockedInAtStart;
+	private boolean firstEventIsClockIn;
+	private int eventCount;
+	private int firstIn;
+	private int effectiveOut;
+	private int clockedInSince;
+	private int worked;
+	private Integer flexTarget;
+
+	/** the task which is worked on (0 if none is set), {@code null} if not clocked in */
+	private Integer currentTask;
+	private int currentTaskSince;
+	private int taskSumsDay = NONE;
+	private final Map<Integer, Integer> taskMinutes = new LinkedHashMap<>();
+
+	/**
+	 * @param previous
+	 *            the last event before the first one which will be added (may be {@code null})
+	 */
+	public DaySummaryCalculator(Event previous) {
+		clockedIn = isClockIn(previous);
+		currentTask = clockedIn ? taskOf(previous) : null;
+	}
+
+	public void add(Event event) {
+		int minute = event.getTimeMinutes();
+		int startOfDay = DateTimeUtil.epochMinutesToStartOfDay(minute);
+		if (startOfDay != day) {
+			if (day == NONE) {
+				// the task sums begin with the first day
+				currentTaskSince = startOfDay;
+			}
+			finishDay();
+			startDay(startOfDay, isClockIn(event));
+		}
+		eventCount++;
+		countTaskMinutes(minute);
+		currentTask = isClockIn(event) ? taskOf(event) : null;
+		currentTaskSince = minute;
+		if (isClockIn(event)) {
+			if (firstIn == NONE) {
+				firstIn = minute;
+			}
+			if (clockedInSince == NONE) {
+				clockedInSince = minute;
+			}
+			// only a clock-out after the last clock-in counts as end of the day
+			effectiveOut = NONE;
+			clockedIn = true;
+		} else if (isClockOut(event)) {
+			if (effectiveOut == NONE) {
+				effectiveOut = minute;
+			}
+			if (clockedInSince != NONE) {
+				worked += minute - clockedInSince;
+				clockedInSince = NONE;
+			}
+			clockedIn = false;
+		} else if (TypeEnum.FLEX.getValue().equals(event.getType()) && flexTarget == null) {
+			flexTarget = minute - day;
+		}
+	}
+
+	/**
+	 * Get the summaries of all days on which events were added, ordered by day.
+	 */
+	public List<DaySummary> finish() {
+		if (day != NONE) {
+			countTaskMinutes(day + DateTimeUtil.MINUTES_PER_DAY);
+			flushTaskMinutes();
+		}
+		finishDay();
+		day = NONE;
+		return summaries;
+	}
+
+	/**
+	 * Get the minutes per task and day (only for tasks which were worked on), ordered by day. Only valid after
+	 * {@link #finish()} was called.
+	 */
+	List<TaskSum> getTaskSums() {
+		return taskSums;
+	}
+
+	/**
+	 * Get the days whose summaries and task sums have to be calculated again after events between the given minutes
+	 * (both including) changed: from the day of the event before the changed ones up to the day of the event after
+	 * them, because the time in between depends on the changed events.
+	 *
+	 * @param previous
+	 *            the last event before the first changed minute (may be {@code null})
+	 * @param next
+	 *            the first event after the day of the last changed minute (may be {@code null})
+	 * @return the affected days, from the start of the first to the end of the last one
+	 */
+	public static DataChange affectedDays(Event previous, int fromMinute, int toMinute, Event next) {
+		int from = DateTimeUtil.epochMinutesToStartOfDay(previous == null ? fromMinute : previous.getTimeMinutes());
+		int to = DateTimeUtil.epochMinutesToStartOfDay(next == null ? toMinute : next.getTimeMinutes())
+			+ DateTimeUtil.MINUTES_PER_DAY;
+		return DataChange.ofMinutes(from, to - 1);
+	}
+
+	/**
+	 * Compare the stored day summaries and task sums with the calculated ones and log the differences. Only valid after
+	 * {@link #finish()} was called.
+	 *
+	 * @return the start of each day whose stored data differs from the calculated one, ordered
+	 */
+	Set<Integer> getDifferingDays(List<DaySummary> storedSummaries, List<TaskSum> storedTaskSums) {
+		Set<Integer> ret = new TreeSet<>();
+
+		Map<Integer, DaySummary> stored = new HashMap<>();
+		for (DaySummary summary : storedSummaries) {
+			stored.put(summary.getDay(), summary);
+		}
+		for (DaySummary calculated : summaries) {
+			DaySummary summary = stored.remove(calculated.getDay());
+			if (!calculated.equals(summary)) {
+				Logger.warn("day summary {} differs from calculated {}", summary, calculated);
+				ret.add(calculated.getDay());
+			}
+		}
+		for (DaySummary summary : stored.values()) {
+			Logger.warn("day summary {} exists, but there are no events on that day", summary);
+			ret.add(summary.getDay());
+		}
+
+		Set<TaskSum> notCalculated = new HashSet<>(storedTaskSums);
+		for (TaskSum taskSum : new HashSet<>(taskSums)) {
+			if (!notCalculated.remove(taskSum)) {
+				Logger.warn("task sum {} is not stored", taskSum);
+				ret.add(taskSum.day);
+			}
+		}
+		for (TaskSum taskSum : notCalculated) {
+			Logger.warn("task sum {} is stored, but was not calculated", taskSum);
+			ret.add(taskSum.day);
+		}
+		return ret;
+	}
+
+	/**
+	 * Correct the task sums for the time since the last event, if it is a clock-in: the sums count it up to the end of
+	 * the day of the last event (see {@link #finish()}), but the user is clocked in up to the given minute (e.g. the
+	 * current one).
+	 *
+	 * @param last
+	 *            the last event of all (may be {@code null})
+	 * @param until
+	 *            the end of the time since the last event which should be counted
+	 * @return the minutes to add to the task sums per day (negative if the task sums count too much), ordered by day
+	 */
+	static List<TaskSum> correctOpenInterval(Event last, int until) {
+		List<TaskSum> ret = new ArrayList<>();
+		if (!isClockIn(last)) {
+			return ret;
+		}
+		int since = last.getTimeMinutes();
+		int firstDay = DateTimeUtil.epochMinutesToStartOfDay(since);
+		int counted = firstDay + DateTimeUtil.MINUTES_PER_DAY;
+		int end = Math.max(since, until);
+		for (int day = firstDay; day < Math.max(counted, end); day += DateTimeUtil.MINUTES_PER_DAY) {
+			int minutes = minutesOfDay(day, since, end) - minutesOfDay(day, since, counted);
+			if (minutes != 0) {
+				ret.add(new TaskSum(day, taskOf(last), minutes));
+			}
+		}
+		return ret;
+	}
+
+	/** the part of the interval which is on the given day */
+	private static int minutesOfDay(int day, int from, int to) {
+		return Math.max(0, Math.min(to, day + DateTimeUtil.MINUTES_PER_DAY) - Math.max(from, day));
+	}
+
+	private void startDay(int startOfDay, boolean firstIsClockIn) {
+		day = startOfDay;
+		clockedInAtStart = clockedIn;
+		firstEventIsClockIn = firstIsClockIn;
+		eventCount = 0;
+		firstIn = NONE;
+		effectiveOut = NONE;
+		clockedInSince = clockedIn ? startOfDay : NONE;
+		worked = 0;
+		flexTarget = null;
+	}
+
+	private void finishDay() {
+		if (day == NONE) {
+			return;
+		}
+		if (flexTarget != null && eventCount == 1) {
+			// only the target work time is set on this day
+			summaries.add(new DaySummary(day, null, null, 0, flexTarget));
+			return;
+		}
+		int endOfDay = day + DateTimeUtil.MINUTES_PER_DAY;
+		Integer in;
+		if (clockedInAtStart && !firstEventIsClockIn) {
+			in = day;
+		} else {
+			in = firstIn == NONE ? null : firstIn;
+		}
+		int out = effectiveOut == NONE ? endOfDay : effectiveOut;
+		if (clockedInSince != NONE) {
+			worked += endOfDay - clockedInSince;
+		}
+		summaries.add(new DaySummary(day, in, out, worked, flexTarget));
+	}
+
+	/** count the time since the last event (if clocked in), split at the day boundaries */
+	private void countTaskMinutes(int until) {
+		if (currentTask == null) {
+			return;
+		}
+		int from = currentTaskSince;
+		while (from < until) {
+			int startOfDay = DateTimeUtil.epochMinutesToStartOfDay(from);
+			int to = Math.min(until, startOfDay + DateTimeUtil.MINUTES_PER_DAY);
+			if (startOfDay != taskSumsDay) {
+				flushTaskMinutes();
+				taskSumsDay = startOfDay;
+			}
+			Integer minutes = taskMinutes.get(currentTask);
+			taskMinutes.put(currentTask, (minutes == null ? 0 : minutes) + to - from);
+			from = to;
+		}
+	}
+
+	private void flushTaskMinutes() {
+		for (Map.Entry<Integer, Integer> entry : taskMinutes.entrySet()) {
+			taskSums.add(new TaskSum(taskSumsDay, entry.getKey(), entry.getValue()));
+		}
+		taskMinutes.clear();
+	}
+
+	private static int taskOf(Event event) {
+		return event.getTask() == null ? 0 : event.getTask();
+	}
+
+	private static boolean isClockIn(Event event) {
+		return event != null && TypeEnum.CLOCK_IN.getValue().equals(event.getType());
+	}
+
+	private static boolean isClockOut(Event event) {
+		return event != null && (TypeEnum.CLOCK_OUT.getValue().equals(event.getType())
+			|| TypeEnum.CLOCK_OUT_NOW.getValue().equals(event.getType()));
+	}
+
+	/**
+	 * The minutes worked on one task on one day.
+	 */
+	static class TaskSum {
+		/** start of the day in minutes */
+		final int day;
+		/** ID of the task, 0 if none was set */
+		final int task;
+		final int minutes;
+
+		TaskSum(int day, int task, int minutes) {
+			this.day = day;
+			this.task = task;
+			this.minutes = minutes;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TaskSum)) {
+				return false;
+			}
+			TaskSum other = (TaskSum) obj;
+			return day == other.day && task == other.task && minutes == other.minutes;
+		}
+
+		@Override
+		public int hashCode() {
+			return (day * 31 + task) * 31 + minutes;
+		}
+
+		@Override
+		public String toString() {
+			return day + ": task " + task + " - " + minutes;
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.pmw.tinylog.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_ID;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_TASK;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_TEXT;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_TIME;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_TIME_MINUTES;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_TYPE;
+import static org.zephyrsoft.trackworktime.database.MySQLiteHelper.EVENT_WEEK;
+
+/**
+ * The database files which hold the events of archived years, one file per year ("archive-YYYY.db") with the same
+ * event table as the main database. A file is only opened when a query touches its year. Which years are archived is
+ * recorded in the main database (see {@link MySQLiteHelper#ARCHIVED_YEAR}), a file of a year which is not listed
+ * there is never read.
+ *
+ * The files are opened as separate databases instead of being attached to the main database, because attaching a
+ * database turns off write-ahead logging for the main database.
+ *
+ * This class is thread safe.
+ */
+class EventArchive {
+
+	private static final String CREATE_EVENT = "create table if not exists " + EVENT + " (" + EVENT_ID
+		+ " integer primary key, " + EVENT_WEEK + " integer null, " + EVENT_TYPE + " integer not null, " + EVENT_TIME
+		+ " text not null, " + EVENT_TASK + " integer null, " + EVENT_TEXT + " text null, " + EVENT_TIME_MINUTES
+		+ " integer not null);";
+	private static final String CREATE_EVENT_TIME_MINUTES_INDEX = "create index if not exists "
+		+ MySQLiteHelper.EVENT_TIME_MINUTES_INDEX + " on " + EVENT + " (" + EVENT_TIME_MINUTES + ", " + EVENT_ID + ");";
+	private static final String CREATE_EVENT_WEEK_TIME_MINUTES_INDEX = "create index if not exists "
+		+ MySQLiteHelper.EVENT_WEEK_TIME_MINUTES_INDEX + " on " + EVENT + " (" + EVENT_WEEK + ", " + EVENT_TIME_MINUTES
+		+ ");";
+	private static final String CREATE_EVENT_TASK_INDEX = "create index if not exists "
+		+ MySQLiteHelper.EVENT_TASK_INDEX + " on " + EVENT + " (" + EVENT_TASK + ");";
+
+	private final Context context;
+	private final Map<Integer, SQLiteDatabase> databases = new HashMap<>();
+
+	EventArchive(Context context) {
+		this.context = context;
+	}
+
+	static String getFileName(int year) {
+		return "archive-" + year + ".db";
+	}
+
+	/**
+	 * Get the archive database of the given year, which is opened (and created if necessary) on first use.
+	 */
+	synchronized SQLiteDatabase get(int year) {
+		SQLiteDatabase database = databases.get(year);
+		if (database == null || !database.isOpen()) {
+			database = context.openOrCreateDatabase(getFileName(year),
+				Context.MODE_PRIVATE | Context.MODE_ENABLE_WRITE_AHEAD_LOGGING, null);
+			database.execSQL(CREATE_EVENT);
+			database.execSQL(CREATE_EVENT_TIME_MINUTES_INDEX);
+			database.execSQL(CREATE_EVENT_WEEK_TIME_MINUTES_INDEX);
+			database.execSQL(CREATE_EVENT_TASK_INDEX);
+			databases.put(year, database);
+			Logger.debug("opened archive of {}", year);
+		}
+		return database;
+	}
+
+	/**
+	 * Close and delete the archive file of the given year.
+	 */
+	synchronized void delete(int year) {
+		SQLiteDatabase database = databases.remove(year);
+		if (database != null) {
+			database.close();
+		}
+		if (SQLiteDatabase.deleteDatabase(context.getDatabasePath(getFileName(year)))) {
+			Logger.info("deleted archive of {}", year);
+		}
+	}
+
+	/**
+	 * Close all opened archive databases.
+	 */
+	synchronized void close() {
+		for (SQLiteDatabase database : databases.values()) {
+			database.close();
+		}
+		databases.clear();
+	}
+
+}
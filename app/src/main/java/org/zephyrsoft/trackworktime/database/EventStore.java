@@ -0,0 +1,108 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import org.zephyrsoft.trackworktime.model.DaySummary;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.Task;
+import org.zephyrsoft.trackworktime.model.Week;
+
+import java.util.List;
+
+import hirondelle.date4j.DateTime;
+
+/**
+ * The queries and writes which the time calculations ({@code TimerManager}, {@code TimeCalculator},
+ * {@code WeekStateCalculator} and {@code CsvGenerator}) need. The app uses the {@link DAO}, the
+ * {@link InMemoryEventStore} allows to run the calculations without a database.
+ *
+ * Events are always returned ordered by time (in minutes) and ID. The details of each method are described at the
+ * corresponding method of the {@link DAO}.
+ */
+public interface EventStore {
+
+	/**
+	 * Execute the given action in one transaction. Transactions may be nested.
+	 */
+	void executeInTransaction(Runnable action);
+
+	Task getTask(Integer id);
+
+	Task getDefaultTask();
+
+	Week getWeek(String start);
+
+	Week getWeekByOrdinal(int ordinal);
+
+	List<Week> getWeeksBetween(String fromDate, String toDate);
+
+	List<Week> getWeeksBetween(int fromOrdinal, int toOrdinal);
+
+	Week insertWeek(Week week);
+
+	Week updateWeek(Week week);
+
+	/**
+	 * Insert the events and set their IDs.
+	 */
+	void insertEvents(List<Event> events);
+
+	/**
+	 * Update the events in one go.
+	 */
+	void updateEvents(List<Event> events);
+
+	/**
+	 * Delete the events in one go.
+	 *
+	 * @return the number of deleted events
+	 */
+	int deleteEvents(List<Event> events);
+
+	Event getEvent(Integer id);
+
+	List<Event> getEventsOnDay(DateTime day);
+
+	List<Event> getEventsInWeek(Week week);
+
+	List<List<Event>> getEventsPerDay(DateTime weekStart);
+
+	void forEachEvent(DateTime beginOfTimeFrame, DateTime endOfTimeFrame, EventVisitor visitor);
+
+	/**
+	 * Like the other neighbour lookups, this may return the event without week and text and with the time cut to the
+	 * minute. Use {@link #getEvent(Integer)} if the rest is needed.
+	 */
+	Event getLastEventBefore(DateTime dateTime);
+
+	/**
+	 * @see #getLastEventBefore(DateTime)
+	 */
+	Event getLastEventBeforeIncluding(DateTime dateTime);
+
+	/**
+	 * @see #getLastEventBefore(DateTime)
+	 */
+	Event getFirstEventAfter(DateTime dateTime);
+
+	DateTime getFirstEventTime();
+
+	DateTime getLastEventTime();
+
+	List<DaySummary> getDaySummariesPerDay(DateTime weekStart);
+
+}
@@ -0,0 +1,394 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-memory index of all events in the main database (not the archived ones), sorted by time (in minutes) and ID like
+ * the event queries of the {@link DAO}. It answers the neighbour lookups (last event before / first event after a point
+ * in time) by binary search and returns the ID of the found event. The minute, type and task of that event are held,
+ * too, see {@link #getEvent(int)}, so no row has to be read unless the text or the week is needed.
+ *
+ * The minute, ID, type and task of each event are held in parallel arrays, plus a hash table from ID to minute, so the
+ * entry of an ID is found by binary search, too. The DAO changes the timeline after each commit. Loading it doesn't
+ * block the writers: a load which ran while changes were applied is discarded, see
+ * {@link #load(int[], int[], int[], int[], int, long)}.
+ *
+ * This class is thread safe.
+ */
+class EventTimeline {
+
+	/** returned by the lookups if there is no matching event (the IDs of the events are positive) */
+	static final int NONE = 0;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private boolean loaded = false;
+	/** counts the applied changes, see {@link #getVersion()} */
+	private long version = 0;
+	private int size = 0;
+	private int[] minutes = new int[0];
+	private int[] ids = new int[0];
+	private int[] types = new int[0];
+	/** 0 if the event has no task, like the tasks read from the database */
+	private int[] tasks = new int[0];
+
+	/** the minute of each event by ID, open addressing with linear probing ({@link #NONE} marks a free slot) */
+	private int[] hashedIds = new int[0];
+	private int[] hashedMinutes = new int[0];
+
+	/**
+	 * Is the timeline filled? If not, the changes are not applied and the lookups must not be used.
+	 */
+	synchronized boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Get the number of changes applied so far, also while the timeline was not loaded. A loader reads it before it
+	 * reads the events from the database.
+	 */
+	synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Fill the timeline, if no changes were applied since the loader read the version.
+	 *
+	 * @param eventMinutes
+	 *            the minutes of all events, sorted by time in minutes and then by ID
+	 * @param eventIds
+	 *            the IDs of the same events
+	 * @param eventTypes
+	 *            the types of the same events
+	 * @param eventTasks
+	 *            the tasks of the same events (0 for none)
+	 * @param count
+	 *            the number of events in the arrays
+	 * @param expectedVersion
+	 *            the {@link #getVersion() version} before the events were read
+	 * @return {@code true} if the timeline is loaded now, {@code false} if the events have to be read again
+	 */
+	synchronized boolean load(int[] eventMinutes, int[] eventIds, int[] eventTypes, int[] eventTasks, int count,
+		long expectedVersion) {
+		if (version != expectedVersion) {
+			return false;
+		}
+		allocate(Math.max(INITIAL_CAPACITY, count));
+		System.arraycopy(eventMinutes, 0, minutes, 0, count);
+		System.arraycopy(eventIds, 0, ids, 0, count);
+		System.arraycopy(eventTypes, 0, types, 0, count);
+		System.arraycopy(eventTasks, 0, tasks, 0, count);
+		size = count;
+		for (int i = 0; i < count; i++) {
+			hashPut(ids[i], minutes[i]);
+		}
+		loaded = true;
+		return true;
+	}
+
+	/**
+	 * Apply the changes of a committed transaction at once, so no lookup sees only a part of them.
+	 */
+	synchronized void apply(List<Runnable> changes) {
+		for (Runnable change : changes) {
+			change.run();
+		}
+	}
+
+	/**
+	 * Remove all events, but stay loaded (because all events were deleted from the database).
+	 */
+	synchronized void clear() {
+		version++;
+		allocate(INITIAL_CAPACITY);
+		size = 0;
+		loaded = true;
+	}
+
+	/**
+	 * Insert the given event or move the event with the same ID.
+	 */
+	synchronized void put(int id, int minute, int type, int task) {
+		version++;
+		if (loaded) {
+			removeAt(indexOf(id));
+			insert(id, minute, type, task);
+		}
+	}
+
+	/**
+	 * Insert the given event, which has a new ID. This is faster than {@link #put(int, int, int, int)} because no old
+	 * version of the event has to be searched.
+	 */
+	synchronized void add(int id, int minute, int type, int task) {
+		version++;
+		if (loaded) {
+			insert(id, minute, type, task);
+		}
+	}
+
+	private void insert(int id, int minute, int type, int task) {
+		if (size == ids.length) {
+			grow();
+		}
+		int index = position(minute, id);
+		shift(index, index + 1, size - index);
+		size++;
+		minutes[index] = minute;
+		ids[index] = id;
+		types[index] = type;
+		tasks[index] = task;
+		hashPut(id, minute);
+	}
+
+	/**
+	 * Remove the event with the given ID (if it is contained).
+	 */
+	synchronized void remove(int id) {
+		version++;
+		if (loaded) {
+			removeAt(indexOf(id));
+		}
+	}
+
+	/**
+	 * Remove all events between the given minutes (including the first, not including the second one).
+	 */
+	synchronized void removeBetween(int fromMinute, int toMinute) {
+		version++;
+		if (loaded) {
+			int from = firstIndexAtOrAfter(fromMinute);
+			int to = firstIndexAtOrAfter(toMinute);
+			if (from < to) {
+				for (int i = from; i < to; i++) {
+					hashRemove(ids[i]);
+				}
+				shift(to, from, size - to);
+				size -= to - from;
+			}
+		}
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Is the event with the given ID contained?
+	 */
+	synchronized boolean contains(int id) {
+		return hashSlot(id) >= 0;
+	}
+
+	/**
+	 * Get the event with the given ID as far as it is held here: ID, time (without seconds), type and task (0 for none)
+	 * are set, week and text are {@code null}.
+	 *
+	 * @return the event or {@code null} if it is not contained (e.g. because it was removed after the lookup)
+	 */
+	synchronized Event getEvent(int id) {
+		int index = indexOf(id);
+		if (index < 0) {
+			return null;
+		}
+		Event ret = new Event(id, null, tasks[index], types[index], null, null);
+		ret.setTime(DateTimeUtil.epochMinutesToString(minutes[index]), minutes[index]);
+		return ret;
+	}
+
+	/**
+	 * Get the ID of the last event before the given minute (not including it) or {@link #NONE}.
+	 */
+	synchronized int getLastBefore(int minute) {
+		return idAt(firstIndexAtOrAfter(minute) - 1);
+	}
+
+	/**
+	 * Get the ID of the last event before the given minute (including it) or {@link #NONE}.
+	 */
+	synchronized int getLastBeforeIncluding(int minute) {
+		return idAt(firstIndexAtOrAfter(minute + 1) - 1);
+	}
+
+	/**
+	 * Get the ID of the first event after the given minute (not including it) or {@link #NONE}.
+	 */
+	synchronized int getFirstAfter(int minute) {
+		return idAt(firstIndexAtOrAfter(minute + 1));
+	}
+
+	/**
+	 * Get the IDs of the events between the given minutes (including the first, not including the second one).
+	 */
+	synchronized int[] getBetween(int fromMinute, int toMinute) {
+		int from = firstIndexAtOrAfter(fromMinute);
+		int to = firstIndexAtOrAfter(toMinute);
+		return from < to ? Arrays.copyOfRange(ids, from, to) : new int[0];
+	}
+
+	/**
+	 * Get the ID of the latest event or {@link #NONE}.
+	 */
+	synchronized int getLatest() {
+		return idAt(size - 1);
+	}
+
+	private int idAt(int index) {
+		return index < 0 || index >= size ? NONE : ids[index];
+	}
+
+	/** binary search for the first entry whose minute is not smaller than the given one */
+	private int firstIndexAtOrAfter(int minute) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (minutes[middle] < minute) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/** the index at which an entry with the given minute and ID is or has to be inserted */
+	private int position(int minute, int id) {
+		int low = firstIndexAtOrAfter(minute);
+		int high = firstIndexAtOrAfter(minute + 1);
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (ids[middle] < id) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int indexOf(int id) {
+		int slot = hashSlot(id);
+		if (slot < 0) {
+			return -1;
+		}
+		return position(hashedMinutes[slot], id);
+	}
+
+	private void removeAt(int index) {
+		if (index >= 0) {
+			hashRemove(ids[index]);
+			shift(index + 1, index, size - index - 1);
+			size--;
+		}
+	}
+
+	private void shift(int from, int to, int length) {
+		System.arraycopy(minutes, from, minutes, to, length);
+		System.arraycopy(ids, from, ids, to, length);
+		System.arraycopy(types, from, types, to, length);
+		System.arraycopy(tasks, from, tasks, to, length);
+	}
+
+	private void allocate(int capacity) {
+		minutes = new int[capacity];
+		ids = new int[capacity];
+		types = new int[capacity];
+		tasks = new int[capacity];
+		hashedIds = new int[hashCapacityFor(capacity)];
+		hashedMinutes = new int[hashedIds.length];
+	}
+
+	private void grow() {
+		int capacity = Math.max(INITIAL_CAPACITY, ids.length * 2);
+		minutes = Arrays.copyOf(minutes, capacity);
+		ids = Arrays.copyOf(ids, capacity);
+		types = Arrays.copyOf(types, capacity);
+		tasks = Arrays.copyOf(tasks, capacity);
+		int[] oldIds = hashedIds;
+		int[] oldMinutes = hashedMinutes;
+		hashedIds = new int[hashCapacityFor(capacity)];
+		hashedMinutes = new int[hashedIds.length];
+		for (int i = 0; i < oldIds.length; i++) {
+			if (oldIds[i] != NONE) {
+				hashPut(oldIds[i], oldMinutes[i]);
+			}
+		}
+	}
+
+	/** a power of two, so the hash table is at most half full when the arrays are full */
+	private static int hashCapacityFor(int capacity) {
+		return Integer.highestOneBit(capacity - 1) << 2;
+	}
+
+	private int hashStart(int id) {
+		int hash = id * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & (hashedIds.length - 1);
+	}
+
+	/** the slot of the given ID in the hash table or -1 */
+	private int hashSlot(int id) {
+		if (hashedIds.length == 0) {
+			return -1;
+		}
+		int mask = hashedIds.length - 1;
+		for (int slot = hashStart(id); hashedIds[slot] != NONE; slot = (slot + 1) & mask) {
+			if (hashedIds[slot] == id) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private void hashPut(int id, int minute) {
+		int mask = hashedIds.length - 1;
+		int slot = hashStart(id);
+		while (hashedIds[slot] != NONE && hashedIds[slot] != id) {
+			slot = (slot + 1) & mask;
+		}
+		hashedIds[slot] = id;
+		hashedMinutes[slot] = minute;
+	}
+
+	/** removes the ID and moves the following entries of its probe sequence up, so no tombstones are needed */
+	private void hashRemove(int id) {
+		int free = hashSlot(id);
+		if (free < 0) {
+			return;
+		}
+		int mask = hashedIds.length - 1;
+		hashedIds[free] = NONE;
+		for (int slot = (free + 1) & mask; hashedIds[slot] != NONE; slot = (slot + 1) & mask) {
+			int start = hashStart(hashedIds[slot]);
+			// the entry can stay if its start is cyclically after the free slot and not after its own slot
+			boolean stays = free <= slot ? free < start && start <= slot : free < start || start <= slot;
+			if (!stays) {
+				hashedIds[free] = hashedIds[slot];
+				hashedMinutes[free] = hashedMinutes[slot];
+				hashedIds[slot] = NONE;
+				free = slot;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import org.zephyrsoft.trackworktime.model.Event;
+
+/**
+ * Receives the events of {@link DAO#forEachEvent} one by one.
+ */
+public interface EventVisitor {
+
+	/**
+	 * Called once per event, in the order of the event times.
+	 *
+	 * @param event
+	 *            the current event - attention: this object is re-used for the next event, so it must not be kept
+	 *            after this method returns (copy the needed values instead)!
+	 */
+	void visit(Event event);
+
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Builds the queries for the full-text search table ({@link MySQLiteHelper#EVENT_SEARCH}) and ranks the matches. FTS4
+ * doesn't rank by itself and Android doesn't allow to register SQL functions, so the score is calculated from the
+ * {@code matchinfo()} of each match: every search term counts by how often it occurs in the row, weighted by how rare
+ * it is in the whole table and by the column (the event text counts more than the task name).
+ */
+final class FullTextSearch {
+
+	/** phrase count, column count, row count and three values per phrase and column, see {@link #score(byte[])} */
+	static final String MATCHINFO_FORMAT = "pcnx";
+	/** in the order of the columns of the full-text search table */
+	private static final float[] COLUMN_WEIGHTS = { 1.0f, 0.5f };
+
+	private FullTextSearch() {
+		// only static methods
+	}
+
+	/**
+	 * Convert the text the user entered to a MATCH expression: each word has to occur, as a word or as the beginning
+	 * of a word. The words are split like the default tokenizer of FTS4 does: at every ASCII character which is not a
+	 * letter or a digit. So the user can't enter any FTS operators.
+	 *
+	 * @return the expression or {@code null} if the text doesn't contain any word
+	 */
+	static String toMatchExpression(String text) {
+		if (text == null) {
+			return null;
+		}
+		StringBuilder ret = new StringBuilder();
+		int wordStart = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean separator = i == text.length() || isSeparator(text.charAt(i));
+			if (!separator && wordStart < 0) {
+				wordStart = i;
+			} else if (separator && wordStart >= 0) {
+				ret.append(ret.length() > 0 ? " " : "").append('"').append(text, wordStart, i).append("*\"");
+				wordStart = -1;
+			}
+		}
+		return ret.length() > 0 ? ret.toString() : null;
+	}
+
+	private static boolean isSeparator(char c) {
+		return c < 128 && !Character.isLetterOrDigit(c);
+	}
+
+	/**
+	 * Calculate the score of a match from its {@code matchinfo()} in the format {@link #MATCHINFO_FORMAT}. The values
+	 * are 32-bit integers in the byte order of the device.
+	 */
+	static float score(byte[] matchinfo) {
+		IntBuffer values = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+		int phrases = values.get(0);
+		int columns = values.get(1);
+		int rows = values.get(2);
+		float ret = 0;
+		for (int phrase = 0; phrase < phrases; phrase++) {
+			for (int column = 0; column < columns && column < COLUMN_WEIGHTS.length; column++) {
+				int offset = 3 + 3 * (phrase * columns + column);
+				int hitsInRow = values.get(offset);
+				int rowsWithHits = values.get(offset + 2);
+				if (hitsInRow > 0) {
+					ret += COLUMN_WEIGHTS[column] * hitsInRow * (float) Math.log(1 + (double) rows / rowsWithHits);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Combine the score and the event ID to one value which sorts like the score, and like the ID for equal scores.
+	 * Both have to be non-negative.
+	 */
+	static long rankKey(float score, int eventId) {
+		// the bits of non-negative floats sort like the floats themselves
+		return ((long) Float.floatToIntBits(score) << 32) | eventId;
+	}
+
+	/**
+	 * Get the event ID from a value created by {@link #rankKey(float, int)}.
+	 */
+	static int eventIdOf(long rankKey) {
+		return (int) rankKey;
+	}
+
+}
@@ -0,0 +1,327 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import org.zephyrsoft.trackworktime.model.DaySummary;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.Task;
+import org.zephyrsoft.trackworktime.model.Week;
+import org.zephyrsoft.trackworktime.model.WeekPlaceholder;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import hirondelle.date4j.DateTime;
+
+/**
+ * An {@link EventStore} which holds everything in memory, without any dependency on Android. The events are kept by
+ * ID and ordered by an {@link EventTimeline} (parallel arrays sorted by time and ID), so lookups are binary searches and
+ * time frames are contiguous slices. It is meant for unit tests and benchmarks of the time calculations with many
+ * events. Like the {@link DAO}, the neighbour lookups return the events as held by the timeline, without week and
+ * text.
+ *
+ * The day summaries are calculated on request instead of being stored. Transactions can't be rolled back: if the
+ * action fails, the changes it already made stay in place.
+ *
+ * This class is thread safe.
+ */
+public class InMemoryEventStore implements EventStore {
+
+	private final EventTimeline timeline = new EventTimeline();
+	private final Map<Integer, Event> events = new HashMap<>();
+	private final Map<Integer, Task> tasks = new LinkedHashMap<>();
+	/** by ordinal, see {@link Week#getOrdinal()} */
+	private final TreeMap<Integer, Week> weeks = new TreeMap<>();
+	private int nextTaskId = 1;
+	private int nextWeekId = 1;
+	private int nextEventId = 1;
+
+	public InMemoryEventStore() {
+		timeline.load(new int[0], new int[0], new int[0], new int[0], 0, timeline.getVersion());
+	}
+
+	@Override
+	public synchronized void executeInTransaction(Runnable action) {
+		action.run();
+	}
+
+	/**
+	 * Insert a new task.
+	 *
+	 * @return the task with its new ID
+	 */
+	public synchronized Task insertTask(Task task) {
+		Task inserted = copyOf(task);
+		inserted.setId(nextTaskId++);
+		tasks.put(inserted.getId(), inserted);
+		return copyOf(inserted);
+	}
+
+	@Override
+	public synchronized Task getTask(Integer id) {
+		return id == null ? null : copyOf(tasks.get(id));
+	}
+
+	@Override
+	public synchronized Task getDefaultTask() {
+		for (Task task : tasks.values()) {
+			if (isSet(task.getActive()) && isSet(task.getIsDefault())) {
+				return copyOf(task);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Week getWeek(String start) {
+		return getWeekByOrdinal(DateTimeUtil.epochMinutesToWeekOrdinal(DateTimeUtil.stringToEpochMinutes(start)));
+	}
+
+	@Override
+	public synchronized Week getWeekByOrdinal(int ordinal) {
+		return copyOf(weeks.get(ordinal));
+	}
+
+	@Override
+	public List<Week> getWeeksBetween(String fromDate, String toDate) {
+		if (fromDate.isEmpty()) {
+			throw new IllegalArgumentException("Invalid from date " + fromDate);
+		}
+		if (toDate.isEmpty()) {
+			throw new IllegalArgumentException("Invalid to date " + toDate);
+		}
+		return getWeeksBetween(DateTimeUtil.epochMinutesToNextWeekOrdinal(DateTimeUtil.stringToEpochMinutes(fromDate)),
+			DateTimeUtil.epochMinutesToWeekOrdinal(DateTimeUtil.stringToEpochMinutes(toDate)));
+	}
+
+	@Override
+	public synchronized List<Week> getWeeksBetween(int fromOrdinal, int toOrdinal) {
+		List<Week> ret = new ArrayList<>();
+		if (fromOrdinal <= toOrdinal) {
+			for (Week week : weeks.subMap(fromOrdinal, true, toOrdinal, true).values()) {
+				ret.add(copyOf(week));
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public synchronized Week insertWeek(Week week) {
+		if (week.getSum() == null || week.getSum() < 0) {
+			throw new IllegalArgumentException("sum of a week may not be negative");
+		}
+		Week inserted = copyOf(week);
+		inserted.setId(nextWeekId++);
+		weeks.put(inserted.getOrdinal(), inserted);
+		return copyOf(inserted);
+	}
+
+	@Override
+	public synchronized Week updateWeek(Week week) {
+		// the start date might have changed
+		for (Iterator<Week> iterator = weeks.values().iterator(); iterator.hasNext();) {
+			if (iterator.next().getId().equals(week.getId())) {
+				iterator.remove();
+			}
+		}
+		weeks.put(week.getOrdinal(), copyOf(week));
+		return copyOf(week);
+	}
+
+	@Override
+	public synchronized void insertEvents(List<Event> newEvents) {
+		for (Event event : newEvents) {
+			event.setId(nextEventId++);
+			events.put(event.getId(), copyOf(event));
+			timeline.add(event.getId(), event.getTimeMinutes(), event.getType(), zeroIfNull(event.getTask()));
+		}
+	}
+
+	@Override
+	public synchronized void updateEvents(List<Event> changedEvents) {
+		for (Event event : changedEvents) {
+			events.put(event.getId(), copyOf(event));
+			timeline.put(event.getId(), event.getTimeMinutes(), event.getType(), zeroIfNull(event.getTask()));
+		}
+	}
+
+	@Override
+	public synchronized int deleteEvents(List<Event> deletedEvents) {
+		int before = events.size();
+		for (Event event : deletedEvents) {
+			events.remove(event.getId());
+			timeline.remove(event.getId());
+		}
+		return before - events.size();
+	}
+
+	/**
+	 * Insert a new event.
+	 *
+	 * @return the event with its new ID
+	 */
+	public Event insertEvent(Event event) {
+		insertEvents(Collections.singletonList(event));
+		return event;
+	}
+
+	/**
+	 * Return the number of stored events.
+	 */
+	public synchronized int getEventCount() {
+		return events.size();
+	}
+
+	@Override
+	public Event getEvent(Integer id) {
+		return id == null ? null : getById(id);
+	}
+
+	@Override
+	public List<Event> getEventsOnDay(DateTime day) {
+		int startOfDay = DateTimeUtil.dateTimeToEpochMinutes(day.getStartOfDay());
+		return getBetween(startOfDay, startOfDay + DateTimeUtil.MINUTES_PER_DAY);
+	}
+
+	@Override
+	public List<Event> getEventsInWeek(Week week) {
+		if (week == null || week instanceof WeekPlaceholder) {
+			return Collections.emptyList();
+		}
+		int start = DateTimeUtil.dateTimeToEpochMinutes(DateTimeUtil.stringToDateTime(week.getStart()));
+		List<Event> ret = new ArrayList<>();
+		// the DAO selects by the week reference, which matches the time for all events written by the TimerManager
+		for (Event event : getBetween(start, start + 7 * DateTimeUtil.MINUTES_PER_DAY)) {
+			if (event.getWeek().equals(week.getId())) {
+				ret.add(event);
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public List<List<Event>> getEventsPerDay(DateTime weekStart) {
+		int startOfWeek = DateTimeUtil.dateTimeToEpochMinutes(weekStart.getStartOfDay());
+		List<List<Event>> ret = new ArrayList<>(7);
+		for (int i = 0; i < 7; i++) {
+			int startOfDay = startOfWeek + i * DateTimeUtil.MINUTES_PER_DAY;
+			ret.add(getBetween(startOfDay, startOfDay + DateTimeUtil.MINUTES_PER_DAY));
+		}
+		return ret;
+	}
+
+	@Override
+	public void forEachEvent(DateTime beginOfTimeFrame, DateTime endOfTimeFrame, EventVisitor visitor) {
+		for (Event event : getBetween(DateTimeUtil.dateTimeToEpochMinutes(beginOfTimeFrame),
+			DateTimeUtil.dateTimeToEpochMinutesRoundingUp(endOfTimeFrame))) {
+			visitor.visit(event);
+		}
+	}
+
+	@Override
+	public synchronized Event getLastEventBefore(DateTime dateTime) {
+		return timeline.getEvent(timeline.getLastBefore(DateTimeUtil.dateTimeToEpochMinutes(dateTime)));
+	}
+
+	@Override
+	public synchronized Event getLastEventBeforeIncluding(DateTime dateTime) {
+		return timeline.getEvent(timeline.getLastBeforeIncluding(DateTimeUtil.dateTimeToEpochMinutes(dateTime)));
+	}
+
+	@Override
+	public synchronized Event getFirstEventAfter(DateTime dateTime) {
+		return timeline.getEvent(timeline.getFirstAfter(DateTimeUtil.dateTimeToEpochMinutes(dateTime)));
+	}
+
+	@Override
+	public DateTime getFirstEventTime() {
+		Event first = getById(timeline.getFirstAfter(Integer.MIN_VALUE));
+		return first == null ? null : DateTimeUtil.epochMinutesToDateTime(first.getTimeMinutes());
+	}
+
+	@Override
+	public DateTime getLastEventTime() {
+		Event last = getById(timeline.getLatest());
+		return last == null ? null : DateTimeUtil.epochMinutesToDateTime(last.getTimeMinutes());
+	}
+
+	@Override
+	public synchronized List<DaySummary> getDaySummariesPerDay(DateTime weekStart) {
+		int startOfWeek = DateTimeUtil.dateTimeToEpochMinutes(weekStart.getStartOfDay());
+		DaySummaryCalculator calculator = new DaySummaryCalculator(getById(timeline.getLastBefore(startOfWeek)));
+		for (Event event : getBetween(startOfWeek, startOfWeek + 7 * DateTimeUtil.MINUTES_PER_DAY)) {
+			calculator.add(event);
+		}
+		List<DaySummary> ret = new ArrayList<>(Collections.nCopies(7, (DaySummary) null));
+		for (DaySummary summary : calculator.finish()) {
+			ret.set((summary.getDay() - startOfWeek) / DateTimeUtil.MINUTES_PER_DAY, summary);
+		}
+		return ret;
+	}
+
+	private synchronized Event getById(int id) {
+		return copyOf(events.get(id));
+	}
+
+	/** the events between the given minutes (including the first, not including the second one) */
+	private synchronized List<Event> getBetween(int fromMinute, int toMinute) {
+		int[] ids = timeline.getBetween(fromMinute, toMinute);
+		List<Event> ret = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			ret.add(copyOf(events.get(id)));
+		}
+		return ret;
+	}
+
+	private static boolean isSet(Integer flag) {
+		return flag != null && flag != 0;
+	}
+
+	/** the callers may change the returned objects, so the stored ones are never handed out */
+	private static Task copyOf(Task task) {
+		return task == null
+			? null
+			: new Task(task.getId(), task.getName(), task.getActive(), task.getOrdering(), task.getIsDefault());
+	}
+
+	private static Week copyOf(Week week) {
+		return week == null ? null : new Week(week.getId(), week.getStart(), week.getSum(), week.getFlexi());
+	}
+
+	/** like the events read from the database, the copies have 0 instead of {@code null} as week and task */
+	private static Event copyOf(Event event) {
+		if (event == null) {
+			return null;
+		}
+		Event ret = new Event(event.getId(), zeroIfNull(event.getWeek()), zeroIfNull(event.getTask()),
+			event.getType(), null, event.getText());
+		ret.setTime(event.getTime(), event.getTimeMinutes());
+		return ret;
+	}
+
+	private static int zeroIfNull(Integer value) {
+		return value == null ? 0 : value;
+	}
+
+}
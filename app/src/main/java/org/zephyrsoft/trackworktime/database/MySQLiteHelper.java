@@ -17,10 +17,18 @@
 package org.zephyrsoft.trackworktime.database;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import org.pmw.tinylog.Logger;
+import org.zephyrsoft.trackworktime.model.Change;
+import org.zephyrsoft.trackworktime.model.DaySummary;
+import org.zephyrsoft.trackworktime.model.Event;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Helper class to manage the SQLite database.
@@ -30,6 +38,16 @@ import org.pmw.tinylog.Logger;
  * 1: used only in development.
  * 2: initial layout, since 0.5.0.
  * 3: added column "default" in task table, since 0.5.12.
+ * 4: added column "flexi" in week table.
+ * 5: added indexes on event (time, week, task) and a unique index on week (start).
+ * 6: added column "time_min" in event table, the text column "time" is only kept for backup compatibility.
+ * 7: added table "day_summary", which is derived from the events.
+ * 8: added table "task_day_sum", which is derived from the events.
+ * 9: added tables "change_log" (filled by triggers on task, week and event) and "change_log_ack".
+ * 10: added table "maintenance_run".
+ * 11: added table "archived_year", the events of archived years are moved to separate database files.
+ * 12: added column "ordinal" in week table.
+ * 13: added full-text search table "event_search" over the event texts and task names.
  *
  * @author Mathis Dirksen-Thedens
  */
@@ -59,6 +77,8 @@ public class MySQLiteHelper extends SQLiteOpenHelper {
 	public static final String WEEK_SUM = "sum";
 	/** name of the flexi attribute of the week table - in whole minutes */
 	public static final String WEEK_FLEXI = "flexi";
+	/** name of the ordinal attribute of the week table - number of weeks since the week of 1970-01-01 */
+	public static final String WEEK_ORDINAL = "ordinal";
 
 	/** name of the event table */
 	public static final String EVENT = "event";
@@ -68,47 +88,258 @@ public class MySQLiteHelper extends SQLiteOpenHelper {
 	public static final String EVENT_WEEK = "week";
 	/** name of the type attribute of the event table */
 	public static final String EVENT_TYPE = "type";
-	/** name of the time attribute of the event table */
+	/** name of the time attribute of the event table - formatted text, see DateTimeUtil.dateTimeToString() */
 	public static final String EVENT_TIME = "time";
+	/** name of the numeric time attribute of the event table - minutes since 1970-01-01 00:00 (wall-clock time) */
+	public static final String EVENT_TIME_MINUTES = "time_min";
 	/** name of the task attribute of the event table - reference to TASK_ID */
 	public static final String EVENT_TASK = "task";
 	/** name of the customtext attribute of the event table */
 	public static final String EVENT_TEXT = "customtext";
 
+	/** name of the day summary table - one row per day with events, kept current by the DAO */
+	public static final String DAY_SUMMARY = "day_summary";
+	/** name of the day attribute of the day summary table - minutes since 1970-01-01 00:00 at the start of the day */
+	public static final String DAY_SUMMARY_DAY = "day";
+	/** name of the first-in attribute of the day summary table - in minutes like the day */
+	public static final String DAY_SUMMARY_FIRST_IN = "first_in";
+	/** name of the last-out attribute of the day summary table - in minutes like the day */
+	public static final String DAY_SUMMARY_LAST_OUT = "last_out";
+	/** name of the worked attribute of the day summary table - in whole minutes */
+	public static final String DAY_SUMMARY_WORKED = "worked";
+	/** name of the flex target attribute of the day summary table - in whole minutes, set by a flexi time event */
+	public static final String DAY_SUMMARY_FLEX_TARGET = "flex_target";
+
+	/** name of the task day sum table - one row per day and task which was worked on, kept current by the DAO */
+	public static final String TASK_DAY_SUM = "task_day_sum";
+	/** name of the day attribute of the task day sum table - minutes since 1970-01-01 00:00 at the start of the day */
+	public static final String TASK_DAY_SUM_DAY = "day";
+	/** name of the task attribute of the task day sum table - reference to TASK_ID, 0 if no task was set */
+	public static final String TASK_DAY_SUM_TASK = "task";
+	/** name of the minutes attribute of the task day sum table - in whole minutes */
+	public static final String TASK_DAY_SUM_MINUTES = "minutes";
+
+	/** name of the change log table - one row per inserted, updated or deleted task, week or event */
+	public static final String CHANGE_LOG = "change_log";
+	/** name of the sequence attribute of the change log table - increases monotonically */
+	public static final String CHANGE_LOG_SEQUENCE = "seq";
+	/** name of the entity attribute of the change log table - the name of the changed table */
+	public static final String CHANGE_LOG_ENTITY = "entity";
+	/** name of the entity ID attribute of the change log table - the ID of the changed row */
+	public static final String CHANGE_LOG_ENTITY_ID = "entity_id";
+	/** name of the operation attribute of the change log table - "insert", "update" or "delete" */
+	public static final String CHANGE_LOG_OPERATION = "operation";
+	/** name of the timestamp attribute of the change log table - milliseconds since 1970-01-01 00:00 UTC */
+	public static final String CHANGE_LOG_TIMESTAMP = "timestamp";
+
+	/** name of the change log acknowledgement table - one row per consumer of the change log */
+	public static final String CHANGE_LOG_ACK = "change_log_ack";
+	/** name of the consumer attribute of the change log acknowledgement table */
+	public static final String CHANGE_LOG_ACK_CONSUMER = "consumer";
+	/** name of the sequence attribute of the change log acknowledgement table - the last processed change */
+	public static final String CHANGE_LOG_ACK_SEQUENCE = "seq";
+
+	/** name of the maintenance run table - one row per run of the database maintenance */
+	public static final String MAINTENANCE_RUN = "maintenance_run";
+	/** name of the ID attribute of the maintenance run table */
+	public static final String MAINTENANCE_RUN_ID = "_id";
+	/** name of the start attribute of the maintenance run table - milliseconds since 1970-01-01 00:00 UTC */
+	public static final String MAINTENANCE_RUN_START = "start";
+	/** name of the duration attribute of the maintenance run table - in milliseconds */
+	public static final String MAINTENANCE_RUN_DURATION = "duration";
+	/** name of the size before attribute of the maintenance run table - in bytes */
+	public static final String MAINTENANCE_RUN_SIZE_BEFORE = "size_before";
+	/** name of the size after attribute of the maintenance run table - in bytes */
+	public static final String MAINTENANCE_RUN_SIZE_AFTER = "size_after";
+	/** name of the pages before attribute of the maintenance run table */
+	public static final String MAINTENANCE_RUN_PAGES_BEFORE = "pages_before";
+	/** name of the pages after attribute of the maintenance run table */
+	public static final String MAINTENANCE_RUN_PAGES_AFTER = "pages_after";
+	/** name of the free pages before attribute of the maintenance run table */
+	public static final String MAINTENANCE_RUN_FREE_PAGES_BEFORE = "free_pages_before";
+	/** name of the free pages after attribute of the maintenance run table */
+	public static final String MAINTENANCE_RUN_FREE_PAGES_AFTER = "free_pages_after";
+	/** name of the integrity attribute of the maintenance run table - "ok" or the problems found */
+	public static final String MAINTENANCE_RUN_INTEGRITY = "integrity";
+
+	/** name of the archived year table - one row per year whose events were moved to an archive file */
+	public static final String ARCHIVED_YEAR = "archived_year";
+	/** name of the year attribute of the archived year table */
+	public static final String ARCHIVED_YEAR_YEAR = "year";
+	/** name of the event count attribute of the archived year table - the events in the archive file */
+	public static final String ARCHIVED_YEAR_EVENT_COUNT = "event_count";
+	/** name of the timestamp attribute of the archived year table - milliseconds since 1970-01-01 00:00 UTC */
+	public static final String ARCHIVED_YEAR_TIMESTAMP = "timestamp";
+
+	/**
+	 * name of the full-text search table (FTS4) - one row per event, including the archived ones, kept current by the
+	 * DAO
+	 */
+	public static final String EVENT_SEARCH = "event_search";
+	/** name of the ID attribute of the full-text search table - the ID of the event */
+	public static final String EVENT_SEARCH_ID = "docid";
+	/** name of the text attribute of the full-text search table - the customtext of the event */
+	public static final String EVENT_SEARCH_TEXT = "customtext";
+	/** name of the task attribute of the full-text search table - the name of the event's task */
+	public static final String EVENT_SEARCH_TASK = "task";
+
 	static final String DATABASE_NAME = "trackworktime.db";
-	private static final int DATABASE_VERSION = 4;
+	private static final int DATABASE_VERSION = 13;
 
-	private static final String DATABASE_CREATE_TASK = "create table " + TASK + " (" + TASK_ID
+	static final String DATABASE_CREATE_TASK = "create table " + TASK + " (" + TASK_ID
 		+ " integer primary key autoincrement, " + TASK_NAME + " text not null, " + TASK_ACTIVE + " integer not null, "
 		+ TASK_ORDERING + " integer null);";
-	private static final String DATABASE_CREATE_WEEK = "create table " + WEEK + " (" + WEEK_ID
+	static final String DATABASE_CREATE_WEEK = "create table " + WEEK + " (" + WEEK_ID
 		+ " integer primary key autoincrement, " + WEEK_START + " text not null, " + WEEK_SUM + " integer null, " + WEEK_FLEXI +" integer null);";
-	private static final String DATABASE_CREATE_EVENT = "create table " + EVENT + " (" + EVENT_ID
+	static final String DATABASE_CREATE_EVENT = "create table " + EVENT + " (" + EVENT_ID
 		+ " integer primary key autoincrement, " + EVENT_WEEK + " integer null, " + EVENT_TYPE + " integer not null, "
 		+ EVENT_TIME + " text not null, " + EVENT_TASK + " integer null, " + EVENT_TEXT + " text null);";
 
-	private static final String DATABASE_INSERT_TASK = "insert into " + TASK + " (" + TASK_NAME + ", " + TASK_ACTIVE
+	static final String DATABASE_INSERT_TASK = "insert into " + TASK + " (" + TASK_NAME + ", " + TASK_ACTIVE
 		+ ", " + TASK_ORDERING + ") values ('Default', 1, 0)";
 
-	private static final String DATABASE_ALTER_TASK_2_TO_3 = "alter table " + TASK
+	static final String DATABASE_ALTER_TASK_2_TO_3 = "alter table " + TASK
 		+ " add column " + TASK_DEFAULT + " integer not null default 0;";
-	private static final String DATABASE_UPDATE_TASK_2_TO_3 = "update " + TASK
+	static final String DATABASE_UPDATE_TASK_2_TO_3 = "update " + TASK
 		+ " set " + TASK_DEFAULT + "=1 where " + TASK_NAME + "='Default';";
 
-	private static final String DATABASE_ALTER_WEEK_3_TO_4 = "alter table " + WEEK
+	static final String DATABASE_ALTER_WEEK_3_TO_4 = "alter table " + WEEK
 		+ " add column " + WEEK_FLEXI + " integer null;";
 
+	/** name of the index on event time (used for range queries and neighbour lookups) */
+	static final String EVENT_TIME_INDEX = "event_time_idx";
+	/** name of the index on event week (used to load the events of a week ordered by time) */
+	static final String EVENT_WEEK_INDEX = "event_week_idx";
+	/** name of the index on event task (used to check if a task is referenced) */
+	static final String EVENT_TASK_INDEX = "event_task_idx";
+	/** name of the unique index on week start */
+	static final String WEEK_START_INDEX = "week_start_idx";
+	/** name of the index on the week ordinal */
+	static final String WEEK_ORDINAL_INDEX = "week_ordinal_idx";
+	/** name of the index on the numeric event time (used for range queries and neighbour lookups) */
+	static final String EVENT_TIME_MINUTES_INDEX = "event_time_min_idx";
+	/** name of the index on event week and numeric event time (used to load the events of a week ordered by time) */
+	static final String EVENT_WEEK_TIME_MINUTES_INDEX = "event_week_time_min_idx";
+
+	static final String DATABASE_MERGE_DUPLICATE_WEEKS_4_TO_5 = "update " + EVENT + " set " + EVENT_WEEK
+		+ " = (select min(w2." + WEEK_ID + ") from " + WEEK + " w1 join " + WEEK + " w2 on w1." + WEEK_START
+		+ " = w2." + WEEK_START + " where w1." + WEEK_ID + " = " + EVENT + "." + EVENT_WEEK + ")"
+		+ " where " + EVENT_WEEK + " not in (select min(" + WEEK_ID + ") from " + WEEK + " group by " + WEEK_START + ");";
+	static final String DATABASE_DELETE_DUPLICATE_WEEKS_4_TO_5 = "delete from " + WEEK + " where " + WEEK_ID
+		+ " not in (select min(" + WEEK_ID + ") from " + WEEK + " group by " + WEEK_START + ");";
+	static final String DATABASE_CREATE_EVENT_TIME_INDEX_4_TO_5 = "create index " + EVENT_TIME_INDEX + " on "
+		+ EVENT + " (" + EVENT_TIME + ", " + EVENT_ID + ");";
+	static final String DATABASE_CREATE_EVENT_WEEK_INDEX_4_TO_5 = "create index " + EVENT_WEEK_INDEX + " on "
+		+ EVENT + " (" + EVENT_WEEK + ", " + EVENT_TIME + ");";
+	static final String DATABASE_CREATE_EVENT_TASK_INDEX_4_TO_5 = "create index " + EVENT_TASK_INDEX + " on "
+		+ EVENT + " (" + EVENT_TASK + ");";
+	static final String DATABASE_CREATE_WEEK_START_INDEX_4_TO_5 = "create unique index " + WEEK_START_INDEX + " on "
+		+ WEEK + " (" + WEEK_START + ");";
+
+	static final String DATABASE_ALTER_EVENT_5_TO_6 = "alter table " + EVENT
+		+ " add column " + EVENT_TIME_MINUTES + " integer not null default 0;";
+	static final String DATABASE_UPDATE_EVENT_5_TO_6 = "update " + EVENT + " set " + EVENT_TIME_MINUTES
+		+ " = cast(strftime('%s', substr(" + EVENT_TIME + ", 1, 16)) as integer) / 60;";
+	static final String DATABASE_DROP_EVENT_TIME_INDEX_5_TO_6 = "drop index if exists " + EVENT_TIME_INDEX + ";";
+	static final String DATABASE_DROP_EVENT_WEEK_INDEX_5_TO_6 = "drop index if exists " + EVENT_WEEK_INDEX + ";";
+	static final String DATABASE_CREATE_EVENT_TIME_MINUTES_INDEX_5_TO_6 = "create index " + EVENT_TIME_MINUTES_INDEX
+		+ " on " + EVENT + " (" + EVENT_TIME_MINUTES + ", " + EVENT_ID + ");";
+	static final String DATABASE_CREATE_EVENT_WEEK_TIME_MINUTES_INDEX_5_TO_6 = "create index "
+		+ EVENT_WEEK_TIME_MINUTES_INDEX + " on " + EVENT + " (" + EVENT_WEEK + ", " + EVENT_TIME_MINUTES + ");";
+
+	static final String DATABASE_CREATE_DAY_SUMMARY_6_TO_7 = "create table " + DAY_SUMMARY + " ("
+		+ DAY_SUMMARY_DAY + " integer primary key, " + DAY_SUMMARY_FIRST_IN + " integer null, "
+		+ DAY_SUMMARY_LAST_OUT + " integer null, " + DAY_SUMMARY_WORKED + " integer not null, "
+		+ DAY_SUMMARY_FLEX_TARGET + " integer null);";
+	static final String DATABASE_INSERT_DAY_SUMMARY = "insert or replace into " + DAY_SUMMARY + " ("
+		+ DAY_SUMMARY_DAY + "," + DAY_SUMMARY_FIRST_IN + "," + DAY_SUMMARY_LAST_OUT + "," + DAY_SUMMARY_WORKED + ","
+		+ DAY_SUMMARY_FLEX_TARGET + ") values (?,?,?,?,?)";
+	static final String DATABASE_CREATE_TASK_DAY_SUM_7_TO_8 = "create table " + TASK_DAY_SUM + " ("
+		+ TASK_DAY_SUM_DAY + " integer not null, " + TASK_DAY_SUM_TASK + " integer not null, "
+		+ TASK_DAY_SUM_MINUTES + " integer not null, primary key (" + TASK_DAY_SUM_DAY + ", " + TASK_DAY_SUM_TASK
+		+ "));";
+	static final String DATABASE_INSERT_TASK_DAY_SUM = "insert or replace into " + TASK_DAY_SUM + " ("
+		+ TASK_DAY_SUM_DAY + "," + TASK_DAY_SUM_TASK + "," + TASK_DAY_SUM_MINUTES + ") values (?,?,?)";
+	static final String DATABASE_CREATE_CHANGE_LOG_8_TO_9 = "create table " + CHANGE_LOG + " ("
+		+ CHANGE_LOG_SEQUENCE + " integer primary key autoincrement, " + CHANGE_LOG_ENTITY + " text not null, "
+		+ CHANGE_LOG_ENTITY_ID + " integer null, " + CHANGE_LOG_OPERATION + " text not null, "
+		+ CHANGE_LOG_TIMESTAMP + " integer not null);";
+	static final String DATABASE_CREATE_CHANGE_LOG_ACK_8_TO_9 = "create table " + CHANGE_LOG_ACK + " ("
+		+ CHANGE_LOG_ACK_CONSUMER + " text primary key, " + CHANGE_LOG_ACK_SEQUENCE + " integer not null);";
+	static final String DATABASE_CREATE_MAINTENANCE_RUN_9_TO_10 = "create table " + MAINTENANCE_RUN + " ("
+		+ MAINTENANCE_RUN_ID + " integer primary key autoincrement, " + MAINTENANCE_RUN_START + " integer not null, "
+		+ MAINTENANCE_RUN_DURATION + " integer not null, " + MAINTENANCE_RUN_SIZE_BEFORE + " integer not null, "
+		+ MAINTENANCE_RUN_SIZE_AFTER + " integer not null, " + MAINTENANCE_RUN_PAGES_BEFORE + " integer not null, "
+		+ MAINTENANCE_RUN_PAGES_AFTER + " integer not null, " + MAINTENANCE_RUN_FREE_PAGES_BEFORE
+		+ " integer not null, " + MAINTENANCE_RUN_FREE_PAGES_AFTER + " integer not null, "
+		+ MAINTENANCE_RUN_INTEGRITY + " text not null);";
+	static final String DATABASE_CREATE_ARCHIVED_YEAR_10_TO_11 = "create table " + ARCHIVED_YEAR + " ("
+		+ ARCHIVED_YEAR_YEAR + " integer primary key, " + ARCHIVED_YEAR_EVENT_COUNT + " integer not null, "
+		+ ARCHIVED_YEAR_TIMESTAMP + " integer not null);";
+	static final String DATABASE_ALTER_WEEK_11_TO_12 = "alter table " + WEEK + " add column " + WEEK_ORDINAL
+		+ " integer not null default 0;";
+	/** the start is always a monday, and 1969-12-29 is the monday of the week with ordinal 0 */
+	static final String DATABASE_UPDATE_WEEK_11_TO_12 = "update " + WEEK + " set " + WEEK_ORDINAL
+		+ " = cast(julianday(substr(" + WEEK_START + ", 1, 10)) - julianday('1969-12-29') as integer) / 7;";
+	static final String DATABASE_CREATE_WEEK_ORDINAL_INDEX_11_TO_12 = "create index " + WEEK_ORDINAL_INDEX + " on "
+		+ WEEK + " (" + WEEK_ORDINAL + ");";
+	/** FTS4 and its default tokenizer are available on all supported Android versions, in contrast to FTS5 */
+	static final String DATABASE_CREATE_EVENT_SEARCH_12_TO_13 = "create virtual table " + EVENT_SEARCH
+		+ " using fts4(" + EVENT_SEARCH_TEXT + ", " + EVENT_SEARCH_TASK + ");";
+	static final String DATABASE_FILL_EVENT_SEARCH_12_TO_13 = "insert into " + EVENT_SEARCH + " (" + EVENT_SEARCH_ID
+		+ ", " + EVENT_SEARCH_TEXT + ", " + EVENT_SEARCH_TASK + ") select e." + EVENT_ID + ", e." + EVENT_TEXT + ", t."
+		+ TASK_NAME + " from " + EVENT + " e left join " + TASK + " t on t." + TASK_ID + " = e." + EVENT_TASK + ";";
+	static final String DATABASE_INDEX_EVENT = "insert or replace into " + EVENT_SEARCH + " (" + EVENT_SEARCH_ID
+		+ ", " + EVENT_SEARCH_TEXT + ", " + EVENT_SEARCH_TASK + ") values (?, ?, (select " + TASK_NAME + " from " + TASK
+		+ " where " + TASK_ID + " = ?))";
+
+	/**
+	 * Creates a trigger which logs the changes of the given table to the change log, in the same statement (and so in
+	 * the same transaction) as the change itself.
+	 *
+	 * @param operation
+	 *            {@link Change#INSERT}, {@link Change#UPDATE} or {@link Change#DELETE}
+	 */
+	static String createChangeLogTrigger(String table, String operation) {
+		String row = operation.equals(Change.DELETE) ? "old" : "new";
+		return "create trigger " + table + "_" + operation + "_log after " + operation + " on " + table
+			+ " begin insert into " + CHANGE_LOG + " (" + CHANGE_LOG_ENTITY + ", " + CHANGE_LOG_ENTITY_ID + ", "
+			+ CHANGE_LOG_OPERATION + ", " + CHANGE_LOG_TIMESTAMP + ") values ('" + table + "', " + row + "._id, '"
+			+ operation + "', cast((julianday('now') - 2440587.5) * 86400000 as integer)); end;";
+	}
+
+	/** for the archive files, see {@link EventArchive} */
+	private final Context context;
+
 	/**
 	 * Constructor
 	 */
 	public MySQLiteHelper(Context context) {
 		super(context, DATABASE_NAME, null, DATABASE_VERSION);
+		this.context = context;
+	}
+
+	@Override
+	public void onConfigure(SQLiteDatabase database) {
+		// readers get their own connection and don't have to wait for a running write transaction
+		database.enableWriteAheadLogging();
+		// only has an effect on new databases, existing ones are converted by the first maintenance run
+		database.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
 	}
 
 	@Override
 	public void onCreate(SQLiteDatabase database) {
 		dbSetup(database);
 		dbUpgradeFrom2to3(database);
+		dbUpgradeFrom4to5(database);
+		dbUpgradeFrom5to6(database);
+		dbUpgradeFrom6to7(database);
+		dbUpgradeFrom7to8(database);
+		dbUpgradeFrom8to9(database);
+		dbUpgradeFrom9to10(database);
+		dbUpgradeFrom10to11(database);
+		dbUpgradeFrom11to12(database);
+		dbUpgradeFrom12to13(database);
 	}
 
 	@Override
@@ -130,6 +361,42 @@ public class MySQLiteHelper extends SQLiteOpenHelper {
 			dbUpgradeFrom3to4(database);
 			currentVersion++;
 		}
+		if (currentVersion == 4) {
+			dbUpgradeFrom4to5(database);
+			currentVersion++;
+		}
+		if (currentVersion == 5) {
+			dbUpgradeFrom5to6(database);
+			currentVersion++;
+		}
+		if (currentVersion == 6) {
+			dbUpgradeFrom6to7(database);
+			currentVersion++;
+		}
+		if (currentVersion == 7) {
+			dbUpgradeFrom7to8(database);
+			currentVersion++;
+		}
+		if (currentVersion == 8) {
+			dbUpgradeFrom8to9(database);
+			currentVersion++;
+		}
+		if (currentVersion == 9) {
+			dbUpgradeFrom9to10(database);
+			currentVersion++;
+		}
+		if (currentVersion == 10) {
+			dbUpgradeFrom10to11(database);
+			currentVersion++;
+		}
+		if (currentVersion == 11) {
+			dbUpgradeFrom11to12(database);
+			currentVersion++;
+		}
+		if (currentVersion == 12) {
+			dbUpgradeFrom12to13(database);
+			currentVersion++;
+		}
 		if (currentVersion != newVersion) {
 			throw new IllegalStateException("could not upgrade database");
 		}
@@ -153,4 +420,169 @@ public class MySQLiteHelper extends SQLiteOpenHelper {
 		database.execSQL(DATABASE_ALTER_WEEK_3_TO_4);
 	}
 
+	private void dbUpgradeFrom4to5(SQLiteDatabase database) {
+		// the unique index can't be created if a week was persisted twice, so merge those first
+		database.execSQL(DATABASE_MERGE_DUPLICATE_WEEKS_4_TO_5);
+		database.execSQL(DATABASE_DELETE_DUPLICATE_WEEKS_4_TO_5);
+		database.execSQL(DATABASE_CREATE_EVENT_TIME_INDEX_4_TO_5);
+		database.execSQL(DATABASE_CREATE_EVENT_WEEK_INDEX_4_TO_5);
+		database.execSQL(DATABASE_CREATE_EVENT_TASK_INDEX_4_TO_5);
+		database.execSQL(DATABASE_CREATE_WEEK_START_INDEX_4_TO_5);
+	}
+
+	private void dbUpgradeFrom5to6(SQLiteDatabase database) {
+		database.execSQL(DATABASE_ALTER_EVENT_5_TO_6);
+		// the text is always formatted as "YYYY-MM-DD hh:mm:ss.ffff" and taken as UTC, so no time zone is applied
+		database.execSQL(DATABASE_UPDATE_EVENT_5_TO_6);
+		// all queries by time use the numeric column now
+		database.execSQL(DATABASE_DROP_EVENT_TIME_INDEX_5_TO_6);
+		database.execSQL(DATABASE_DROP_EVENT_WEEK_INDEX_5_TO_6);
+		database.execSQL(DATABASE_CREATE_EVENT_TIME_MINUTES_INDEX_5_TO_6);
+		database.execSQL(DATABASE_CREATE_EVENT_WEEK_TIME_MINUTES_INDEX_5_TO_6);
+	}
+
+	private void dbUpgradeFrom6to7(SQLiteDatabase database) {
+		database.execSQL(DATABASE_CREATE_DAY_SUMMARY_6_TO_7);
+		insertDaySummaries(database, calculateFromEvents(database).finish());
+	}
+
+	private void dbUpgradeFrom7to8(SQLiteDatabase database) {
+		database.execSQL(DATABASE_CREATE_TASK_DAY_SUM_7_TO_8);
+		DaySummaryCalculator calculator = calculateFromEvents(database);
+		calculator.finish();
+		insertTaskSums(database, calculator.getTaskSums());
+	}
+
+	private void dbUpgradeFrom8to9(SQLiteDatabase database) {
+		database.execSQL(DATABASE_CREATE_CHANGE_LOG_8_TO_9);
+		database.execSQL(DATABASE_CREATE_CHANGE_LOG_ACK_8_TO_9);
+		for (String table : new String[] { TASK, WEEK, EVENT }) {
+			for (String operation : new String[] { Change.INSERT, Change.UPDATE, Change.DELETE }) {
+				database.execSQL(createChangeLogTrigger(table, operation));
+			}
+		}
+	}
+
+	private void dbUpgradeFrom9to10(SQLiteDatabase database) {
+		database.execSQL(DATABASE_CREATE_MAINTENANCE_RUN_9_TO_10);
+	}
+
+	private void dbUpgradeFrom10to11(SQLiteDatabase database) {
+		database.execSQL(DATABASE_CREATE_ARCHIVED_YEAR_10_TO_11);
+	}
+
+	private void dbUpgradeFrom11to12(SQLiteDatabase database) {
+		database.execSQL(DATABASE_ALTER_WEEK_11_TO_12);
+		database.execSQL(DATABASE_UPDATE_WEEK_11_TO_12);
+		database.execSQL(DATABASE_CREATE_WEEK_ORDINAL_INDEX_11_TO_12);
+	}
+
+	private void dbUpgradeFrom12to13(SQLiteDatabase database) {
+		database.execSQL(DATABASE_CREATE_EVENT_SEARCH_12_TO_13);
+		database.execSQL(DATABASE_FILL_EVENT_SEARCH_12_TO_13);
+		// the archived events are searchable, too
+		List<Integer> years = new ArrayList<>();
+		Cursor yearCursor = database.query(ARCHIVED_YEAR, new String[] { ARCHIVED_YEAR_YEAR }, null, null, null, null,
+			null);
+		try {
+			while (yearCursor.moveToNext()) {
+				years.add(yearCursor.getInt(0));
+			}
+		} finally {
+			yearCursor.close();
+		}
+		EventArchive eventArchive = new EventArchive(context);
+		SQLiteStatement statement = database.compileStatement(DATABASE_INDEX_EVENT);
+		try {
+			for (Integer year : years) {
+				Cursor cursor = eventArchive.get(year).query(EVENT, new String[] { EVENT_ID, EVENT_TEXT, EVENT_TASK },
+					null, null, null, null, null);
+				try {
+					while (cursor.moveToNext()) {
+						statement.clearBindings();
+						statement.bindLong(1, cursor.getInt(0));
+						if (!cursor.isNull(1)) {
+							statement.bindString(2, cursor.getString(1));
+						}
+						if (!cursor.isNull(2)) {
+							statement.bindLong(3, cursor.getInt(2));
+						}
+						statement.executeInsert();
+					}
+				} finally {
+					cursor.close();
+				}
+			}
+		} finally {
+			statement.close();
+			eventArchive.close();
+		}
+	}
+
+	/**
+	 * Feed the existing events to a calculator in one pass.
+	 */
+	private static DaySummaryCalculator calculateFromEvents(SQLiteDatabase database) {
+		DaySummaryCalculator calculator = new DaySummaryCalculator(null);
+		Cursor cursor = database.query(EVENT, new String[] { EVENT_TYPE, EVENT_TIME_MINUTES, EVENT_TASK }, null, null,
+			null, null, EVENT_TIME_MINUTES + "," + EVENT_ID);
+		try {
+			Event event = new Event();
+			while (cursor.moveToNext()) {
+				event.setType(cursor.getInt(0));
+				event.setTime(null, cursor.getInt(1));
+				event.setTask(cursor.getInt(2));
+				calculator.add(event);
+			}
+		} finally {
+			cursor.close();
+		}
+		return calculator;
+	}
+
+	/**
+	 * Insert the given day summaries, replacing existing rows for the same days.
+	 */
+	static void insertDaySummaries(SQLiteDatabase database, Iterable<DaySummary> summaries) {
+		SQLiteStatement statement = database.compileStatement(DATABASE_INSERT_DAY_SUMMARY);
+		try {
+			for (DaySummary summary : summaries) {
+				statement.clearBindings();
+				statement.bindLong(1, summary.getDay());
+				bindNullable(statement, 2, summary.getFirstIn());
+				bindNullable(statement, 3, summary.getLastOut());
+				statement.bindLong(4, summary.getWorked());
+				bindNullable(statement, 5, summary.getFlexTarget());
+				statement.executeInsert();
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Insert the given task sums, replacing existing rows for the same days and tasks.
+	 */
+	static void insertTaskSums(SQLiteDatabase database, Iterable<DaySummaryCalculator.TaskSum> taskSums) {
+		SQLiteStatement statement = database.compileStatement(DATABASE_INSERT_TASK_DAY_SUM);
+		try {
+			for (DaySummaryCalculator.TaskSum taskSum : taskSums) {
+				statement.bindLong(1, taskSum.day);
+				statement.bindLong(2, taskSum.task);
+				statement.bindLong(3, taskSum.minutes);
+				statement.executeInsert();
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
+	private static void bindNullable(SQLiteStatement statement, int index, Integer value) {
+		if (value == null) {
+			statement.bindNull(index);
+		} else {
+			statement.bindLong(index, value);
+		}
+	}
+
 }
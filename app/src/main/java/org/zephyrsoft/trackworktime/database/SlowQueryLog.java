@@ -0,0 +1,231 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import org.pmw.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the calls of the {@link DAO} which took longer than a threshold. Each of them is logged with its SQL, bind
+ * arguments, row count, duration and query plan. The statements are also aggregated by their SQL text, so the worst
+ * offenders can be written to a summary (see {@link #writeSummary(Writer)}).
+ *
+ * The query plan is only captured for slow calls, so the log costs nothing but a clock reading as long as everything is
+ * fast. It is disabled if the threshold is negative.
+ *
+ * This class is thread safe.
+ */
+public class SlowQueryLog {
+
+	/** the threshold (in milliseconds) used in debug builds */
+	public static final long DEFAULT_THRESHOLD_MILLIS = 50;
+	/** the threshold which disables the log */
+	public static final long DISABLED = -1;
+	/** the number of different statements which are kept for the summary */
+	static final int MAX_STATEMENTS = 100;
+
+	/**
+	 * Provides the query plan of a statement. Only called for slow statements.
+	 */
+	interface QueryPlan {
+		String explain();
+	}
+
+	private volatile long thresholdNanos;
+	/** by SQL text */
+	private final Map<String, SlowStatement> statements = new HashMap<>();
+
+	public SlowQueryLog(long thresholdMillis) {
+		setThresholdMillis(thresholdMillis);
+	}
+
+	/**
+	 * Set the duration above which a call is logged. A negative value disables the log.
+	 */
+	public void setThresholdMillis(long thresholdMillis) {
+		thresholdNanos = thresholdMillis < 0 ? DISABLED : thresholdMillis * 1_000_000L;
+	}
+
+	public long getThresholdMillis() {
+		return thresholdNanos < 0 ? DISABLED : thresholdNanos / 1_000_000L;
+	}
+
+	public boolean isEnabled() {
+		return thresholdNanos >= 0;
+	}
+
+	/**
+	 * Register a finished call. It is logged if it took longer than the threshold.
+	 *
+	 * @param sql
+	 *            the SQL text of the statement
+	 * @param args
+	 *            the bind arguments, may be {@code null}
+	 * @param rows
+	 *            the number of rows which were read or written
+	 * @param durationNanos
+	 *            the duration of the call
+	 * @param plan
+	 *            provides the query plan, may be {@code null} if there is none (e.g. for inserts)
+	 */
+	void record(String sql, String[] args, long rows, long durationNanos, QueryPlan plan) {
+		long threshold = thresholdNanos;
+		if (threshold < 0 || durationNanos <= threshold) {
+			return;
+		}
+		String explained = plan == null ? "" : plan.explain();
+		Logger.warn("slow SQL ({} ms, {} rows): {} with arguments {}\nquery plan:\n{}", toMillis(durationNanos), rows,
+			sql, Arrays.toString(args), explained);
+		synchronized (this) {
+			SlowStatement statement = statements.get(sql);
+			if (statement == null) {
+				if (statements.size() >= MAX_STATEMENTS) {
+					statements.remove(getOffenders().get(statements.size() - 1).getSql());
+				}
+				statement = new SlowStatement(sql);
+				statements.put(sql, statement);
+			}
+			statement.add(args, rows, durationNanos, explained);
+		}
+	}
+
+	/**
+	 * Get the slow statements, the one with the highest total duration first.
+	 */
+	public synchronized List<SlowStatement> getOffenders() {
+		List<SlowStatement> ret = new ArrayList<>();
+		for (SlowStatement statement : statements.values()) {
+			ret.add(statement.copy());
+		}
+		Collections.sort(ret, (one, other) -> Long.compare(other.getTotalNanos(), one.getTotalNanos()));
+		return ret;
+	}
+
+	/**
+	 * Write the given number of worst offenders in a human-readable form.
+	 */
+	public void writeSummary(Writer writer, int count) throws IOException {
+		List<SlowStatement> offenders = getOffenders();
+		writer.write("slow SQL statements (threshold " + getThresholdMillis() + " ms): " + offenders.size() + "\n");
+		for (SlowStatement statement : offenders.subList(0, Math.min(count, offenders.size()))) {
+			writer.write("\n" + statement.getSql() + "\n");
+			writer.write(String.format("%d slow calls, %d ms in total, %d ms at most (with arguments %s, %d rows)%n",
+				statement.getCount(), toMillis(statement.getTotalNanos()), toMillis(statement.getMaxNanos()),
+				Arrays.toString(statement.getMaxArgs()), statement.getMaxRows()));
+			if (!statement.getPlan().isEmpty()) {
+				writer.write(statement.getPlan() + "\n");
+			}
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Write all slow statements in a human-readable form.
+	 */
+	public void writeSummary(Writer writer) throws IOException {
+		writeSummary(writer, MAX_STATEMENTS);
+	}
+
+	/**
+	 * Forget the slow statements collected so far.
+	 */
+	public synchronized void reset() {
+		statements.clear();
+	}
+
+	private static long toMillis(long nanos) {
+		return nanos / 1_000_000L;
+	}
+
+	/**
+	 * The aggregated slow calls of one SQL statement. The arguments, rows and plan are the ones of the slowest call.
+	 */
+	public static class SlowStatement {
+
+		private final String sql;
+		private int count;
+		private long totalNanos;
+		private long maxNanos;
+		private String[] maxArgs;
+		private long maxRows;
+		private String plan;
+
+		SlowStatement(String sql) {
+			this.sql = sql;
+		}
+
+		void add(String[] args, long rows, long durationNanos, String explained) {
+			count++;
+			totalNanos += durationNanos;
+			if (durationNanos >= maxNanos) {
+				maxNanos = durationNanos;
+				maxArgs = args;
+				maxRows = rows;
+				plan = explained;
+			}
+		}
+
+		SlowStatement copy() {
+			SlowStatement ret = new SlowStatement(sql);
+			ret.count = count;
+			ret.totalNanos = totalNanos;
+			ret.maxNanos = maxNanos;
+			ret.maxArgs = maxArgs;
+			ret.maxRows = maxRows;
+			ret.plan = plan;
+			return ret;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public String[] getMaxArgs() {
+			return maxArgs;
+		}
+
+		public long getMaxRows() {
+			return maxRows;
+		}
+
+		public String getPlan() {
+			return plan;
+		}
+
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+/**
+ * Reads data from the {@link DAO} in one consistent state, see {@link DAO#readSnapshot(SnapshotReader)}.
+ *
+ * @param <T>
+ *            the type of the result
+ */
+public interface SnapshotReader<T> {
+
+	/**
+	 * Called once, in the thread which called {@link DAO#readSnapshot(SnapshotReader)}. All reads of the DAO in this
+	 * method see the data as it was when the snapshot began. The DAO must not be written to in this method.
+	 *
+	 * @return the result which {@link DAO#readSnapshot(SnapshotReader)} returns
+	 */
+	T read();
+
+}
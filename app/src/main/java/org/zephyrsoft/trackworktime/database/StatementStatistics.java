@@ -0,0 +1,84 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Counts the SQL statements executed by the {@link DAO} and how many of them missed the statement cache. Android keeps
+ * prepared statements per connection, keyed by the SQL text, so a statement only has to be prepared when its SQL
+ * text was not seen before. The cache itself can't be observed, so the misses are counted on a set of the recently
+ * executed SQL texts - this is an estimate of the prepares, not the number which SQLite actually did.
+ *
+ * This class is thread safe.
+ */
+public class StatementStatistics {
+
+	/** same as SQLiteDatabase.MAX_SQL_CACHE_SIZE */
+	static final int MAX_SQL_CACHE_SIZE = 100;
+
+	private final Set<String> recentSql = new HashSet<>();
+	private long executions = 0;
+	private long cacheMisses = 0;
+
+	/**
+	 * Register the execution of a statement.
+	 */
+	synchronized void executed(String sql) {
+		executions++;
+		if (recentSql.add(sql)) {
+			cacheMisses++;
+			if (recentSql.size() > MAX_SQL_CACHE_SIZE) {
+				// the cache would have evicted statements by now, too
+				recentSql.clear();
+			}
+		}
+	}
+
+	/**
+	 * Forget the recently executed SQL texts, e.g. because the database was closed (which empties the cache).
+	 */
+	synchronized void reset() {
+		recentSql.clear();
+	}
+
+	public synchronized long getExecutions() {
+		return executions;
+	}
+
+	/**
+	 * Get the estimated number of executions which needed a statement to be prepared.
+	 */
+	public synchronized long getCacheMisses() {
+		return cacheMisses;
+	}
+
+	/**
+	 * Get the share of executions which missed the statement cache (between 0 and 1).
+	 */
+	public synchronized double getCacheMissRate() {
+		return executions == 0 ? 0 : (double) cacheMisses / executions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d executions, %d estimated statement cache misses (rate %.3f)", executions,
+			cacheMisses, getCacheMissRate());
+	}
+
+}
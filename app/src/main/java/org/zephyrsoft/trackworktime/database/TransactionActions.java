@@ -0,0 +1,80 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import org.pmw.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects actions which have to wait for the outermost transaction of the {@link DAO} on the main database, e.g. the
+ * commit of a transaction on an event archive. After the outermost transaction, either the commit actions run (if all
+ * nested transactions were successful, so the main database committed) or the rollback actions.
+ *
+ * This class is not thread safe, the DAO only uses it while holding its monitor.
+ */
+class TransactionActions {
+
+	private final List<Runnable> commitActions = new ArrayList<>();
+	private final List<Runnable> rollbackActions = new ArrayList<>();
+	private boolean failed = false;
+
+	/**
+	 * Register actions for the end of the outermost transaction, which has to be open.
+	 *
+	 * @param onCommit
+	 *            runs if the main database committed
+	 * @param onRollback
+	 *            runs if the main database rolled back
+	 */
+	void register(Runnable onCommit, Runnable onRollback) {
+		commitActions.add(onCommit);
+		rollbackActions.add(onRollback);
+	}
+
+	/**
+	 * Note the end of a nested transaction. If it failed, the outermost one is rolled back.
+	 */
+	void endNested(boolean successful) {
+		if (!successful) {
+			failed = true;
+		}
+	}
+
+	/**
+	 * Run the registered actions after the outermost transaction ended. All of them run, a failing one is logged.
+	 *
+	 * @return {@code true} if the main database committed
+	 */
+	boolean endOutermost(boolean successful) {
+		boolean committed = successful && !failed;
+		List<Runnable> actions = new ArrayList<>(committed ? commitActions : rollbackActions);
+		commitActions.clear();
+		rollbackActions.clear();
+		failed = false;
+		for (Runnable action : actions) {
+			try {
+				action.run();
+			} catch (RuntimeException e) {
+				Logger.error(e, "action after the {} failed", committed ? "commit" : "rollback");
+			}
+		}
+		return committed;
+	}
+
+}
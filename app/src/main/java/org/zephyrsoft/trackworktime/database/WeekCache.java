@@ -0,0 +1,105 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.database;
+
+import org.zephyrsoft.trackworktime.model.Week;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the most recently used weeks by their ordinal (see {@link Week#getOrdinal()}), including the fact that
+ * no week exists for an ordinal. The {@link DAO} keeps it current in its write methods.
+ *
+ * This class is thread safe.
+ */
+class WeekCache {
+
+	/** returned by {@link #get(int)} if it is known that no week exists for the ordinal */
+	static final Week NO_WEEK = new Week();
+
+	private final Map<Integer, Week> weeks;
+
+	WeekCache(final int maxSize) {
+		weeks = new LinkedHashMap<Integer, Week>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Week> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Get a copy of the cached week, {@link #NO_WEEK} if it is known that no week exists for the ordinal, or
+	 * {@code null} if nothing is known about the ordinal.
+	 */
+	synchronized Week get(int ordinal) {
+		Week week = weeks.get(ordinal);
+		return week == NO_WEEK ? NO_WEEK : copyOf(week);
+	}
+
+	/**
+	 * Remember a week (or {@code null} as "no week") which was read from the database - but only if the ordinal
+	 * wasn't written in the meantime, because a concurrent write is newer than the read.
+	 */
+	synchronized void putIfAbsent(int ordinal, Week week) {
+		if (!weeks.containsKey(ordinal)) {
+			weeks.put(ordinal, week == null ? NO_WEEK : copyOf(week));
+		}
+	}
+
+	/**
+	 * Remember a week which was written to the database.
+	 */
+	synchronized void put(Week week) {
+		// the start date might have changed
+		removeId(week.getId());
+		weeks.put(week.getOrdinal(), copyOf(week));
+	}
+
+	/**
+	 * Remember that a week was deleted.
+	 */
+	synchronized void remove(Week week) {
+		if (week.getStart() == null) {
+			clear();
+		} else {
+			removeId(week.getId());
+			weeks.put(week.getOrdinal(), NO_WEEK);
+		}
+	}
+
+	private void removeId(Integer id) {
+		for (Iterator<Week> iterator = weeks.values().iterator(); iterator.hasNext();) {
+			Week cached = iterator.next();
+			if (cached != NO_WEEK && cached.getId().equals(id)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	synchronized void clear() {
+		weeks.clear();
+	}
+
+	/** the callers may change the returned weeks, so the cached ones are never handed out */
+	private static Week copyOf(Week week) {
+		return week == null ? null : new Week(week.getId(), week.getStart(), week.getSum(), week.getFlexi());
+	}
+
+}
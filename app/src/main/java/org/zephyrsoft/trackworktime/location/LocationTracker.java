@@ -21,7 +21,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.pmw.tinylog.Logger;
 import org.zephyrsoft.trackworktime.Constants;
-import org.zephyrsoft.trackworktime.WorkTimeTrackerActivity;
 import org.zephyrsoft.trackworktime.timer.TimerManager;
 import org.zephyrsoft.trackworktime.util.ExternalNotificationManager;
 
@@ -121,7 +120,6 @@ public class LocationTracker implements LocationListener {
 			} else {
 				boolean globalStateChanged = timerManager.clockInWithTrackingMethod(TrackingMethod.LOCATION);
 				if (globalStateChanged) {
-					WorkTimeTrackerActivity.refreshViewIfShown();
 					if (vibrate && isVibrationAllowed()) {
 						tryVibration();
 					}
@@ -137,7 +135,6 @@ public class LocationTracker implements LocationListener {
 			} else {
 				boolean globalStateChanged = timerManager.clockOutWithTrackingMethod(TrackingMethod.LOCATION);
 				if (globalStateChanged) {
-					WorkTimeTrackerActivity.refreshViewIfShown();
 					if (vibrate && isVibrationAllowed()) {
 						tryVibration();
 					}
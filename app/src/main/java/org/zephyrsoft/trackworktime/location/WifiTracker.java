@@ -22,7 +22,6 @@ import androidx.annotation.NonNull;
 
 import org.pmw.tinylog.Logger;
 import org.zephyrsoft.trackworktime.Constants;
-import org.zephyrsoft.trackworktime.WorkTimeTrackerActivity;
 import org.zephyrsoft.trackworktime.timer.TimerManager;
 import org.zephyrsoft.trackworktime.util.ExternalNotificationManager;
 
@@ -124,7 +123,6 @@ public class WifiTracker implements WifiScanner.WifiScanListener {
 
 			boolean globalStateChanged = timerManager.clockOutWithTrackingMethod(TrackingMethod.WIFI);
 			if (globalStateChanged) {
-				WorkTimeTrackerActivity.refreshViewIfShown();
 				if (vibrate && isVibrationAllowed()) {
 					tryVibration();
 				}
@@ -135,7 +133,6 @@ public class WifiTracker implements WifiScanner.WifiScanListener {
 
 			boolean globalStateChanged = timerManager.clockInWithTrackingMethod(TrackingMethod.WIFI);
 			if (globalStateChanged) {
-				WorkTimeTrackerActivity.refreshViewIfShown();
 				if (vibrate && isVibrationAllowed()) {
 					tryVibration();
 				}
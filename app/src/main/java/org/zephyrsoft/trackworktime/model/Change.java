@@ -0,0 +1,101 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.model;
+
+import org.zephyrsoft.trackworktime.database.DAO;
+
+/**
+ * Data class for an entry of the change log, which records each inserted, updated or deleted task, week and event,
+ * and each archived event.
+ *
+ * @see DAO#getChangesSince(long)
+ */
+public class Change extends Base {
+	/** the operation which inserted a row */
+	public static final String INSERT = "insert";
+	/** the operation which updated a row */
+	public static final String UPDATE = "update";
+	/** the operation which deleted a row */
+	public static final String DELETE = "delete";
+	/** the operation which moved an event to the archive of its year, see {@link DAO#archiveYear(int)} */
+	public static final String ARCHIVE = "archive";
+
+	private Long sequence = null;
+	/** name of the table in which the row was changed */
+	private String entity = null;
+	private Integer entityId = null;
+	private String operation = null;
+	/** milliseconds since 1970-01-01 00:00 UTC */
+	private Long timestamp = null;
+
+	public Change() {
+		// do nothing
+	}
+
+	public Change(Long sequence, String entity, Integer entityId, String operation, Long timestamp) {
+		this.sequence = sequence;
+		this.entity = entity;
+		this.entityId = entityId;
+		this.operation = operation;
+		this.timestamp = timestamp;
+	}
+
+	public Long getSequence() {
+		return sequence;
+	}
+
+	public String getEntity() {
+		return entity;
+	}
+
+	public Integer getEntityId() {
+		return entityId;
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public Long getTimestamp() {
+		return timestamp;
+	}
+
+	public void setSequence(Long sequence) {
+		this.sequence = sequence;
+	}
+
+	public void setEntity(String entity) {
+		this.entity = entity;
+	}
+
+	public void setEntityId(Integer entityId) {
+		this.entityId = entityId;
+	}
+
+	public void setOperation(String operation) {
+		this.operation = operation;
+	}
+
+	public void setTimestamp(Long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return getSequence() + ": " + getOperation() + " " + getEntity() + " " + getEntityId();
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.model;
+
+import org.zephyrsoft.trackworktime.database.DAO;
+import org.zephyrsoft.trackworktime.database.DaySummaryCalculator;
+
+/**
+ * Data class for the summary of one day, derived from the events of that day (and the last event before it). All
+ * times are in minutes since 1970-01-01 00:00 (wall-clock time).
+ *
+ * @see DaySummaryCalculator
+ * @see DAO
+ */
+public class DaySummary extends Base {
+	/** start of the day */
+	private Integer day = null;
+	/** first clock-in, or the start of the day if clocked in since the day before - {@code null} if not clocked in */
+	private Integer firstIn = null;
+	/** clock-out after the last clock-in, or the end of the day if still clocked in - {@code null} if no work times */
+	private Integer lastOut = null;
+	/** amount of minutes worked on this day */
+	private Integer worked = null;
+	/** target work time of this day in minutes, as set by a flexi time event - {@code null} if none exists */
+	private Integer flexTarget = null;
+
+	public DaySummary() {
+		// do nothing
+	}
+
+	public DaySummary(Integer day, Integer firstIn, Integer lastOut, Integer worked, Integer flexTarget) {
+		this.day = day;
+		this.firstIn = firstIn;
+		this.lastOut = lastOut;
+		this.worked = worked;
+		this.flexTarget = flexTarget;
+	}
+
+	public Integer getDay() {
+		return day;
+	}
+
+	public Integer getFirstIn() {
+		return firstIn;
+	}
+
+	public Integer getLastOut() {
+		return lastOut;
+	}
+
+	public Integer getWorked() {
+		return worked;
+	}
+
+	public Integer getFlexTarget() {
+		return flexTarget;
+	}
+
+	public void setDay(Integer day) {
+		this.day = day;
+	}
+
+	public void setFirstIn(Integer firstIn) {
+		this.firstIn = firstIn;
+	}
+
+	public void setLastOut(Integer lastOut) {
+		this.lastOut = lastOut;
+	}
+
+	public void setWorked(Integer worked) {
+		this.worked = worked;
+	}
+
+	public void setFlexTarget(Integer flexTarget) {
+		this.flexTarget = flexTarget;
+	}
+
+	@Override
+	public String toString() {
+		return getDay() + ": " + getFirstIn() + " - " + getLastOut() + ", worked " + getWorked() + ", target "
+			+ getFlexTarget();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((day == null) ? 0 : day.hashCode());
+		result = prime * result + ((firstIn == null) ? 0 : firstIn.hashCode());
+		result = prime * result + ((lastOut == null) ? 0 : lastOut.hashCode());
+		result = prime * result + ((worked == null) ? 0 : worked.hashCode());
+		result = prime * result + ((flexTarget == null) ? 0 : flexTarget.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		DaySummary other = (DaySummary) obj;
+		return equal(day, other.day) && equal(firstIn, other.firstIn) && equal(lastOut, other.lastOut)
+			&& equal(worked, other.worked) && equal(flexTarget, other.flexTarget);
+	}
+
+	private static boolean equal(Integer a, Integer b) {
+		return a == null ? b == null : a.equals(b);
+	}
+}
@@ -17,6 +17,7 @@
 package org.zephyrsoft.trackworktime.model;
 
 import org.zephyrsoft.trackworktime.database.DAO;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
 
 /**
  * Data class for an event.
@@ -30,6 +31,8 @@ public class Event extends Base implements Comparable<Event> {
 	private Integer task = null;
 	private Integer type = null;
 	private String time = null;
+	/** the time in minutes since 1970-01-01 00:00 (wall-clock time), derived from the time string */
+	private Integer timeMinutes = null;
 	private String text = null;
 
 	public Event() {
@@ -41,7 +44,7 @@ public class Event extends Base implements Comparable<Event> {
 		this.week = week;
 		this.task = task;
 		this.type = type;
-		this.time = time;
+		setTime(time);
 		this.text = text;
 	}
 
@@ -65,6 +68,15 @@ public class Event extends Base implements Comparable<Event> {
 		return time;
 	}
 
+	/**
+	 * Get the time in minutes since 1970-01-01 00:00 (local wall-clock time, seconds cut off).
+	 *
+	 * @see DateTimeUtil#dateTimeToEpochMinutes
+	 */
+	public Integer getTimeMinutes() {
+		return timeMinutes;
+	}
+
 	public void setId(Integer id) {
 		this.id = id;
 	}
@@ -83,6 +95,16 @@ public class Event extends Base implements Comparable<Event> {
 
 	public void setTime(String time) {
 		this.time = time;
+		this.timeMinutes = (time == null ? null : DateTimeUtil.stringToEpochMinutes(time));
+	}
+
+	/**
+	 * Set the time in both representations at once, e.g. when reading it from the database. The caller has to make
+	 * sure that both values match.
+	 */
+	public void setTime(String time, Integer timeMinutes) {
+		this.time = time;
+		this.timeMinutes = timeMinutes;
 	}
 
 	public String getText() {
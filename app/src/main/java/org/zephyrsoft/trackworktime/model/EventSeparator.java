@@ -77,11 +77,21 @@ public class EventSeparator extends Event {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public Integer getTimeMinutes() {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public void setTime(String time) {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public void setTime(String time, Integer timeMinutes) {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public String getText() {
 		throw new UnsupportedOperationException();
@@ -0,0 +1,120 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.model;
+
+import org.zephyrsoft.trackworktime.database.DAO;
+
+/**
+ * Data class for the statistics of one database maintenance run.
+ *
+ * @see DAO#runMaintenance()
+ */
+public class MaintenanceRun extends Base {
+	/** milliseconds since 1970-01-01 00:00 UTC */
+	private Long start = null;
+	/** in milliseconds */
+	private Long duration = null;
+	/** size of the database file in bytes */
+	private Long sizeBefore = null;
+	private Long sizeAfter = null;
+	private Long pagesBefore = null;
+	private Long pagesAfter = null;
+	/** pages which are allocated, but not in use */
+	private Long freePagesBefore = null;
+	private Long freePagesAfter = null;
+	/** "ok" or the problems found by the integrity check */
+	private String integrity = null;
+
+	public Long getStart() {
+		return start;
+	}
+
+	public Long getDuration() {
+		return duration;
+	}
+
+	public Long getSizeBefore() {
+		return sizeBefore;
+	}
+
+	public Long getSizeAfter() {
+		return sizeAfter;
+	}
+
+	public Long getPagesBefore() {
+		return pagesBefore;
+	}
+
+	public Long getPagesAfter() {
+		return pagesAfter;
+	}
+
+	public Long getFreePagesBefore() {
+		return freePagesBefore;
+	}
+
+	public Long getFreePagesAfter() {
+		return freePagesAfter;
+	}
+
+	public String getIntegrity() {
+		return integrity;
+	}
+
+	public void setStart(Long start) {
+		this.start = start;
+	}
+
+	public void setDuration(Long duration) {
+		this.duration = duration;
+	}
+
+	public void setSizeBefore(Long sizeBefore) {
+		this.sizeBefore = sizeBefore;
+	}
+
+	public void setSizeAfter(Long sizeAfter) {
+		this.sizeAfter = sizeAfter;
+	}
+
+	public void setPagesBefore(Long pagesBefore) {
+		this.pagesBefore = pagesBefore;
+	}
+
+	public void setPagesAfter(Long pagesAfter) {
+		this.pagesAfter = pagesAfter;
+	}
+
+	public void setFreePagesBefore(Long freePagesBefore) {
+		this.freePagesBefore = freePagesBefore;
+	}
+
+	public void setFreePagesAfter(Long freePagesAfter) {
+		this.freePagesAfter = freePagesAfter;
+	}
+
+	public void setIntegrity(String integrity) {
+		this.integrity = integrity;
+	}
+
+	@Override
+	public String toString() {
+		return getStart() + ": " + getDuration() + " ms, " + getSizeBefore() + " -> " + getSizeAfter() + " bytes, "
+			+ getPagesBefore() + " -> " + getPagesAfter() + " pages (free " + getFreePagesBefore() + " -> "
+			+ getFreePagesAfter() + "), integrity " + getIntegrity();
+	}
+}
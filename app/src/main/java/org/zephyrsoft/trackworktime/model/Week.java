@@ -21,6 +21,7 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import org.zephyrsoft.trackworktime.database.DAO;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
 
 /**
  * Data class for a week.
@@ -62,6 +63,14 @@ public class Week extends Base implements Comparable<Week>, Parcelable {
 		return start;
 	}
 
+	/**
+	 * @return the number of weeks since the week which contains 1970-01-01, see
+	 *         {@link DateTimeUtil#epochMinutesToWeekOrdinal(int)}
+	 */
+	public int getOrdinal() {
+		return DateTimeUtil.epochMinutesToWeekOrdinal(DateTimeUtil.stringToEpochMinutes(getStart()));
+	}
+
 	public Integer getSum() {
 		return sum;
 	}
@@ -124,7 +133,7 @@ public class Week extends Base implements Comparable<Week>, Parcelable {
 	@Override
 	public void writeToParcel(Parcel dest, int flags) {
 		dest.writeValue(id);
-		dest.writeString(start);
+		dest.writeString(getStart());
 		dest.writeValue(sum);
 		dest.writeValue(flexi);
 	}
@@ -16,6 +16,8 @@
  */
 package org.zephyrsoft.trackworktime.model;
 
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
 /**
  * Placeholder for a week which does not (yet) need to be persisted, probably because no event exists for this week.
  *
@@ -23,11 +25,40 @@ package org.zephyrsoft.trackworktime.model;
  */
 public class WeekPlaceholder extends Week {
 
+	/** only set if the start date was not given, see {@link #getStart()} */
+	private final Integer ordinal;
+
 	/**
 	 * Constructor
 	 */
 	public WeekPlaceholder(String start) {
 		super(null, start, null, null);
+		ordinal = null;
+	}
+
+	/**
+	 * Create a placeholder for the week with the given ordinal. The start date is only formatted when it is requested.
+	 *
+	 * @see Week#getOrdinal()
+	 */
+	public WeekPlaceholder(int ordinal) {
+		super(null, null, null, null);
+		this.ordinal = ordinal;
+	}
+
+	@Override
+	public String getStart() {
+		String start = super.getStart();
+		if (start == null && ordinal != null) {
+			start = DateTimeUtil.weekOrdinalToString(ordinal);
+			setStart(start);
+		}
+		return start;
+	}
+
+	@Override
+	public int getOrdinal() {
+		return ordinal != null ? ordinal : super.getOrdinal();
 	}
 
 	@Override
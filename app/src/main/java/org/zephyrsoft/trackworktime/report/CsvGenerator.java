@@ -25,8 +25,7 @@ import org.supercsv.io.CsvBeanWriter;
 import org.supercsv.io.ICsvBeanWriter;
 import org.supercsv.prefs.CsvPreference;
 import org.supercsv.util.CsvContext;
-import org.zephyrsoft.trackworktime.database.DAO;
-import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.database.EventStore;
 import org.zephyrsoft.trackworktime.model.Task;
 import org.zephyrsoft.trackworktime.model.TimeSum;
 import org.zephyrsoft.trackworktime.model.TypeEnum;
@@ -49,10 +48,10 @@ import hirondelle.date4j.DateTime;
  */
 public class CsvGenerator {
 
-	private final DAO dao;
+	private final EventStore store;
 
-	public CsvGenerator(DAO dao) {
-		this.dao = dao;
+	public CsvGenerator(EventStore store) {
+		this.store = store;
 	}
 
 	/** time, type, task, text */
@@ -83,7 +82,7 @@ public class CsvGenerator {
 				if (arg0 == null) {
 					return null;
 				} else {
-					Task task = dao.getTask((Integer) arg0);
+					Task task = store.getTask((Integer) arg0);
 					return task == null ? "" : task.getName();
 				}
 			}
@@ -123,29 +122,38 @@ public class CsvGenerator {
 	};
 
 	/**
-	 * Warning: could modify the provided event list!
+	 * Create a CSV report of the events in the given time frame. The events are read one by one, so they don't have to
+	 * fit into memory at once.
 	 */
-	public String createEventCsv(List<Event> events) {
+	public String createEventCsv(DateTime beginOfTimeFrame, DateTime endOfTimeFrame) {
 		ICsvBeanWriter beanWriter = null;
 		StringWriter resultWriter = new StringWriter();
 		try {
-			beanWriter = new CsvBeanWriter(resultWriter, CsvPreference.EXCEL_NORTH_EUROPE_PREFERENCE);
+			final ICsvBeanWriter writer = new CsvBeanWriter(resultWriter, CsvPreference.EXCEL_NORTH_EUROPE_PREFERENCE);
+			beanWriter = writer;
 
 			// the header elements are used to map the bean values to each column (names must match!)
 			final String[] header = new String[] { "time", "type", "task", "text" };
 
-			beanWriter.writeHeader(header);
+			writer.writeHeader(header);
 
-			for (Event event : events) {
+			store.forEachEvent(beginOfTimeFrame, endOfTimeFrame, event -> {
 				// "clock out" events shouldn't have a task and text:
 				if (TypeEnum.byValue(event.getType()) == TypeEnum.CLOCK_OUT) {
 					event.setTask(null);
 					event.setText(null);
 				}
-				beanWriter.write(event, header, eventProcessors);
-			}
+				try {
+					writer.write(event, header, eventProcessors);
+				} catch (IOException e) {
+					// the visitor may not throw checked exceptions
+					throw new WriteException(e);
+				}
+			});
 		} catch (IOException e) {
 			Logger.error("error while writing: {}", e.getMessage());
+		} catch (WriteException e) {
+			Logger.error("error while writing: {}", e.getCause().getMessage());
 		} finally {
 			if (beanWriter != null) {
 				try {
@@ -158,6 +166,12 @@ public class CsvGenerator {
 		return resultWriter.toString();
 	}
 
+	private static class WriteException extends RuntimeException {
+		WriteException(IOException cause) {
+			super(cause);
+		}
+	}
+
 	public String createSumsCsv(Map<Task, TimeSum> sums) {
 		List<TimeSumsHolder> prepared = new LinkedList<>();
 		for (Entry<Task, TimeSum> entry : sums.entrySet()) {
@@ -0,0 +1,145 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.timer;
+
+import org.zephyrsoft.trackworktime.database.EventStore;
+import org.zephyrsoft.trackworktime.model.Event;
+
+import java.util.Arrays;
+import java.util.List;
+
+import hirondelle.date4j.DateTime;
+
+/**
+ * The events which {@link TimeAccounting} works on, packed into arrays of the minute, type and task of each event.
+ * Also holds the last event before the sequence (the "previous" event), because it determines if the time at the
+ * beginning is already worked time.
+ *
+ * The events have to be added in the order of the event queries (by time in minutes and then by ID).
+ */
+final class EventSequence {
+
+	/** the task of events without a task, and the type and minute of a missing previous event */
+	static final int NONE = Integer.MIN_VALUE;
+
+	private int[] minutes;
+	private int[] types;
+	private int[] tasks;
+	private int size = 0;
+
+	private int previousMinute = NONE;
+	private int previousType = NONE;
+	private int previousTask = NONE;
+
+	EventSequence(int capacity) {
+		minutes = new int[Math.max(capacity, 1)];
+		types = new int[minutes.length];
+		tasks = new int[minutes.length];
+	}
+
+	/**
+	 * Pack the given events.
+	 *
+	 * @param previous
+	 *            the last event before the given ones (may be {@code null})
+	 */
+	static EventSequence of(Event previous, List<Event> events) {
+		EventSequence ret = new EventSequence(events.size());
+		ret.setPrevious(previous);
+		for (Event event : events) {
+			ret.add(event);
+		}
+		return ret;
+	}
+
+	/**
+	 * Read the events of the given time frame and the last event before it directly from the store, without creating
+	 * an {@link Event} object per event.
+	 */
+	static EventSequence read(EventStore store, DateTime beginOfTimeFrame, DateTime endOfTimeFrame) {
+		EventSequence ret = new EventSequence(16);
+		ret.setPrevious(store.getLastEventBefore(beginOfTimeFrame));
+		store.forEachEvent(beginOfTimeFrame, endOfTimeFrame, ret::add);
+		return ret;
+	}
+
+	void setPrevious(Event previous) {
+		if (previous == null) {
+			previousMinute = NONE;
+			previousType = NONE;
+			previousTask = NONE;
+		} else {
+			previousMinute = previous.getTimeMinutes();
+			previousType = previous.getType();
+			previousTask = taskOf(previous);
+		}
+	}
+
+	void add(Event event) {
+		add(event.getTimeMinutes(), event.getType(), taskOf(event));
+	}
+
+	void add(int minute, int type, int task) {
+		if (size == minutes.length) {
+			int capacity = size * 2;
+			minutes = Arrays.copyOf(minutes, capacity);
+			types = Arrays.copyOf(types, capacity);
+			tasks = Arrays.copyOf(tasks, capacity);
+		}
+		minutes[size] = minute;
+		types[size] = type;
+		tasks[size] = task;
+		size++;
+	}
+
+	int size() {
+		return size;
+	}
+
+	int minute(int index) {
+		return minutes[index];
+	}
+
+	int type(int index) {
+		return types[index];
+	}
+
+	int task(int index) {
+		return tasks[index];
+	}
+
+	boolean hasPrevious() {
+		return previousType != NONE;
+	}
+
+	int previousMinute() {
+		return previousMinute;
+	}
+
+	int previousType() {
+		return previousType;
+	}
+
+	int previousTask() {
+		return previousTask;
+	}
+
+	private static int taskOf(Event event) {
+		return event.getTask() == null ? NONE : event.getTask();
+	}
+
+}
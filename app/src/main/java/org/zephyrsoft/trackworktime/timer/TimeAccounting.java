@@ -0,0 +1,259 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.timer;
+
+import org.zephyrsoft.trackworktime.model.TimeSum;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+/**
+ * Calculates the worked time, the in/out times and the target work time of a period in one pass over an
+ * {@link EventSequence}, without reading anything else and without creating objects per event. All times are minutes
+ * since the epoch (see {@link DateTimeUtil#dateTimeToEpochMinutes}), the period can be a day, a week or any other
+ * range.
+ *
+ * The rules are those of {@link TimerManager#calculateTimeSum} and {@link TimeCalculator#calulateOneDay}: if the
+ * previous event is a clock-in, the time from the beginning of the period is counted; if the last event is a clock-in
+ * in the past, the time is only counted up to now (like a clock-out at the current minute) and the auto-pause of that
+ * day is subtracted if it was not inserted yet; and if the user is still clocked in at the end of the period, the time
+ * up to the end is counted.
+ */
+final class TimeAccounting {
+
+	/** a missing time or target work time */
+	static final int NONE = EventSequence.NONE;
+
+	private static final int CLOCK_IN = TypeEnum.CLOCK_IN.getValue();
+	private static final int CLOCK_OUT = TypeEnum.CLOCK_OUT.getValue();
+	private static final int CLOCK_OUT_NOW = TypeEnum.CLOCK_OUT_NOW.getValue();
+	private static final int FLEX = TypeEnum.FLEX.getValue();
+
+	/**
+	 * Receives the intervals in which the user was clocked in, see {@link #visitTaskIntervals}.
+	 */
+	interface IntervalVisitor {
+		/**
+		 * @param task
+		 *            the task of the clock-in, {@link EventSequence#NONE} if it doesn't have one
+		 */
+		void visit(int task, int from, int to);
+	}
+
+	private final int now;
+	private final int autoPauseBegin;
+	private final int autoPauseEnd;
+
+	// the results of the last calculation
+	private int worked;
+	private int timeIn;
+	private int timeOut;
+	private int flexTarget;
+
+	/**
+	 * @param now
+	 *            the current minute - events in this minute are already in the past
+	 * @param autoPauseBegin
+	 *            the begin of the auto-pause as minute of the day, {@link #NONE} if the auto-pause is disabled
+	 * @param autoPauseEnd
+	 *            the end of the auto-pause as minute of the day, {@link #NONE} if the auto-pause is disabled
+	 */
+	TimeAccounting(int now, int autoPauseBegin, int autoPauseEnd) {
+		this.now = now;
+		this.autoPauseBegin = autoPauseBegin;
+		this.autoPauseEnd = autoPauseEnd;
+	}
+
+	/**
+	 * Calculate the results for the period from {@code begin} (inclusive) to {@code end} (exclusive). The sequence
+	 * has to contain the events of the period and the last event before it as previous event.
+	 */
+	void calculate(EventSequence events, int begin, int end) {
+		int size = events.size();
+		boolean clockedInBefore = events.previousType() == CLOCK_IN;
+		boolean previousInPast = events.hasPrevious() && events.previousMinute() <= now;
+
+		int clockedInSince = NONE;
+		if (clockedInBefore
+			// but only if no CLOCK_OUT_NOW would be in between:
+			&& !(previousInPast && (size == 0 || (events.minute(0) > now && events.type(0) == CLOCK_IN)))) {
+			clockedInSince = begin;
+		}
+		worked = 0;
+		timeIn = clockedInBefore && previousInPast && size > 0 && events.type(0) != CLOCK_IN ? begin : NONE;
+		timeOut = NONE;
+		flexTarget = NONE;
+
+		boolean autoPause = autoPauseBegin != NONE && autoPauseEnd != NONE;
+		// the day of the last event and the indexes of the last events before the auto-pause begin and end on
+		// that day (-1 is the previous event)
+		int pauseDay = NONE;
+		int lastBeforePauseBegin = -1;
+		int lastBeforePauseEnd = -1;
+
+		for (int i = 0; i < size; i++) {
+			int minute = events.minute(i);
+			int type = events.type(i);
+			if (type == CLOCK_IN) {
+				if (clockedInSince == NONE) {
+					clockedInSince = minute;
+				}
+				if (timeIn == NONE) {
+					timeIn = minute;
+				}
+				// only a clock-out after the last clock-in counts as end
+				timeOut = NONE;
+			} else if (type == CLOCK_OUT || type == CLOCK_OUT_NOW) {
+				if (clockedInSince != NONE) {
+					worked += minute - clockedInSince;
+					clockedInSince = NONE;
+				}
+				if (timeOut == NONE) {
+					timeOut = minute;
+				}
+			} else if (type == FLEX && flexTarget == NONE) {
+				flexTarget = minute - DateTimeUtil.epochMinutesToStartOfDay(minute);
+			}
+			if (autoPause) {
+				int day = DateTimeUtil.epochMinutesToStartOfDay(minute);
+				if (day != pauseDay) {
+					pauseDay = day;
+					lastBeforePauseBegin = i - 1;
+					lastBeforePauseEnd = i - 1;
+				}
+				if (minute < day + autoPauseBegin) {
+					lastBeforePauseBegin = i;
+				}
+				if (minute < day + autoPauseEnd) {
+					lastBeforePauseEnd = i;
+				}
+			}
+		}
+
+		int lastMinute = size == 0 ? NONE : events.minute(size - 1);
+		int lastType = size == 0 ? NONE : events.type(size - 1);
+		if (lastType == CLOCK_IN && lastMinute <= now && end > now) {
+			// the user is still clocked in: count up to now
+			worked += now - clockedInSince;
+			clockedInSince = NONE;
+			lastMinute = now;
+			lastType = CLOCK_OUT_NOW;
+			if (autoPause && DateTimeUtil.epochMinutesToStartOfDay(now) != pauseDay) {
+				pauseDay = DateTimeUtil.epochMinutesToStartOfDay(now);
+				lastBeforePauseBegin = size - 1;
+				lastBeforePauseEnd = size - 1;
+			}
+		}
+
+		if (autoPause && lastType == CLOCK_OUT_NOW) {
+			// the auto-pause of this day might not be in the events yet
+			int pauseBegin = pauseDay + autoPauseBegin;
+			int pauseEnd = pauseDay + autoPauseEnd;
+			if (pauseBegin < pauseEnd && lastMinute > pauseEnd
+				// clocked in before the begin and no event in the auto-pause interval
+				&& typeAt(events, lastBeforePauseBegin) == CLOCK_IN && lastBeforePauseBegin == lastBeforePauseEnd) {
+				worked -= pauseEnd - pauseBegin;
+			}
+		}
+
+		if (clockedInSince != NONE) {
+			// still clocked in at the end of the period
+			worked += end - clockedInSince;
+		}
+	}
+
+	/**
+	 * @return the worked minutes
+	 */
+	int getWorked() {
+		return worked;
+	}
+
+	/**
+	 * @return the first clock-in or the begin of the period if the user was clocked in before (and the first event
+	 *         isn't a clock-in), {@link #NONE} if neither is the case
+	 */
+	int getTimeIn() {
+		return timeIn;
+	}
+
+	/**
+	 * @return the first clock-out after the last clock-in, {@link #NONE} if there is none
+	 */
+	int getTimeOut() {
+		return timeOut;
+	}
+
+	/**
+	 * @return the target work time of the first flexi time event (its minute of the day), {@link #NONE} if there is
+	 *         none
+	 */
+	int getFlexTarget() {
+		return flexTarget;
+	}
+
+	/**
+	 * Walk through the intervals in which the user was clocked in, with the rules of
+	 * {@link TimeCalculator#calculateSums}: the time before the first event is counted if the previous event is a
+	 * clock-in, every event ends the current interval and every clock-in starts a new one. Nothing is counted if
+	 * there are no events.
+	 */
+	static void visitTaskIntervals(EventSequence events, int begin, int end, IntervalVisitor visitor) {
+		int size = events.size();
+		if (size == 0) {
+			return;
+		}
+		int clockedInSince = NONE;
+		int task = EventSequence.NONE;
+		if (events.previousType() == CLOCK_IN) {
+			clockedInSince = begin;
+			task = events.previousTask();
+		}
+		for (int i = 0; i < size; i++) {
+			int minute = events.minute(i);
+			if (clockedInSince != NONE) {
+				visitor.visit(task, clockedInSince, minute);
+			}
+			if (events.type(i) == CLOCK_IN) {
+				clockedInSince = minute;
+				task = events.task(i);
+			} else {
+				clockedInSince = NONE;
+			}
+		}
+		if (clockedInSince != NONE) {
+			visitor.visit(task, clockedInSince, end);
+		}
+	}
+
+	/**
+	 * Convert a number of minutes (which may be negative) to a {@link TimeSum}.
+	 */
+	static TimeSum toTimeSum(int minutes) {
+		TimeSum ret = new TimeSum();
+		if (minutes >= 0) {
+			ret.add(0, minutes);
+		} else {
+			ret.substract(0, -minutes);
+		}
+		return ret;
+	}
+
+	private static int typeAt(EventSequence events, int index) {
+		return index >= 0 ? events.type(index) : events.previousType();
+	}
+
+}
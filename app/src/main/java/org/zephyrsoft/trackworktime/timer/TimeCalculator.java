@@ -16,21 +16,18 @@
  */
 package org.zephyrsoft.trackworktime.timer;
 
-import org.pmw.tinylog.Logger;
-import org.zephyrsoft.trackworktime.Basics;
-import org.zephyrsoft.trackworktime.database.DAO;
+import org.zephyrsoft.trackworktime.database.EventStore;
 import org.zephyrsoft.trackworktime.model.DayLine;
-import org.zephyrsoft.trackworktime.model.Event;
-import org.zephyrsoft.trackworktime.model.PeriodEnum;
+import org.zephyrsoft.trackworktime.model.DaySummary;
 import org.zephyrsoft.trackworktime.model.Range;
 import org.zephyrsoft.trackworktime.model.Task;
 import org.zephyrsoft.trackworktime.model.TimeSum;
 import org.zephyrsoft.trackworktime.model.TypeEnum;
 import org.zephyrsoft.trackworktime.model.Unit;
 import org.zephyrsoft.trackworktime.model.WeekDayEnum;
-import org.zephyrsoft.trackworktime.options.Key;
 import org.zephyrsoft.trackworktime.util.DateTimeUtil;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -46,154 +43,151 @@ import hirondelle.date4j.DateTime.DayOverflow;
  */
 public class TimeCalculator {
 
-	private final DAO dao;
+	private final EventStore store;
 	private final TimerManager timerManager;
 
-	public TimeCalculator(DAO dao, TimerManager timerManager) {
-		this.dao = dao;
+	public TimeCalculator(EventStore store, TimerManager timerManager) {
+		this.store = store;
 		this.timerManager = timerManager;
 	}
 
 	/**
-	 * Calculate the time sums per task in a given time range.
+	 * Calculate the time sums per task in a given time range, reading the events of the range from the store.
 	 */
-	public Map<Task, TimeSum> calculateSums(DateTime beginOfPeriod, DateTime endOfPeriod, List<Event> events) {
+	public Map<Task, TimeSum> calculateSums(DateTime beginOfPeriod, DateTime endOfPeriod) {
 		Map<Task, TimeSum> ret = new HashMap<>();
-		if (events == null || events.isEmpty()) {
+		EventSequence sequence = EventSequence.read(store, beginOfPeriod, endOfPeriod);
+		if (sequence.size() == 0) {
 			return ret;
 		}
 
-		DateTime timeOfFirstEvent = DateTimeUtil.stringToDateTime(events.get(0).getTime());
-		Event lastEventBefore = dao.getLastEventBefore(timeOfFirstEvent);
+		TaskMinutes taskMinutes = new TaskMinutes();
+		TimeAccounting.visitTaskIntervals(sequence, DateTimeUtil.dateTimeToEpochMinutes(beginOfPeriod),
+			DateTimeUtil.dateTimeToEpochMinutes(endOfPeriod), taskMinutes);
 
-		DateTime clockedInSince = null;
-		Task currentTask = null;
-
-		if (TimerManager.isClockInEvent(lastEventBefore)) {
-			// clocked in since begin of period
-			clockedInSince = beginOfPeriod;
-			currentTask = lastEventBefore.getTask() != null ? dao.getTask(lastEventBefore.getTask()) : null;
-		}
-
-		for (Event event : events) {
-			DateTime eventTime = DateTimeUtil.stringToDateTime(event.getTime());
-			if (clockedInSince != null) {
-				countTime(ret, currentTask, clockedInSince, eventTime);
+		// each task is only read once
+		for (int i = 0; i < taskMinutes.size; i++) {
+			int taskId = taskMinutes.tasks[i];
+			Task task = taskId == EventSequence.NONE ? null : store.getTask(taskId);
+			// deleted tasks are counted as "no task"
+			TimeSum sumForTask = ret.get(task);
+			if (sumForTask == null) {
+				sumForTask = new TimeSum();
+				ret.put(task, sumForTask);
 			}
-			if (TimerManager.isClockInEvent(event)) {
-				clockedInSince = eventTime;
-				currentTask = event.getTask() != null ? dao.getTask(event.getTask()) : null;
-			} else {
-				clockedInSince = null;
-				currentTask = null;
-			}
-		}
-
-		if (clockedInSince != null) {
-			countTime(ret, currentTask, clockedInSince, endOfPeriod);
+			sumForTask.add(0, taskMinutes.minutes[i]);
 		}
 
 		return ret;
 	}
 
-	private static void countTime(Map<Task, TimeSum> mapForCounting, Task task, DateTime from, DateTime to) {
-		// fetch sum up to now
-		TimeSum sumForTask = mapForCounting.get(task);
-		if (sumForTask == null) {
-			sumForTask = new TimeSum();
-			mapForCounting.put(task, sumForTask);
-		}
-		// add new times to sum
-		long minutesWorked = from.numSecondsFrom(to) / 60;
-		if (minutesWorked > Integer.MAX_VALUE - 60) {
-			// this is extremely unlikely, someone would have to work 4084 years without pause...
-			int correctedMinutesWorked = Integer.MAX_VALUE - 60;
-			Logger.warn("could not handle {} minutes, number is too high - taking {} instead",
-				minutesWorked, correctedMinutesWorked);
+	/** the minutes per task ID, there are only a few different tasks in one time range */
+	private static class TaskMinutes implements TimeAccounting.IntervalVisitor {
+		private int[] tasks = new int[8];
+		private int[] minutes = new int[8];
+		private int size = 0;
+
+		@Override
+		public void visit(int task, int from, int to) {
+			int index = 0;
+			while (index < size && tasks[index] != task) {
+				index++;
+			}
+			if (index == size) {
+				if (size == tasks.length) {
+					tasks = Arrays.copyOf(tasks, size * 2);
+					minutes = Arrays.copyOf(minutes, size * 2);
+				}
+				tasks[index] = task;
+				minutes[index] = 0;
+				size++;
+			}
+			minutes[index] += to - from;
 		}
-		sumForTask.add(0, (int) minutesWorked);
 	}
 
 	/**
-	 * Calculate the time sum, flexi value and in/out times for one day.
+	 * Calculate the time sum, flexi value and in/out times for one day, reading the events of the day from the store.
+	 * If the user is clocked in at the moment, the times of today go up to now.
 	 */
-	public DayLine calulateOneDay(DateTime day, List<Event> eventsOfOneDay) {
+	public DayLine calulateOneDay(DateTime day) {
 		DayLine ret = new DayLine();
 
-        boolean foundDayFlexTime = false;
-        for (Event event : eventsOfOneDay) {
-            if (event.getType() == TypeEnum.FLEX.getValue()) {
-                DateTime flexTime = DateTimeUtil.stringToDateTime(event.getTime());
-                ret.getTimeFlexi().substract(flexTime.getHour(), flexTime.getMinute());
-                foundDayFlexTime = true;
-                break;
-            }
-        }
-
-        // get default flex time from settings
+		DateTime startOfDay = day.getStartOfDay();
+		EventSequence sequence = EventSequence.read(store, startOfDay, startOfDay.plusDays(1));
+		DateTime now = DateTimeUtil.getCurrentDateTime();
+		if (day.isSameDayAs(now) && TimerManager.isClockInEvent(store.getLastEventBeforeIncluding(now))) {
+			// currently clocked in: add clock-out event "NOW"
+			sequence.add(DateTimeUtil.dateTimeToEpochMinutes(now), TypeEnum.CLOCK_OUT_NOW.getValue(),
+				EventSequence.NONE);
+		}
+
+		TimeAccounting accounting = null;
+		if (sequence.size() > 0) {
+			int startOfDayMinutes = DateTimeUtil.dateTimeToEpochMinutes(startOfDay);
+			accounting = timerManager.createTimeAccounting();
+			accounting.calculate(sequence, startOfDayMinutes, startOfDayMinutes + DateTimeUtil.MINUTES_PER_DAY);
+		}
+
+		boolean foundDayFlexTime = accounting != null && accounting.getFlexTarget() != TimeAccounting.NONE;
 		WeekDayEnum weekDay = WeekDayEnum.getByValue(day.getWeekDay());
-		if (Basics.getInstance().getPreferences().getBoolean(Key.ENABLE_FLEXI_TIME.getName(), false)
-			&& timerManager.isWorkDay(weekDay) && foundDayFlexTime == false) {
+		if (foundDayFlexTime) {
+			ret.getTimeFlexi().substract(0, accounting.getFlexTarget());
+		} else if (timerManager.isFlexiTimeEnabled() && timerManager.isWorkDay(weekDay)) {
 			// substract the "normal" work time for one day
 			int normalWorkTimeInMinutes = timerManager.getNormalWorkDurationFor(weekDay);
 			ret.getTimeFlexi().substract(0, normalWorkTimeInMinutes);
 		}
 
-		if (eventsOfOneDay == null || eventsOfOneDay.isEmpty() || foundDayFlexTime && eventsOfOneDay.size() == 1) {
+		if (accounting == null || foundDayFlexTime && sequence.size() == 1) {
 			return ret;
 		}
 
-		DateTime timeOfFirstEvent = DateTimeUtil.stringToDateTime(eventsOfOneDay.get(0).getTime());
-		Event lastEventBeforeToday = dao.getLastEventBefore(timeOfFirstEvent);
-		DateTime lastEventBeforeTodayTime = (lastEventBeforeToday != null ? DateTimeUtil
-			.stringToDateTime(lastEventBeforeToday.getTime()) : null);
-		if (!eventsOfOneDay.isEmpty()) {
-			// take special care of the event type (CLOCK_IN vs. CLOCK_OUT/CLOCK_OUT_NOW)
-			Event firstClockInEvent = null;
-			for (Event event : eventsOfOneDay) {
-				if (TimerManager.isClockInEvent(event)) {
-					firstClockInEvent = event;
-					break;
-				}
-			}
-			Event effectiveClockOutEvent = null;
-			for (int i = eventsOfOneDay.size() - 1; i >= 0; i--) {
-				Event event = eventsOfOneDay.get(i);
-				if (TimerManager.isClockOutEvent(event)) {
-					effectiveClockOutEvent = event;
-				}
-				if (TimerManager.isClockInEvent(event)) {
-					break;
-				}
-			}
+		if (accounting.getTimeIn() != TimeAccounting.NONE) {
+			ret.setTimeIn(DateTimeUtil.epochMinutesToDateTime(accounting.getTimeIn()));
+		}
+		if (accounting.getTimeOut() != TimeAccounting.NONE) {
+			ret.setTimeOut(DateTimeUtil.epochMinutesToDateTime(accounting.getTimeOut()));
+		} else {
+			ret.setTimeOut(day.getEndOfDay());
+		}
+		ret.setTimeWorked(TimeAccounting.toTimeSum(accounting.getWorked()));
 
-			if (TimerManager.isClockInEvent(lastEventBeforeToday) && lastEventBeforeTodayTime != null
-				&& DateTimeUtil.isInPast(lastEventBeforeTodayTime)
-				&& !TimerManager.isClockInEvent(eventsOfOneDay.get(0))) {
-				// clocked in since begin of day
-				ret.setTimeIn(timeOfFirstEvent.getStartOfDay());
-			} else if (firstClockInEvent != null) {
-				ret.setTimeIn(DateTimeUtil.stringToDateTime(firstClockInEvent.getTime()));
-			} else {
-				// apparently not clocked in before begin of day and no clock-in event
-			}
+		ret.getTimeFlexi().addOrSubstract(ret.getTimeWorked());
 
-			if (effectiveClockOutEvent != null) {
-				ret.setTimeOut(DateTimeUtil.stringToDateTime(effectiveClockOutEvent.getTime()));
-			} else {
-				ret.setTimeOut(timeOfFirstEvent.getEndOfDay());
-			}
+		return ret;
+	}
+
+	/**
+	 * Calculate the time sum, flexi value and in/out times for one day in the past from its stored summary. The result
+	 * is the same as that of {@link #calulateOneDay(DateTime)}.
+	 *
+	 * @param summary
+	 *            the summary of the day, {@code null} if there are no events on that day
+	 */
+	public DayLine calulateOneDay(DateTime day, DaySummary summary) {
+		DayLine ret = new DayLine();
+
+		WeekDayEnum weekDay = WeekDayEnum.getByValue(day.getWeekDay());
+		if (summary != null && summary.getFlexTarget() != null) {
+			ret.getTimeFlexi().substract(0, summary.getFlexTarget());
+		} else if (timerManager.isFlexiTimeEnabled() && timerManager.isWorkDay(weekDay)) {
+			// substract the "normal" work time for one day
+			ret.getTimeFlexi().substract(0, timerManager.getNormalWorkDurationFor(weekDay));
+		}
 
-			TimeSum amountWorked = timerManager.calculateTimeSum(timeOfFirstEvent, PeriodEnum.DAY);
-			ret.setTimeWorked(amountWorked);
-		} else if (TimerManager.isClockInEvent(lastEventBeforeToday)
-			&& DateTimeUtil.isInPast(timeOfFirstEvent.getStartOfDay())) {
-			// although there are no events on this day, the user is clocked in all day long - else there would be a
-			// CLOCK_OUT_NOW event!
-			ret.setTimeIn(timeOfFirstEvent.getStartOfDay());
-			ret.setTimeOut(timeOfFirstEvent.getEndOfDay());
-			ret.getTimeWorked().add(24, 0);
+		if (summary == null) {
+			return ret;
+		}
+
+		if (summary.getFirstIn() != null) {
+			ret.setTimeIn(DateTimeUtil.epochMinutesToDateTime(summary.getFirstIn()));
+		}
+		if (summary.getLastOut() != null) {
+			boolean endOfDay = summary.getLastOut() >= summary.getDay() + DateTimeUtil.MINUTES_PER_DAY;
+			ret.setTimeOut(endOfDay ? day.getEndOfDay() : DateTimeUtil.epochMinutesToDateTime(summary.getLastOut()));
 		}
+		ret.getTimeWorked().add(0, summary.getWorked());
 
 		ret.getTimeFlexi().addOrSubstract(ret.getTimeWorked());
 
@@ -245,13 +239,14 @@ public class TimeCalculator {
 				beginOfTimeFrame = beginOfTimeFrame.minusDays(daysInLastUnit);
 				break;
 			case ALL_DATA:
-				List<Event> allEvents = dao.getAllEvents();
-				if (allEvents.isEmpty()) {
+				DateTime firstEventTime = store.getFirstEventTime();
+				DateTime lastEventTime = store.getLastEventTime();
+				if (firstEventTime == null || lastEventTime == null) {
 					beginOfTimeFrame = DateTimeUtil.getCurrentDateTime().getStartOfDay();
 					endOfTimeFrame = DateTimeUtil.getCurrentDateTime().getEndOfDay();
 				} else {
-					beginOfTimeFrame = DateTimeUtil.stringToDateTime(allEvents.get(0).getTime()).getStartOfDay();
-					endOfTimeFrame = DateTimeUtil.stringToDateTime(allEvents.get(allEvents.size() - 1).getTime()).getEndOfDay();
+					beginOfTimeFrame = firstEventTime.getStartOfDay();
+					endOfTimeFrame = lastEventTime.getEndOfDay();
 				}
 				break;
 			default:
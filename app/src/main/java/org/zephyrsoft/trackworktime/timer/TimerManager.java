@@ -19,12 +19,12 @@ package org.zephyrsoft.trackworktime.timer;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
+import android.os.AsyncTask;
 
 import org.apache.commons.lang3.StringUtils;
 import org.pmw.tinylog.Logger;
-import org.zephyrsoft.trackworktime.Basics;
 import org.zephyrsoft.trackworktime.R;
-import org.zephyrsoft.trackworktime.database.DAO;
+import org.zephyrsoft.trackworktime.database.EventStore;
 import org.zephyrsoft.trackworktime.location.TrackingMethod;
 import org.zephyrsoft.trackworktime.model.Event;
 import org.zephyrsoft.trackworktime.model.FlexiReset;
@@ -42,7 +42,10 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import hirondelle.date4j.DateTime;
 import hirondelle.date4j.DateTime.DayOverflow;
@@ -54,39 +57,57 @@ import hirondelle.date4j.DateTime.DayOverflow;
  */
 public class TimerManager {
 
-	private final DAO dao;
+	private final EventStore store;
 	private final SharedPreferences preferences;
 	private final Context context;
+	private final WeekSumUpdater weekSumUpdater;
 
 	/**
 	 * Constructor
 	 */
-	public TimerManager(DAO dao, SharedPreferences preferences, Context context) {
-		this.dao = dao;
+	public TimerManager(EventStore store, SharedPreferences preferences, Context context) {
+		this(store, preferences, context, AsyncTask.SERIAL_EXECUTOR);
+	}
+
+	/**
+	 * Constructor for unit tests and benchmarks, which don't have the executors of Android.
+	 *
+	 * @param executor
+	 *            calculates the week sums after events were changed
+	 */
+	public TimerManager(EventStore store, SharedPreferences preferences, Context context, Executor executor) {
+		this.store = store;
 		this.preferences = preferences;
 		this.context = context;
+		weekSumUpdater = new WeekSumUpdater(store, executor, this::updateWeekSum);
 	}
 
 	public void insertDefaultWorkTimes(DateTime from, DateTime to, Integer taskId, String text) {
-		DateTime running = from.getStartOfDay();
-		DateTime target = to.getStartOfDay();
-		while (running.lteq(target)) {
-			// clock-in at start of day (00:00)
-
-			WeekDayEnum weekDay = WeekDayEnum.getByValue(running.getWeekDay());
-			int workDuration = getNormalWorkDurationFor(weekDay);
-			if (workDuration > 0) {
-				createEvent(running, taskId, TypeEnum.CLOCK_IN, text);
-				DateTime clockOutTime = running.plus(0, 0, 0, 0, workDuration, 0, 0, DayOverflow.Spillover);
-				if (isAutoPauseApplicable(clockOutTime)) {
-					int pauseDuration = getAutoPauseDuration(clockOutTime);
-					clockOutTime = clockOutTime.plus(0, 0, 0, 0, pauseDuration, 0, 0, DayOverflow.Spillover);
+		final EventBatch batch = new EventBatch(false);
+		store.executeInTransaction(() -> {
+			DateTime running = from.getStartOfDay();
+			DateTime target = to.getStartOfDay();
+			while (running.lteq(target)) {
+				// clock-in at start of day (00:00)
+
+				WeekDayEnum weekDay = WeekDayEnum.getByValue(running.getWeekDay());
+				int workDuration = getNormalWorkDurationFor(weekDay);
+				if (workDuration > 0) {
+					batch.add(running, taskId, TypeEnum.CLOCK_IN, text);
+					DateTime clockOutTime = running.plus(0, 0, 0, 0, workDuration, 0, 0, DayOverflow.Spillover);
+					// the auto-pause check has to see the clock-in, which is not written yet
+					if (isAutoPauseApplicable(clockOutTime, batch::getLastEventBefore)) {
+						int pauseDuration = getAutoPauseDuration(clockOutTime);
+						clockOutTime = clockOutTime.plus(0, 0, 0, 0, pauseDuration, 0, 0, DayOverflow.Spillover);
+					}
+					batch.add(clockOutTime, null, TypeEnum.CLOCK_OUT, null);
 				}
-				createEvent(clockOutTime, null, TypeEnum.CLOCK_OUT, null);
-			}
 
-			running = running.plusDays(1);
-		}
+				running = running.plusDays(1);
+			}
+			batch.finish();
+		});
+		batch.updateWeekSums();
 	}
 
 	/**
@@ -95,7 +116,7 @@ public class TimerManager {
 	 * @return {@code true} if currently clocked in, {@code false} otherwise
 	 */
 	public boolean isTracking() {
-		Event latestEvent = dao.getLastEventBeforeIncluding(DateTimeUtil.getCurrentDateTime());
+		Event latestEvent = store.getLastEventBeforeIncluding(DateTimeUtil.getCurrentDateTime());
 		return latestEvent != null && latestEvent.getType().equals(TypeEnum.CLOCK_IN.getValue());
 	}
 
@@ -107,7 +128,7 @@ public class TimerManager {
 		DateTime now = DateTimeUtil.getCurrentDateTime();
 
 		// get first event AFTER now, subtract the minutes to ignore before events and check if the result is BEFORE now
-		Event firstAfterNow = dao.getFirstEventAfter(now);
+		Event firstAfterNow = store.getFirstEventAfter(now);
 		String ignoreBeforeString = preferences.getString(Key.LOCATION_BASED_TRACKING_IGNORE_BEFORE_EVENTS.getName(),
 			"0");
 		int ignoreBefore = 0;
@@ -117,13 +138,13 @@ public class TimerManager {
 			Logger.warn("illegal value - ignore before events: {}", ignoreBeforeString);
 		}
 		if (firstAfterNow != null) {
-			DateTime firstAfterNowTime = DateTimeUtil.stringToDateTime(firstAfterNow.getTime());
+			DateTime firstAfterNowTime = DateTimeUtil.epochMinutesToDateTime(firstAfterNow.getTimeMinutes());
 			if (firstAfterNowTime.minus(0, 0, 0, 0, ignoreBefore, 0, 0, DayOverflow.Spillover).lt(now)) {
 				return true;
 			}
 		}
 		// get the last event BEFORE now, add the minutes to ignore after events and check if the result is AFTER now
-		Event lastBeforeNow = dao.getLastEventBefore(now);
+		Event lastBeforeNow = store.getLastEventBeforeIncluding(now);
 		String ignoreAfterString = preferences
 			.getString(Key.LOCATION_BASED_TRACKING_IGNORE_AFTER_EVENTS.getName(), "0");
 		int ignoreAfter = 0;
@@ -133,7 +154,7 @@ public class TimerManager {
 			Logger.warn("illegal value - ignore after events: {}", ignoreAfterString);
 		}
 		if (lastBeforeNow != null) {
-			DateTime lastBeforeNowTime = DateTimeUtil.stringToDateTime(lastBeforeNow.getTime());
+			DateTime lastBeforeNowTime = DateTimeUtil.epochMinutesToDateTime(lastBeforeNow.getTimeMinutes());
 			if (lastBeforeNowTime.plus(0, 0, 0, 0, ignoreAfter, 0, 0, DayOverflow.Spillover).gt(now)) {
 				return true;
 			}
@@ -146,9 +167,9 @@ public class TimerManager {
 	 * Returns the currently active task or {@code null} if tracking is disabled at the moment.
 	 */
 	public Task getCurrentTask() {
-		Event latestEvent = dao.getLastEventBefore(DateTimeUtil.getCurrentDateTime());
+		Event latestEvent = store.getLastEventBeforeIncluding(DateTimeUtil.getCurrentDateTime());
 		if (latestEvent != null && latestEvent.getType().equals(TypeEnum.CLOCK_IN.getValue())) {
-			return dao.getTask(latestEvent.getTask());
+			return store.getTask(latestEvent.getTask());
 		} else {
 			return null;
 		}
@@ -168,10 +189,9 @@ public class TimerManager {
 	public void startTracking(int minutesToPredate, Task selectedTask, String text) {
 		Task taskToLink = selectedTask;
 		if (taskToLink == null) {
-			taskToLink = dao.getDefaultTask();
+			taskToLink = store.getDefaultTask();
 		}
 		createEvent(minutesToPredate, (taskToLink == null ? null : taskToLink.getId()), TypeEnum.CLOCK_IN, text);
-		Basics.getInstance().safeCheckPersistentNotification();
 	}
 
 	/**
@@ -182,7 +202,6 @@ public class TimerManager {
 	 */
 	public void stopTracking(int minutesToPredate) {
 		createEvent(minutesToPredate, null, TypeEnum.CLOCK_OUT, null);
-		Basics.getInstance().safeCheckPersistentNotification();
 	}
 
 	/**
@@ -212,108 +231,44 @@ public class TimerManager {
 	 * Calculate a time sum for a given period.
 	 */
 	public TimeSum calculateTimeSum(DateTime date, PeriodEnum periodEnum) {
-		// TODO restructure to clarify!
 		Logger.debug("calculating time sum for {} containing {}", periodEnum.name(), DateTimeUtil
 			.dateTimeToString(date));
-		TimeSum ret = new TimeSum();
 
 		DateTime beginOfPeriod = null;
 		DateTime endOfPeriod = null;
-		List<Event> events = null;
 		switch (periodEnum) {
 			case DAY:
 				beginOfPeriod = date.getStartOfDay();
 				endOfPeriod = beginOfPeriod.plusDays(1);
-				events = dao.getEventsOnDay(date);
 				break;
 			case WEEK:
 				beginOfPeriod = DateTimeUtil.getWeekStart(date);
 				endOfPeriod = beginOfPeriod.plusDays(7);
-				Week week = dao.getWeek(DateTimeUtil.dateTimeToString(beginOfPeriod));
-				events = dao.getEventsInWeek(week);
 				break;
 			default:
 				throw new IllegalArgumentException("unknown period type");
 		}
-		Event lastEventBefore = dao.getLastEventBefore(beginOfPeriod);
-		DateTime lastEventBeforeTime = (lastEventBefore == null ? null : DateTimeUtil.stringToDateTime(lastEventBefore
-			.getTime()));
-		Event firstEventAfterNow = dao.getFirstEventAfter(DateTimeUtil.getCurrentDateTime());
-		DateTime firstEventAfterNowTime = (firstEventAfterNow == null ? null : DateTimeUtil
-			.stringToDateTime(firstEventAfterNow.getTime()));
-
-		DateTime clockedInSince = null;
-		if (isClockInEvent(lastEventBefore)
-			// but only if no CLOCK_OUT_NOW would be in between:
-			&& !(lastEventBeforeTime != null && DateTimeUtil.isInPast(lastEventBeforeTime) && ((events.isEmpty() && (firstEventAfterNow == null || DateTimeUtil
-				.isInFuture(firstEventAfterNowTime))) || (!events.isEmpty()
-				&& DateTimeUtil.isInFuture(DateTimeUtil.stringToDateTime(events.get(0).getTime())) && isClockInEvent(events
-					.get(0)))))) {
-			clockedInSince = beginOfPeriod;
-		}
-
-		Event lastEvent = (events.isEmpty() ? null : events.get(events.size() - 1));
-		DateTime lastEventTime = (lastEvent == null ? null : DateTimeUtil.stringToDateTime(lastEvent.getTime()));
-
-		// insert CLOCK_OUT_NOW event if applicable
-		if (isClockInEvent(lastEvent) && DateTimeUtil.isInPast(lastEventTime) && DateTimeUtil.isInFuture(endOfPeriod)) {
-			Event clockOutNowEvent = createClockOutNowEvent();
-			events.add(clockOutNowEvent);
-			lastEvent = clockOutNowEvent;
-		}
+		EventSequence sequence = EventSequence.read(store, beginOfPeriod, endOfPeriod);
 
-		Event eventBefore = null;
-		for (Event event : events) {
-			DateTime eventTime = DateTimeUtil.stringToDateTime(event.getTime());
-
-			// clock-in event while not clocked in? => remember time
-			if (clockedInSince == null && isClockInEvent(event)) {
-				clockedInSince = eventTime;
-			}
-			// clock-out event while clocked in? => add time since last clock-in to result
-			if (clockedInSince != null && isClockOutEvent(event)) {
-				ret.substract(clockedInSince.getHour(), clockedInSince.getMinute());
-				ret.add(eventTime.getHour(), eventTime.getMinute());
-				if (eventBefore != null) {
-					DateTime eventBeforeTime = DateTimeUtil.stringToDateTime(eventBefore.getTime());
-					// handle events which are on different days
-					int differenceInDays = eventTime.getDay() - eventBeforeTime.getDay();
-					if (differenceInDays > 0) {
-						ret.add(24 * differenceInDays, 0);
-						Logger.info("events on different days: {} => {}", eventBefore, event);
-					}
-				}
-				clockedInSince = null;
-			}
-			eventBefore = event;
-		}
-
-		if (lastEvent != null && lastEvent.getType().equals(TypeEnum.CLOCK_OUT_NOW.getValue())) {
-			// try to substract the auto-pause for today because it might be not counted in the database yet
-			DateTime eventTime = DateTimeUtil.stringToDateTime(lastEvent.getTime());
-			if (isAutoPauseEnabled() && isAutoPauseApplicable(eventTime)) {
-				DateTime autoPauseBegin = getAutoPauseBegin(eventTime);
-				DateTime autoPauseEnd = getAutoPauseEnd(eventTime);
-				ret.substract(autoPauseEnd.getHour(), autoPauseEnd.getMinute());
-				ret.add(autoPauseBegin.getHour(), autoPauseBegin.getMinute());
-			}
-		}
+		TimeAccounting accounting = createTimeAccounting();
+		accounting.calculate(sequence, DateTimeUtil.dateTimeToEpochMinutes(beginOfPeriod),
+			DateTimeUtil.dateTimeToEpochMinutes(endOfPeriod));
+		return TimeAccounting.toTimeSum(accounting.getWorked());
+	}
 
-		if (clockedInSince != null) {
-			// still clocked in at end of period: count hours and minutes
-			ret.substract(clockedInSince.getHour(), clockedInSince.getMinute());
-			ret.add(24, 0);
-			if (periodEnum == PeriodEnum.WEEK) {
-				// calculating for week: also count days
-				DateTime counting = clockedInSince.plusDays(1);
-				while (counting.lt(endOfPeriod)) {
-					ret.add(24, 0);
-					counting = counting.plusDays(1);
-				}
-			}
+	/**
+	 * Create the calculation of worked times with the current time and the auto-pause settings.
+	 */
+	TimeAccounting createTimeAccounting() {
+		DateTime now = DateTimeUtil.getCurrentDateTime();
+		int nowMinutes = DateTimeUtil.dateTimeToEpochMinutes(now);
+		if (!isAutoPauseEnabled()) {
+			return new TimeAccounting(nowMinutes, TimeAccounting.NONE, TimeAccounting.NONE);
 		}
-
-		return ret;
+		int startOfDay = DateTimeUtil.dateTimeToEpochMinutes(now.getStartOfDay());
+		return new TimeAccounting(nowMinutes,
+			DateTimeUtil.dateTimeToEpochMinutes(getAutoPauseBegin(now)) - startOfDay,
+			DateTimeUtil.dateTimeToEpochMinutes(getAutoPauseEnd(now)) - startOfDay);
 	}
 
 	/**
@@ -324,24 +279,24 @@ public class TimerManager {
 		.dateTimeToString(date));
 
 		TimeSum ret = new TimeSum();
-		List<Event> events = null;
 
 		// make date the first day of this week
 		date = date.minusDays(date.getWeekDay() - 1);
+		List<List<Event>> eventsPerDay = store.getEventsPerDay(date);
 
 		for (WeekDayEnum weekDay : WeekDayEnum.values()) {
 			DateTime day = date.plusDays(weekDay.getValue() - 1);
-			events = dao.getEventsOnDay(day);
+			List<Event> events = eventsPerDay.get(weekDay.getValue() - 1);
 			boolean foundFlexTime = false;
 			for (Event event : events) {
-				DateTime eventTime = DateTimeUtil.stringToDateTime(event.getTime());
+				DateTime eventTime = DateTimeUtil.epochMinutesToDateTime(event.getTimeMinutes());
 
 				// skip all events that are not flex events
 				if (!isFlexEvent(event)) {
 					continue;
 				}
 
-				DateTime flexTime = DateTimeUtil.stringToDateTime(event.getTime());
+				DateTime flexTime = DateTimeUtil.epochMinutesToDateTime(event.getTimeMinutes());
 				ret.add(eventTime.getHour(), eventTime.getMinute());
 				Logger.debug("calculating flexi time for {} {} event found: {}", day.toString(), weekDay.getValue(), flexTime.toString());
 				foundFlexTime = true;
@@ -438,9 +393,10 @@ public class TimerManager {
 
 		FlexiReset flexiReset = FlexiReset.loadFromPreferences(preferences);
 		DateTime from = flexiReset.calcLastResetDayFromDay(weekStart);
-		DateTime upTo = weekStart.minusDays(1);
-		List<Week> weeksToCount = dao.getWeeksBetween(
-				DateTimeUtil.dateTimeToString(from), DateTimeUtil.dateTimeToString(upTo));
+		// all weeks which start at or after the reset day and before the given week
+		int fromOrdinal = DateTimeUtil.epochMinutesToNextWeekOrdinal(DateTimeUtil.dateTimeToEpochMinutes(from));
+		int upToOrdinal = DateTimeUtil.epochMinutesToWeekOrdinal(DateTimeUtil.dateTimeToEpochMinutes(weekStart)) - 1;
+		List<Week> weeksToCount = store.getWeeksBetween(fromOrdinal, upToOrdinal);
 
 		for (Week week : weeksToCount) {
 			Integer weekWorkedMinutes = week.getSum();
@@ -614,34 +570,122 @@ public class TimerManager {
 	 * @param text
 	 *            the text (may be {@code null})
 	 * @param insertedByRestore
-	 *            true if the event is inserted by a restore. In that case, auto pause and refresh of notifications are
-	 *            suppressed.
+	 *            true if the event is inserted by a restore. In that case, auto pause is suppressed.
 	 */
 	public void createEvent(DateTime dateTime, Integer taskId, TypeEnum type, String text, boolean insertedByRestore) {
-		if (dateTime == null) {
-			throw new IllegalArgumentException("date/time has to be given");
+		final EventBatch batch = new EventBatch(insertedByRestore);
+		store.executeInTransaction(() -> {
+			batch.add(dateTime, taskId, type, text);
+			batch.finish();
+		});
+		batch.updateWeekSums();
+	}
+
+	/**
+	 * Create multiple events at once. All events are inserted in one transaction and the sum of each affected week is
+	 * only calculated once at the end, so this is much faster than calling
+	 * {@link #createEvent(DateTime, Integer, TypeEnum, String, boolean)} for each event.
+	 *
+	 * @param events
+	 *            the events to create - time, type, task and text are taken from them, the week is determined here
+	 * @param insertedByRestore
+	 *            true if the events are inserted by a restore. In that case, auto pause is suppressed.
+	 */
+	public void createEvents(final List<Event> events, boolean insertedByRestore) {
+		final EventBatch batch = new EventBatch(insertedByRestore);
+		store.executeInTransaction(() -> {
+			for (Event event : events) {
+				batch.add(DateTimeUtil.stringToDateTime(event.getTime()), event.getTask(),
+					TypeEnum.byValue(event.getType()), event.getText());
+			}
+			batch.finish();
+		});
+		batch.updateWeekSums();
+	}
+
+	/**
+	 * Collects new events so they can be written to the database together. The affected week sums are only
+	 * calculated once in {@link #updateWeekSums()}.
+	 */
+	private class EventBatch {
+		private final boolean insertedByRestore;
+		private final Map<String, Week> weeks = new LinkedHashMap<>();
+		private final List<Event> pending = new ArrayList<>();
+		private int firstMinute = Integer.MAX_VALUE;
+		private int lastMinute = Integer.MIN_VALUE;
+
+		EventBatch(boolean insertedByRestore) {
+			this.insertedByRestore = insertedByRestore;
 		}
-		if (type == null) {
-			throw new IllegalArgumentException("type has to be given");
+
+		void add(DateTime dateTime, Integer taskId, TypeEnum type, String text) {
+			if (dateTime == null) {
+				throw new IllegalArgumentException("date/time has to be given");
+			}
+			if (type == null) {
+				throw new IllegalArgumentException("type has to be given");
+			}
+			String weekStart = DateTimeUtil.getWeekStartAsString(dateTime);
+			String time = DateTimeUtil.dateTimeToString(dateTime);
+			Week currentWeek = getWeek(weekStart);
+
+			if (!insertedByRestore && type == TypeEnum.CLOCK_OUT) {
+				tryToInsertAutoPause(this, dateTime);
+			}
+
+			Event event = new Event(null, currentWeek.getId(), taskId, type.getValue(), time, text);
+			Logger.debug("TRACKING: {} @ {} taskId={} text={}", type.name(), time, taskId, text);
+			pending.add(event);
+			firstMinute = Math.min(firstMinute, event.getTimeMinutes());
+			lastMinute = Math.max(lastMinute, event.getTimeMinutes());
 		}
-		String weekStart = DateTimeUtil.getWeekStartAsString(dateTime);
-		String time = DateTimeUtil.dateTimeToString(dateTime);
-		Week currentWeek = dao.getWeek(weekStart);
-		if (currentWeek == null) {
-			currentWeek = createPersistentWeek(weekStart);
+
+		private Week getWeek(String weekStart) {
+			Week week = weeks.get(weekStart);
+			if (week == null) {
+				week = store.getWeek(weekStart);
+				if (week == null) {
+					week = createPersistentWeek(weekStart);
+				}
+				weeks.put(weekStart, week);
+			}
+			return week;
 		}
 
-		if (!insertedByRestore && type == TypeEnum.CLOCK_OUT) {
-			tryToInsertAutoPause(dateTime);
+		/**
+		 * Like {@link EventStore#getLastEventBefore(DateTime)}, but also sees the pending events.
+		 */
+		Event getLastEventBefore(DateTime dateTime) {
+			int minute = DateTimeUtil.dateTimeToEpochMinutes(dateTime);
+			Event ret = store.getLastEventBefore(dateTime);
+			for (Event event : pending) {
+				// a pending event comes after a stored one at the same time, as it will get a greater ID
+				if (event.getTimeMinutes() < minute
+					&& (ret == null || event.getTimeMinutes() >= ret.getTimeMinutes())) {
+					ret = event;
+				}
+			}
+			return ret;
 		}
 
-		Event event = new Event(null, currentWeek.getId(), taskId, type.getValue(), time, text);
-		Logger.debug("TRACKING: {} @ {} taskId={} text={}", type.name(), time, taskId, text);
-		event = dao.insertEvent(event);
+		/**
+		 * Write the pending events to the database.
+		 */
+		void finish() {
+			if (!pending.isEmpty()) {
+				store.insertEvents(pending);
+				pending.clear();
+			}
+		}
 
-		updateWeekSum(currentWeek);
-		if (!insertedByRestore) {
-			Basics.getInstance().safeCheckPersistentNotification();
+		/**
+		 * Calculate the sums of all affected weeks again (in the background) - only after the transaction was
+		 * committed, so the calculation sees the new events.
+		 */
+		void updateWeekSums() {
+			if (firstMinute <= lastMinute) {
+				eventsChanged(firstMinute, lastMinute);
+			}
 		}
 	}
 
@@ -668,14 +712,123 @@ public class TimerManager {
 		Logger.info("updating the flexi time sum to {} minutes for the week beginning at {}", flexiMinutes, week.getStart());
 		weekToUse.setFlexi(flexiMinutes);
 
-		dao.updateWeek(weekToUse);
-		// TODO update the sum of the last week(s) if type is CLOCK_OUT?
-		// TODO update the sum of the next week(s) if type is CLOCK_IN?
+		store.updateWeek(weekToUse);
+	}
+
+	/**
+	 * Calculate the sums of the weeks which depend on changed events again, in the background. The week sums depend
+	 * on the last event before the week, so the weeks after the changed ones are also calculated up to the next event
+	 * (see {@link WeekSumUpdater}). Has to be called after the change was committed, with the old and the new times of
+	 * all changed events.
+	 *
+	 * @param fromMinute
+	 *            the first changed minute (see {@link DateTimeUtil#dateTimeToEpochMinutes})
+	 * @param toMinute
+	 *            the last changed minute (including)
+	 */
+	public void eventsChanged(int fromMinute, int toMinute) {
+		weekSumUpdater.eventsChanged(fromMinute, toMinute);
+	}
+
+	/**
+	 * Delete multiple events in one transaction. The affected week sums are calculated afterwards in the background.
+	 */
+	public void deleteEvents(final List<Event> events) {
+		store.executeInTransaction(() -> {
+			int deleted = store.deleteEvents(events);
+			Logger.debug("deleted {} of {} events", deleted, events.size());
+		});
+		if (!events.isEmpty()) {
+			eventsChanged(firstMinuteOf(events, 0), lastMinuteOf(events, 0));
+		}
+	}
+
+	/**
+	 * Move multiple events in time, in one transaction. Events which are moved to another week are assigned to that
+	 * week. The sums of the affected weeks (before and after the move) are calculated afterwards in the background.
+	 *
+	 * @param minutes
+	 *            how many minutes the events are moved, negative values move them to earlier times
+	 */
+	public void shiftEvents(final List<Event> events, final int minutes) {
+		store.executeInTransaction(() -> {
+			Map<String, Week> weeks = new LinkedHashMap<>();
+			List<Event> shifted = new ArrayList<>(events.size());
+			for (Event event : events) {
+				DateTime time = DateTimeUtil.stringToDateTime(event.getTime());
+				time = minutes >= 0
+					? time.plus(0, 0, 0, 0, minutes, 0, 0, DayOverflow.Spillover)
+					: time.minus(0, 0, 0, 0, -minutes, 0, 0, DayOverflow.Spillover);
+				String weekStart = DateTimeUtil.getWeekStartAsString(time);
+				Week week = weeks.get(weekStart);
+				if (week == null) {
+					week = store.getWeek(weekStart);
+					if (week == null) {
+						week = createPersistentWeek(weekStart);
+					}
+					weeks.put(weekStart, week);
+				}
+				shifted.add(new Event(event.getId(), week.getId(), event.getTask(), event.getType(),
+					DateTimeUtil.dateTimeToString(time), event.getText()));
+			}
+			store.updateEvents(shifted);
+			Logger.debug("shifted {} events by {} minutes", shifted.size(), minutes);
+		});
+		if (!events.isEmpty()) {
+			eventsChanged(firstMinuteOf(events, Math.min(minutes, 0)), lastMinuteOf(events, Math.max(minutes, 0)));
+		}
+	}
+
+	/**
+	 * Link multiple clock-in events to another task, in one transaction. The other events don't have a task, so they
+	 * are left as they are. The events are read again in the transaction and only their task is changed, so a change
+	 * of the time or text since the given events were read isn't overwritten. The week sums don't depend on the task,
+	 * so they are not calculated again.
+	 *
+	 * @param taskId
+	 *            the task id (may be {@code null})
+	 */
+	public void reassignTask(final List<Event> events, final Integer taskId) {
+		store.executeInTransaction(() -> {
+			List<Event> changed = new ArrayList<>(events.size());
+			for (Event event : events) {
+				Event current = store.getEvent(event.getId());
+				// deleted in the meantime
+				if (current != null && isClockInEvent(current)) {
+					current.setTask(taskId);
+					changed.add(current);
+				}
+			}
+			store.updateEvents(changed);
+			Logger.debug("linked {} of {} events to task {}", changed.size(), events.size(), taskId);
+		});
+	}
+
+	/**
+	 * Get the minute of the earliest event, moved by the given number of minutes.
+	 */
+	private static int firstMinuteOf(List<Event> events, int offset) {
+		int ret = Integer.MAX_VALUE;
+		for (Event event : events) {
+			ret = Math.min(ret, event.getTimeMinutes());
+		}
+		return ret + offset;
+	}
+
+	/**
+	 * Get the minute of the latest event, moved by the given number of minutes.
+	 */
+	private static int lastMinuteOf(List<Event> events, int offset) {
+		int ret = Integer.MIN_VALUE;
+		for (Event event : events) {
+			ret = Math.max(ret, event.getTimeMinutes());
+		}
+		return ret + offset;
 	}
 
 	private Week createPersistentWeek(String weekStart) {
 		Week week = new Week(null, weekStart, 0, 0);
-		week = dao.insertWeek(week);
+		week = store.insertWeek(week);
 		return week;
 	}
 
@@ -685,26 +838,38 @@ public class TimerManager {
 	public Event createClockOutNowEvent() {
 		DateTime now = DateTimeUtil.getCurrentDateTime();
 		String weekStart = DateTimeUtil.getWeekStartAsString(now);
-		Week currentWeek = dao.getWeek(weekStart);
+		Week currentWeek = store.getWeek(weekStart);
 		return new Event(null, (currentWeek == null ? null : currentWeek.getId()), null, TypeEnum.CLOCK_OUT_NOW
 			.getValue(), DateTimeUtil.dateTimeToString(now), null);
 	}
 
-	private void tryToInsertAutoPause(DateTime dateTime) {
-		if (isAutoPauseEnabled() && isAutoPauseApplicable(dateTime)) {
+	private void tryToInsertAutoPause(EventBatch batch, DateTime dateTime) {
+		// the checks below have to see the events which are not written yet
+		if (isAutoPauseEnabled() && isAutoPauseApplicable(dateTime, batch::getLastEventBefore)) {
 			// insert auto-pause events
 			DateTime begin = getAutoPauseBegin(dateTime);
 			DateTime end = getAutoPauseEnd(dateTime);
 			Logger.debug("inserting auto-pause, begin={}, end={}", begin, end);
-			Event lastBeforePause = dao.getLastEventBefore(begin);
-			createEvent(begin, null, TypeEnum.CLOCK_OUT, null);
-			createEvent(end, (lastBeforePause == null ? null : lastBeforePause.getTask()), TypeEnum.CLOCK_IN,
+			Event lastBeforePause = batch.getLastEventBefore(begin);
+			if (lastBeforePause != null && lastBeforePause.getId() != null) {
+				// the lookup doesn't read the text of a stored event
+				lastBeforePause = store.getEvent(lastBeforePause.getId());
+			}
+			batch.add(begin, null, TypeEnum.CLOCK_OUT, null);
+			batch.add(end, (lastBeforePause == null ? null : lastBeforePause.getTask()), TypeEnum.CLOCK_IN,
 				(lastBeforePause == null ? null : lastBeforePause.getText()));
 		} else {
 			Logger.debug("NOT inserting auto-pause");
 		}
 	}
 
+	/**
+	 * Determines if the flexi time is calculated.
+	 */
+	public boolean isFlexiTimeEnabled() {
+		return preferences.getBoolean(Key.ENABLE_FLEXI_TIME.getName(), false);
+	}
+
 	/**
 	 * Determines if the auto-pause mechanism is enabled.
 	 */
@@ -716,23 +881,38 @@ public class TimerManager {
 	 * Determines if the auto-pause can be applied to the given day.
 	 */
 	public boolean isAutoPauseApplicable(DateTime dateTime) {
+		return isAutoPauseApplicable(dateTime, store::getLastEventBefore);
+	}
+
+	private boolean isAutoPauseApplicable(DateTime dateTime, LastEventLookup lookup) {
 		DateTime end = getAutoPauseEnd(dateTime);
 		// auto-pause is theoretically applicable
-		return isAutoPauseTheoreticallyApplicable(dateTime)
+		return isAutoPauseTheoreticallyApplicable(dateTime, lookup)
 			// given time is after auto-pause end, so auto-pause should really be applied
 			&& dateTime.gt(end);
 	}
 
+	/** finds the last event before the given time, see {@link EventStore#getLastEventBefore(DateTime)} */
+	private interface LastEventLookup {
+		Event getLastEventBefore(DateTime dateTime);
+	}
+
 	private boolean isAutoPauseTheoreticallyApplicable(DateTime dateTime) {
+		return isAutoPauseTheoreticallyApplicable(dateTime, store::getLastEventBefore);
+	}
+
+	private boolean isAutoPauseTheoreticallyApplicable(DateTime dateTime, LastEventLookup lookup) {
 		DateTime begin = getAutoPauseBegin(dateTime);
 		DateTime end = getAutoPauseEnd(dateTime);
 		if (begin.lt(end)) {
-			Event lastEventBeforeBegin = dao.getLastEventBefore(begin);
-			Event lastEventBeforeEnd = dao.getLastEventBefore(end);
+			Event lastEventBeforeBegin = lookup.getLastEventBefore(begin);
+			Event lastEventBeforeEnd = lookup.getLastEventBefore(end);
 			// is clocked in before begin
 			return lastEventBeforeBegin != null && lastEventBeforeBegin.getType().equals(TypeEnum.CLOCK_IN.getValue())
-				// no event is in auto-pause interval
-				&& lastEventBeforeBegin.getId().equals(lastEventBeforeEnd.getId());
+				// no event is in auto-pause interval (pending events don't have an ID yet)
+				&& (lastEventBeforeBegin == lastEventBeforeEnd
+					|| lastEventBeforeBegin.getId() != null
+						&& lastEventBeforeBegin.getId().equals(lastEventBeforeEnd.getId()));
 		} else {
 			// begin is equal to end or (even worse) begin is after end => no auto-pause
 			return false;
@@ -0,0 +1,135 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.timer;
+
+import org.pmw.tinylog.Logger;
+import org.zephyrsoft.trackworktime.database.EventStore;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.Week;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Calculates the stored week sums again after events were changed, in the background. Only the weeks which depend on
+ * the changed events are calculated: the weeks which contain them and the following weeks up to the next event after
+ * the change (normally the clock-out which ends the changed work time). The sum of a week depends on the last event
+ * before it, so later weeks are not affected.
+ *
+ * Changes which arrive while a calculation is scheduled or running are merged and calculated together afterwards, so a
+ * burst of edits leads to only one more calculation.
+ *
+ * This class is thread safe.
+ */
+public class WeekSumUpdater {
+
+	/**
+	 * Calculates and stores the sums of one week.
+	 */
+	public interface WeekUpdate {
+		void update(Week week);
+	}
+
+	private final EventStore store;
+	private final Executor executor;
+	private final WeekUpdate weekUpdate;
+
+	/** the changed time which is not calculated yet (both including) */
+	private int pendingFrom;
+	private int pendingTo;
+	private boolean pending = false;
+	/** is a calculation scheduled or running? */
+	private boolean scheduled = false;
+
+	/**
+	 * @param executor
+	 *            runs the calculations - they are never run in parallel, so it doesn't have to be a serial executor
+	 */
+	public WeekSumUpdater(EventStore store, Executor executor, WeekUpdate weekUpdate) {
+		this.store = store;
+		this.executor = executor;
+		this.weekUpdate = weekUpdate;
+	}
+
+	/**
+	 * Schedule the calculation of the affected weeks. Has to be called after the change was written, with the old and
+	 * the new times of all changed events.
+	 *
+	 * @param fromMinute
+	 *            the first changed minute (see {@link DateTimeUtil#dateTimeToEpochMinutes})
+	 * @param toMinute
+	 *            the last changed minute (including)
+	 */
+	public void eventsChanged(int fromMinute, int toMinute) {
+		synchronized (this) {
+			if (pending) {
+				pendingFrom = Math.min(pendingFrom, fromMinute);
+				pendingTo = Math.max(pendingTo, toMinute);
+			} else {
+				pendingFrom = fromMinute;
+				pendingTo = toMinute;
+				pending = true;
+			}
+			if (scheduled) {
+				return;
+			}
+			scheduled = true;
+		}
+		executor.execute(this::updatePendingWeeks);
+	}
+
+	private void updatePendingWeeks() {
+		while (true) {
+			int from;
+			int to;
+			synchronized (this) {
+				if (!pending) {
+					scheduled = false;
+					return;
+				}
+				from = pendingFrom;
+				to = pendingTo;
+				pending = false;
+			}
+			try {
+				updateWeeks(from, to);
+			} catch (RuntimeException e) {
+				Logger.warn(e, "could not update the week sums after a change from minute {} to {}", from, to);
+			}
+		}
+	}
+
+	private void updateWeeks(int fromMinute, int toMinute) {
+		int firstWeek = DateTimeUtil.epochMinutesToWeekOrdinal(fromMinute);
+		// the next event decides again if the user is clocked in, so the weeks after it don't depend on the change
+		Event next = store.getFirstEventAfter(DateTimeUtil.epochMinutesToDateTime(toMinute));
+		int lastMinute = next == null
+			? Math.max(toMinute, DateTimeUtil.dateTimeToEpochMinutes(DateTimeUtil.getCurrentDateTime()))
+			: next.getTimeMinutes();
+		int lastWeek = DateTimeUtil.epochMinutesToWeekOrdinal(lastMinute);
+		Logger.debug("updating the sums of the weeks {} to {}", firstWeek, lastWeek);
+		store.executeInTransaction(() -> {
+			// weeks which don't exist have no events, so there is nothing to store for them
+			List<Week> weeks = store.getWeeksBetween(firstWeek, lastWeek);
+			for (Week week : weeks) {
+				weekUpdate.update(week);
+			}
+		});
+	}
+
+}
@@ -30,6 +30,13 @@ import hirondelle.date4j.DateTime.DayOverflow;
  */
 public class DateTimeUtil {
 
+	/** the number of minutes in one day, see {@link #dateTimeToEpochMinutes(DateTime)} */
+	public static final int MINUTES_PER_DAY = 24 * 60;
+	/** the number of minutes in one week, see {@link #epochMinutesToWeekOrdinal(int)} */
+	public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+	/** 1970-01-01 is a thursday, so the week with ordinal 0 begins three days earlier (on monday, 1969-12-29) */
+	private static final int MINUTES_FROM_FIRST_WEEK_TO_EPOCH = 3 * MINUTES_PER_DAY;
+
 	/**
 	 * Gets the current date and time.
 	 * 
@@ -97,10 +104,8 @@ public class DateTimeUtil {
 		// go back to this day's start
 		DateTime ret = dateTime.getStartOfDay();
 		// go back to last Monday
-		while (ret.getWeekDay() != WeekDayEnum.MONDAY.getValue()) {
-			ret = ret.minusDays(1);
-		}
-		return ret;
+		int daysSinceMonday = (ret.getWeekDay() - WeekDayEnum.MONDAY.getValue() + 7) % 7;
+		return daysSinceMonday == 0 ? ret : ret.minusDays(daysSinceMonday);
 	}
 
 	/**
@@ -136,6 +141,184 @@ public class DateTimeUtil {
 		return new DateTime(string);
 	}
 
+	/**
+	 * Converts a {@link DateTime} to the number of minutes since 1970-01-01 00:00. The date and time fields are taken
+	 * as they are (local wall-clock time, no time zone conversion), seconds and smaller units are cut off.
+	 *
+	 * @param dateTime
+	 *            the input (may not be null, missing time fields are treated as 0)
+	 * @return the minutes which correspond to the given input
+	 */
+	public static int dateTimeToEpochMinutes(DateTime dateTime) {
+		int days = daysFromCivil(dateTime.getYear(), dateTime.getMonth(), dateTime.getDay());
+		int hour = dateTime.getHour() == null ? 0 : dateTime.getHour();
+		int minute = dateTime.getMinute() == null ? 0 : dateTime.getMinute();
+		return days * MINUTES_PER_DAY + hour * 60 + minute;
+	}
+
+	/**
+	 * Converts the end of a time frame to the number of minutes since 1970-01-01 00:00, so that a time in the same
+	 * minute but before the given seconds is still part of the time frame.
+	 *
+	 * @param dateTime
+	 *            the input (may not be null)
+	 * @return the minutes which correspond to the given input, plus one if seconds or nanoseconds are set
+	 */
+	public static int dateTimeToEpochMinutesRoundingUp(DateTime dateTime) {
+		int minutes = dateTimeToEpochMinutes(dateTime);
+		boolean hasSeconds = (dateTime.getSecond() != null && dateTime.getSecond() > 0)
+			|| (dateTime.getNanoseconds() != null && dateTime.getNanoseconds() > 0);
+		return hasSeconds ? minutes + 1 : minutes;
+	}
+
+	/**
+	 * Converts a String in the format produced by {@link #dateTimeToString(DateTime)} to the number of minutes since
+	 * 1970-01-01 00:00 without building a {@link DateTime} object. Seconds and smaller units are cut off.
+	 *
+	 * @param string
+	 *            the input (may not be null, has to start with "YYYY-MM-DD hh:mm" or consist of "YYYY-MM-DD" only,
+	 *            which means 00:00)
+	 * @return the minutes which correspond to the given input
+	 */
+	public static int stringToEpochMinutes(String string) {
+		int days = daysFromCivil(parseDigits(string, 0, 4), parseDigits(string, 5, 7), parseDigits(string, 8, 10));
+		if (string.length() == 10) {
+			return days * MINUTES_PER_DAY;
+		}
+		return days * MINUTES_PER_DAY + parseDigits(string, 11, 13) * 60 + parseDigits(string, 14, 16);
+	}
+
+	/**
+	 * Gets the ordinal of the week (beginning on monday) which contains the given minute: the number of weeks since the
+	 * week which contains 1970-01-01. It is also the position of the week in the week pager.
+	 *
+	 * @param epochMinutes
+	 *            the minutes since 1970-01-01 00:00
+	 * @return the week ordinal, negative for weeks before 1969-12-29
+	 */
+	public static int epochMinutesToWeekOrdinal(int epochMinutes) {
+		int shifted = epochMinutes + MINUTES_FROM_FIRST_WEEK_TO_EPOCH;
+		// Math.floorDiv() is not available on older Android versions
+		return shifted >= 0 ? shifted / MINUTES_PER_WEEK : -((MINUTES_PER_WEEK - 1 - shifted) / MINUTES_PER_WEEK);
+	}
+
+	/**
+	 * Gets the first minute of the day which contains the given minute.
+	 *
+	 * @param epochMinutes
+	 *            the minutes since 1970-01-01 00:00, may be negative
+	 */
+	public static int epochMinutesToStartOfDay(int epochMinutes) {
+		// Math.floorMod() is not available on older Android versions, and % keeps the sign of negative minutes
+		int minuteOfDay = epochMinutes % MINUTES_PER_DAY;
+		return epochMinutes - (minuteOfDay < 0 ? minuteOfDay + MINUTES_PER_DAY : minuteOfDay);
+	}
+
+	/**
+	 * Gets the ordinal of the first week which begins at or after the given minute.
+	 *
+	 * @see #epochMinutesToWeekOrdinal(int)
+	 */
+	public static int epochMinutesToNextWeekOrdinal(int epochMinutes) {
+		return -epochMinutesToWeekOrdinal(-epochMinutes - 2 * MINUTES_FROM_FIRST_WEEK_TO_EPOCH);
+	}
+
+	/**
+	 * Gets the first minute of the week with the given ordinal.
+	 *
+	 * @see #epochMinutesToWeekOrdinal(int)
+	 */
+	public static int weekOrdinalToEpochMinutes(int weekOrdinal) {
+		return weekOrdinal * MINUTES_PER_WEEK - MINUTES_FROM_FIRST_WEEK_TO_EPOCH;
+	}
+
+	/**
+	 * Gets the start of the week with the given ordinal in the format produced by {@link #dateTimeToString(DateTime)}.
+	 *
+	 * @see #epochMinutesToWeekOrdinal(int)
+	 */
+	public static String weekOrdinalToString(int weekOrdinal) {
+		return dateTimeToString(epochMinutesToDateTime(weekOrdinalToEpochMinutes(weekOrdinal)));
+	}
+
+	/**
+	 * Formats a number of minutes since 1970-01-01 00:00 like {@link #dateTimeToString(DateTime)} does, but much
+	 * faster than {@link DateTime#format(String)}.
+	 */
+	public static String epochMinutesToString(int epochMinutes) {
+		DateTime dateTime = epochMinutesToDateTime(epochMinutes);
+		StringBuilder ret = new StringBuilder(24);
+		appendPadded(ret, dateTime.getYear(), 4);
+		ret.append('-');
+		appendPadded(ret, dateTime.getMonth(), 2);
+		ret.append('-');
+		appendPadded(ret, dateTime.getDay(), 2);
+		ret.append(' ');
+		appendPadded(ret, dateTime.getHour(), 2);
+		ret.append(':');
+		appendPadded(ret, dateTime.getMinute(), 2);
+		return ret.append(":00.0000").toString();
+	}
+
+	private static void appendPadded(StringBuilder builder, int number, int digits) {
+		String string = String.valueOf(number);
+		for (int i = string.length(); i < digits; i++) {
+			builder.append('0');
+		}
+		builder.append(string);
+	}
+
+	/**
+	 * Converts a number of minutes since 1970-01-01 00:00 (as returned by {@link #dateTimeToEpochMinutes(DateTime)})
+	 * back to a {@link DateTime}.
+	 *
+	 * @param epochMinutes
+	 *            the minutes since 1970-01-01 00:00
+	 * @return the DateTime which corresponds to the given input (with seconds and nanoseconds set to 0)
+	 */
+	public static DateTime epochMinutesToDateTime(int epochMinutes) {
+		// Math.floorDiv() is not available on older Android versions
+		int days = epochMinutes >= 0 ? epochMinutes / MINUTES_PER_DAY
+			: -((MINUTES_PER_DAY - 1 - epochMinutes) / MINUTES_PER_DAY);
+		int minuteOfDay = epochMinutes - days * MINUTES_PER_DAY;
+		// see http://howardhinnant.github.io/date_algorithms.html#civil_from_days
+		int z = days + 719468;
+		int era = (z >= 0 ? z : z - 146096) / 146097;
+		int dayOfEra = z - era * 146097;
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int shiftedMonth = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+		int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+		int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		return new DateTime(year, month, day, minuteOfDay / 60, minuteOfDay % 60, 0, 0);
+	}
+
+	/**
+	 * Days since 1970-01-01 in the proleptic Gregorian calendar, see
+	 * http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+	 */
+	private static int daysFromCivil(int year, int month, int day) {
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	private static int parseDigits(String string, int from, int to) {
+		int ret = 0;
+		for (int i = from; i < to; i++) {
+			char c = string.charAt(i);
+			if (c < '0' || c > '9') {
+				throw new IllegalArgumentException("not a valid date/time: " + string);
+			}
+			ret = ret * 10 + (c - '0');
+		}
+		return ret;
+	}
+
 	/**
 	 * Formats a {@link DateTime} to a String which contains the hour and minute only (omitting the date and the
 	 * seconds).
@@ -0,0 +1,59 @@
+/*
+ * This file is part of TrackWorkTime (TWT).
+ *
+ * TWT is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TWT is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with TWT. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zephyrsoft.trackworktime.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.zephyrsoft.trackworktime.database.DataChange;
+import org.zephyrsoft.trackworktime.database.DataChangeListener;
+
+/**
+ * Forwards the changes published by the DAO to the main thread. Changes which arrive before the main thread handled
+ * the previous ones are merged, so e.g. the event and the week sum written by one clock-in lead to only one refresh.
+ */
+public abstract class MainThreadDataChangeListener implements DataChangeListener {
+
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private DataChange pendingChange;
+
+	@Override
+	public final synchronized void onDataChanged(DataChange change) {
+		boolean alreadyScheduled = pendingChange != null;
+		pendingChange = change.merge(pendingChange);
+		if (!alreadyScheduled) {
+			handler.post(() -> deliver());
+		}
+	}
+
+	private void deliver() {
+		DataChange change;
+		synchronized (this) {
+			change = pendingChange;
+			pendingChange = null;
+		}
+		if (change != null) {
+			onDataChangedOnMainThread(change);
+		}
+	}
+
+	/**
+	 * Called on the main thread with all changes since the last call.
+	 */
+	protected abstract void onDataChangedOnMainThread(DataChange change);
+
+}
@@ -0,0 +1,30 @@
+package org.zephyrsoft.trackworktime.weektimes;
+
+import org.zephyrsoft.trackworktime.database.DataChange;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+/**
+ * Decides which weeks of the week pager have to be loaded again after a {@link DataChange}. The flexi time of a week
+ * depends on the weeks before it, so all weeks from the first affected one on are loaded again.
+ */
+public class ChangedWeeks {
+
+	/** no week has to be loaded again, only tasks changed */
+	public static final int NONE = Integer.MAX_VALUE;
+
+	private ChangedWeeks() {
+		// only static methods
+	}
+
+	/**
+	 * @return the index of the first week which has to be loaded again (see {@link WeekIndexConverter}), or
+	 *         {@link #NONE}
+	 */
+	public static int getFirstIndex(DataChange change) {
+		if (!change.affectsTime()) {
+			return NONE;
+		}
+		return Math.max(0, DateTimeUtil.epochMinutesToWeekOrdinal(change.getFromMinute()));
+	}
+
+}
@@ -5,6 +5,7 @@ import android.view.View.OnClickListener;
 import android.view.ViewGroup;
 import android.view.ViewGroup.LayoutParams;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
@@ -65,6 +66,23 @@ public class WeekAdapter extends RecyclerView.Adapter<WeekTimesViewHolder> {
 		holder.recycle();
 	}
 
+	/**
+	 * Load all shown weeks again, see {@link #notifyDataSetChanged()}.
+	 */
+	public void notifyAllWeeksChanged() {
+		notifyDataSetChanged();
+	}
+
+	/**
+	 * Load the weeks from the given index on again, e.g. because their data changed. Only the currently bound weeks
+	 * are calculated again, in contrast to {@link #notifyAllWeeksChanged()} the other ones stay untouched.
+	 *
+	 * @see ChangedWeeks
+	 */
+	public void notifyWeeksChangedFrom(@IntRange(from=0) int weekIndex) {
+		notifyItemRangeChanged(weekIndex, getItemCount() - weekIndex);
+	}
+
 	@Override public int getItemCount() {
 		return Integer.MAX_VALUE;
 	}
@@ -8,8 +8,6 @@ import org.zephyrsoft.trackworktime.model.Week;
 import org.zephyrsoft.trackworktime.model.WeekPlaceholder;
 import org.zephyrsoft.trackworktime.util.DateTimeUtil;
 
-import java.util.TimeZone;
-
 import hirondelle.date4j.DateTime;
 
 /**
@@ -17,29 +15,31 @@ import hirondelle.date4j.DateTime;
  * starting with 0.
  *
  * E.g. index of 0 means 1st week after epoch.
+ *
+ * The week-index is the same as the {@link Week#getOrdinal() week ordinal}, so no dates have to be formatted or parsed.
  */
 public class WeekIndexConverter {
 
 	private final DAO dao;
-	private final DateTime epochDate;
 
-	public WeekIndexConverter(@NonNull DAO dao, @NonNull TimeZone timeZone) {
+	public WeekIndexConverter(@NonNull DAO dao) {
 		this.dao = dao;
-		epochDate = DateTime.forInstant(0, timeZone);
 		verifyValues();
 	}
 
 	private void verifyValues() {
-		if(dao == null || epochDate == null) {
-			throw new IllegalStateException("Invalid class state, dao " + dao + ", epochDate "
-					+ epochDate);
+		if(dao == null) {
+			throw new IllegalStateException("Invalid class state, dao " + dao);
 		}
 	}
 
 	public @NonNull Week getWeekForIndex(@IntRange(from=0) int weekIndex) {
 		checkWeekIndex(weekIndex);
-		DateTime weekOnIndex = getDateForIndex(weekIndex);
-		return getWeekForDate(weekOnIndex);
+		Week week = dao.getWeekByOrdinal(weekIndex);
+		if (week == null) {
+			week = new WeekPlaceholder(weekIndex);
+		}
+		return week;
 	}
 
 	private void checkWeekIndex(int weekIndex) {
@@ -48,23 +48,16 @@ public class WeekIndexConverter {
 		}
 	}
 
-	private DateTime getDateForIndex(int weekIndex) {
-		return DateTimeUtil.plusWeeks(epochDate, weekIndex);
-	}
-
-	private Week getWeekForDate(DateTime dateTime) {
-		DateTime weekStart = DateTimeUtil.getWeekStart(dateTime);
-		Week week = dao.getWeek(DateTimeUtil.dateTimeToString(weekStart));
-		if (week == null) {
-			week = new WeekPlaceholder(DateTimeUtil.dateTimeToString(weekStart));
-		}
-		return week;
-	}
-
 	public @IntRange(from=0) int getIndexForWeek(@NonNull Week week) {
 		checkWeek(week);
-		DateTime weekDate = getDateForWeek(week);
-		return weekDate.getWeekIndex(epochDate);
+		return week.getOrdinal();
+	}
+
+	/**
+	 * @return index of the week which contains the given date, negative for dates before the epoch
+	 */
+	public int getIndexForDate(@NonNull DateTime date) {
+		return DateTimeUtil.epochMinutesToWeekOrdinal(DateTimeUtil.dateTimeToEpochMinutes(date));
 	}
 
 	private void checkWeek(Week week) {
@@ -73,9 +66,4 @@ public class WeekIndexConverter {
 		}
 	}
 
-	private DateTime getDateForWeek(Week week) {
-		String start = week.getStart();
-		return DateTimeUtil.stringToDateTime(start);
-	}
-
 }
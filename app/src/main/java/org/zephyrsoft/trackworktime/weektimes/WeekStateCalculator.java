@@ -6,11 +6,10 @@ import android.content.SharedPreferences;
 import androidx.annotation.NonNull;
 import androidx.annotation.StringRes;
 
-import org.pmw.tinylog.Logger;
 import org.zephyrsoft.trackworktime.R;
-import org.zephyrsoft.trackworktime.database.DAO;
+import org.zephyrsoft.trackworktime.database.EventStore;
 import org.zephyrsoft.trackworktime.model.DayLine;
-import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.DaySummary;
 import org.zephyrsoft.trackworktime.model.FlexiReset;
 import org.zephyrsoft.trackworktime.model.PeriodEnum;
 import org.zephyrsoft.trackworktime.model.TimeSum;
@@ -30,8 +29,15 @@ import hirondelle.date4j.DateTime;
 
 public class WeekStateCalculator {
 
-	private final Context context;
-	private final DAO dao;
+	/**
+	 * Reads the texts of the labels, normally from the resources of a {@link Context}.
+	 */
+	interface Labels {
+		String getString(@StringRes int id);
+	}
+
+	private final Labels labels;
+	private final EventStore store;
 	private final TimerManager timerManager;
 	private final SharedPreferences preferences;
 	private final TimeCalculator timeCalculator;
@@ -39,12 +45,19 @@ public class WeekStateCalculator {
 	private final DateTime monday, tuesday, wednesday, thursday, friday, saturday, sunday;
 
 	private FlexiReset flexiReset;
+	private boolean clockedInNow;
+
+	public WeekStateCalculator(@NonNull Context context, @NonNull EventStore store,
+			@NonNull TimerManager timerManager, @NonNull TimeCalculator timeCalculator,
+			@NonNull SharedPreferences preferences, @NonNull Week week) {
+		this(context::getString, store, timerManager, timeCalculator, preferences, week);
+	}
 
-	public WeekStateCalculator(@NonNull Context context, @NonNull DAO dao,
+	WeekStateCalculator(@NonNull Labels labels, @NonNull EventStore store,
 			@NonNull TimerManager timerManager, @NonNull TimeCalculator timeCalculator,
 			@NonNull SharedPreferences preferences, @NonNull Week week) {
-		this.context = context;
-		this.dao = dao;
+		this.labels = labels;
+		this.store = store;
 		this.timerManager = timerManager;
 		this.timeCalculator = timeCalculator;
 		this.preferences = preferences;
@@ -128,43 +141,41 @@ public class WeekStateCalculator {
 			flexiBalance = timerManager.getFlexiBalanceAtWeekStart(
 					DateTimeUtil.stringToDateTime(week.getStart()));
 		}
-		boolean earlierEventsExist = (dao.getLastEventBefore(monday.getStartOfDay()) != null);
+		boolean earlierEventsExist = (store.getLastEventBefore(monday.getStartOfDay()) != null);
 		boolean showFlexiTimes = hasRealData || earlierEventsExist;
 
-		List<Event> events = fetchEventsForDay(monday);
+		// all days are read at once
+		List<DaySummary> daySummaries = store.getDaySummariesPerDay(monday);
+		clockedInNow = TimerManager.isClockInEvent(
+				store.getLastEventBeforeIncluding(DateTimeUtil.getCurrentDateTime()));
+
 		resetFlexiIfNecessary(monday, flexiBalance);
-		flexiBalance = setTimesForSingleDay(monday, events, flexiBalance, weekState.monday,
-				showFlexiTimes);
+		flexiBalance = setTimesForSingleDay(monday, daySummaries.get(0), flexiBalance,
+				weekState.monday, showFlexiTimes);
 
-		events = fetchEventsForDay(tuesday);
 		resetFlexiIfNecessary(tuesday, flexiBalance);
-		flexiBalance = setTimesForSingleDay(tuesday, events, flexiBalance, weekState.tuesday,
-				showFlexiTimes);
+		flexiBalance = setTimesForSingleDay(tuesday, daySummaries.get(1), flexiBalance,
+				weekState.tuesday, showFlexiTimes);
 
-		events = fetchEventsForDay(wednesday);
 		resetFlexiIfNecessary(wednesday, flexiBalance);
-		flexiBalance = setTimesForSingleDay(wednesday, events, flexiBalance, weekState.wednesday,
-				showFlexiTimes);
+		flexiBalance = setTimesForSingleDay(wednesday, daySummaries.get(2), flexiBalance,
+				weekState.wednesday, showFlexiTimes);
 
-		events = fetchEventsForDay(thursday);
 		resetFlexiIfNecessary(thursday, flexiBalance);
-		flexiBalance = setTimesForSingleDay(thursday, events, flexiBalance, weekState.thursday,
-				showFlexiTimes);
+		flexiBalance = setTimesForSingleDay(thursday, daySummaries.get(3), flexiBalance,
+				weekState.thursday, showFlexiTimes);
 
-		events = fetchEventsForDay(friday);
 		resetFlexiIfNecessary(friday, flexiBalance);
-		flexiBalance = setTimesForSingleDay(friday, events, flexiBalance, weekState.friday,
-				showFlexiTimes);
+		flexiBalance = setTimesForSingleDay(friday, daySummaries.get(4), flexiBalance,
+				weekState.friday, showFlexiTimes);
 
-		events = fetchEventsForDay(saturday);
 		resetFlexiIfNecessary(saturday, flexiBalance);
-		flexiBalance = setTimesForSingleDay(saturday, events, flexiBalance, weekState.saturday,
-				showFlexiTimes);
+		flexiBalance = setTimesForSingleDay(saturday, daySummaries.get(5), flexiBalance,
+				weekState.saturday, showFlexiTimes);
 
-		events = fetchEventsForDay(sunday);
 		resetFlexiIfNecessary(sunday, flexiBalance);
-		flexiBalance = setTimesForSingleDay(sunday, events, flexiBalance, weekState.sunday,
-				showFlexiTimes);
+		flexiBalance = setTimesForSingleDay(sunday, daySummaries.get(6), flexiBalance,
+				weekState.sunday, showFlexiTimes);
 
 		DateTime weekStart = DateTimeUtil.getWeekStart(DateTimeUtil.stringToDateTime(week.getStart()));
 		TimeSum amountWorked = timerManager.calculateTimeSum(weekStart, PeriodEnum.WEEK);
@@ -181,27 +192,23 @@ public class WeekStateCalculator {
 		}
 	}
 
-	private List<Event> fetchEventsForDay(DateTime day) {
-		Logger.debug("fetchEventsForDay: {}", DateTimeUtil.dateTimeToDateString(day));
-		List<Event> ret = dao.getEventsOnDay(day);
-		DateTime now = DateTimeUtil.getCurrentDateTime();
-		Event lastEventBeforeNow = dao.getLastEventBefore(now);
-		if (day.isSameDayAs(now) && TimerManager.isClockInEvent(lastEventBeforeNow)) {
-			// currently clocked in: add clock-out event "NOW"
-			ret.add(timerManager.createClockOutNowEvent());
-		}
-		return ret;
-	}
-
-	private TimeSum setTimesForSingleDay(DateTime day, List<Event> events, TimeSum flexiBalanceAtDayStart,
+	private TimeSum setTimesForSingleDay(DateTime day, DaySummary daySummary, TimeSum flexiBalanceAtDayStart,
 			WeekRowState weekRowState, boolean showFlexiTimes) {
 
-		DayLine dayLine = timeCalculator.calulateOneDay(day, events);
+		// finished days and later days without events don't depend on the current time, so their stored summary
+		// can be used - only today is read from the events
+		DateTime now = DateTimeUtil.getCurrentDateTime();
+		boolean today = day.isSameDayAs(now);
+		boolean finished = day.getStartOfDay().lt(now.getStartOfDay());
+		DayLine dayLine = finished || !today && daySummary == null
+				? timeCalculator.calulateOneDay(day, daySummary)
+				: timeCalculator.calulateOneDay(day);
 
 		WeekDayEnum weekDay = WeekDayEnum.getByValue(day.getWeekDay());
 		boolean isWorkDay = timerManager.isWorkDay(weekDay);
 		boolean isTodayOrEarlier = DateTimeUtil.isInPast(day.getStartOfDay());
-		boolean containsEventsForDay = containsEventsForDay(events, day);
+		// while clocked in, today counts as a day with events
+		boolean containsEventsForDay = daySummary != null || today && clockedInNow;
 		boolean weekEndWithoutEvents = !isWorkDay && !containsEventsForDay;
 		// correct result by previous flexi time sum
 		dayLine.getTimeFlexi().addOrSubstract(flexiBalanceAtDayStart);
@@ -252,15 +259,6 @@ public class WeekStateCalculator {
 		weekRowState.setFlexi(showFlexi ? flexiBalance.toString() : "");
 	}
 
-	private boolean containsEventsForDay(List<Event> events, DateTime day) {
-		for (Event event : events) {
-			if (DateTimeUtil.stringToDateTime(event.getTime()).isSameDayAs(day)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
 	private boolean isCurrentMinute(DateTime dateTime) {
 		if (dateTime == null) {
 			return false;
@@ -285,7 +283,7 @@ public class WeekStateCalculator {
 	}
 
 	private String getString(@StringRes int id) {
-		return context.getString(id);
+		return labels.getString(id);
 	}
 
 }
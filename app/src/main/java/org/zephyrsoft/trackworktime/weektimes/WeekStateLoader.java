@@ -5,21 +5,29 @@ import android.os.AsyncTask;
 import androidx.annotation.NonNull;
 import androidx.core.util.Consumer;
 
+import org.zephyrsoft.trackworktime.database.DaoMetrics;
 import org.zephyrsoft.trackworktime.model.WeekState;
 
 public class WeekStateLoader extends AsyncTask<Void, Void, WeekState> {
 
 	private final WeekStateCalculator weekStateCalculator;
+	private final DaoMetrics metrics;
 	private Consumer<WeekState> onWeekStateLoaded;
 
-	public WeekStateLoader(@NonNull WeekStateCalculator weekStateCalculator,
+	public WeekStateLoader(@NonNull WeekStateCalculator weekStateCalculator, @NonNull DaoMetrics metrics,
 			@NonNull Consumer<WeekState> onWeekStateLoaded) {
 		this.weekStateCalculator = weekStateCalculator;
+		this.metrics = metrics;
 		this.onWeekStateLoaded = onWeekStateLoaded;
 	}
 
 	@Override protected WeekState doInBackground(Void... voids) {
-		return weekStateCalculator.calculateWeekState();
+		DaoMetrics.Call call = metrics.begin("WeekStateCalculator.calculateWeekState");
+		try {
+			return weekStateCalculator.calculateWeekState();
+		} finally {
+			call.end();
+		}
 	}
 
 	@Override protected void onPostExecute(WeekState weekState) {
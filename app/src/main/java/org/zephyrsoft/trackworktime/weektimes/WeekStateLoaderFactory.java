@@ -3,21 +3,25 @@ package org.zephyrsoft.trackworktime.weektimes;
 import androidx.annotation.NonNull;
 import androidx.core.util.Consumer;
 
+import org.zephyrsoft.trackworktime.database.DaoMetrics;
 import org.zephyrsoft.trackworktime.model.Week;
 import org.zephyrsoft.trackworktime.model.WeekState;
 
 public class WeekStateLoaderFactory {
 
 	private WeekStateCalculatorFactory weekStateCalculatorFactory;
+	private DaoMetrics metrics;
 
-	public WeekStateLoaderFactory(@NonNull WeekStateCalculatorFactory weekStateCalculatorFactory) {
+	public WeekStateLoaderFactory(@NonNull WeekStateCalculatorFactory weekStateCalculatorFactory,
+			@NonNull DaoMetrics metrics) {
 		this.weekStateCalculatorFactory = weekStateCalculatorFactory;
+		this.metrics = metrics;
 	}
 
 	public @NonNull WeekStateLoader create(@NonNull Week week,
 			@NonNull Consumer<WeekState> onLoadedCallback) {
 		WeekStateCalculator weekStateCalculator = weekStateCalculatorFactory.createForWeek(week);
-		return new WeekStateLoader(weekStateCalculator, onLoadedCallback);
+		return new WeekStateLoader(weekStateCalculator, metrics, onLoadedCallback);
 	}
 
 }
@@ -0,0 +1,209 @@
+package org.zephyrsoft.trackworktime.database;
+
+import android.database.Cursor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * The lookups which combine the main database with the archives of closed years. The archives are lists here which
+ * record the years that were read.
+ */
+public class ArchivedEventsTest {
+
+	private static final List<Integer> YEARS = Arrays.asList(2018, 2019);
+
+	private final Map<Integer, List<Event>> archives = new HashMap<>();
+	private final List<Integer> readYears = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		archives.put(2018, new ArrayList<>(Arrays.asList(event(1, "2018-03-05 08:00"), event(2, "2018-12-31 17:00"))));
+		archives.put(2019, new ArrayList<>(Arrays.asList(event(3, "2019-06-03 08:00"), event(4, "2019-06-03 08:00"))));
+	}
+
+	@Test
+	public void mergeOrdersByTimeAndId() {
+		Cursor main = cursor(row(5, 100), row(7, 300));
+		Cursor archive = cursor(row(1, 50), row(2, 100), row(3, 300));
+		Cursor emptyArchive = cursor();
+		List<Integer> ids = new ArrayList<>();
+
+		ArchivedEvents.merge(Arrays.asList(main, emptyArchive, archive),
+			cursor -> ids.add(cursor.getInt(ArchivedEvents.ID_COLUMN)));
+
+		assertThat(ids).containsExactly(1, 2, 5, 3, 7).inOrder();
+	}
+
+	@Test
+	public void lastBeforeSkipsArchivesIfMainDatabaseHasLaterEvent() {
+		Event candidate = event(10, "2020-01-02 08:00");
+
+		assertThat(lastBefore("2020-06-01 00:00", candidate)).isSameInstanceAs(candidate);
+		assertThat(readYears).isEmpty();
+	}
+
+	@Test
+	public void lastBeforeReadsOnlyYearsBeforeMinute() {
+		assertThat(lastBefore("2020-06-01 00:00", null).getId()).isEqualTo(4);
+		assertThat(readYears).containsExactly(2019);
+		readYears.clear();
+
+		// nothing in 2019 is before the minute, so the year before is read
+		assertThat(lastBefore("2019-06-03 08:00", null).getId()).isEqualTo(2);
+		assertThat(readYears).containsExactly(2019, 2018).inOrder();
+		readYears.clear();
+
+		// the archive of 2019 can't contain an earlier event
+		assertThat(lastBefore("2019-01-01 00:00", null).getId()).isEqualTo(2);
+		assertThat(readYears).containsExactly(2018);
+		readYears.clear();
+
+		assertThat(lastBefore("2018-01-01 00:00", null)).isNull();
+		assertThat(readYears).isEmpty();
+	}
+
+	@Test
+	public void lastBeforeComparesWithEventInsertedIntoArchivedYear() {
+		// inserted after 2019 was archived, so it is in the main database
+		Event later = event(10, "2019-06-03 08:00");
+		assertThat(lastBefore("2020-06-01 00:00", later)).isSameInstanceAs(later);
+
+		Event earlier = event(0, "2019-06-03 08:00");
+		assertThat(lastBefore("2020-06-01 00:00", earlier).getId()).isEqualTo(4);
+	}
+
+	@Test
+	public void firstAfterSkipsArchivesBeforeMinute() {
+		Event candidate = event(10, "2020-01-02 08:00");
+
+		assertThat(firstAfter("2020-01-01 00:00", candidate)).isSameInstanceAs(candidate);
+		assertThat(readYears).isEmpty();
+
+		// the last minute of 2019 can't have an event after it in 2019
+		assertThat(firstAfter("2019-12-31 23:59", candidate)).isSameInstanceAs(candidate);
+		assertThat(readYears).isEmpty();
+	}
+
+	@Test
+	public void firstAfterReadsOnlyYearsBeforeCandidate() {
+		// inserted after 2018 was archived, so it is in the main database
+		Event candidate = event(10, "2018-12-31 20:00");
+
+		assertThat(firstAfter("2018-12-31 17:00", candidate)).isSameInstanceAs(candidate);
+		assertThat(readYears).containsExactly(2018);
+		readYears.clear();
+
+		assertThat(firstAfter("2018-06-01 00:00", candidate).getId()).isEqualTo(2);
+		assertThat(readYears).containsExactly(2018);
+		readYears.clear();
+
+		assertThat(firstAfter("2018-12-31 17:00", null).getId()).isEqualTo(3);
+		assertThat(readYears).containsExactly(2018, 2019).inOrder();
+	}
+
+	@Test
+	public void firstAfterComparesWithEventInsertedIntoArchivedYear() {
+		Event earlier = event(0, "2019-06-03 08:00");
+		assertThat(firstAfter("2019-06-01 00:00", earlier)).isSameInstanceAs(earlier);
+
+		Event later = event(10, "2019-06-03 08:00");
+		assertThat(firstAfter("2019-06-01 00:00", later).getId()).isEqualTo(3);
+	}
+
+	@Test
+	public void findYear() {
+		assertThat(ArchivedEvents.findYear(YEARS, year -> byId(year, 1))).isEqualTo(2018);
+		assertThat(readYears).containsExactly(2018);
+
+		assertThat(ArchivedEvents.findYear(YEARS, year -> byId(year, 4))).isEqualTo(2019);
+		assertThat(ArchivedEvents.findYear(YEARS, year -> byId(year, 10))).isNull();
+	}
+
+	private Event lastBefore(String time, Event candidate) {
+		int minute = minutes(time);
+		return ArchivedEvents.getLastBefore(YEARS, minute, candidate, year -> {
+			readYears.add(year);
+			Event ret = null;
+			for (Event event : archives.get(year)) {
+				if (event.getTimeMinutes() < minute) {
+					ret = event;
+				}
+			}
+			return ret;
+		});
+	}
+
+	private Event firstAfter(String time, Event candidate) {
+		int minute = minutes(time);
+		return ArchivedEvents.getFirstAfter(YEARS, minute, candidate, year -> {
+			readYears.add(year);
+			for (Event event : archives.get(year)) {
+				if (event.getTimeMinutes() > minute) {
+					return event;
+				}
+			}
+			return null;
+		});
+	}
+
+	private Event byId(int year, int id) {
+		readYears.add(year);
+		for (Event event : archives.get(year)) {
+			if (event.getId() == id) {
+				return event;
+			}
+		}
+		return null;
+	}
+
+	private static int[] row(int id, int minute) {
+		int[] ret = new int[ArchivedEvents.TIME_MINUTES_COLUMN + 1];
+		ret[ArchivedEvents.ID_COLUMN] = id;
+		ret[ArchivedEvents.TIME_MINUTES_COLUMN] = minute;
+		return ret;
+	}
+
+	/** a cursor over the given rows which only supports what {@link ArchivedEvents#merge} uses */
+	private static Cursor cursor(int[]... rows) {
+		int[] position = { -1 };
+		return (Cursor) Proxy.newProxyInstance(Cursor.class.getClassLoader(), new Class<?>[] { Cursor.class },
+			(proxy, method, args) -> {
+				switch (method.getName()) {
+					case "moveToFirst":
+						position[0] = 0;
+						return rows.length > 0;
+					case "moveToNext":
+						position[0]++;
+						return position[0] < rows.length;
+					case "isAfterLast":
+						return position[0] >= rows.length;
+					case "getInt":
+						return rows[position[0]][(Integer) args[0]];
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+
+	private static Event event(int id, String time) {
+		return new Event(id, null, null, TypeEnum.CLOCK_IN.getValue(), time + ":00.0000", null);
+	}
+
+	private static int minutes(String time) {
+		return DateTimeUtil.stringToEpochMinutes(time + ":00.0000");
+	}
+
+}
@@ -0,0 +1,84 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DaoMetricsTest {
+
+	@Test
+	public void callsAreCounted() {
+		DaoMetrics metrics = new DaoMetrics();
+
+		for (int i = 0; i < 3; i++) {
+			DaoMetrics.Call call = metrics.begin("getWeek");
+			metrics.executed();
+			call.read();
+			call.end();
+		}
+
+		List<DaoMetrics.Snapshot> snapshot = metrics.getSnapshot();
+		assertThat(snapshot).hasSize(1);
+		assertThat(snapshot.get(0).getName()).isEqualTo("getWeek");
+		assertThat(snapshot.get(0).getInvocations()).isEqualTo(3);
+		assertThat(snapshot.get(0).getStatements()).isEqualTo(3);
+		assertThat(snapshot.get(0).getStatementsPerInvocation()).isEqualTo(1.0);
+		assertThat(snapshot.get(0).getRowsRead()).isEqualTo(3);
+		long histogramTotal = 0;
+		for (long bucket : snapshot.get(0).getBuckets()) {
+			histogramTotal += bucket;
+		}
+		assertThat(histogramTotal).isEqualTo(3);
+	}
+
+	@Test
+	public void outerCallsContainInnerCalls() {
+		DaoMetrics metrics = new DaoMetrics();
+
+		DaoMetrics.Call outer = metrics.begin("Basics.periodicHook");
+		DaoMetrics.Call inner = metrics.begin("insertEvent");
+		metrics.executed();
+		metrics.executed();
+		metrics.wrote(1);
+		inner.end();
+		metrics.executed();
+		outer.end();
+		// outside of a call, nothing is counted
+		metrics.executed();
+
+		List<DaoMetrics.Snapshot> snapshot = metrics.getSnapshot();
+		assertThat(snapshot).hasSize(2);
+		assertThat(snapshot.get(0).getName()).isEqualTo("Basics.periodicHook");
+		assertThat(snapshot.get(0).getStatements()).isEqualTo(3);
+		assertThat(snapshot.get(0).getRowsWritten()).isEqualTo(1);
+		assertThat(snapshot.get(1).getName()).isEqualTo("insertEvent");
+		assertThat(snapshot.get(1).getStatements()).isEqualTo(2);
+		assertThat(metrics.getCurrentCall()).isNull();
+	}
+
+	@Test
+	public void histogramBuckets() {
+		assertThat(DaoMetrics.bucketOf(0)).isEqualTo(0);
+		assertThat(DaoMetrics.bucketOf(100)).isEqualTo(0);
+		assertThat(DaoMetrics.bucketOf(101)).isEqualTo(1);
+		assertThat(DaoMetrics.bucketOf(1_000_000)).isEqualTo(DaoMetrics.BUCKET_BOUNDS_MICROS.length - 1);
+		assertThat(DaoMetrics.bucketOf(1_000_001)).isEqualTo(DaoMetrics.BUCKET_BOUNDS_MICROS.length);
+	}
+
+	@Test
+	public void percentiles() {
+		long[] buckets = new long[DaoMetrics.BUCKET_BOUNDS_MICROS.length + 1];
+		buckets[0] = 90;
+		buckets[3] = 9;
+		buckets[buckets.length - 1] = 1;
+		DaoMetrics.Snapshot snapshot = new DaoMetrics.Snapshot("getEvents", 100, 0, 0, 0, 0, buckets);
+
+		assertThat(snapshot.getPercentileMicros(0.5)).isEqualTo(100);
+		assertThat(snapshot.getPercentileMicros(0.99)).isEqualTo(1_000);
+		assertThat(snapshot.getPercentileMicros(1)).isEqualTo(Long.MAX_VALUE);
+		assertThat(snapshot.toString()).contains("p50 <=100us, p95 <=1000us, p99 <=1000us");
+	}
+
+}
@@ -0,0 +1,52 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.junit.Test;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import hirondelle.date4j.DateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DataChangeTest {
+
+	@Test
+	public void mergeCoversBothRanges() {
+		int monday = DateTimeUtil.stringToEpochMinutes("2020-01-06 00:00");
+		int friday = DateTimeUtil.stringToEpochMinutes("2020-01-10 17:00");
+		DataChange change = DataChange.ofMinutes(friday, friday).merge(DataChange.ofMinutes(monday, monday + 60));
+
+		assertThat(change.affectsTime()).isTrue();
+		assertThat(change.getFromMinute()).isEqualTo(monday);
+		assertThat(change.getToMinute()).isEqualTo(friday);
+		assertThat(change.affectsDay(new DateTime("2020-01-08"))).isTrue();
+		assertThat(change.affectsDay(new DateTime("2020-01-05"))).isFalse();
+		assertThat(change.affectsDay(new DateTime("2020-01-11"))).isFalse();
+		assertThat(change.isEverything()).isFalse();
+	}
+
+	@Test
+	public void taskChangesDontAffectTime() {
+		DataChange change = DataChange.ofTask(1).merge(DataChange.ofTask(2));
+
+		assertThat(change.affectsTime()).isFalse();
+		assertThat(change.affects(Integer.MIN_VALUE, Integer.MAX_VALUE)).isFalse();
+		assertThat(change.affectsTask(1)).isTrue();
+		assertThat(change.affectsTask(2)).isTrue();
+		assertThat(change.affectsTask(3)).isFalse();
+
+		DataChange merged = change.merge(DataChange.ofMinutes(100, 200));
+		assertThat(merged.getFromMinute()).isEqualTo(100);
+		assertThat(merged.getToMinute()).isEqualTo(200);
+		assertThat(merged.affectsTask(2)).isTrue();
+	}
+
+	@Test
+	public void everythingAffectsAll() {
+		DataChange change = DataChange.ofMinutes(100, 200).merge(DataChange.EVERYTHING);
+
+		assertThat(change.isEverything()).isTrue();
+		assertThat(change.affectsTask(42)).isTrue();
+		assertThat(change.affects(0, 0)).isTrue();
+	}
+
+}
@@ -0,0 +1,172 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.junit.Test;
+import org.zephyrsoft.trackworktime.model.DaySummary;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DaySummaryCalculatorTest {
+
+	@Test
+	public void regularDay() {
+		DaySummaryCalculator calculator = new DaySummaryCalculator(null);
+		calculator.add(event(TypeEnum.CLOCK_IN, "2020-01-06 08:00"));
+		calculator.add(event(TypeEnum.CLOCK_OUT, "2020-01-06 12:00"));
+		calculator.add(event(TypeEnum.CLOCK_IN, "2020-01-06 12:30"));
+		// changing the task doesn't interrupt the work time
+		calculator.add(event(TypeEnum.CLOCK_IN, "2020-01-06 14:00"));
+		calculator.add(event(TypeEnum.CLOCK_OUT, "2020-01-06 17:15"));
+
+		List<DaySummary> summaries = calculator.finish();
+
+		assertThat(summaries).containsExactly(new DaySummary(minutes("2020-01-06 00:00"),
+			minutes("2020-01-06 08:00"), minutes("2020-01-06 17:15"), 4 * 60 + 4 * 60 + 45, null));
+	}
+
+	@Test
+	public void clockedInOverNight() {
+		DaySummaryCalculator calculator = new DaySummaryCalculator(null);
+		calculator.add(event(TypeEnum.CLOCK_IN, "2020-01-06 22:00"));
+		calculator.add(event(TypeEnum.CLOCK_OUT, "2020-01-08 02:00"));
+
+		List<DaySummary> summaries = calculator.finish();
+
+		// the day in between has no events and so no summary
+		assertThat(summaries).containsExactly(
+			new DaySummary(minutes("2020-01-06 00:00"), minutes("2020-01-06 22:00"), minutes("2020-01-07 00:00"),
+				2 * 60, null),
+			new DaySummary(minutes("2020-01-08 00:00"), minutes("2020-01-08 00:00"), minutes("2020-01-08 02:00"),
+				2 * 60, null)).inOrder();
+	}
+
+	@Test
+	public void previousEventIsClockIn() {
+		DaySummaryCalculator calculator = new DaySummaryCalculator(event(TypeEnum.CLOCK_IN, "2020-01-03 08:00"));
+		calculator.add(event(TypeEnum.FLEX, "2020-01-06 06:00"));
+		calculator.add(event(TypeEnum.CLOCK_OUT, "2020-01-06 10:00"));
+
+		List<DaySummary> summaries = calculator.finish();
+
+		assertThat(summaries).containsExactly(new DaySummary(minutes("2020-01-06 00:00"),
+			minutes("2020-01-06 00:00"), minutes("2020-01-06 10:00"), 10 * 60, 6 * 60));
+	}
+
+	@Test
+	public void onlyTargetWorkTime() {
+		DaySummaryCalculator calculator = new DaySummaryCalculator(event(TypeEnum.CLOCK_IN, "2020-01-03 08:00"));
+		calculator.add(event(TypeEnum.FLEX, "2020-01-06 04:00"));
+
+		List<DaySummary> summaries = calculator.finish();
+
+		assertThat(summaries).containsExactly(new DaySummary(minutes("2020-01-06 00:00"), null, null, 0, 4 * 60));
+	}
+
+	@Test
+	public void taskSumsAreSplitAtMidnight() {
+		DaySummaryCalculator calculator = new DaySummaryCalculator(event(TypeEnum.CLOCK_IN, "2020-01-03 08:00", 2));
+		calculator.add(event(TypeEnum.CLOCK_IN, "2020-01-06 06:00", 3));
+		calculator.add(event(TypeEnum.CLOCK_IN, "2020-01-06 22:00", 2));
+		calculator.add(event(TypeEnum.CLOCK_OUT, "2020-01-08 01:00", null));
+		calculator.add(event(TypeEnum.CLOCK_IN, "2020-01-08 23:00", null));
+
+		calculator.finish();
+
+		int monday = minutes("2020-01-06 00:00");
+		int day = DateTimeUtil.MINUTES_PER_DAY;
+		// counted up to the end of the day of the last event
+		assertThat(calculator.getTaskSums()).containsExactly(
+			new DaySummaryCalculator.TaskSum(monday, 2, 6 * 60 + 2 * 60),
+			new DaySummaryCalculator.TaskSum(monday, 3, 16 * 60),
+			new DaySummaryCalculator.TaskSum(monday + day, 2, 24 * 60),
+			new DaySummaryCalculator.TaskSum(monday + 2 * day, 2, 60),
+			new DaySummaryCalculator.TaskSum(monday + 2 * day, 0, 60)).inOrder();
+	}
+
+	@Test
+	public void reportEndsWhileClockedIn() {
+		DaySummaryCalculator calculator = new DaySummaryCalculator(null);
+		calculator.add(event(TypeEnum.CLOCK_IN, "2020-01-06 08:00", 1));
+		calculator.add(event(TypeEnum.CLOCK_OUT, "2020-01-06 12:00", null));
+		Event last = event(TypeEnum.CLOCK_IN, "2020-01-07 22:00", 2);
+		calculator.add(last);
+		calculator.finish();
+		int tuesday = minutes("2020-01-07 00:00");
+		int day = DateTimeUtil.MINUTES_PER_DAY;
+		assertThat(calculator.getTaskSums()).contains(new DaySummaryCalculator.TaskSum(tuesday, 2, 2 * 60));
+
+		// the report ends on thursday at 10:00 and it is later now, the stored sum of tuesday is right already
+		assertThat(DaySummaryCalculator.correctOpenInterval(last, minutes("2020-01-09 10:00"))).containsExactly(
+			new DaySummaryCalculator.TaskSum(tuesday + day, 2, 24 * 60),
+			new DaySummaryCalculator.TaskSum(tuesday + 2 * day, 2, 10 * 60)).inOrder();
+		// it is tuesday 23:00 now, so one of the stored hours is in the future
+		assertThat(DaySummaryCalculator.correctOpenInterval(last, minutes("2020-01-07 23:00")))
+			.containsExactly(new DaySummaryCalculator.TaskSum(tuesday, 2, -60));
+		// not clocked in
+		assertThat(DaySummaryCalculator.correctOpenInterval(event(TypeEnum.CLOCK_OUT, "2020-01-07 22:00", null),
+			minutes("2020-01-09 10:00"))).isEmpty();
+	}
+
+	@Test
+	public void daysBefore1970() {
+		DaySummaryCalculator calculator = new DaySummaryCalculator(null);
+		calculator.add(event(TypeEnum.CLOCK_IN, "1969-12-31 08:00", 1));
+		calculator.add(event(TypeEnum.CLOCK_OUT, "1969-12-31 17:00", null));
+
+		List<DaySummary> summaries = calculator.finish();
+
+		int day = -DateTimeUtil.MINUTES_PER_DAY;
+		assertThat(summaries).containsExactly(new DaySummary(day, day + 8 * 60, day + 17 * 60, 9 * 60, null));
+		assertThat(calculator.getTaskSums()).containsExactly(new DaySummaryCalculator.TaskSum(day, 1, 9 * 60));
+	}
+
+	@Test
+	public void differingStoredDataIsReported() {
+		DaySummaryCalculator calculator = new DaySummaryCalculator(null);
+		calculator.add(event(TypeEnum.CLOCK_IN, "2020-01-06 08:00", 1));
+		calculator.add(event(TypeEnum.CLOCK_OUT, "2020-01-06 17:00", null));
+		calculator.add(event(TypeEnum.CLOCK_IN, "2020-01-07 08:00", 1));
+		calculator.add(event(TypeEnum.CLOCK_OUT, "2020-01-07 17:00", null));
+		calculator.add(event(TypeEnum.CLOCK_IN, "2020-01-08 08:00", 2));
+		calculator.add(event(TypeEnum.CLOCK_OUT, "2020-01-08 17:00", null));
+		List<DaySummary> summaries = calculator.finish();
+		List<DaySummary> storedSummaries = new ArrayList<>(summaries);
+		List<DaySummaryCalculator.TaskSum> storedTaskSums = new ArrayList<>(calculator.getTaskSums());
+
+		assertThat(calculator.getDifferingDays(storedSummaries, storedTaskSums)).isEmpty();
+
+		int monday = minutes("2020-01-06 00:00");
+		int day = DateTimeUtil.MINUTES_PER_DAY;
+		// a wrong worked time on tuesday, a missing task sum on wednesday and a summary on friday without events
+		DaySummary tuesday = storedSummaries.get(1);
+		storedSummaries.set(1, new DaySummary(tuesday.getDay(), tuesday.getFirstIn(), tuesday.getLastOut(),
+			tuesday.getWorked() + 1, tuesday.getFlexTarget()));
+		storedTaskSums.remove(2);
+		storedSummaries.add(new DaySummary(monday + 4 * day, null, null, 0, 8 * 60));
+
+		assertThat(calculator.getDifferingDays(storedSummaries, storedTaskSums))
+			.containsExactly(monday + day, monday + 2 * day, monday + 4 * day).inOrder();
+
+		// a task sum which was not calculated
+		storedTaskSums.add(new DaySummaryCalculator.TaskSum(monday + 3 * day, 1, 60));
+		assertThat(calculator.getDifferingDays(storedSummaries, storedTaskSums)).contains(monday + 3 * day);
+	}
+
+	private static int minutes(String time) {
+		return DateTimeUtil.stringToEpochMinutes(time);
+	}
+
+	private static Event event(TypeEnum type, String time) {
+		return event(type, time, null);
+	}
+
+	private static Event event(TypeEnum type, String time, Integer task) {
+		return new Event(null, null, task, type.getValue(), time + ":00.0000", null);
+	}
+
+}
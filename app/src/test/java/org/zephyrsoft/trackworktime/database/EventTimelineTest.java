@@ -0,0 +1,209 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class EventTimelineTest {
+
+	/** minute, ID, type and task, like the entries of the timeline */
+	private static final Comparator<int[]> ORDER = (a, b) -> a[0] == b[0]
+		? Integer.compare(a[1], b[1])
+		: Integer.compare(a[0], b[0]);
+
+	private EventTimeline timeline;
+
+	@Before
+	public void setUp() {
+		timeline = new EventTimeline();
+	}
+
+	@Test
+	public void emptyTimeline() {
+		load();
+
+		assertThat(timeline.getLastBefore(100)).isEqualTo(EventTimeline.NONE);
+		assertThat(timeline.getLastBeforeIncluding(100)).isEqualTo(EventTimeline.NONE);
+		assertThat(timeline.getFirstAfter(100)).isEqualTo(EventTimeline.NONE);
+		assertThat(timeline.getLatest()).isEqualTo(EventTimeline.NONE);
+		assertThat(timeline.contains(1)).isFalse();
+	}
+
+	@Test
+	public void neighbourLookups() {
+		int noon = minutes("2020-01-06 12:00");
+		load(minutes("2020-01-06 08:00"), 1, noon, 2, noon, 3, minutes("2020-01-06 17:00"), 4);
+
+		assertThat(timeline.getLastBefore(noon)).isEqualTo(1);
+		assertThat(timeline.getLastBeforeIncluding(noon)).isEqualTo(3);
+		assertThat(timeline.getFirstAfter(noon)).isEqualTo(4);
+		assertThat(timeline.getLatest()).isEqualTo(4);
+		assertThat(timeline.getBetween(noon, noon + 1)).asList().containsExactly(2, 3).inOrder();
+	}
+
+	@Test
+	public void eventHasTheValuesOfTheTimeline() {
+		int noon = minutes("2020-01-06 12:00");
+		load(minutes("2020-01-06 08:00"), 1, noon, 2);
+
+		Event event = timeline.getEvent(timeline.getLastBeforeIncluding(noon));
+
+		assertThat(event.getId()).isEqualTo(2);
+		assertThat(event.getTimeMinutes()).isEqualTo(noon);
+		assertThat(event.getTime()).isEqualTo("2020-01-06 12:00:00.0000");
+		assertThat(event.getType()).isEqualTo(typeOf(2));
+		assertThat(event.getTask()).isEqualTo(taskOf(2));
+		assertThat(event.getWeek()).isNull();
+		assertThat(event.getText()).isNull();
+		assertThat(timeline.getEvent(3)).isNull();
+		assertThat(timeline.getEvent(EventTimeline.NONE)).isNull();
+	}
+
+	@Test
+	public void writeThroughMatchesSortedList() {
+		Random random = new Random(42);
+		List<int[]> expected = new ArrayList<>();
+		load();
+		int nextId = 1;
+		for (int i = 0; i < 2000; i++) {
+			int action = random.nextInt(10);
+			if (action < 6 || expected.isEmpty()) {
+				int[] event = { randomMinute(random), nextId++, 1 + random.nextInt(4), random.nextInt(3) };
+				expected.add(event);
+				timeline.add(event[1], event[0], event[2], event[3]);
+			} else if (action < 8) {
+				int[] event = expected.get(random.nextInt(expected.size()));
+				event[0] = randomMinute(random);
+				event[2] = 1 + random.nextInt(4);
+				event[3] = random.nextInt(3);
+				timeline.put(event[1], event[0], event[2], event[3]);
+			} else {
+				int[] event = expected.remove(random.nextInt(expected.size()));
+				timeline.remove(event[1]);
+				assertThat(timeline.contains(event[1])).isFalse();
+			}
+			Collections.sort(expected, ORDER);
+
+			int minute = randomMinute(random);
+			assertThat(timeline.getLastBefore(minute)).isEqualTo(lastBefore(expected, minute - 1));
+			assertThat(timeline.getLastBeforeIncluding(minute)).isEqualTo(lastBefore(expected, minute));
+			assertThat(timeline.getFirstAfter(minute)).isEqualTo(firstAfter(expected, minute));
+			assertThat(timeline.getLatest())
+				.isEqualTo(expected.isEmpty() ? EventTimeline.NONE : expected.get(expected.size() - 1)[1]);
+		}
+		assertThat(timeline.size()).isEqualTo(expected.size());
+		for (int[] event : expected) {
+			assertThat(timeline.contains(event[1])).isTrue();
+			Event stored = timeline.getEvent(event[1]);
+			assertThat(stored.getTimeMinutes()).isEqualTo(event[0]);
+			assertThat(stored.getType()).isEqualTo(event[2]);
+			assertThat(stored.getTask()).isEqualTo(event[3]);
+		}
+	}
+
+	@Test
+	public void removeBetween() {
+		load(minutes("2019-12-31 23:59"), 1, minutes("2020-01-01 00:00"), 2, minutes("2020-12-31 23:59"), 3,
+			minutes("2021-01-01 00:00"), 4);
+
+		timeline.removeBetween(minutes("2020-01-01 00:00"), minutes("2021-01-01 00:00"));
+
+		assertThat(timeline.size()).isEqualTo(2);
+		assertThat(timeline.contains(2)).isFalse();
+		assertThat(timeline.contains(3)).isFalse();
+		assertThat(timeline.getFirstAfter(minutes("2019-12-31 23:59"))).isEqualTo(4);
+		assertThat(timeline.getLatest()).isEqualTo(4);
+	}
+
+	@Test
+	public void notLoadedIgnoresWrites() {
+		timeline.put(1, minutes("2020-01-06 08:00"), TypeEnum.CLOCK_IN.getValue(), 0);
+
+		assertThat(timeline.isLoaded()).isFalse();
+		assertThat(timeline.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void loadIsDiscardedAfterChanges() {
+		long version = timeline.getVersion();
+		// a transaction committed while the loader read the events
+		timeline.apply(Collections.singletonList(
+			() -> timeline.add(2, minutes("2020-01-06 09:00"), TypeEnum.CLOCK_OUT.getValue(), 0)));
+		int[] types = { TypeEnum.CLOCK_IN.getValue(), TypeEnum.CLOCK_OUT.getValue() };
+		int[] tasks = { 1, 0 };
+
+		assertThat(timeline.load(new int[] { minutes("2020-01-06 08:00") }, new int[] { 1 }, types, tasks, 1, version))
+			.isFalse();
+		assertThat(timeline.isLoaded()).isFalse();
+
+		// without changes the next try succeeds
+		assertThat(timeline.load(new int[] { minutes("2020-01-06 08:00"), minutes("2020-01-06 09:00") },
+			new int[] { 1, 2 }, types, tasks, 2, timeline.getVersion())).isTrue();
+		assertThat(timeline.getLatest()).isEqualTo(2);
+	}
+
+	/** loads pairs of minute and ID, sorted like the event queries (type and task are derived from the ID) */
+	private void load(int... minutesAndIds) {
+		int count = minutesAndIds.length / 2;
+		int[] eventMinutes = new int[count];
+		int[] eventIds = new int[count];
+		int[] eventTypes = new int[count];
+		int[] eventTasks = new int[count];
+		for (int i = 0; i < count; i++) {
+			eventMinutes[i] = minutesAndIds[2 * i];
+			eventIds[i] = minutesAndIds[2 * i + 1];
+			eventTypes[i] = typeOf(eventIds[i]);
+			eventTasks[i] = taskOf(eventIds[i]);
+		}
+		assertThat(timeline.load(eventMinutes, eventIds, eventTypes, eventTasks, count, timeline.getVersion()))
+			.isTrue();
+	}
+
+	private static int typeOf(int id) {
+		return id % 2 == 0 ? TypeEnum.CLOCK_OUT.getValue() : TypeEnum.CLOCK_IN.getValue();
+	}
+
+	private static int taskOf(int id) {
+		return id % 3;
+	}
+
+	private static int lastBefore(List<int[]> sorted, int minuteIncluding) {
+		int ret = EventTimeline.NONE;
+		for (int[] event : sorted) {
+			if (event[0] <= minuteIncluding) {
+				ret = event[1];
+			}
+		}
+		return ret;
+	}
+
+	private static int firstAfter(List<int[]> sorted, int minute) {
+		for (int[] event : sorted) {
+			if (event[0] > minute) {
+				return event[1];
+			}
+		}
+		return EventTimeline.NONE;
+	}
+
+	private static int randomMinute(Random random) {
+		// few distinct minutes, so that there are many events in the same minute
+		return minutes("2020-01-01 00:00") + random.nextInt(10) * DateTimeUtil.MINUTES_PER_DAY
+			+ random.nextInt(24) * 60 + random.nextInt(4) * 15;
+	}
+
+	private static int minutes(String time) {
+		return DateTimeUtil.stringToEpochMinutes(time + ":00.0000");
+	}
+
+}
@@ -0,0 +1,64 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class FullTextSearchTest {
+
+	@Test
+	public void matchExpressionSearchesForWordPrefixes() {
+		assertThat(FullTextSearch.toMatchExpression("meeting")).isEqualTo("\"meeting*\"");
+		assertThat(FullTextSearch.toMatchExpression("  Team-Meeting, room 4 "))
+			.isEqualTo("\"Team*\" \"Meeting*\" \"room*\" \"4*\"");
+		assertThat(FullTextSearch.toMatchExpression("Besprechung über Änderungen"))
+			.isEqualTo("\"Besprechung*\" \"über*\" \"Änderungen*\"");
+	}
+
+	@Test
+	public void matchExpressionDropsOperators() {
+		assertThat(FullTextSearch.toMatchExpression("a OR \"b\" -c*")).isEqualTo("\"a*\" \"OR*\" \"b*\" \"c*\"");
+		assertThat(FullTextSearch.toMatchExpression(" \"*- ")).isNull();
+		assertThat(FullTextSearch.toMatchExpression("")).isNull();
+		assertThat(FullTextSearch.toMatchExpression(null)).isNull();
+	}
+
+	@Test
+	public void rareTermsAndTextHitsScoreHigher() {
+		// one phrase, two columns, 100 rows
+		float inTextRare = FullTextSearch.score(matchinfo(1, 2, 100, 1, 1, 2, 0, 0, 0));
+		float inTextCommon = FullTextSearch.score(matchinfo(1, 2, 100, 1, 1, 50, 0, 0, 0));
+		float inTaskRare = FullTextSearch.score(matchinfo(1, 2, 100, 0, 0, 0, 1, 1, 2));
+		float twiceInTextRare = FullTextSearch.score(matchinfo(1, 2, 100, 2, 2, 2, 0, 0, 0));
+
+		assertThat(inTextRare).isGreaterThan(inTextCommon);
+		assertThat(inTextRare).isGreaterThan(inTaskRare);
+		assertThat(twiceInTextRare).isGreaterThan(inTextRare);
+		assertThat(FullTextSearch.score(matchinfo(1, 2, 100, 0, 0, 2, 0, 0, 0))).isEqualTo(0f);
+	}
+
+	@Test
+	public void rankKeySortsByScoreThenId() {
+		long low = FullTextSearch.rankKey(0.5f, 1000);
+		long high = FullTextSearch.rankKey(2.25f, 3);
+		long highLaterId = FullTextSearch.rankKey(2.25f, 4);
+
+		assertThat(low).isLessThan(high);
+		assertThat(high).isLessThan(highLaterId);
+		assertThat(FullTextSearch.eventIdOf(highLaterId)).isEqualTo(4);
+		assertThat(FullTextSearch.eventIdOf(FullTextSearch.rankKey(0f, Integer.MAX_VALUE)))
+			.isEqualTo(Integer.MAX_VALUE);
+	}
+
+	private static byte[] matchinfo(int... values) {
+		ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.nativeOrder());
+		for (int value : values) {
+			buffer.putInt(value);
+		}
+		return buffer.array();
+	}
+
+}
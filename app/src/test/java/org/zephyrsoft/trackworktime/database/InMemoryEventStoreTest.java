@@ -0,0 +1,147 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zephyrsoft.trackworktime.model.DaySummary;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.Task;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.model.Week;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import hirondelle.date4j.DateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class InMemoryEventStoreTest {
+
+	private InMemoryEventStore store;
+	private Week week;
+
+	@Before
+	public void setUp() {
+		store = new InMemoryEventStore();
+		week = store.insertWeek(new Week(null, "2020-01-06 00:00:00.0000", 0, 0));
+	}
+
+	@Test
+	public void neighbourLookups() {
+		insert(TypeEnum.CLOCK_IN, "2020-01-06 08:00");
+		insert(TypeEnum.CLOCK_OUT, "2020-01-06 12:00");
+		insert(TypeEnum.CLOCK_IN, "2020-01-06 12:30");
+		DateTime noon = DateTimeUtil.stringToDateTime("2020-01-06 12:00:00.0000");
+
+		assertThat(store.getLastEventBefore(noon).getTimeMinutes()).isEqualTo(minutes("2020-01-06 08:00"));
+		assertThat(store.getLastEventBeforeIncluding(noon).getTimeMinutes()).isEqualTo(minutes("2020-01-06 12:00"));
+		assertThat(store.getFirstEventAfter(noon).getTimeMinutes()).isEqualTo(minutes("2020-01-06 12:30"));
+		assertThat(store.getFirstEventTime())
+			.isEqualTo(DateTimeUtil.epochMinutesToDateTime(minutes("2020-01-06 08:00")));
+		assertThat(store.getLastEventTime())
+			.isEqualTo(DateTimeUtil.epochMinutesToDateTime(minutes("2020-01-06 12:30")));
+	}
+
+	@Test
+	public void eventsAreSortedByTimeAndId() {
+		Event late = insert(TypeEnum.CLOCK_OUT, "2020-01-07 17:00");
+		Event early = insert(TypeEnum.CLOCK_IN, "2020-01-07 08:00");
+		Event sameMinute = insert(TypeEnum.CLOCK_IN, "2020-01-07 08:00");
+
+		List<Event> events = store.getEventsOnDay(DateTimeUtil.stringToDateTime("2020-01-07 10:00:00.0000"));
+
+		assertThat(ids(events)).containsExactly(early.getId(), sameMinute.getId(), late.getId()).inOrder();
+		assertThat(ids(store.getEventsInWeek(week))).containsExactly(early.getId(), sameMinute.getId(),
+			late.getId()).inOrder();
+	}
+
+	@Test
+	public void eventsPerDayAndTimeFrame() {
+		insert(TypeEnum.CLOCK_IN, "2020-01-05 23:00");
+		insert(TypeEnum.CLOCK_OUT, "2020-01-06 01:00");
+		insert(TypeEnum.CLOCK_IN, "2020-01-12 23:59");
+		insert(TypeEnum.CLOCK_OUT, "2020-01-13 00:00");
+
+		List<List<Event>> perDay = store.getEventsPerDay(DateTimeUtil.stringToDateTime("2020-01-06 00:00:00.0000"));
+		List<Integer> visited = new ArrayList<>();
+		store.forEachEvent(DateTimeUtil.stringToDateTime("2020-01-06 00:00:00.0000"),
+			DateTimeUtil.stringToDateTime("2020-01-12 23:59:30.0000"), event -> visited.add(event.getTimeMinutes()));
+
+		assertThat(perDay).hasSize(7);
+		assertThat(perDay.get(0)).hasSize(1);
+		assertThat(perDay.get(6)).hasSize(1);
+		// the end of the time frame is rounded up to the next minute
+		assertThat(visited).containsExactly(minutes("2020-01-06 01:00"), minutes("2020-01-12 23:59")).inOrder();
+	}
+
+	@Test
+	public void daySummariesAreCalculated() {
+		insert(TypeEnum.CLOCK_IN, "2020-01-03 08:00");
+		insert(TypeEnum.CLOCK_OUT, "2020-01-06 10:00");
+		insert(TypeEnum.CLOCK_IN, "2020-01-08 08:00");
+		insert(TypeEnum.CLOCK_OUT, "2020-01-08 16:00");
+
+		List<DaySummary> summaries = store.getDaySummariesPerDay(
+			DateTimeUtil.stringToDateTime("2020-01-06 00:00:00.0000"));
+
+		assertThat(summaries).containsExactly(
+			new DaySummary(minutes("2020-01-06 00:00"), minutes("2020-01-06 00:00"), minutes("2020-01-06 10:00"),
+				10 * 60, null),
+			null,
+			new DaySummary(minutes("2020-01-08 00:00"), minutes("2020-01-08 08:00"), minutes("2020-01-08 16:00"),
+				8 * 60, null),
+			null, null, null, null).inOrder();
+	}
+
+	@Test
+	public void weeksAndTasks() {
+		Week later = store.insertWeek(new Week(null, "2020-01-13 00:00:00.0000", 0, 0));
+		store.insertWeek(new Week(null, "2020-01-20 00:00:00.0000", 0, 0));
+		later.setSum(120);
+		store.updateWeek(later);
+		Task task = store.insertTask(new Task(null, "Work", 1, 0, 1));
+
+		List<Week> between = store.getWeeksBetween("2020-01-01", "2020-01-19");
+
+		assertThat(between).hasSize(2);
+		assertThat(between.get(1).getSum()).isEqualTo(120);
+		assertThat(store.getWeek("2020-01-13 00:00:00.0000").getId()).isEqualTo(later.getId());
+		assertThat(store.getDefaultTask().getId()).isEqualTo(task.getId());
+		assertThat(store.getTask(task.getId()).getName()).isEqualTo("Work");
+	}
+
+	@Test
+	public void batchUpdateAndDelete() {
+		Event first = insert(TypeEnum.CLOCK_IN, "2020-01-06 08:00");
+		Event second = insert(TypeEnum.CLOCK_OUT, "2020-01-06 12:00");
+		Event third = insert(TypeEnum.CLOCK_IN, "2020-01-06 13:00");
+		first.setTime("2020-01-06 12:30:00.0000");
+
+		store.updateEvents(Arrays.asList(first));
+		int deleted = store.deleteEvents(Arrays.asList(second, third));
+
+		assertThat(deleted).isEqualTo(2);
+		assertThat(ids(store.getEventsInWeek(week))).containsExactly(first.getId());
+		assertThat(store.getFirstEventTime())
+			.isEqualTo(DateTimeUtil.epochMinutesToDateTime(minutes("2020-01-06 12:30")));
+	}
+
+	private Event insert(TypeEnum type, String time) {
+		return store.insertEvent(new Event(null, week.getId(), null, type.getValue(), time + ":00.0000", null));
+	}
+
+	private static List<Integer> ids(List<Event> events) {
+		List<Integer> ret = new ArrayList<>();
+		for (Event event : events) {
+			ret.add(event.getId());
+		}
+		return ret;
+	}
+
+	private static int minutes(String time) {
+		return DateTimeUtil.stringToEpochMinutes(time);
+	}
+
+}
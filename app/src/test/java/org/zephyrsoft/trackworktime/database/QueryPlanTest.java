@@ -0,0 +1,515 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that the query shapes used by {@link DAO} are answered by an index instead of a full table scan.
+ * Runs against a plain JDBC SQLite database which is set up with the same statements as the app's database.
+ */
+public class QueryPlanTest {
+
+	private static final String EVENT_FIELDS = "_id, week, time, type, task, customtext, time_min";
+	private static final String WEEK_FIELDS = "_id, start, sum, flexi";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Connection connection;
+
+	@Before
+	public void setUp() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+		execute(MySQLiteHelper.DATABASE_CREATE_TASK,
+			MySQLiteHelper.DATABASE_CREATE_WEEK,
+			MySQLiteHelper.DATABASE_CREATE_EVENT,
+			MySQLiteHelper.DATABASE_INSERT_TASK,
+			MySQLiteHelper.DATABASE_ALTER_TASK_2_TO_3,
+			MySQLiteHelper.DATABASE_UPDATE_TASK_2_TO_3);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		connection.close();
+	}
+
+	private void upgradeTo5() throws SQLException {
+		execute(MySQLiteHelper.DATABASE_MERGE_DUPLICATE_WEEKS_4_TO_5,
+			MySQLiteHelper.DATABASE_DELETE_DUPLICATE_WEEKS_4_TO_5,
+			MySQLiteHelper.DATABASE_CREATE_EVENT_TIME_INDEX_4_TO_5,
+			MySQLiteHelper.DATABASE_CREATE_EVENT_WEEK_INDEX_4_TO_5,
+			MySQLiteHelper.DATABASE_CREATE_EVENT_TASK_INDEX_4_TO_5,
+			MySQLiteHelper.DATABASE_CREATE_WEEK_START_INDEX_4_TO_5);
+	}
+
+	private void upgradeTo6() throws SQLException {
+		upgradeTo5();
+		execute(MySQLiteHelper.DATABASE_ALTER_EVENT_5_TO_6,
+			MySQLiteHelper.DATABASE_UPDATE_EVENT_5_TO_6,
+			MySQLiteHelper.DATABASE_DROP_EVENT_TIME_INDEX_5_TO_6,
+			MySQLiteHelper.DATABASE_DROP_EVENT_WEEK_INDEX_5_TO_6,
+			MySQLiteHelper.DATABASE_CREATE_EVENT_TIME_MINUTES_INDEX_5_TO_6,
+			MySQLiteHelper.DATABASE_CREATE_EVENT_WEEK_TIME_MINUTES_INDEX_5_TO_6);
+	}
+
+	private void upgradeTo12() throws SQLException {
+		upgradeTo6();
+		execute(MySQLiteHelper.DATABASE_ALTER_WEEK_11_TO_12,
+			MySQLiteHelper.DATABASE_UPDATE_WEEK_11_TO_12,
+			MySQLiteHelper.DATABASE_CREATE_WEEK_ORDINAL_INDEX_11_TO_12);
+	}
+
+	private void upgradeTo13() throws SQLException {
+		upgradeTo12();
+		execute(MySQLiteHelper.DATABASE_CREATE_EVENT_SEARCH_12_TO_13,
+			MySQLiteHelper.DATABASE_FILL_EVENT_SEARCH_12_TO_13);
+	}
+
+	@Test
+	public void eventQueriesUseIndex() throws SQLException {
+		upgradeTo6();
+
+		// getEvents(from, to), getEventsOnDay, getEventsPerDay
+		assertIndexed("select " + EVENT_FIELDS + " from event where time_min >= ? and time_min < ?"
+			+ " order by time_min, _id");
+		// getFirstEventTime / getLastEventTime
+		assertIndexed("select min(time_min) from event");
+		assertIndexed("select max(time_min) from event");
+		// getEventsInWeek
+		assertIndexed("select " + EVENT_FIELDS + " from event where week = ? order by time_min, _id");
+		// getEvent
+		assertIndexed("select " + EVENT_FIELDS + " from event where _id = ? order by time_min, _id limit 1");
+		// isTaskUsed
+		assertIndexed("select count(*) from event where task = ?");
+		// the neighbour lookups (getLastEventBefore etc.) are answered by EventTimeline without a query
+	}
+
+	@Test
+	public void weekQueriesUseIndex() throws SQLException {
+		upgradeTo12();
+
+		// getWeekByOrdinal
+		assertIndexed("select " + WEEK_FIELDS + " from week where ordinal = ? order by ordinal");
+		// getWeeksUpTo
+		assertIndexed("select " + WEEK_FIELDS + " from week where ordinal <= ? order by ordinal");
+		// getWeeksBetween
+		assertIndexed("select " + WEEK_FIELDS + " from week where ordinal between ? and ? order by ordinal");
+		// getWeek(Integer)
+		assertIndexed("select " + WEEK_FIELDS + " from week where _id = ? order by ordinal");
+	}
+
+	@Test
+	public void upgradeCalculatesWeekOrdinals() throws SQLException {
+		execute("insert into week (start, sum) values ('1969-12-22 00:00:00.0000', 0)",
+			"insert into week (start, sum) values ('1969-12-29 00:00:00.0000', 0)",
+			"insert into week (start, sum) values ('1970-01-05 00:00:00.0000', 0)",
+			"insert into week (start, sum) values ('2020-01-06 00:00:00.0000', 0)");
+
+		upgradeTo12();
+
+		assertThat(queryInts("select ordinal from week order by _id"))
+			.containsExactly(-1, 0, 1, 2610).inOrder();
+	}
+
+	@Test
+	public void fullTextSearchUsesIndex() throws SQLException {
+		execute("insert into task (_id, name, active, ordering, isdefault) values (2, 'Customer Support', 1, 1, 0)",
+			"insert into event (_id, week, type, time, task, customtext)"
+				+ " values (1, 1, 1, '2020-01-06 08:00:00.0000', 1, 'planning meeting')",
+			"insert into event (_id, week, type, time, task, customtext)"
+				+ " values (2, 1, 1, '2020-01-06 09:00:00.0000', 2, 'call with customer')",
+			"insert into event (_id, week, type, time, task, customtext)"
+				+ " values (3, 1, 0, '2020-01-06 17:00:00.0000', 1, null)");
+
+		upgradeTo13();
+
+		String plan = explain(searchSql());
+		assertWithMessage(plan).that(plan).contains("VIRTUAL TABLE INDEX");
+		assertThat(searchIds("customer")).containsExactly(2);
+		assertThat(searchIds(FullTextSearch.toMatchExpression("meet"))).containsExactly(1);
+		// the task names are searchable, too
+		assertThat(searchIds(FullTextSearch.toMatchExpression("support"))).containsExactly(2);
+
+		// like DAO.indexEvent after an update
+		try (PreparedStatement statement = connection.prepareStatement(MySQLiteHelper.DATABASE_INDEX_EVENT)) {
+			statement.setInt(1, 3);
+			statement.setString(2, "customer visit");
+			statement.setInt(3, 1);
+			statement.executeUpdate();
+		}
+		assertThat(searchIds("customer")).containsExactly(2, 3);
+		assertThat(queryInts("select count(*) from event_search")).containsExactly(3);
+	}
+
+	/** the timing with many more events is in FullTextSearchBenchmark */
+	@Test
+	public void fullTextSearchFindsSameAsScan() throws SQLException {
+		upgradeTo13();
+		String[] words = { "meeting", "planning", "review", "customer", "support", "travel", "training", "release",
+			"documentation", "interview" };
+		int count = 5_000;
+		connection.setAutoCommit(false);
+		try (PreparedStatement statement = connection.prepareStatement(MySQLiteHelper.DATABASE_INDEX_EVENT)) {
+			for (int i = 1; i <= count; i++) {
+				statement.setInt(1, i);
+				// "unique4711" occurs in exactly one row, "rare" in every thousandth
+				statement.setString(2, words[i % words.length] + " " + words[(i / 7) % words.length] + " note" + i
+					+ (i == 4711 ? " unique4711" : "") + (i % 1000 == 0 ? " rare rare" : ""));
+				statement.setInt(3, 1);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+		connection.commit();
+		connection.setAutoCommit(true);
+
+		assertThat(searchIds(FullTextSearch.toMatchExpression("unique4711"))).containsExactly(4711);
+		assertThat(queryInts("select docid from event_search where customtext like '%unique4711%'"))
+			.containsExactly(4711);
+		assertThat(rankedSearch(FullTextSearch.toMatchExpression("rare"))).hasSize(count / 1000);
+		// "rare" occurs twice in those rows, "rarely" isn't there at all
+		assertThat(searchIds(FullTextSearch.toMatchExpression("rarely"))).isEmpty();
+	}
+
+	@Test
+	public void snapshotConnectionDoesNotBlockWrites() throws Exception {
+		String url = "jdbc:sqlite:" + folder.newFile("snapshot.db").getPath();
+		try (Connection writer = DriverManager.getConnection(url)) {
+			try (Statement statement = writer.createStatement()) {
+				statement.execute("PRAGMA journal_mode = WAL");
+				statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT);
+				statement.execute("insert into event (week, type, time) values (1, 1, '2020-01-06 08:00:00.0000')");
+			}
+			SQLiteConfig readOnly = new SQLiteConfig();
+			readOnly.setReadOnly(true);
+			try (Connection reader = DriverManager.getConnection(url, readOnly.toProperties());
+				Statement snapshot = reader.createStatement();
+				Statement statement = writer.createStatement()) {
+				// like DAO.openSnapshotConnection
+				snapshot.execute("/* snapshot */ begin deferred");
+				assertThat(count(snapshot)).isEqualTo(1);
+
+				statement.execute("insert into event (week, type, time) values (1, 0, '2020-01-06 17:00:00.0000')");
+				assertThat(count(statement)).isEqualTo(2);
+				assertThat(count(snapshot)).isEqualTo(1);
+
+				snapshot.execute("/* snapshot */ rollback");
+				assertThat(count(snapshot)).isEqualTo(2);
+			}
+		}
+	}
+
+	@Test
+	public void exclusiveTransactionFailsOnReadOnlyConnection() throws Exception {
+		String url = "jdbc:sqlite:" + folder.newFile("readonly.db").getPath();
+		try (Connection writer = DriverManager.getConnection(url); Statement statement = writer.createStatement()) {
+			statement.execute("PRAGMA journal_mode = WAL");
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT);
+		}
+		SQLiteConfig readOnly = new SQLiteConfig();
+		readOnly.setReadOnly(true);
+		try (Connection reader = DriverManager.getConnection(url, readOnly.toProperties());
+			Statement statement = reader.createStatement()) {
+			// this is what SQLiteDatabase.beginTransaction() does, so DAO.openSnapshotConnection can't use it
+			statement.execute("begin exclusive");
+			fail("a read-only connection should not be able to begin an exclusive transaction");
+		} catch (SQLException e) {
+			assertThat(e.getMessage()).contains("SQLITE_READONLY");
+		}
+	}
+
+	@Test
+	public void writeAheadLogDoesNotBlockReaders() throws Exception {
+		assertThat(readWhileWriting("WAL")).isEqualTo(1);
+	}
+
+	@Test
+	public void rollbackJournalBlocksReaders() throws Exception {
+		// makes sure that the check itself is able to detect a blocked reader
+		try {
+			readWhileWriting("DELETE");
+			fail("the reader should have been blocked");
+		} catch (SQLException e) {
+			assertThat(e.getMessage()).contains("SQLITE_BUSY");
+		}
+	}
+
+	/**
+	 * Count the events on a second connection while the first one has written an event in an open transaction, like
+	 * a DAO read which runs while another thread writes.
+	 */
+	private int readWhileWriting(String journalMode) throws Exception {
+		String url = "jdbc:sqlite:" + folder.newFile(journalMode + ".db").getPath();
+		try (Connection writer = DriverManager.getConnection(url);
+			Statement statement = writer.createStatement()) {
+			statement.execute("PRAGMA journal_mode = " + journalMode);
+			statement.execute(MySQLiteHelper.DATABASE_CREATE_EVENT);
+			statement.execute("insert into event (week, type, time) values (1, 1, '2020-01-06 08:00:00.0000')");
+			// exclusive, so the rollback journal has to lock out the readers until the commit
+			statement.execute("begin exclusive");
+			statement.execute("insert into event (week, type, time) values (1, 0, '2020-01-06 17:00:00.0000')");
+			try (Connection reader = DriverManager.getConnection(url);
+				Statement readerStatement = reader.createStatement()) {
+				// fail right away instead of waiting for the writer
+				readerStatement.execute("PRAGMA busy_timeout = 0");
+				return count(readerStatement);
+			} finally {
+				statement.execute("commit");
+			}
+		}
+	}
+
+	private static int count(Statement statement) throws SQLException {
+		try (ResultSet resultSet = statement.executeQuery("select count(*) from event")) {
+			resultSet.next();
+			return resultSet.getInt(1);
+		}
+	}
+
+	@Test
+	public void daySummaryQueriesUseIndex() throws SQLException {
+		execute(MySQLiteHelper.DATABASE_CREATE_DAY_SUMMARY_6_TO_7);
+
+		// getDaySummariesPerDay and the range which is calculated again after a change
+		assertIndexed("select day, first_in, last_out, worked, flex_target from day_summary"
+			+ " where day >= ? and day < ? order by day");
+		assertIndexed("delete from day_summary where day >= ? and day < ?");
+	}
+
+	@Test
+	public void taskSumQueriesUseIndex() throws SQLException {
+		execute(MySQLiteHelper.DATABASE_CREATE_TASK_DAY_SUM_7_TO_8);
+
+		// getTaskSums
+		assertIndexed("select day, task, sum(minutes) from task_day_sum where day >= ? and day < ? group by 1, 2");
+		assertIndexed("delete from task_day_sum where day >= ? and day < ?");
+	}
+
+	@Test
+	public void taskSumGroupsBeginAtWeekAndMonthStart() throws SQLException {
+		// wednesday, 2020-01-15
+		int day = 18276 * 24 * 60;
+
+		// same expressions as in DAO.getTaskSums
+		assertThat(queryInts("select " + day + " - (((" + day + " / 1440 + 3) % 7 + 7) % 7) * 1440"))
+			.containsExactly(18274 * 24 * 60);
+		// thursday, 1969-12-25
+		int before1970 = -7 * 24 * 60;
+		assertThat(queryInts("select " + before1970 + " - (((" + before1970 + " / 1440 + 3) % 7 + 7) % 7) * 1440"))
+			.containsExactly(-10 * 24 * 60);
+		assertThat(queryInts("select cast(strftime('%s', " + day + " * 60, 'unixepoch', 'start of month') as integer)"
+			+ " / 60")).containsExactly(18262 * 24 * 60);
+	}
+
+	@Test
+	public void triggersWriteChangeLog() throws SQLException {
+		execute(MySQLiteHelper.DATABASE_CREATE_CHANGE_LOG_8_TO_9,
+			MySQLiteHelper.DATABASE_CREATE_CHANGE_LOG_ACK_8_TO_9,
+			MySQLiteHelper.createChangeLogTrigger("event", "insert"),
+			MySQLiteHelper.createChangeLogTrigger("event", "update"),
+			MySQLiteHelper.createChangeLogTrigger("event", "delete"));
+
+		execute("insert into event (_id, week, type, time, task) values (7, 1, 1, '2020-01-06 08:00:00.0000', 1)",
+			"update event set task = 2 where _id = 7",
+			"delete from event where _id = 7");
+
+		assertThat(queryInts("select seq from change_log order by seq")).containsExactly(1, 2, 3).inOrder();
+		assertThat(queryInts("select entity_id from change_log where entity = 'event'")).containsExactly(7, 7, 7);
+		assertThat(queryInts("select count(*) from change_log where operation in ('insert', 'update', 'delete')"
+			+ " and timestamp > 1577836800000")).containsExactly(3);
+
+		// compaction as in DAO.acknowledgeChanges
+		execute("insert into change_log_ack (consumer, seq) values ('a', 2)",
+			"insert into change_log_ack (consumer, seq) values ('b', 1)",
+			"delete from change_log where seq<=(select min(seq) from change_log_ack)");
+		assertThat(queryInts("select seq from change_log order by seq")).containsExactly(2, 3).inOrder();
+		assertThat(queryInts("select seq from sqlite_sequence where name = 'change_log'")).containsExactly(3);
+	}
+
+	@Test
+	public void changeLogIsLimited() throws SQLException {
+		execute(MySQLiteHelper.DATABASE_CREATE_CHANGE_LOG_8_TO_9,
+			MySQLiteHelper.DATABASE_CREATE_CHANGE_LOG_ACK_8_TO_9);
+		for (int i = 1; i <= 10; i++) {
+			execute("insert into change_log (entity, entity_id, operation, timestamp) values ('event', " + i
+				+ ", 'insert', " + i * 1000 + ")");
+		}
+		execute("insert into change_log_ack (consumer, seq) values ('backup', 8)",
+			"insert into change_log_ack (consumer, seq) values ('disabled', 2)",
+			"delete from change_log where seq<=(select min(seq) from change_log_ack)");
+		assertThat(queryInts("select min(seq) from change_log")).containsExactly(3);
+
+		// DAO.removeChangeConsumer
+		execute("delete from change_log_ack where consumer = 'disabled'",
+			"delete from change_log where seq<=(select min(seq) from change_log_ack)");
+		assertThat(queryInts("select seq from change_log order by seq")).containsExactly(9, 10).inOrder();
+
+		// the limits of DAO.compactChangeLog apply without any consumer, by count and by age
+		execute("delete from change_log_ack");
+		for (int i = 11; i <= 20; i++) {
+			execute("insert into change_log (entity, entity_id, operation, timestamp) values ('event', " + i
+				+ ", 'insert', " + i * 1000 + ")");
+		}
+		execute("delete from change_log where seq<=(select max(seq) from change_log)-'5' OR timestamp<'0'");
+		assertThat(queryInts("select seq from change_log order by seq")).containsExactly(16, 17, 18, 19, 20).inOrder();
+		execute("delete from change_log where seq<=(select max(seq) from change_log)-'5' OR timestamp<'18000'");
+		assertThat(queryInts("select seq from change_log order by seq")).containsExactly(18, 19, 20).inOrder();
+	}
+
+	@Test
+	public void maintenanceConvertsToIncrementalVacuum() throws SQLException {
+		upgradeTo6();
+		// like an existing database which was created before auto-vacuum was configured
+		execute("PRAGMA auto_vacuum = INCREMENTAL", "VACUUM", MySQLiteHelper.DATABASE_CREATE_MAINTENANCE_RUN_9_TO_10);
+		assertThat(queryInts("PRAGMA auto_vacuum")).containsExactly(2);
+
+		for (int i = 0; i < 500; i++) {
+			execute("insert into event (week, type, time, time_min, customtext) values (1, 1, '2020-01-06 08:00:00.0000', "
+				+ i + ", '" + String.format("%0200d", i) + "')");
+		}
+		execute("delete from event");
+		assertThat(queryInts("PRAGMA freelist_count").get(0)).isGreaterThan(0);
+
+		// every step of the pragma frees one page - the DAO reads all of its rows, here it's stepped one by one
+		int pages = queryInts("PRAGMA freelist_count").get(0);
+		for (int i = 0; i < pages; i++) {
+			execute("PRAGMA incremental_vacuum");
+		}
+		assertThat(queryInts("PRAGMA freelist_count")).containsExactly(0);
+
+		execute("insert into maintenance_run (start, duration, size_before, size_after, pages_before, pages_after,"
+			+ " free_pages_before, free_pages_after, integrity) values (1, 2, 3, 4, 5, 6, 7, 8, 'ok')");
+		assertThat(queryInts("select count(*) from maintenance_run")).containsExactly(1);
+	}
+
+	@Test
+	public void withoutIndexesEventQueriesScan() throws SQLException {
+		// makes sure that the check itself is able to detect a full scan
+		assertThat(explain("select _id from event where time < ? order by time desc, _id desc limit 1"))
+			.contains("SCAN");
+	}
+
+	@Test
+	public void upgradeConvertsTimeToMinutes() throws SQLException {
+		execute("insert into event (week, type, time, task) values (1, 1, '1970-01-02 01:02:03.0000', 1)",
+			"insert into event (week, type, time, task) values (1, 0, '2020-02-29 23:59:59.9999', 1)");
+
+		upgradeTo6();
+
+		assertThat(queryInts("select time_min from event order by _id"))
+			.containsExactly(24 * 60 + 62, 26383679).inOrder();
+	}
+
+	@Test
+	public void upgradeMergesDuplicateWeeks() throws SQLException {
+		execute("insert into week (_id, start, sum) values (1, '2020-01-06 00:00:00.0000', 0)",
+			"insert into week (_id, start, sum) values (2, '2020-01-06 00:00:00.0000', 0)",
+			"insert into week (_id, start, sum) values (3, '2020-01-13 00:00:00.0000', 0)",
+			"insert into event (week, type, time, task) values (2, 1, '2020-01-06 08:00:00.0000', 1)",
+			"insert into event (week, type, time, task) values (3, 0, '2020-01-13 17:00:00.0000', 1)");
+
+		upgradeTo5();
+
+		assertThat(queryInts("select _id from week order by _id")).containsExactly(1, 3).inOrder();
+		assertThat(queryInts("select week from event order by time")).containsExactly(1, 3).inOrder();
+	}
+
+	/** same as in DAO.searchEvents */
+	private static String searchSql() {
+		return "select docid, matchinfo(event_search, '" + FullTextSearch.MATCHINFO_FORMAT
+			+ "') from event_search where event_search match ?";
+	}
+
+	private List<Integer> searchIds(String match) throws SQLException {
+		List<Integer> result = new ArrayList<>();
+		try (PreparedStatement statement = connection.prepareStatement(searchSql() + " order by docid")) {
+			statement.setString(1, match);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					result.add(resultSet.getInt(1));
+				}
+			}
+		}
+		return result;
+	}
+
+	/** ranks the matches like DAO.searchEvents, best first */
+	private List<Integer> rankedSearch(String match) throws SQLException {
+		List<Long> ranking = new ArrayList<>();
+		try (PreparedStatement statement = connection.prepareStatement(searchSql())) {
+			statement.setString(1, match);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					float score = FullTextSearch.score(resultSet.getBytes(2));
+					ranking.add(FullTextSearch.rankKey(score, resultSet.getInt(1)));
+				}
+			}
+		}
+		Collections.sort(ranking, Collections.reverseOrder());
+		List<Integer> result = new ArrayList<>();
+		for (Long rankKey : ranking) {
+			result.add(FullTextSearch.eventIdOf(rankKey));
+		}
+		return result;
+	}
+
+	private void assertIndexed(String sql) throws SQLException {
+		String plan = explain(sql);
+		assertWithMessage(sql + "\n" + plan).that(plan).doesNotContain("SCAN");
+		assertWithMessage(sql + "\n" + plan).that(plan).doesNotContain("TEMP B-TREE");
+	}
+
+	private String explain(String sql) throws SQLException {
+		StringBuilder plan = new StringBuilder();
+		try (PreparedStatement statement = connection.prepareStatement("explain query plan " + sql)) {
+			int parameterCount = sql.length() - sql.replace("?", "").length();
+			for (int i = 1; i <= parameterCount; i++) {
+				statement.setString(i, "2020-01-01");
+			}
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					plan.append(resultSet.getString("detail")).append('\n');
+				}
+			}
+		}
+		return plan.toString();
+	}
+
+	private List<Integer> queryInts(String sql) throws SQLException {
+		List<Integer> result = new ArrayList<>();
+		try (Statement statement = connection.createStatement();
+			ResultSet resultSet = statement.executeQuery(sql)) {
+			while (resultSet.next()) {
+				result.add(resultSet.getInt(1));
+			}
+		}
+		return result;
+	}
+
+	private void execute(String... statements) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			for (String sql : statements) {
+				statement.execute(sql);
+			}
+		}
+	}
+
+}
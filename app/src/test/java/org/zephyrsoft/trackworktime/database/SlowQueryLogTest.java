@@ -0,0 +1,93 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class SlowQueryLogTest {
+
+	private static final long MILLIS = 1_000_000L;
+
+	@Test
+	public void fastCallsAreIgnored() {
+		SlowQueryLog log = new SlowQueryLog(10);
+		int[] explained = { 0 };
+
+		log.record("select 1", null, 1, 10 * MILLIS, () -> {
+			explained[0]++;
+			return "SCAN";
+		});
+
+		assertThat(log.getOffenders()).isEmpty();
+		// the plan is only captured for slow calls
+		assertThat(explained[0]).isEqualTo(0);
+	}
+
+	@Test
+	public void slowCallsAreAggregatedBySql() {
+		SlowQueryLog log = new SlowQueryLog(10);
+
+		log.record("select * from event where time>=?", new String[] { "1" }, 5, 20 * MILLIS, () -> "SCAN event");
+		log.record("select * from event where time>=?", new String[] { "2" }, 7, 30 * MILLIS, () -> "SCAN event");
+		log.record("delete from week where _id=?", new String[] { "3" }, 1, 100 * MILLIS, null);
+
+		List<SlowQueryLog.SlowStatement> offenders = log.getOffenders();
+		assertThat(offenders).hasSize(2);
+		assertThat(offenders.get(0).getSql()).isEqualTo("delete from week where _id=?");
+		assertThat(offenders.get(0).getPlan()).isEmpty();
+		SlowQueryLog.SlowStatement select = offenders.get(1);
+		assertThat(select.getCount()).isEqualTo(2);
+		assertThat(select.getTotalNanos()).isEqualTo(50 * MILLIS);
+		assertThat(select.getMaxNanos()).isEqualTo(30 * MILLIS);
+		assertThat(select.getMaxArgs()).asList().containsExactly("2");
+		assertThat(select.getMaxRows()).isEqualTo(7);
+		assertThat(select.getPlan()).isEqualTo("SCAN event");
+	}
+
+	@Test
+	public void cheapestStatementIsDroppedWhenFull() {
+		SlowQueryLog log = new SlowQueryLog(0);
+		for (int i = 0; i < SlowQueryLog.MAX_STATEMENTS; i++) {
+			log.record("select " + i, null, 1, (i + 1) * MILLIS, null);
+		}
+
+		log.record("select new", null, 1, 1000 * MILLIS, null);
+
+		List<SlowQueryLog.SlowStatement> offenders = log.getOffenders();
+		assertThat(offenders).hasSize(SlowQueryLog.MAX_STATEMENTS);
+		assertThat(offenders.get(0).getSql()).isEqualTo("select new");
+		assertThat(offenders.get(offenders.size() - 1).getSql()).isEqualTo("select 1");
+	}
+
+	@Test
+	public void disabledLogRecordsNothing() {
+		SlowQueryLog log = new SlowQueryLog(SlowQueryLog.DISABLED);
+
+		log.record("select 1", null, 1, 1000 * MILLIS, null);
+
+		assertThat(log.isEnabled()).isFalse();
+		assertThat(log.getOffenders()).isEmpty();
+	}
+
+	@Test
+	public void summaryListsTheWorstOffenders() throws IOException {
+		SlowQueryLog log = new SlowQueryLog(10);
+		log.record("select a", null, 3, 20 * MILLIS, () -> "SCAN a");
+		log.record("select b", new String[] { "x" }, 4, 40 * MILLIS, () -> "SEARCH b USING INDEX b_idx (c=?)");
+		StringWriter writer = new StringWriter();
+
+		log.writeSummary(writer, 1);
+
+		String summary = writer.toString();
+		assertThat(summary).contains("threshold 10 ms");
+		assertThat(summary).contains("select b");
+		assertThat(summary).contains("1 slow calls, 40 ms in total, 40 ms at most (with arguments [x], 4 rows)");
+		assertThat(summary).contains("SEARCH b USING INDEX b_idx (c=?)");
+		assertThat(summary).doesNotContain("select a");
+	}
+
+}
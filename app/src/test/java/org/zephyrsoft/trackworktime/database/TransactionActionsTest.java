@@ -0,0 +1,191 @@
+package org.zephyrsoft.trackworktime.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Moves and deletes archived events like {@link DAO#updateEvent} and {@link DAO#deleteEvent} do in a transaction of
+ * {@link DAO#executeInTransaction}: the transaction on the archive stays open until the outermost transaction on the
+ * main database ended. Runs against plain JDBC SQLite databases, other connections check what was committed.
+ */
+public class TransactionActionsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final TransactionActions actions = new TransactionActions();
+	private String mainUrl;
+	private String archiveUrl;
+	private Connection main;
+	private Connection archive;
+
+	@Before
+	public void setUp() throws Exception {
+		mainUrl = "jdbc:sqlite:" + folder.newFile("main.db").getAbsolutePath();
+		archiveUrl = "jdbc:sqlite:" + folder.newFile("archive.db").getAbsolutePath();
+		main = DriverManager.getConnection(mainUrl);
+		archive = DriverManager.getConnection(archiveUrl);
+		execute(main, "create table event (_id integer primary key, time_min integer)");
+		execute(archive, "create table event (_id integer primary key, time_min integer)");
+		execute(main, "insert into event values (10, 200)");
+		execute(archive, "insert into event values (1, 100)");
+		execute(archive, "insert into event values (2, 110)");
+		main.setAutoCommit(false);
+		archive.setAutoCommit(false);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		main.close();
+		archive.close();
+	}
+
+	@Test
+	public void shiftOfArchivedEventIsCommittedAfterMainDatabase() throws SQLException {
+		// executeInTransaction with an updateEvent inside
+		execute(main, "update event set time_min = 210 where _id = 10");
+		moveBackFromArchive(1, 150);
+		actions.endNested(true);
+
+		// nothing is committed yet, but this thread already sees the move
+		assertThat(ids(archive)).containsExactly(2);
+		assertThat(committedIds(archiveUrl)).containsExactly(1, 2);
+		assertThat(committedIds(mainUrl)).containsExactly(10);
+
+		main.commit();
+		List<Integer> archiveAtMainCommit = committedIds(archiveUrl);
+		assertThat(actions.endOutermost(true)).isTrue();
+
+		assertThat(archiveAtMainCommit).containsExactly(1, 2);
+		assertThat(committedIds(mainUrl)).containsExactly(1, 10);
+		assertThat(committedIds(archiveUrl)).containsExactly(2);
+	}
+
+	@Test
+	public void deleteOfArchivedEventIsCommittedWithOuterTransaction() throws SQLException {
+		deleteFromArchive(1);
+		actions.endNested(true);
+		deleteFromArchive(2);
+		actions.endNested(true);
+		assertThat(committedIds(archiveUrl)).containsExactly(1, 2);
+
+		main.commit();
+		assertThat(actions.endOutermost(true)).isTrue();
+
+		assertThat(committedIds(archiveUrl)).isEmpty();
+	}
+
+	@Test
+	public void outerRollbackKeepsArchivedEvents() throws SQLException {
+		moveBackFromArchive(1, 150);
+		actions.endNested(true);
+		deleteFromArchive(2);
+		actions.endNested(true);
+
+		// the action of executeInTransaction threw an exception
+		main.rollback();
+		assertThat(actions.endOutermost(false)).isFalse();
+
+		assertThat(committedIds(mainUrl)).containsExactly(10);
+		assertThat(committedIds(archiveUrl)).containsExactly(1, 2);
+		assertThat(ids(archive)).containsExactly(1, 2);
+	}
+
+	@Test
+	public void failedNestedTransactionRollsBackArchive() throws SQLException {
+		deleteFromArchive(1);
+		actions.endNested(true);
+		deleteFromArchive(2);
+		// like SQLiteDatabase, the main database rolls back if a nested transaction failed
+		actions.endNested(false);
+		main.rollback();
+
+		assertThat(actions.endOutermost(true)).isFalse();
+		assertThat(committedIds(archiveUrl)).containsExactly(1, 2);
+
+		// the next transaction starts clean
+		deleteFromArchive(2);
+		main.commit();
+		assertThat(actions.endOutermost(true)).isTrue();
+		assertThat(committedIds(archiveUrl)).containsExactly(1);
+	}
+
+	@Test
+	public void failingActionDoesNotStopTheOthers() {
+		List<String> ran = new ArrayList<>();
+		actions.register(() -> {
+			throw new IllegalStateException("archive is gone");
+		}, () -> ran.add("rollback 1"));
+		actions.register(() -> ran.add("commit 2"), () -> ran.add("rollback 2"));
+
+		assertThat(actions.endOutermost(true)).isTrue();
+		assertThat(ran).containsExactly("commit 2");
+	}
+
+	/** like DAO.updateEvent for an archived event */
+	private void moveBackFromArchive(int id, int minute) throws SQLException {
+		beginArchiveTransaction();
+		execute(archive, "delete from event where _id = " + id);
+		execute(main, "insert into event values (" + id + ", " + minute + ")");
+	}
+
+	/** like DAO.deleteEvent for an archived event */
+	private void deleteFromArchive(int id) throws SQLException {
+		beginArchiveTransaction();
+		execute(archive, "delete from event where _id = " + id);
+	}
+
+	/** like DAO.beginArchiveTransaction, JDBC has no nested transactions so the connection just stays open */
+	private void beginArchiveTransaction() {
+		actions.register(() -> sql(archive::commit), () -> sql(archive::rollback));
+	}
+
+	private interface SqlAction {
+		void run() throws SQLException;
+	}
+
+	private static void sql(SqlAction action) {
+		try {
+			action.run();
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private List<Integer> committedIds(String url) throws SQLException {
+		try (Connection other = DriverManager.getConnection(url)) {
+			return ids(other);
+		}
+	}
+
+	private static List<Integer> ids(Connection connection) throws SQLException {
+		List<Integer> ret = new ArrayList<>();
+		try (Statement statement = connection.createStatement();
+			ResultSet result = statement.executeQuery("select _id from event order by _id")) {
+			while (result.next()) {
+				ret.add(result.getInt(1));
+			}
+		}
+		return ret;
+	}
+
+	private static void execute(Connection connection, String sql) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+}
@@ -0,0 +1,76 @@
+package org.zephyrsoft.trackworktime.options;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Preferences for unit tests, which only contain the values put into them with {@link #put(String, Object)}.
+ */
+public class MapPreferences implements SharedPreferences {
+
+	private final Map<String, Object> values = new HashMap<>();
+
+	public void put(String key, Object value) {
+		values.put(key, value);
+	}
+
+	@Override
+	public Map<String, ?> getAll() {
+		return values;
+	}
+
+	@Override
+	public String getString(String key, String defValue) {
+		return values.containsKey(key) ? (String) values.get(key) : defValue;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Set<String> getStringSet(String key, Set<String> defValues) {
+		return values.containsKey(key) ? (Set<String>) values.get(key) : defValues;
+	}
+
+	@Override
+	public int getInt(String key, int defValue) {
+		return values.containsKey(key) ? (Integer) values.get(key) : defValue;
+	}
+
+	@Override
+	public long getLong(String key, long defValue) {
+		return values.containsKey(key) ? (Long) values.get(key) : defValue;
+	}
+
+	@Override
+	public float getFloat(String key, float defValue) {
+		return values.containsKey(key) ? (Float) values.get(key) : defValue;
+	}
+
+	@Override
+	public boolean getBoolean(String key, boolean defValue) {
+		return values.containsKey(key) ? (Boolean) values.get(key) : defValue;
+	}
+
+	@Override
+	public boolean contains(String key) {
+		return values.containsKey(key);
+	}
+
+	@Override
+	public Editor edit() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+		throw new UnsupportedOperationException();
+	}
+
+}
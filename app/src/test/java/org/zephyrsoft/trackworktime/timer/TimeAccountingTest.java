@@ -0,0 +1,600 @@
+package org.zephyrsoft.trackworktime.timer;
+
+import org.junit.Test;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TimeSum;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import hirondelle.date4j.DateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.zephyrsoft.trackworktime.timer.TimeAccounting.NONE;
+
+public class TimeAccountingTest {
+
+	private static final int DAY = DateTimeUtil.MINUTES_PER_DAY;
+	/** fixed, so a failing run can be repeated */
+	private static final long SEED = 4242;
+	private static final int RUNS = 5000;
+
+	private final Random random = new Random(SEED);
+
+	@Test
+	public void regularDay() {
+		List<Event> events = Arrays.asList(
+			event(TypeEnum.CLOCK_IN, "2020-01-06 08:00", 1),
+			event(TypeEnum.CLOCK_OUT, "2020-01-06 12:00", null),
+			event(TypeEnum.CLOCK_IN, "2020-01-06 12:30", 1),
+			// changing the task doesn't interrupt the work time
+			event(TypeEnum.CLOCK_IN, "2020-01-06 14:00", 2),
+			event(TypeEnum.CLOCK_OUT, "2020-01-06 17:15", null));
+		TimeAccounting accounting = new TimeAccounting(minutes("2020-02-01 00:00"), NONE, NONE);
+
+		accounting.calculate(EventSequence.of(null, events), minutes("2020-01-06 00:00"), minutes("2020-01-07 00:00"));
+
+		assertThat(accounting.getWorked()).isEqualTo(4 * 60 + 4 * 60 + 45);
+		assertThat(accounting.getTimeIn()).isEqualTo(minutes("2020-01-06 08:00"));
+		assertThat(accounting.getTimeOut()).isEqualTo(minutes("2020-01-06 17:15"));
+		assertThat(accounting.getFlexTarget()).isEqualTo(NONE);
+	}
+
+	@Test
+	public void stillClockedInWithAutoPause() {
+		List<Event> events = Arrays.asList(
+			event(TypeEnum.FLEX, "2020-01-06 07:00", null),
+			event(TypeEnum.CLOCK_IN, "2020-01-06 08:00", 1));
+		// the auto-pause from 12:00 to 12:30 is not inserted yet
+		TimeAccounting accounting = new TimeAccounting(minutes("2020-01-06 15:00"), 12 * 60, 12 * 60 + 30);
+
+		accounting.calculate(EventSequence.of(null, events), minutes("2020-01-06 00:00"), minutes("2020-01-07 00:00"));
+
+		assertThat(accounting.getWorked()).isEqualTo(7 * 60 - 30);
+		assertThat(accounting.getTimeIn()).isEqualTo(minutes("2020-01-06 08:00"));
+		assertThat(accounting.getTimeOut()).isEqualTo(NONE);
+		assertThat(accounting.getFlexTarget()).isEqualTo(7 * 60);
+	}
+
+	@Test
+	public void clockedInOverMonthEnd() {
+		List<Event> events = Arrays.asList(
+			event(TypeEnum.CLOCK_IN, "2020-01-31 22:00", 1),
+			event(TypeEnum.CLOCK_OUT, "2020-02-01 02:00", null));
+		TimeAccounting accounting = new TimeAccounting(minutes("2020-03-01 00:00"), NONE, NONE);
+
+		accounting.calculate(EventSequence.of(null, events), minutes("2020-01-27 00:00"), minutes("2020-02-03 00:00"));
+
+		// the old calculation went by the day of the month and counted -20 hours
+		assertThat(accounting.getWorked()).isEqualTo(4 * 60);
+	}
+
+	@Test
+	public void taskChangeOnAnotherDay() {
+		List<Event> events = Arrays.asList(
+			event(TypeEnum.CLOCK_IN, "2020-01-06 20:00", 1),
+			event(TypeEnum.CLOCK_IN, "2020-01-07 01:00", 2),
+			event(TypeEnum.CLOCK_OUT, "2020-01-07 03:00", null));
+		TimeAccounting accounting = new TimeAccounting(minutes("2020-03-01 00:00"), NONE, NONE);
+
+		accounting.calculate(EventSequence.of(null, events), minutes("2020-01-06 00:00"), minutes("2020-01-13 00:00"));
+
+		// the old calculation only added the days since the event before the clock-out and counted -17 hours
+		assertThat(accounting.getWorked()).isEqualTo(7 * 60);
+	}
+
+	@Test
+	public void clockedInSinceBeforeWeek() {
+		Event previous = event(TypeEnum.CLOCK_IN, "2020-01-05 20:00", 1);
+		List<Event> events = Arrays.asList(event(TypeEnum.CLOCK_OUT, "2020-01-08 10:00", null));
+		TimeAccounting accounting = new TimeAccounting(minutes("2020-03-01 00:00"), NONE, NONE);
+
+		accounting.calculate(EventSequence.of(previous, events), minutes("2020-01-06 00:00"),
+			minutes("2020-01-13 00:00"));
+
+		// the old calculation only counted the 10 hours of the last day
+		assertThat(accounting.getWorked()).isEqualTo(2 * DAY + 10 * 60);
+		assertThat(accounting.getTimeIn()).isEqualTo(minutes("2020-01-06 00:00"));
+	}
+
+	@Test
+	public void taskIntervals() {
+		Event previous = event(TypeEnum.CLOCK_IN, "2020-01-05 22:00", 1);
+		List<Event> events = Arrays.asList(
+			event(TypeEnum.CLOCK_IN, "2020-01-06 06:00", 2),
+			event(TypeEnum.CLOCK_OUT, "2020-01-06 10:00", null),
+			event(TypeEnum.CLOCK_IN, "2020-01-06 11:00", null));
+		List<Integer> visited = new ArrayList<>();
+
+		TimeAccounting.visitTaskIntervals(EventSequence.of(previous, events), minutes("2020-01-06 00:00"),
+			minutes("2020-01-07 00:00"), (task, from, to) -> visited.addAll(Arrays.asList(task, from, to)));
+
+		assertThat(visited).isEqualTo(Arrays.asList(
+			1, minutes("2020-01-06 00:00"), minutes("2020-01-06 06:00"),
+			2, minutes("2020-01-06 06:00"), minutes("2020-01-06 10:00"),
+			EventSequence.NONE, minutes("2020-01-06 11:00"), minutes("2020-01-07 00:00")));
+	}
+
+	// the following tests compare random cases with the calculations as they were before TimeAccounting
+
+	@Test
+	public void dayIsCalculatedLikeBefore() {
+		for (int run = 0; run < RUNS; run++) {
+			int begin = randomDay();
+			int end = begin + DAY;
+			List<Event> all = new ArrayList<>();
+			boolean clockedIn = addPrevious(all, begin);
+			addEvents(all, begin, random.nextInt(8), clockedIn);
+			addEvents(all, end, random.nextInt(3), false);
+			int now = randomNow(all, begin, end);
+			int pauseBegin = randomAutoPauseBegin();
+			int pauseEnd = pauseBegin == NONE ? NONE : randomAutoPauseEnd(pauseBegin);
+
+			TimeAccounting accounting = new TimeAccounting(now, pauseBegin, pauseEnd);
+			accounting.calculate(sequence(all, begin, end), begin, end);
+
+			String message = describe(run, all, now, pauseBegin, pauseEnd);
+			assertWithMessage(message).that(accounting.getWorked())
+				.isEqualTo(legacyTimeSum(all, begin, end, now, pauseBegin, pauseEnd).getAsMinutes());
+			int[] legacyDetails = legacyDayDetails(all, begin, now);
+			assertWithMessage(message).that(accounting.getTimeIn()).isEqualTo(legacyDetails[0]);
+			assertWithMessage(message).that(accounting.getTimeOut()).isEqualTo(legacyDetails[1]);
+			assertWithMessage(message).that(accounting.getFlexTarget()).isEqualTo(legacyDetails[2]);
+		}
+	}
+
+	/**
+	 * The old calculation got spans over midnight wrong, so here every clock-in ends on its day (the week may contain
+	 * the end of a month). The spans over midnight are checked by {@link #spansOverMidnightCountAbsoluteMinutes()}.
+	 */
+	@Test
+	public void weekIsCalculatedLikeBefore() {
+		for (int run = 0; run < RUNS; run++) {
+			int begin = randomWeek(random.nextBoolean());
+			int end = begin + 7 * DAY;
+			List<Event> all = new ArrayList<>();
+			boolean clockedIn = addPrevious(all, begin);
+			for (int day = begin; day < end; day += DAY) {
+				clockedIn = addEvents(all, day, random.nextInt(5), clockedIn);
+				if (clockedIn && day + DAY < end) {
+					// only the last day may end clocked in
+					all.add(event(TypeEnum.CLOCK_OUT, day + DAY - 1, null));
+					clockedIn = false;
+				}
+			}
+			addEvents(all, end, random.nextInt(3), false);
+			int now = randomNow(all, begin, end);
+			int pauseBegin = randomAutoPauseBegin();
+			int pauseEnd = pauseBegin == NONE ? NONE : randomAutoPauseEnd(pauseBegin);
+
+			TimeAccounting accounting = new TimeAccounting(now, pauseBegin, pauseEnd);
+			accounting.calculate(sequence(all, begin, end), begin, end);
+
+			assertWithMessage(describe(run, all, now, pauseBegin, pauseEnd)).that(accounting.getWorked())
+				.isEqualTo(legacyTimeSum(all, begin, end, now, pauseBegin, pauseEnd).getAsMinutes());
+		}
+	}
+
+	/**
+	 * Spans over midnight - at month ends, with task changes on later days and clocked in since before the week - are
+	 * counted in absolute minutes, which is where the old calculation was wrong on purpose.
+	 */
+	@Test
+	public void spansOverMidnightCountAbsoluteMinutes() {
+		int differentFromBefore = 0;
+		for (int run = 0; run < RUNS; run++) {
+			int begin = randomWeek(random.nextBoolean());
+			int end = begin + 7 * DAY;
+			List<Event> all = new ArrayList<>();
+			boolean clockedInBefore = addPrevious(all, begin);
+			int count = 1 + random.nextInt(8);
+			int[] times = new int[count];
+			for (int i = 0; i < count; i++) {
+				times[i] = begin + random.nextInt(7 * DAY);
+			}
+			Arrays.sort(times);
+			for (int i = 0; i < count; i++) {
+				// the last event in the week is a clock-out, the others are mostly clock-ins (task changes)
+				TypeEnum type = i == count - 1 || random.nextInt(3) == 0 ? TypeEnum.CLOCK_OUT : TypeEnum.CLOCK_IN;
+				all.add(event(type, times[i], randomTask()));
+			}
+			addEvents(all, end, random.nextInt(3), false);
+			// all events of the week are in the past, so nothing is counted up to now
+			int now = end + random.nextInt(3 * DAY);
+
+			TimeAccounting accounting = new TimeAccounting(now, NONE, NONE);
+			accounting.calculate(sequence(all, begin, end), begin, end);
+
+			int expected = 0;
+			int clockedInSince = clockedInBefore ? begin : NONE;
+			for (Event event : between(all, begin, end)) {
+				if (clockedInSince == NONE && TimerManager.isClockInEvent(event)) {
+					clockedInSince = event.getTimeMinutes();
+				} else if (clockedInSince != NONE && TimerManager.isClockOutEvent(event)) {
+					expected += event.getTimeMinutes() - clockedInSince;
+					clockedInSince = NONE;
+				}
+			}
+			assertWithMessage(describe(run, all, now, NONE, NONE)).that(accounting.getWorked()).isEqualTo(expected);
+			if (expected != legacyTimeSum(all, begin, end, now, NONE, NONE).getAsMinutes()) {
+				differentFromBefore++;
+			}
+		}
+		// make sure the cases which were calculated differently before are generated
+		assertThat(differentFromBefore).isGreaterThan(RUNS / 4);
+	}
+
+	@Test
+	public void taskSumsAreCalculatedLikeBefore() {
+		for (int run = 0; run < RUNS; run++) {
+			int begin = randomDay();
+			int days = 1 + random.nextInt(40);
+			List<Event> all = new ArrayList<>();
+			boolean clockedIn = addPrevious(all, begin);
+			for (int i = 0; i < days; i++) {
+				clockedIn = addEvents(all, begin + i * DAY, random.nextInt(3), clockedIn);
+			}
+			// like the end of the ranges in the reports
+			DateTime endOfPeriod = DateTimeUtil.epochMinutesToDateTime(begin + days * DAY - 1);
+			endOfPeriod = new DateTime(endOfPeriod.getYear(), endOfPeriod.getMonth(), endOfPeriod.getDay(), 23, 59, 59,
+				999999999);
+			List<Event> events = between(all, begin, begin + days * DAY);
+
+			Map<Integer, Integer> sums = new HashMap<>();
+			TimeAccounting.visitTaskIntervals(sequence(all, begin, begin + days * DAY), begin,
+				DateTimeUtil.dateTimeToEpochMinutes(endOfPeriod), (task, from, to) -> {
+					Integer sum = sums.get(task);
+					sums.put(task, (sum == null ? 0 : sum) + to - from);
+				});
+
+			assertWithMessage(describe(run, all, 0, NONE, NONE)).that(sums)
+				.isEqualTo(legacySums(all, DateTimeUtil.epochMinutesToDateTime(begin), endOfPeriod, events));
+		}
+	}
+
+	/** {@code TimerManager.calculateTimeSum()} as it was, with the store queries done on the given events */
+	private static TimeSum legacyTimeSum(List<Event> all, int begin, int end, int nowMinutes, int pauseBegin,
+		int pauseEnd) {
+		DateTime now = nowWithSeconds(nowMinutes);
+		TimeSum ret = new TimeSum();
+
+		DateTime beginOfPeriod = DateTimeUtil.epochMinutesToDateTime(begin);
+		DateTime endOfPeriod = DateTimeUtil.epochMinutesToDateTime(end);
+		List<Event> events = between(all, begin, end);
+		Event lastEventBefore = lastBefore(all, DateTimeUtil.dateTimeToEpochMinutes(beginOfPeriod));
+		DateTime lastEventBeforeTime = (lastEventBefore == null ? null : DateTimeUtil
+			.epochMinutesToDateTime(lastEventBefore.getTimeMinutes()));
+		Event firstEventAfterNow = firstAfter(all, DateTimeUtil.dateTimeToEpochMinutes(now));
+		DateTime firstEventAfterNowTime = (firstEventAfterNow == null ? null : DateTimeUtil
+			.epochMinutesToDateTime(firstEventAfterNow.getTimeMinutes()));
+
+		DateTime clockedInSince = null;
+		if (TimerManager.isClockInEvent(lastEventBefore)
+			&& !(lastEventBeforeTime != null && now.gt(lastEventBeforeTime)
+				&& ((events.isEmpty() && (firstEventAfterNow == null || now.lt(firstEventAfterNowTime)))
+				|| (!events.isEmpty() && now.lt(DateTimeUtil.epochMinutesToDateTime(events.get(0).getTimeMinutes()))
+				&& TimerManager.isClockInEvent(events.get(0)))))) {
+			clockedInSince = beginOfPeriod;
+		}
+
+		Event lastEvent = (events.isEmpty() ? null : events.get(events.size() - 1));
+		DateTime lastEventTime = (lastEvent == null ? null : DateTimeUtil
+			.epochMinutesToDateTime(lastEvent.getTimeMinutes()));
+
+		if (TimerManager.isClockInEvent(lastEvent) && now.gt(lastEventTime) && now.lt(endOfPeriod)) {
+			Event clockOutNowEvent = event(TypeEnum.CLOCK_OUT_NOW, nowMinutes, null);
+			events.add(clockOutNowEvent);
+			lastEvent = clockOutNowEvent;
+		}
+
+		Event eventBefore = null;
+		for (Event event : events) {
+			DateTime eventTime = DateTimeUtil.epochMinutesToDateTime(event.getTimeMinutes());
+			if (clockedInSince == null && TimerManager.isClockInEvent(event)) {
+				clockedInSince = eventTime;
+			}
+			if (clockedInSince != null && TimerManager.isClockOutEvent(event)) {
+				ret.substract(clockedInSince.getHour(), clockedInSince.getMinute());
+				ret.add(eventTime.getHour(), eventTime.getMinute());
+				if (eventBefore != null) {
+					DateTime eventBeforeTime = DateTimeUtil.epochMinutesToDateTime(eventBefore.getTimeMinutes());
+					int differenceInDays = eventTime.getDay() - eventBeforeTime.getDay();
+					if (differenceInDays > 0) {
+						ret.add(24 * differenceInDays, 0);
+					}
+				}
+				clockedInSince = null;
+			}
+			eventBefore = event;
+		}
+
+		if (lastEvent != null && lastEvent.getType().equals(TypeEnum.CLOCK_OUT_NOW.getValue()) && pauseBegin != NONE) {
+			int eventMinutes = lastEvent.getTimeMinutes();
+			int startOfDay = eventMinutes - eventMinutes % DAY;
+			DateTime eventTime = DateTimeUtil.epochMinutesToDateTime(eventMinutes);
+			DateTime autoPauseBegin = DateTimeUtil.epochMinutesToDateTime(startOfDay + pauseBegin);
+			DateTime autoPauseEnd = DateTimeUtil.epochMinutesToDateTime(startOfDay + pauseEnd);
+			if (autoPauseBegin.lt(autoPauseEnd)) {
+				Event lastEventBeforeBegin = lastBefore(all, startOfDay + pauseBegin);
+				Event lastEventBeforeEnd = lastBefore(all, startOfDay + pauseEnd);
+				if (lastEventBeforeBegin != null
+					&& lastEventBeforeBegin.getType().equals(TypeEnum.CLOCK_IN.getValue())
+					&& lastEventBeforeBegin == lastEventBeforeEnd
+					&& eventTime.gt(autoPauseEnd)) {
+					ret.substract(autoPauseEnd.getHour(), autoPauseEnd.getMinute());
+					ret.add(autoPauseBegin.getHour(), autoPauseBegin.getMinute());
+				}
+			}
+		}
+
+		if (clockedInSince != null) {
+			ret.substract(clockedInSince.getHour(), clockedInSince.getMinute());
+			ret.add(24, 0);
+			DateTime counting = clockedInSince.plusDays(1);
+			while (counting.lt(endOfPeriod)) {
+				ret.add(24, 0);
+				counting = counting.plusDays(1);
+			}
+		}
+
+		return ret;
+	}
+
+	/** the time in, time out and target work time of {@code TimeCalculator.calulateOneDay()} as it was */
+	private static int[] legacyDayDetails(List<Event> all, int day, int nowMinutes) {
+		DateTime now = nowWithSeconds(nowMinutes);
+		List<Event> eventsOfOneDay = between(all, day, day + DAY);
+		int flexTarget = NONE;
+		for (Event event : eventsOfOneDay) {
+			if (TimerManager.isFlexEvent(event)) {
+				DateTime flexTime = DateTimeUtil.epochMinutesToDateTime(event.getTimeMinutes());
+				flexTarget = flexTime.getHour() * 60 + flexTime.getMinute();
+				break;
+			}
+		}
+		if (eventsOfOneDay.isEmpty()) {
+			return new int[] { NONE, NONE, flexTarget };
+		}
+
+		Event lastEventBeforeToday = lastBefore(all, eventsOfOneDay.get(0).getTimeMinutes());
+		Event firstClockInEvent = null;
+		for (Event event : eventsOfOneDay) {
+			if (TimerManager.isClockInEvent(event)) {
+				firstClockInEvent = event;
+				break;
+			}
+		}
+		Event effectiveClockOutEvent = null;
+		for (int i = eventsOfOneDay.size() - 1; i >= 0; i--) {
+			Event event = eventsOfOneDay.get(i);
+			if (TimerManager.isClockOutEvent(event)) {
+				effectiveClockOutEvent = event;
+			}
+			if (TimerManager.isClockInEvent(event)) {
+				break;
+			}
+		}
+
+		int timeIn = NONE;
+		if (TimerManager.isClockInEvent(lastEventBeforeToday)
+			&& now.gt(DateTimeUtil.epochMinutesToDateTime(lastEventBeforeToday.getTimeMinutes()))
+			&& !TimerManager.isClockInEvent(eventsOfOneDay.get(0))) {
+			timeIn = day;
+		} else if (firstClockInEvent != null) {
+			timeIn = firstClockInEvent.getTimeMinutes();
+		}
+		int timeOut = effectiveClockOutEvent == null ? NONE : effectiveClockOutEvent.getTimeMinutes();
+		return new int[] { timeIn, timeOut, flexTarget };
+	}
+
+	/** {@code TimeCalculator.calculateSums()} as it was, by task ID */
+	private static Map<Integer, Integer> legacySums(List<Event> all, DateTime beginOfPeriod, DateTime endOfPeriod,
+		List<Event> events) {
+		Map<Integer, Integer> ret = new HashMap<>();
+		if (events.isEmpty()) {
+			return ret;
+		}
+		Event lastEventBefore = lastBefore(all, events.get(0).getTimeMinutes());
+		DateTime clockedInSince = null;
+		Integer currentTask = null;
+		if (TimerManager.isClockInEvent(lastEventBefore)) {
+			clockedInSince = beginOfPeriod;
+			currentTask = taskOf(lastEventBefore);
+		}
+		for (Event event : events) {
+			DateTime eventTime = DateTimeUtil.epochMinutesToDateTime(event.getTimeMinutes());
+			if (clockedInSince != null) {
+				countTime(ret, currentTask, clockedInSince, eventTime);
+			}
+			if (TimerManager.isClockInEvent(event)) {
+				clockedInSince = eventTime;
+				currentTask = taskOf(event);
+			} else {
+				clockedInSince = null;
+				currentTask = null;
+			}
+		}
+		if (clockedInSince != null) {
+			countTime(ret, currentTask, clockedInSince, endOfPeriod);
+		}
+		return ret;
+	}
+
+	private static void countTime(Map<Integer, Integer> sums, Integer task, DateTime from, DateTime to) {
+		Integer sum = sums.get(task);
+		sums.put(task, (sum == null ? 0 : sum) + (int) (from.numSecondsFrom(to) / 60));
+	}
+
+	private static int taskOf(Event event) {
+		return event.getTask() == null ? EventSequence.NONE : event.getTask();
+	}
+
+	/** a random day between 2015 and 2025 */
+	private int randomDay() {
+		return minutes("2015-01-01 00:00") + random.nextInt(11 * 365) * DAY;
+	}
+
+	/** a random Monday whose week contains the end of a month or not */
+	private int randomWeek(boolean overMonthEnd) {
+		while (true) {
+			int day = randomDay();
+			// 1970-01-01 was a Thursday
+			int monday = day - ((day / DAY + 3) % 7) * DAY;
+			boolean sameMonth = DateTimeUtil.epochMinutesToDateTime(monday).getMonth()
+				.equals(DateTimeUtil.epochMinutesToDateTime(monday + 6 * DAY).getMonth());
+			if (sameMonth != overMonthEnd) {
+				return monday;
+			}
+		}
+	}
+
+	/** before, in or after the period, or in the same minute as one of the events */
+	private int randomNow(List<Event> events, int begin, int end) {
+		switch (random.nextInt(4)) {
+			case 0:
+				return begin - 1 - random.nextInt(3 * DAY);
+			case 1:
+				return begin + random.nextInt(end - begin);
+			case 2:
+				return end + random.nextInt(3 * DAY);
+			default:
+				return events.isEmpty() ? begin : events.get(random.nextInt(events.size())).getTimeMinutes();
+		}
+	}
+
+	private int randomAutoPauseBegin() {
+		return random.nextInt(3) == 0 ? NONE : random.nextInt(DAY);
+	}
+
+	/** mostly after the begin, sometimes equal to it or before it */
+	private int randomAutoPauseEnd(int begin) {
+		return Math.max(0, Math.min(DAY - 1, begin - 30 + random.nextInt(150)));
+	}
+
+	/**
+	 * Add a random last event before the period (or none).
+	 *
+	 * @return if the user is clocked in at the begin of the period
+	 */
+	private boolean addPrevious(List<Event> events, int begin) {
+		if (random.nextInt(5) == 0) {
+			return false;
+		}
+		TypeEnum type = randomType();
+		events.add(event(type, begin - 1 - random.nextInt(3 * DAY), randomTask()));
+		return type == TypeEnum.CLOCK_IN;
+	}
+
+	/**
+	 * Add random events on the given day.
+	 *
+	 * @return if the user is clocked in at the end of the day
+	 */
+	private boolean addEvents(List<Event> events, int day, int count, boolean clockedIn) {
+		int[] times = new int[count];
+		for (int i = 0; i < count; i++) {
+			times[i] = day + random.nextInt(DAY);
+		}
+		Arrays.sort(times);
+		for (int time : times) {
+			TypeEnum type = randomType();
+			events.add(event(type, time, randomTask()));
+			if (type == TypeEnum.CLOCK_IN) {
+				clockedIn = true;
+			} else if (type != TypeEnum.FLEX) {
+				clockedIn = false;
+			}
+		}
+		return clockedIn;
+	}
+
+	private TypeEnum randomType() {
+		int value = random.nextInt(20);
+		if (value < 9) {
+			return TypeEnum.CLOCK_IN;
+		} else if (value < 16) {
+			return TypeEnum.CLOCK_OUT;
+		} else if (value < 18) {
+			return TypeEnum.FLEX;
+		} else {
+			return TypeEnum.CLOCK_OUT_NOW;
+		}
+	}
+
+	private Integer randomTask() {
+		int value = random.nextInt(4);
+		return value == 0 ? null : value;
+	}
+
+	private static EventSequence sequence(List<Event> all, int begin, int end) {
+		return EventSequence.of(lastBefore(all, begin), between(all, begin, end));
+	}
+
+	private static List<Event> between(List<Event> all, int from, int to) {
+		List<Event> ret = new ArrayList<>();
+		for (Event event : all) {
+			if (event.getTimeMinutes() >= from && event.getTimeMinutes() < to) {
+				ret.add(event);
+			}
+		}
+		return ret;
+	}
+
+	private static Event lastBefore(List<Event> all, int minute) {
+		Event ret = null;
+		for (Event event : all) {
+			if (event.getTimeMinutes() < minute) {
+				ret = event;
+			}
+		}
+		return ret;
+	}
+
+	private static Event firstAfter(List<Event> all, int minute) {
+		for (Event event : all) {
+			if (event.getTimeMinutes() > minute) {
+				return event;
+			}
+		}
+		return null;
+	}
+
+	/** the current time is in the middle of the minute */
+	private static DateTime nowWithSeconds(int minutes) {
+		DateTime now = DateTimeUtil.epochMinutesToDateTime(minutes);
+		return new DateTime(now.getYear(), now.getMonth(), now.getDay(), now.getHour(), now.getMinute(), 30, 0);
+	}
+
+	private static String describe(int run, List<Event> all, int now, int pauseBegin, int pauseEnd) {
+		StringBuilder ret = new StringBuilder("run ").append(run).append(", now ").append(now)
+			.append(", auto-pause ").append(pauseBegin).append('-').append(pauseEnd).append(", events");
+		for (Event event : all) {
+			ret.append(' ').append(event.getTimeMinutes()).append('/').append(event.getType()).append('/')
+				.append(event.getTask());
+		}
+		return ret.toString();
+	}
+
+	private static Event event(TypeEnum type, String time, Integer task) {
+		return event(type, minutes(time), task);
+	}
+
+	private static Event event(TypeEnum type, int minutes, Integer task) {
+		Event ret = new Event(null, null, task, type.getValue(), null, null);
+		// the calculations only use the minutes
+		ret.setTime(null, minutes);
+		return ret;
+	}
+
+	private static int minutes(String time) {
+		return DateTimeUtil.stringToEpochMinutes(time);
+	}
+
+}
@@ -0,0 +1,116 @@
+package org.zephyrsoft.trackworktime.timer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zephyrsoft.trackworktime.database.InMemoryEventStore;
+import org.zephyrsoft.trackworktime.model.DayLine;
+import org.zephyrsoft.trackworktime.model.DaySummary;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.Task;
+import org.zephyrsoft.trackworktime.model.TimeSum;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.model.Week;
+import org.zephyrsoft.trackworktime.options.Key;
+import org.zephyrsoft.trackworktime.options.MapPreferences;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.List;
+import java.util.Map;
+
+import hirondelle.date4j.DateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/**
+ * Runs the {@link TimeCalculator} on an {@link InMemoryEventStore}.
+ */
+public class TimeCalculatorTest {
+
+	private final MapPreferences preferences = new MapPreferences();
+	private InMemoryEventStore store;
+	private TimeCalculator timeCalculator;
+	private Week week;
+	private Task work;
+	private Task support;
+
+	@Before
+	public void setUp() {
+		store = new InMemoryEventStore();
+		TimerManager timerManager = new TimerManager(store, preferences, null, Runnable::run);
+		timeCalculator = new TimeCalculator(store, timerManager);
+		preferences.put(Key.ENABLE_FLEXI_TIME.getName(), true);
+		preferences.put(Key.FLEXI_TIME_TARGET.getName(), "40:00");
+		for (Key day : new Key[] { Key.FLEXI_TIME_DAY_MONDAY, Key.FLEXI_TIME_DAY_TUESDAY,
+			Key.FLEXI_TIME_DAY_WEDNESDAY, Key.FLEXI_TIME_DAY_THURSDAY, Key.FLEXI_TIME_DAY_FRIDAY }) {
+			preferences.put(day.getName(), true);
+		}
+		store.insertWeek(new Week(null, "2019-12-30 00:00:00.0000", 0, 0));
+		week = store.insertWeek(new Week(null, "2020-01-06 00:00:00.0000", 0, 0));
+		work = store.insertTask(new Task(null, "Work", 1, 0, 1));
+		support = store.insertTask(new Task(null, "Support", 1, 1, 0));
+
+		// the night shift began in the week before
+		insert(TypeEnum.CLOCK_IN, "2020-01-05 22:00", work);
+		insert(TypeEnum.CLOCK_OUT, "2020-01-06 01:00", null);
+		insert(TypeEnum.CLOCK_IN, "2020-01-07 08:00", work);
+		insert(TypeEnum.CLOCK_IN, "2020-01-07 12:00", support);
+		insert(TypeEnum.CLOCK_OUT, "2020-01-07 13:00", null);
+		insert(TypeEnum.FLEX, "2020-01-08 00:00", null);
+		insert(TypeEnum.CLOCK_IN, "2020-01-09 23:00", work);
+		insert(TypeEnum.CLOCK_OUT, "2020-01-10 07:30", null);
+	}
+
+	@Test
+	public void sumsPerTask() {
+		DateTime begin = DateTimeUtil.stringToDateTime(week.getStart());
+
+		Map<Task, TimeSum> sums = timeCalculator.calculateSums(begin, begin.plusDays(7));
+
+		assertThat(sums).hasSize(2);
+		assertThat(sumOf(sums, work)).isEqualTo(60 + 4 * 60 + 8 * 60 + 30);
+		assertThat(sumOf(sums, support)).isEqualTo(60);
+	}
+
+	@Test
+	public void dayFromSummaryIsLikeDayFromEvents() {
+		DateTime monday = DateTimeUtil.stringToDateTime(week.getStart());
+		List<DaySummary> summaries = store.getDaySummariesPerDay(monday);
+
+		for (int i = 0; i < 7; i++) {
+			DateTime day = monday.plusDays(i);
+			DayLine fromEvents = timeCalculator.calulateOneDay(day);
+			DayLine fromSummary = timeCalculator.calulateOneDay(day, summaries.get(i));
+
+			assertWithMessage("day %s", i).that(describe(fromSummary)).isEqualTo(describe(fromEvents));
+		}
+		// the target of a normal work day is 8 of the 40 hours
+		DayLine tuesday = timeCalculator.calulateOneDay(monday.plusDays(1), summaries.get(1));
+		assertThat(describe(tuesday)).isEqualTo("08:00-13:00 worked 5:00 flexi -3:00");
+	}
+
+	private static int sumOf(Map<Task, TimeSum> sums, Task task) {
+		for (Map.Entry<Task, TimeSum> entry : sums.entrySet()) {
+			if (entry.getKey().getId().equals(task.getId())) {
+				return entry.getValue().getAsMinutes();
+			}
+		}
+		throw new AssertionError("no sum for " + task.getName());
+	}
+
+	private static String describe(DayLine line) {
+		return time(line.getTimeIn()) + "-" + time(line.getTimeOut()) + " worked " + line.getTimeWorked() + " flexi "
+			+ line.getTimeFlexi();
+	}
+
+	private static String time(DateTime time) {
+		return time == null ? "" : DateTimeUtil.dateTimeToHourMinuteString(time);
+	}
+
+	private void insert(TypeEnum type, String time, Task task) {
+		int weekId = time.compareTo("2020-01-06") < 0 ? week.getId() - 1 : week.getId();
+		store.insertEvent(new Event(null, weekId, task == null ? null : task.getId(), type.getValue(),
+			time + ":00.0000", null));
+	}
+
+}
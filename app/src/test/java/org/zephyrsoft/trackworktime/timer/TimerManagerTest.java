@@ -0,0 +1,129 @@
+package org.zephyrsoft.trackworktime.timer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zephyrsoft.trackworktime.database.InMemoryEventStore;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.options.Key;
+import org.zephyrsoft.trackworktime.options.MapPreferences;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import hirondelle.date4j.DateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Runs the {@link TimerManager} on an {@link InMemoryEventStore}, the week sums are calculated right away.
+ */
+public class TimerManagerTest {
+
+	private final MapPreferences preferences = new MapPreferences();
+	private int insertCalls = 0;
+	private int transactions = 0;
+	private InMemoryEventStore store;
+	private TimerManager timerManager;
+
+	@Before
+	public void setUp() {
+		store = new InMemoryEventStore() {
+			@Override
+			public synchronized void insertEvents(List<Event> newEvents) {
+				insertCalls++;
+				super.insertEvents(newEvents);
+			}
+
+			@Override
+			public synchronized void executeInTransaction(Runnable action) {
+				transactions++;
+				super.executeInTransaction(action);
+			}
+		};
+		timerManager = new TimerManager(store, preferences, null, Runnable::run);
+		preferences.put(Key.FLEXI_TIME_TARGET.getName(), "40:00");
+		for (Key day : new Key[] { Key.FLEXI_TIME_DAY_MONDAY, Key.FLEXI_TIME_DAY_TUESDAY,
+			Key.FLEXI_TIME_DAY_WEDNESDAY, Key.FLEXI_TIME_DAY_THURSDAY, Key.FLEXI_TIME_DAY_FRIDAY }) {
+			preferences.put(day.getName(), true);
+		}
+	}
+
+	@Test
+	public void defaultWorkTimesAreWrittenAtOnce() {
+		preferences.put(Key.AUTO_PAUSE_ENABLED.getName(), true);
+		preferences.put(Key.AUTO_PAUSE_BEGIN.getName(), "6:00");
+		preferences.put(Key.AUTO_PAUSE_END.getName(), "6:30");
+
+		timerManager.insertDefaultWorkTimes(date("2020-01-06"), date("2020-01-12"), 1, "default");
+
+		assertThat(insertCalls).isEqualTo(1);
+		// the auto-pause checks saw the clock-in of the same day before it was written
+		assertThat(eventsOn("2020-01-08")).containsExactly("CLOCK_IN 00:00", "CLOCK_OUT 06:00", "CLOCK_IN 06:30",
+			"CLOCK_OUT 08:30").inOrder();
+		assertThat(eventsOn("2020-01-11")).isEmpty();
+		assertThat(store.getWeek("2020-01-06 00:00:00.0000").getSum()).isEqualTo(40 * 60);
+	}
+
+	@Test
+	public void autoPauseContinuesWithTheStoredClockIn() {
+		preferences.put(Key.AUTO_PAUSE_ENABLED.getName(), true);
+		preferences.put(Key.AUTO_PAUSE_BEGIN.getName(), "12:00");
+		preferences.put(Key.AUTO_PAUSE_END.getName(), "12:30");
+		store.insertEvent(event(TypeEnum.CLOCK_IN, "2020-01-06 08:00", 1, "planning"));
+
+		timerManager.createEvent(DateTimeUtil.stringToDateTime("2020-01-06 17:00:00.0000"), null, TypeEnum.CLOCK_OUT,
+			null);
+
+		assertThat(eventsOn("2020-01-06")).containsExactly("CLOCK_IN 08:00", "CLOCK_OUT 12:00", "CLOCK_IN 12:30",
+			"CLOCK_OUT 17:00").inOrder();
+		// the neighbour lookup doesn't return the text, so it is read separately
+		Event afterPause = store.getEventsOnDay(date("2020-01-06")).get(2);
+		assertThat(afterPause.getTask()).isEqualTo(1);
+		assertThat(afterPause.getText()).isEqualTo("planning");
+	}
+
+	@Test
+	public void reassignTaskOnlyChangesTheTask() {
+		Event clockIn = store.insertEvent(event(TypeEnum.CLOCK_IN, "2020-01-06 08:00", 1, "planning"));
+		Event clockOut = store.insertEvent(event(TypeEnum.CLOCK_OUT, "2020-01-06 12:00", null, null));
+		Event deleted = store.insertEvent(event(TypeEnum.CLOCK_IN, "2020-01-06 13:00", 1, null));
+		// the list shown to the user, before the events were changed by someone else
+		List<Event> stale = store.getEventsOnDay(date("2020-01-06"));
+		Event edited = store.getEvent(clockIn.getId());
+		edited.setText("review");
+		store.updateEvents(Collections.singletonList(edited));
+		store.deleteEvents(Collections.singletonList(deleted));
+		transactions = 0;
+
+		timerManager.reassignTask(stale, 2);
+
+		assertThat(transactions).isEqualTo(1);
+		Event reassigned = store.getEvent(clockIn.getId());
+		assertThat(reassigned.getTask()).isEqualTo(2);
+		assertThat(reassigned.getText()).isEqualTo("review");
+		// like in the DAO, a missing task is read as 0
+		assertThat(store.getEvent(clockOut.getId()).getTask()).isEqualTo(0);
+		assertThat(store.getEvent(deleted.getId())).isNull();
+	}
+
+	private static Event event(TypeEnum type, String time, Integer task, String text) {
+		return new Event(null, 1, task, type.getValue(), time + ":00.0000", text);
+	}
+
+	private List<String> eventsOn(String day) {
+		List<String> ret = new ArrayList<>();
+		for (Event event : store.getEventsOnDay(date(day))) {
+			DateTime time = DateTimeUtil.epochMinutesToDateTime(event.getTimeMinutes());
+			ret.add(TypeEnum.byValue(event.getType()).name() + " " + DateTimeUtil.dateTimeToHourMinuteString(time));
+		}
+		return ret;
+	}
+
+	private static DateTime date(String day) {
+		return DateTimeUtil.stringToDateTime(day + " 00:00:00.0000");
+	}
+
+}
@@ -0,0 +1,187 @@
+package org.zephyrsoft.trackworktime.timer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zephyrsoft.trackworktime.database.InMemoryEventStore;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.model.Week;
+import org.zephyrsoft.trackworktime.options.MapPreferences;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/**
+ * Checks the {@link WeekSumUpdater} against a full rebuild of all week sums, both done by
+ * {@link TimerManager#updateWeekSum}. The events are in the past, so the current time doesn't matter.
+ */
+public class WeekSumUpdaterTest {
+
+	private static final int FIRST_WEEK = DateTimeUtil.epochMinutesToWeekOrdinal(minutes("2020-01-06 00:00"));
+	private static final int WEEK_COUNT = 12;
+
+	private final List<Runnable> scheduled = new ArrayList<>();
+	private final List<Integer> updatedWeeks = new ArrayList<>();
+	private InMemoryEventStore store;
+	private TimerManager timerManager;
+	private WeekSumUpdater updater;
+
+	@Before
+	public void setUp() {
+		store = new InMemoryEventStore();
+		for (int i = 0; i < WEEK_COUNT; i++) {
+			store.insertWeek(new Week(null, DateTimeUtil.weekOrdinalToString(FIRST_WEEK + i), 0, 0));
+		}
+		timerManager = new TimerManager(store, new MapPreferences(), null, Runnable::run);
+		updater = new WeekSumUpdater(store, scheduled::add, week -> {
+			updatedWeeks.add(week.getOrdinal());
+			timerManager.updateWeekSum(week);
+		});
+	}
+
+	@Test
+	public void onlyDependentWeeksAreUpdated() {
+		insert(TypeEnum.CLOCK_IN, "2020-01-06 08:00");
+		insert(TypeEnum.CLOCK_OUT, "2020-01-06 17:00");
+		insert(TypeEnum.CLOCK_IN, "2020-01-27 08:00");
+		insert(TypeEnum.CLOCK_OUT, "2020-01-27 17:00");
+		rebuildAll();
+		updatedWeeks.clear();
+
+		// the clock-out of this one was forgotten, so the user stays clocked in up to the next event
+		Event forgotten = insert(TypeEnum.CLOCK_IN, "2020-01-14 08:00");
+		updater.eventsChanged(forgotten.getTimeMinutes(), forgotten.getTimeMinutes());
+		runScheduled();
+
+		assertThat(updatedWeeks).containsExactly(FIRST_WEEK + 1, FIRST_WEEK + 2, FIRST_WEEK + 3).inOrder();
+		assertThat(sumOf(FIRST_WEEK)).isEqualTo(9 * 60);
+		assertThat(sumOf(FIRST_WEEK + 1)).isEqualTo(6 * DateTimeUtil.MINUTES_PER_DAY - 8 * 60);
+		// a clock-in while clocked in doesn't interrupt the work time
+		assertThat(sumOf(FIRST_WEEK + 3)).isEqualTo(17 * 60);
+		assertSameAsFullRebuild();
+	}
+
+	@Test
+	public void burstOfChangesIsCalculatedOnce() {
+		insert(TypeEnum.CLOCK_OUT, "2020-02-18 17:00");
+		rebuildAll();
+		Event first = insert(TypeEnum.CLOCK_IN, "2020-01-07 08:00");
+		updater.eventsChanged(first.getTimeMinutes(), first.getTimeMinutes());
+		Event second = insert(TypeEnum.CLOCK_OUT, "2020-01-21 17:00");
+		updater.eventsChanged(second.getTimeMinutes(), second.getTimeMinutes());
+		Event third = insert(TypeEnum.CLOCK_IN, "2020-02-04 08:00");
+		updater.eventsChanged(third.getTimeMinutes(), third.getTimeMinutes());
+		Event fourth = insert(TypeEnum.CLOCK_OUT, "2020-02-04 12:00");
+		updater.eventsChanged(fourth.getTimeMinutes(), fourth.getTimeMinutes());
+
+		assertThat(scheduled).hasSize(1);
+		runScheduled();
+
+		// one pass over the merged range, up to the next event after it
+		assertThat(updatedWeeks).containsExactly(FIRST_WEEK, FIRST_WEEK + 1, FIRST_WEEK + 2, FIRST_WEEK + 3,
+			FIRST_WEEK + 4, FIRST_WEEK + 5, FIRST_WEEK + 6).inOrder();
+		assertSameAsFullRebuild();
+
+		// the next change is scheduled again
+		updater.eventsChanged(first.getTimeMinutes(), first.getTimeMinutes());
+		assertThat(scheduled).hasSize(1);
+	}
+
+	@Test
+	public void movesAndDeletesMatchFullRebuild() {
+		insert(TypeEnum.CLOCK_IN, "2020-01-06 08:00");
+		Event clockOut = insert(TypeEnum.CLOCK_OUT, "2020-01-06 17:00");
+		Event lateClockIn = insert(TypeEnum.CLOCK_IN, "2020-02-10 08:00");
+		insert(TypeEnum.CLOCK_OUT, "2020-02-12 12:00");
+		insert(TypeEnum.FLEX, "2020-03-02 00:00");
+		rebuildAll();
+
+		// the clock-out is moved two weeks later, so the user worked through the weeks in between
+		Event movedClockOut = move(clockOut, "2020-01-22 10:00");
+		runScheduled();
+		assertSameAsFullRebuild();
+
+		// moved back into the first week and merged with the deletion of a clock-in weeks later
+		move(movedClockOut, "2020-01-07 09:00");
+		store.deleteEvents(Collections.singletonList(lateClockIn));
+		updater.eventsChanged(lateClockIn.getTimeMinutes(), lateClockIn.getTimeMinutes());
+		assertThat(scheduled).hasSize(1);
+		runScheduled();
+		assertSameAsFullRebuild();
+		assertThat(sumOf(FIRST_WEEK)).isEqualTo(DateTimeUtil.MINUTES_PER_DAY + 60);
+		// only the clock-out is left in that week
+		assertThat(sumOf(FIRST_WEEK + 5)).isEqualTo(0);
+
+		// a clock-in at the end of the week runs up to the flex event
+		Event clockIn = insert(TypeEnum.CLOCK_IN, "2020-02-29 20:00");
+		updater.eventsChanged(clockIn.getTimeMinutes(), clockIn.getTimeMinutes());
+		runScheduled();
+		assertSameAsFullRebuild();
+		assertThat(sumOf(FIRST_WEEK + 7)).isEqualTo(28 * 60);
+	}
+
+	private void rebuildAll() {
+		for (Week week : store.getWeeksBetween(FIRST_WEEK, FIRST_WEEK + WEEK_COUNT - 1)) {
+			timerManager.updateWeekSum(week);
+		}
+	}
+
+	private void assertSameAsFullRebuild() {
+		List<Week> updated = store.getWeeksBetween(FIRST_WEEK, FIRST_WEEK + WEEK_COUNT - 1);
+		rebuildAll();
+		for (Week week : updated) {
+			assertWithMessage("sum of week %s", week.getStart()).that(week.getSum())
+				.isEqualTo(sumOf(week.getOrdinal()));
+		}
+	}
+
+	private void runScheduled() {
+		while (!scheduled.isEmpty()) {
+			scheduled.remove(0).run();
+		}
+	}
+
+	private int sumOf(int weekOrdinal) {
+		return store.getWeekByOrdinal(weekOrdinal).getSum();
+	}
+
+	private Event move(Event event, String time) {
+		Event moved = withTime(event, minutes(time));
+		store.updateEvents(Collections.singletonList(moved));
+		updater.eventsChanged(Math.min(event.getTimeMinutes(), moved.getTimeMinutes()),
+			Math.max(event.getTimeMinutes(), moved.getTimeMinutes()));
+		return moved;
+	}
+
+	private Event insert(TypeEnum type, String time) {
+		return insert(type, minutes(time));
+	}
+
+	private Event insert(TypeEnum type, int minute) {
+		return store.insertEvent(new Event(null, weekIdAt(minute), null, type.getValue(), timeString(minute), null));
+	}
+
+	/** the events have to reference the week they are in, like the TimerManager writes them */
+	private Event withTime(Event event, int minute) {
+		return new Event(event.getId(), weekIdAt(minute), event.getTask(), event.getType(), timeString(minute),
+			event.getText());
+	}
+
+	private int weekIdAt(int minute) {
+		return store.getWeekByOrdinal(DateTimeUtil.epochMinutesToWeekOrdinal(minute)).getId();
+	}
+
+	private static String timeString(int minute) {
+		return DateTimeUtil.dateTimeToString(DateTimeUtil.epochMinutesToDateTime(minute));
+	}
+
+	private static int minutes(String time) {
+		return DateTimeUtil.stringToEpochMinutes(time + ":00.0000");
+	}
+
+}
@@ -15,4 +15,75 @@ public class DateTimeUtilTest {
 		assertThat(toTest.getMinute()).isEqualTo(0);
 	}
 
+	@Test
+	public void epochMinutes() {
+		assertThat(DateTimeUtil.dateTimeToEpochMinutes(new DateTime("1970-01-01 00:00:00"))).isEqualTo(0);
+		assertThat(DateTimeUtil.dateTimeToEpochMinutes(new DateTime("1970-01-02 01:02:59.999"))).isEqualTo(1502);
+		assertThat(DateTimeUtil.dateTimeToEpochMinutes(DateTime.forDateOnly(1969, 12, 31))).isEqualTo(-1440);
+		assertThat(DateTimeUtil.stringToEpochMinutes("2020-02-29 23:59:59.9999")).isEqualTo(26383679);
+		assertThat(DateTimeUtil.epochMinutesToDateTime(26383679)).isEqualTo(new DateTime(2020, 2, 29, 23, 59, 0, 0));
+		assertThat(DateTimeUtil.epochMinutesToDateTime(-1)).isEqualTo(new DateTime(1969, 12, 31, 23, 59, 0, 0));
+	}
+
+	@Test
+	public void epochMinutesRoundTrip() {
+		DateTime end = new DateTime(2101, 1, 1, 0, 0, 0, 0);
+		for (DateTime day = new DateTime(1899, 12, 25, 13, 47, 0, 0); day.lt(end); day = day.plusDays(1)) {
+			String string = DateTimeUtil.dateTimeToString(day);
+			int minutes = DateTimeUtil.dateTimeToEpochMinutes(day);
+			assertThat(DateTimeUtil.stringToEpochMinutes(string)).isEqualTo(minutes);
+			assertThat(DateTimeUtil.epochMinutesToDateTime(minutes)).isEqualTo(day);
+		}
+	}
+
+	@Test
+	public void epochMinutesToString() {
+		assertThat(DateTimeUtil.epochMinutesToString(26383679)).isEqualTo("2020-02-29 23:59:00.0000");
+		assertThat(DateTimeUtil.epochMinutesToString(-1)).isEqualTo("1969-12-31 23:59:00.0000");
+
+		DateTime end = new DateTime(2101, 1, 1, 0, 0, 0, 0);
+		for (DateTime day = new DateTime(1899, 12, 25, 13, 47, 0, 0); day.lt(end); day = day.plusDays(1)) {
+			assertThat(DateTimeUtil.epochMinutesToString(DateTimeUtil.dateTimeToEpochMinutes(day)))
+				.isEqualTo(DateTimeUtil.dateTimeToString(day));
+		}
+	}
+
+	@Test
+	public void startOfDay() {
+		assertThat(DateTimeUtil.epochMinutesToStartOfDay(0)).isEqualTo(0);
+		assertThat(DateTimeUtil.epochMinutesToStartOfDay(1502)).isEqualTo(1440);
+		assertThat(DateTimeUtil.epochMinutesToStartOfDay(-1)).isEqualTo(-1440);
+		assertThat(DateTimeUtil.epochMinutesToStartOfDay(-1440)).isEqualTo(-1440);
+		assertThat(DateTimeUtil.epochMinutesToStartOfDay(-1441)).isEqualTo(-2880);
+
+		DateTime end = new DateTime(2101, 1, 1, 0, 0, 0, 0);
+		for (DateTime day = new DateTime(1899, 12, 25, 13, 47, 0, 0); day.lt(end); day = day.plusDays(1)) {
+			assertThat(DateTimeUtil.epochMinutesToStartOfDay(DateTimeUtil.dateTimeToEpochMinutes(day)))
+				.isEqualTo(DateTimeUtil.dateTimeToEpochMinutes(day.getStartOfDay()));
+		}
+	}
+
+	@Test
+	public void weekOrdinals() {
+		assertThat(DateTimeUtil.stringToEpochMinutes("1970-01-02")).isEqualTo(DateTimeUtil.MINUTES_PER_DAY);
+		assertThat(DateTimeUtil.weekOrdinalToString(0)).isEqualTo("1969-12-29 00:00:00.0000");
+		assertThat(DateTimeUtil.weekOrdinalToString(-1)).isEqualTo("1969-12-22 00:00:00.0000");
+
+		DateTime end = new DateTime(2101, 1, 1, 0, 0, 0, 0);
+		for (DateTime day = new DateTime(1899, 12, 25, 13, 47, 0, 0); day.lt(end); day = day.plusDays(1)) {
+			int minutes = DateTimeUtil.dateTimeToEpochMinutes(day);
+			int ordinal = DateTimeUtil.epochMinutesToWeekOrdinal(minutes);
+			String weekStart = DateTimeUtil.getWeekStartAsString(day);
+			assertThat(DateTimeUtil.weekOrdinalToString(ordinal)).isEqualTo(weekStart);
+			assertThat(DateTimeUtil.epochMinutesToWeekOrdinal(DateTimeUtil.stringToEpochMinutes(weekStart)))
+				.isEqualTo(ordinal);
+			// the first week which begins at or after the given minute
+			int weekStartMinutes = DateTimeUtil.weekOrdinalToEpochMinutes(ordinal);
+			assertThat(DateTimeUtil.epochMinutesToNextWeekOrdinal(weekStartMinutes)).isEqualTo(ordinal);
+			assertThat(DateTimeUtil.epochMinutesToNextWeekOrdinal(weekStartMinutes + 1)).isEqualTo(ordinal + 1);
+			assertThat(DateTimeUtil.epochMinutesToNextWeekOrdinal(minutes))
+				.isEqualTo(minutes == weekStartMinutes ? ordinal : ordinal + 1);
+		}
+	}
+
 }
\ No newline at end of file
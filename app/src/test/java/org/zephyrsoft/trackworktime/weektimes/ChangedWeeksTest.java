@@ -0,0 +1,83 @@
+package org.zephyrsoft.trackworktime.weektimes;
+
+import org.junit.Test;
+import org.zephyrsoft.trackworktime.database.DataChange;
+import org.zephyrsoft.trackworktime.database.DaySummaryCalculator;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Counts the weeks which the week pager loads again after one clock-in, compared with
+ * {@link WeekAdapter#notifyAllWeeksChanged()}, which loads all shown weeks again. The change is the one which the DAO
+ * reports for the inserted event, see {@link DaySummaryCalculator#affectedDays}.
+ */
+public class ChangedWeeksTest {
+
+	private static final int CURRENT_WEEK = weekOf("2020-01-08 08:00");
+	/** the week pager keeps the shown week and its neighbours (offscreen page limit 1) */
+	private static final List<Integer> SHOWN_AROUND_CURRENT_WEEK = Arrays.asList(CURRENT_WEEK - 1, CURRENT_WEEK,
+		CURRENT_WEEK + 1);
+
+	@Test
+	public void clockInReloadsCurrentAndNextWeek() {
+		DataChange change = clockIn("2020-01-08 08:00", "2020-01-07 17:00");
+
+		assertThat(reloaded(change, SHOWN_AROUND_CURRENT_WEEK)).containsExactly(CURRENT_WEEK, CURRENT_WEEK + 1);
+		assertThat(reloaded(DataChange.EVERYTHING, SHOWN_AROUND_CURRENT_WEEK)).hasSize(3);
+	}
+
+	@Test
+	public void clockInAfterWeekendReloadsPreviousWeek() {
+		// the summary of friday changes, because the time after its clock-out is counted up to the next event
+		DataChange change = clockIn("2020-01-06 08:00", "2020-01-03 17:00");
+
+		assertThat(reloaded(change, SHOWN_AROUND_CURRENT_WEEK)).hasSize(3);
+	}
+
+	@Test
+	public void clockInDoesNotReloadOlderWeeks() {
+		List<Integer> shown = Arrays.asList(CURRENT_WEEK - 11, CURRENT_WEEK - 10, CURRENT_WEEK - 9);
+
+		DataChange change = clockIn("2020-01-08 08:00", "2020-01-07 17:00");
+
+		assertThat(reloaded(change, shown)).isEmpty();
+		assertThat(reloaded(DataChange.EVERYTHING, shown)).hasSize(3);
+	}
+
+	@Test
+	public void taskChangeReloadsNoWeek() {
+		assertThat(ChangedWeeks.getFirstIndex(DataChange.ofTask(3))).isEqualTo(ChangedWeeks.NONE);
+		assertThat(reloaded(DataChange.ofTask(3), SHOWN_AROUND_CURRENT_WEEK)).isEmpty();
+	}
+
+	/** the change of inserting a clock-in after the given clock-out, which is the last event */
+	private static DataChange clockIn(String time, String previousClockOut) {
+		Event previous = new Event(1, null, null, TypeEnum.CLOCK_OUT.getValue(), previousClockOut + ":00.0000", null);
+		int minute = DateTimeUtil.stringToEpochMinutes(time + ":00.0000");
+		return DaySummaryCalculator.affectedDays(previous, minute, minute, null);
+	}
+
+	/** the shown weeks which are loaded again, like WorkTimeTrackerActivity.refreshView decides */
+	private static List<Integer> reloaded(DataChange change, List<Integer> shownWeeks) {
+		int first = change.isEverything() ? 0 : ChangedWeeks.getFirstIndex(change);
+		List<Integer> ret = new ArrayList<>();
+		for (Integer week : shownWeeks) {
+			if (week >= first) {
+				ret.add(week);
+			}
+		}
+		return ret;
+	}
+
+	private static int weekOf(String time) {
+		return DateTimeUtil.epochMinutesToWeekOrdinal(DateTimeUtil.stringToEpochMinutes(time + ":00.0000"));
+	}
+
+}
@@ -0,0 +1,75 @@
+package org.zephyrsoft.trackworktime.weektimes;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zephyrsoft.trackworktime.database.InMemoryEventStore;
+import org.zephyrsoft.trackworktime.model.Event;
+import org.zephyrsoft.trackworktime.model.TypeEnum;
+import org.zephyrsoft.trackworktime.model.Week;
+import org.zephyrsoft.trackworktime.model.WeekRowState;
+import org.zephyrsoft.trackworktime.model.WeekState;
+import org.zephyrsoft.trackworktime.options.Key;
+import org.zephyrsoft.trackworktime.options.MapPreferences;
+import org.zephyrsoft.trackworktime.timer.TimeCalculator;
+import org.zephyrsoft.trackworktime.timer.TimerManager;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Runs the {@link WeekStateCalculator} on an {@link InMemoryEventStore}, with the resource IDs as labels.
+ */
+public class WeekStateCalculatorTest {
+
+	private final MapPreferences preferences = new MapPreferences();
+	private InMemoryEventStore store;
+	private TimerManager timerManager;
+	private TimeCalculator timeCalculator;
+	private Week week;
+
+	@Before
+	public void setUp() {
+		store = new InMemoryEventStore();
+		timerManager = new TimerManager(store, preferences, null, Runnable::run);
+		timeCalculator = new TimeCalculator(store, timerManager);
+		preferences.put(Key.ENABLE_FLEXI_TIME.getName(), true);
+		preferences.put(Key.FLEXI_TIME_TARGET.getName(), "40:00");
+		for (Key day : new Key[] { Key.FLEXI_TIME_DAY_MONDAY, Key.FLEXI_TIME_DAY_TUESDAY,
+			Key.FLEXI_TIME_DAY_WEDNESDAY, Key.FLEXI_TIME_DAY_THURSDAY, Key.FLEXI_TIME_DAY_FRIDAY }) {
+			preferences.put(day.getName(), true);
+		}
+		week = store.insertWeek(new Week(null, "2020-01-06 00:00:00.0000", 0, 0));
+	}
+
+	@Test
+	public void pastWeek() {
+		insert(TypeEnum.CLOCK_IN, "2020-01-06 08:00");
+		insert(TypeEnum.CLOCK_OUT, "2020-01-06 16:30");
+		insert(TypeEnum.CLOCK_IN, "2020-01-07 09:00");
+		insert(TypeEnum.CLOCK_OUT, "2020-01-07 17:00");
+		// a night shift into saturday
+		insert(TypeEnum.CLOCK_IN, "2020-01-10 22:00");
+		insert(TypeEnum.CLOCK_OUT, "2020-01-11 02:00");
+
+		WeekState state = new WeekStateCalculator(String::valueOf, store, timerManager, timeCalculator, preferences,
+			week).calculateWeekState();
+
+		assertThat(row(state.monday)).isEqualTo("08:00 16:30 8:30 0:30");
+		assertThat(row(state.tuesday)).isEqualTo("09:00 17:00 8:00 0:30");
+		assertThat(row(state.wednesday)).isEqualTo("  0:00 -7:30");
+		assertThat(row(state.friday)).isEqualTo("22:00 23:59 2:00 -21:30");
+		// not a work day, but there are events
+		assertThat(row(state.saturday)).isEqualTo("00:00 02:00 2:00 -19:30");
+		assertThat(row(state.sunday)).isEqualTo("   ");
+		assertThat(state.totals.getWorked()).isEqualTo("20:30");
+		assertThat(state.totals.getFlexi()).isEqualTo("-19:30");
+	}
+
+	private static String row(WeekRowState row) {
+		return row.getIn() + " " + row.getOut() + " " + row.getWorked() + " " + row.getFlexi();
+	}
+
+	private void insert(TypeEnum type, String time) {
+		store.insertEvent(new Event(null, week.getId(), null, type.getValue(), time + ":00.0000", null));
+	}
+
+}